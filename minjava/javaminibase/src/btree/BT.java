@@ -65,7 +65,7 @@ public class BT implements GlobalConst {
 
 			return (((IntegerKey) key1).getKey()).intValue() - (((IntegerKey) key2).getKey()).intValue();
 		} else if ((key1 instanceof StringKey) && (key2 instanceof StringKey)) {
-			return ((StringKey) key1).getKey().compareTo(((StringKey) key2).getKey());
+			return key1.toString().compareTo(key2.toString());
 		}
 		else if ((key1 instanceof DescriptorKey) && (key2 instanceof DescriptorKey)) {
 			return ((DescriptorKey) key1).getDescString().compareTo(((DescriptorKey) key2).getDescString());
@@ -76,6 +76,81 @@ public class BT implements GlobalConst {
 		}
 	}
 
+	/**
+	 * It compares a key with a key in a page. Integer and string keys are
+	 * compared on the bytes of the page, without making a key of them.
+	 * 
+	 * @param key
+	 *            the first key to compare. Input parameter.
+	 * @param from
+	 *            the page holding the second key. Input parameter.
+	 * @param offset
+	 *            the offset of the second key in from. Input parameter.
+	 * @param keyType
+	 *            the type of the keys of the page. Input parameter.
+	 * @return return negative if key less than the second key; positive if
+	 *         key bigger than it; 0 if they are equal.
+	 * @exception KeyNotMatchException
+	 *                key is not of the type of the page
+	 * @exception ConvertException
+	 *                error from the lower layer
+	 */
+	protected final static int keyCompare(KeyClass key, byte[] from, int offset, int keyType)
+			throws KeyNotMatchException, ConvertException {
+		try {
+			if ((keyType == AttrType.attrInteger) && (key instanceof IntegerKey)) {
+				return ((IntegerKey) key).getKey().intValue() - Convert.getIntValue(offset, from);
+			} else if ((keyType == AttrType.attrString) && (key instanceof StringKey)) {
+				return Convert.compareStrValue(key.toString(), offset, from);
+			} else if (keyType == AttrType.attrDesc) {
+				return keyCompare(key, new DescriptorKey(Convert.getDescValue(offset, from)));
+			} else {
+				throw new KeyNotMatchException(null, "key types do not match");
+			}
+		} catch (IOException e) {
+			throw new ConvertException(e, "convert failed");
+		}
+	}
+
+	/**
+	 * It compares two keys in pages. Integer and string keys are compared on
+	 * the bytes of the pages, without making keys of them.
+	 * 
+	 * @param data1
+	 *            the page holding the first key. Input parameter.
+	 * @param offset1
+	 *            the offset of the first key in data1. Input parameter.
+	 * @param data2
+	 *            the page holding the second key. Input parameter.
+	 * @param offset2
+	 *            the offset of the second key in data2. Input parameter.
+	 * @param keyType
+	 *            the type of the keys. Input parameter.
+	 * @return return negative if the first key is less than the second;
+	 *         positive if it is bigger; 0 if they are equal.
+	 * @exception KeyNotMatchException
+	 *                the key type is unknown
+	 * @exception ConvertException
+	 *                error from the lower layer
+	 */
+	protected final static int keyCompare(byte[] data1, int offset1, byte[] data2, int offset2, int keyType)
+			throws KeyNotMatchException, ConvertException {
+		try {
+			if (keyType == AttrType.attrInteger) {
+				return Convert.getIntValue(offset1, data1) - Convert.getIntValue(offset2, data2);
+			} else if (keyType == AttrType.attrString) {
+				return Convert.compareStrValue(offset1, data1, offset2, data2);
+			} else if (keyType == AttrType.attrDesc) {
+				return keyCompare(new DescriptorKey(Convert.getDescValue(offset1, data1)),
+						new DescriptorKey(Convert.getDescValue(offset2, data2)));
+			} else {
+				throw new KeyNotMatchException(null, "key types do not match");
+			}
+		} catch (IOException e) {
+			throw new ConvertException(e, "convert failed");
+		}
+	}
+
 	/**
 	 * It gets the length of the key
 	 * 
@@ -163,11 +163,11 @@ public class BTIndexPage extends BTSortedPage {
 
 		try {
 
+			// The keys are compared in the page; the child page number
+			// follows the key.
 			for (i = getSlotCnt() - 1; i >= 0; i--) {
-				entry = BT.getEntryFromBytes(getpage(), getSlotOffset(i), getSlotLength(i), keyType, NodeType.INDEX);
-
-				if (BT.keyCompare(key, entry.key) >= 0) {
-					return ((IndexData) entry.data).getData();
+				if (BT.keyCompare(key, getpage(), getSlotOffset(i), keyType) >= 0) {
+					return new PageId(Convert.getIntValue(getSlotOffset(i) + getSlotLength(i) - 4, getpage()));
 				}
 			}
 
@@ -420,7 +420,7 @@ public class BTIndexPage extends BTSortedPage {
 		try {
 			boolean st;
 			if (direction == -1) { // 'this' is the left sibling of indexPage
-				if ((getSlotLength(getSlotCnt() - 1) + available_space()) > ((MAX_SPACE - DPFIXED) / 2)) {
+				if ((getSlotLength(getSlotCnt() - 1) + available_space()) > ((SystemDefs.JavabasePageSize - DPFIXED) / 2)) {
 					// cannot spare a record for its underflow sibling
 					return false;
 				} else {
@@ -465,7 +465,7 @@ public class BTIndexPage extends BTSortedPage {
 					return true;
 				}
 			} else { // 'this' is the right sibling of indexPage
-				if ((getSlotLength(0) + available_space()) > ((MAX_SPACE - DPFIXED) / 2)) {
+				if ((getSlotLength(0) + available_space()) > ((SystemDefs.JavabasePageSize - DPFIXED) / 2)) {
 					// cannot spare a record for its underflow sibling
 					return false;
 				} else {
@@ -238,7 +238,7 @@ public class BTLeafPage extends BTSortedPage {
 		try {
 			if (direction == -1) { // 'this' is the left sibling of leafPage
 				if ((getSlotLength(getSlotCnt() - 1) + available_space()
-						+ 8 /* 2*sizeof(slot) */) > ((MAX_SPACE - DPFIXED) / 2)) {
+						+ 8 /* 2*sizeof(slot) */) > ((SystemDefs.JavabasePageSize - DPFIXED) / 2)) {
 					// cannot spare a record for its underflow sibling
 					return false;
 				} else {
@@ -275,7 +275,7 @@ public class BTLeafPage extends BTSortedPage {
 					return true;
 				}
 			} else { // 'this' is the right sibling of pptr
-				if ((getSlotLength(0) + available_space() + 8) > ((MAX_SPACE - DPFIXED) / 2)) {
+				if ((getSlotLength(0) + available_space() + 8) > ((SystemDefs.JavabasePageSize - DPFIXED) / 2)) {
 					// cannot spare a record for its underflow sibling
 					return false;
 				} else {
@@ -97,7 +97,6 @@ public class BTSortedPage extends HFPage {
 	 */
 	protected RID insertRecord(KeyDataEntry entry) throws InsertRecException {
 		int i;
-		short nType;
 		RID rid;
 		byte[] record;
 		// ASSERTIONS:
@@ -116,22 +115,10 @@ public class BTSortedPage extends HFPage {
 			if (rid == null)
 				return null;
 
-			if (entry.data instanceof LeafData)
-				nType = NodeType.LEAF;
-			else // entry.data instanceof IndexData
-				nType = NodeType.INDEX;
-
 			// performs a simple insertion sort
 			for (i = getSlotCnt() - 1; i > 0; i--) {
 
-				KeyClass key_i, key_iplus1;
-
-				key_i = BT.getEntryFromBytes(getpage(), getSlotOffset(i), getSlotLength(i), keyType, nType).key;
-
-				key_iplus1 = BT.getEntryFromBytes(getpage(), getSlotOffset(i - 1), getSlotLength(i - 1), keyType,
-						nType).key;
-
-				if (BT.keyCompare(key_i, key_iplus1) < 0) {
+				if (BT.keyCompare(getpage(), getSlotOffset(i), getpage(), getSlotOffset(i - 1), keyType) < 0) {
 					// switch slots:
 					int ln, off;
 					ln = getSlotLength(i);
@@ -24,6 +24,9 @@ public class BTreeFile extends IndexFile implements GlobalConst {
 
 	private final static String lineSep = System.getProperty("line.separator");
 
+	/** The hint for the header page and the index pages. */
+	private final static AccessHint INDEX_INTERNAL = new AccessHint(AccessHint.IndexInternal);
+
 	private static FileOutputStream fos;
 	private static DataOutputStream trace;
 
@@ -72,6 +75,37 @@ public class BTreeFile extends IndexFile implements GlobalConst {
 		return headerPage;
 	}
 
+	/**
+	 * Returns the number of levels of the tree: 0 for an empty tree, 1 when
+	 * the root is a leaf page.
+	 * 
+	 * @exception IOException
+	 *                error from the lower layer
+	 * @exception PinPageException
+	 *                error when pin a page
+	 * @exception UnpinPageException
+	 *                error when unpin a page
+	 */
+	public int getHeight() throws IOException, PinPageException, UnpinPageException {
+		int height = 0;
+		PageId pageno = headerPage.get_rootId();
+
+		// Follow the left-most child pointers down to a leaf.
+		while (pageno.pid != INVALID_PAGE) {
+			Page page = pinPage(pageno);
+			BTSortedPage sortedPage = new BTSortedPage(page, headerPage.get_keyType());
+			height++;
+
+			PageId child = new PageId(INVALID_PAGE);
+			if (sortedPage.getType() == NodeType.INDEX)
+				child.pid = sortedPage.getPrevPage().pid;
+
+			unpinPage(pageno);
+			pageno = child;
+		}
+		return height;
+	}
+
 	private PageId get_file_entry(String filename) throws GetFileEntryException {
 		try {
 			return SystemDefs.JavabaseDB.get_file_entry(filename);
@@ -92,6 +126,34 @@ public class BTreeFile extends IndexFile implements GlobalConst {
 		}
 	}
 
+	/**
+	 * Pin a page known to be the header page or an index page, keeping it in
+	 * the index tier of the buffer manager.
+	 */
+	private Page pinIndexPage(PageId pageno) throws PinPageException {
+		try {
+			Page page = new Page();
+			SystemDefs.JavabaseBM.pinPage(pageno, page, false/* Rdisk */, INDEX_INTERNAL);
+			return page;
+		} catch (Exception e) {
+			e.printStackTrace();
+			throw new PinPageException(e, "");
+		}
+	}
+
+	/**
+	 * Keep a pinned page, found to be an index page after it was pinned, in
+	 * the index tier of the buffer manager.
+	 */
+	private void keepPage(PageId pageno) throws PinPageException {
+		try {
+			SystemDefs.JavabaseBM.keepPage(pageno);
+		} catch (Exception e) {
+			e.printStackTrace();
+			throw new PinPageException(e, "");
+		}
+	}
+
 	private void add_file_entry(String fileName, PageId pageno) throws AddFileEntryException {
 		try {
 			SystemDefs.JavabaseDB.add_file_entry(fileName, pageno);
@@ -291,7 +353,7 @@ public class BTreeFile extends IndexFile implements GlobalConst {
 		BTreeHeaderPage header;
 		PageId old_data;
 
-		header = new BTreeHeaderPage(pinPage(headerPageId));
+		header = new BTreeHeaderPage(pinIndexPage(headerPageId));
 
 		old_data = headerPage.get_rootId();
 		header.set_rootId(newRoot);
@@ -507,6 +569,7 @@ public class BTreeFile extends IndexFile implements GlobalConst {
 		// try to insert pair (key, rid), maybe split
 
 		if (currentPage.getType() == NodeType.INDEX) {
+			keepPage(currentPageId);
 			BTIndexPage currentIndexPage = new BTIndexPage(page, headerPage.get_keyType());
 			PageId currentIndexPageId = currentPageId;
 			PageId nextPageId;
@@ -528,7 +591,7 @@ public class BTreeFile extends IndexFile implements GlobalConst {
 			if (upEntry == null)
 				return null;
 
-			currentIndexPage = new BTIndexPage(pinPage(currentPageId), headerPage.get_keyType());
+			currentIndexPage = new BTIndexPage(pinIndexPage(currentPageId), headerPage.get_keyType());
 
 			// ASSERTIONS:
 			// - upEntry != null
@@ -897,8 +960,7 @@ public class BTreeFile extends IndexFile implements GlobalConst {
 		PageId curpageno = null; // iterator
 		PageId prevpageno;
 		PageId nextpageno;
-		RID curRid;
-		KeyDataEntry curEntry;
+		int slot;
 
 		pageno = headerPage.get_rootId();
 
@@ -921,13 +983,16 @@ public class BTreeFile extends IndexFile implements GlobalConst {
 		// - pageno and sortPage valid and pinned
 
 		while (sortPage.getType() == NodeType.INDEX) {
+			keepPage(pageno);
 			pageIndex = new BTIndexPage(page, headerPage.get_keyType());
 			prevpageno = pageIndex.getPrevPage();
-			curEntry = pageIndex.getFirst(startrid);
-			while (curEntry != null && lo_key != null && BT.keyCompare(curEntry.key, lo_key) < 0) {
-
-				prevpageno = ((IndexData) curEntry.data).getData();
-				curEntry = pageIndex.getNext(startrid);
+			// The keys are compared in the page; the child page number
+			// follows the key.
+			for (slot = 0; lo_key != null && slot < pageIndex.getSlotCnt(); slot++) {
+				if (keyCompare(lo_key, pageIndex, slot) <= 0)
+					break;
+				prevpageno = new PageId(Convert.getIntValue(
+						pageIndex.getSlotOffset(slot) + pageIndex.getSlotLength(slot) - 4, page.getpage()));
 			}
 
 			unpinPage(pageno);
@@ -945,9 +1010,17 @@ public class BTreeFile extends IndexFile implements GlobalConst {
 
 		pageLeaf = new BTLeafPage(page, headerPage.get_keyType());
 
-		curEntry = pageLeaf.getFirst(startrid);
-		while (curEntry == null) {
-			// skip empty leaf pages off to left
+		// skip empty leaf pages and the keys less than lo_key, comparing the
+		// keys in the pages
+		slot = 0;
+		while (true) {
+			int slotCnt = pageLeaf.getSlotCnt();
+			while (lo_key != null && slot < slotCnt && keyCompare(lo_key, pageLeaf, slot) > 0)
+				slot++;
+			if (slot < slotCnt)
+				break;
+
+			// have to go right
 			nextpageno = pageLeaf.getNextPage();
 			unpinPage(pageno);
 			if (nextpageno.pid == INVALID_PAGE) {
@@ -957,38 +1030,29 @@ public class BTreeFile extends IndexFile implements GlobalConst {
 
 			pageno = nextpageno;
 			pageLeaf = new BTLeafPage(pinPage(pageno), headerPage.get_keyType());
-			curEntry = pageLeaf.getFirst(startrid);
+			slot = 0;
 		}
 
 		// ASSERTIONS:
-		// - curkey, curRid: contain the first record on the
-		// current leaf page (curkey its key, cur
-		// - pageLeaf, pageno valid and pinned
-
-		if (lo_key == null) {
-			return pageLeaf;
-			// note that pageno/pageLeaf is still pinned;
-			// scan will unpin it when done
-		}
+		// - startrid is the first record =< lo_key, or the first record if
+		// lo_key is null
+		// - pageLeaf, pageno valid and pinned; scan will unpin it when done
+		startrid.pageNo = pageLeaf.getCurPage();
+		startrid.slotNo = slot;
 
-		while (BT.keyCompare(curEntry.key, lo_key) < 0) {
-			curEntry = pageLeaf.getNext(startrid);
-			while (curEntry == null) { // have to go right
-				nextpageno = pageLeaf.getNextPage();
-				unpinPage(pageno);
-
-				if (nextpageno.pid == INVALID_PAGE) {
-					return null;
-				}
-
-				pageno = nextpageno;
-				pageLeaf = new BTLeafPage(pinPage(pageno), headerPage.get_keyType());
+		return pageLeaf;
+	}
 
-				curEntry = pageLeaf.getFirst(startrid);
-			}
+	/*
+	 * Compare a key with the key in a slot of a page, in the page.
+	 */
+	private int keyCompare(KeyClass key, BTSortedPage page, int slot)
+			throws IOException, IteratorException, KeyNotMatchException {
+		try {
+			return BT.keyCompare(key, page.getpage(), page.getSlotOffset(slot), headerPage.get_keyType());
+		} catch (ConvertException e) {
+			throw new IteratorException(e, "convert failed");
 		}
-
-		return pageLeaf;
 	}
 
 	/*
@@ -1168,7 +1232,7 @@ public class BTreeFile extends IndexFile implements GlobalConst {
 					}
 
 					PageId leafPage_no = leafPage.getCurPage();
-					if ((4 + leafPage.available_space()) <= ((MAX_SPACE - HFPage.DPFIXED) / 2)) {
+					if ((4 + leafPage.available_space()) <= ((SystemDefs.JavabasePageSize - HFPage.DPFIXED) / 2)) {
 						// the leaf page is at least half full after the
 						// deletion
 						unpinPage(leafPage.getCurPage(), true /* = DIRTY */);
@@ -1194,7 +1258,7 @@ public class BTreeFile extends IndexFile implements GlobalConst {
 					} else {
 						// get a sibling
 						BTIndexPage parentPage;
-						parentPage = new BTIndexPage(pinPage(parentPageId), headerPage.get_keyType());
+						parentPage = new BTIndexPage(pinIndexPage(parentPageId), headerPage.get_keyType());
 
 						PageId siblingPageId = new PageId();
 						BTLeafPage siblingPage;
@@ -1228,7 +1292,7 @@ public class BTreeFile extends IndexFile implements GlobalConst {
 							unpinPage(parentPageId, true);
 							return null;
 						} else if ((siblingPage.available_space()
-								+ 8 /* 2*sizeof(slot) */ ) >= ((MAX_SPACE - HFPage.DPFIXED)
+								+ 8 /* 2*sizeof(slot) */ ) >= ((SystemDefs.JavabasePageSize - HFPage.DPFIXED)
 										- leafPage.available_space())) {
 
 							// we can merge these two children
@@ -1318,6 +1382,7 @@ public class BTreeFile extends IndexFile implements GlobalConst {
 		}
 
 		if (sortPage.getType() == NodeType.INDEX) {
+			keepPage(currentPageId);
 			PageId childPageId;
 			BTIndexPage indexPage = new BTIndexPage(page, headerPage.get_keyType());
 			childPageId = indexPage.getPageNoByKey(key);
@@ -1332,7 +1397,7 @@ public class BTreeFile extends IndexFile implements GlobalConst {
 			// - oldChildKey != null: one of the children has been deleted and
 			// oldChildEntry is the entry to be deleted.
 
-			indexPage = new BTIndexPage(pinPage(currentPageId), headerPage.get_keyType());
+			indexPage = new BTIndexPage(pinIndexPage(currentPageId), headerPage.get_keyType());
 
 			if (oldChildKey == null) {
 				unpinPage(indexPage.getCurPage(), true);
@@ -1369,7 +1434,7 @@ public class BTreeFile extends IndexFile implements GlobalConst {
 			}
 
 			// now we know the current index page is not a root
-			if ((4 /* sizeof slot */ + indexPage.available_space()) <= ((MAX_SPACE - HFPage.DPFIXED) / 2)) {
+			if ((4 /* sizeof slot */ + indexPage.available_space()) <= ((SystemDefs.JavabasePageSize - HFPage.DPFIXED) / 2)) {
 				// the index page is at least half full after the deletion
 				unpinPage(currentPageId, true);
 
@@ -1377,7 +1442,7 @@ public class BTreeFile extends IndexFile implements GlobalConst {
 			} else {
 				// get a sibling
 				BTIndexPage parentPage;
-				parentPage = new BTIndexPage(pinPage(parentPageId), headerPage.get_keyType());
+				parentPage = new BTIndexPage(pinIndexPage(parentPageId), headerPage.get_keyType());
 
 				PageId siblingPageId = new PageId();
 				BTIndexPage siblingPage;
@@ -1393,7 +1458,7 @@ public class BTreeFile extends IndexFile implements GlobalConst {
 					return null;
 				}
 
-				siblingPage = new BTIndexPage(pinPage(siblingPageId), headerPage.get_keyType());
+				siblingPage = new BTIndexPage(pinIndexPage(siblingPageId), headerPage.get_keyType());
 
 				int pushKeySize = 0;
 				if (direction == 1) {
@@ -1419,7 +1484,7 @@ public class BTreeFile extends IndexFile implements GlobalConst {
 					unpinPage(parentPageId, true);
 
 					return null;
-				} else if (siblingPage.available_space() + 4 /* slot size */ >= ((MAX_SPACE - HFPage.DPFIXED)
+				} else if (siblingPage.available_space() + 4 /* slot size */ >= ((SystemDefs.JavabasePageSize - HFPage.DPFIXED)
 						- (indexPage.available_space() + 4 /* slot size */) + pushKeySize
 						+ 4 /* slot size */ + 4 /* pageId size */)) {
 
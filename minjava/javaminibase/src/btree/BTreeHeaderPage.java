@@ -21,6 +21,9 @@ import heap.*;
  */
 class BTreeHeaderPage extends HFPage {
 
+	/** The header page is kept in the index tier of the buffer manager. */
+	private static final AccessHint INDEX_INTERNAL = new AccessHint(AccessHint.IndexInternal);
+
 	void setPageId(PageId pageno) throws IOException {
 		setCurPage(pageno);
 	}
@@ -109,7 +112,7 @@ class BTreeHeaderPage extends HFPage {
 		super();
 		try {
 
-			SystemDefs.JavabaseBM.pinPage(pageno, this, false/* Rdisk */);
+			SystemDefs.JavabaseBM.pinPage(pageno, this, false/* Rdisk */, INDEX_INTERNAL);
 		} catch (Exception e) {
 			throw new ConstructPageException(e, "pinpage failed");
 		}
@@ -0,0 +1,232 @@
+/* File ARC.java */
+
+package bufmgr;
+
+import java.util.*;
+import global.*;
+
+/**
+ * class ARC is a subclass of class Replacer using the Adaptive Replacement
+ * Cache algorithm (Megiddo and Modha) for page replacement. Pages asked for
+ * once are kept in the LRU queue T1 and pages asked for again in the LRU queue
+ * T2. The page ids of pages replaced from T1 and T2 are remembered in the
+ * ghost queues B1 and B2. A miss on a page in B1 makes T1's target size p
+ * larger and a miss on a page in B2 makes it smaller, so the pool leans
+ * towards recency or frequency as the workload needs.
+ *
+ * pick_victim does not know the page it makes room for, so the choice of
+ * queue looks at p alone, without the tie-break on pages of B2. Its methods
+ * are synchronized, so threads take turns at the queues.
+ */
+class ARC extends Replacer {
+
+	/** Frames without a page. */
+	private FrameQueue free;
+
+	/** Frames with a page asked for once, least recently used first. */
+	private FrameQueue t1;
+
+	/** Frames with a page asked for more than once. */
+	private FrameQueue t2;
+
+	/** Page ids of pages replaced from T1 and T2, oldest first. */
+	private LinkedHashSet<Integer> b1;
+	private LinkedHashSet<Integer> b2;
+
+	/** Target size of T1. */
+	private int p;
+
+	/** Number of frames. */
+	private int c;
+
+	/**
+	 * Class constructor.
+	 */
+	public ARC(BufMgr mgrArg) {
+		super(mgrArg);
+	}
+
+	/**
+	 * Calling super class the same method, and putting every frame on the
+	 * free queue.
+	 *
+	 * @param mgr
+	 *            a BufMgr object
+	 * @see BufMgr
+	 * @see Replacer
+	 */
+	public synchronized void setBufferManager(BufMgr mgr) {
+		super.setBufferManager(mgr);
+		c = mgr.getNumBuffers();
+
+		free = new FrameQueue(c);
+		t1 = new FrameQueue(c);
+		t2 = new FrameQueue(c);
+		b1 = new LinkedHashSet<Integer>();
+		b2 = new LinkedHashSet<Integer>();
+		p = 0;
+
+		for (int i = 0; i < c; i++)
+			free.add(i);
+	}
+
+	/**
+	 * Calling super class the same method. A page of T1 moves to T2, and a
+	 * page of T2 to its most recently used end.
+	 *
+	 * @param frameNo
+	 *            the frame number to pin
+	 * @exception InvalidFrameNumberException
+	 */
+	public synchronized void pin(int frameNo) throws InvalidFrameNumberException {
+		super.pin(frameNo);
+
+		if (t1.contains(frameNo)) {
+			t1.remove(frameNo);
+			t2.add(frameNo);
+		} else if (t2.contains(frameNo)) {
+			t2.moveToTail(frameNo);
+		}
+	}
+
+	/**
+	 * Calling super class the same method. A frame handed out by pick_victim
+	 * goes to a queue when it is unpinned for the first time, as its page is
+	 * known by then; a page found in B1 or B2 adapts p and goes to T2.
+	 *
+	 * @param frameNo
+	 *            the frame number to unpin
+	 * @exception InvalidFrameNumberException
+	 * @exception PageUnpinnedException
+	 */
+	public synchronized boolean unpin(int frameNo) throws InvalidFrameNumberException, PageUnpinnedException {
+		super.unpin(frameNo);
+
+		if ((mgr.frameTable())[frameNo].pin_count() == 0 && !free.contains(frameNo) && !t1.contains(frameNo)
+				&& !t2.contains(frameNo)) {
+
+			int pid = (mgr.frameTable())[frameNo].pageNo.pid;
+			if (pid == INVALID_PAGE) {
+				free.add(frameNo);
+			} else if (b1.remove(pid)) {
+				p = Math.min(c, p + Math.max(1, b2.size() / Math.max(1, b1.size())));
+				t2.add(frameNo);
+			} else if (b2.remove(pid)) {
+				p = Math.max(0, p - Math.max(1, b1.size() / Math.max(1, b2.size())));
+				t2.add(frameNo);
+			} else {
+				t1.add(frameNo);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Calling super class the same method, and putting the frame on the free
+	 * queue.
+	 *
+	 * @param frameNo
+	 *            the frame number to free
+	 * @exception PagePinnedException
+	 */
+	public synchronized void free(int frameNo) throws PagePinnedException {
+		super.free(frameNo);
+
+		if (t1.contains(frameNo))
+			t1.remove(frameNo);
+		else if (t2.contains(frameNo))
+			t2.remove(frameNo);
+		if (!free.contains(frameNo))
+			free.add(frameNo);
+	}
+
+	/**
+	 * Finding a free frame in the buffer pool or choosing a page to replace
+	 * using the ARC policy: the least recently used page of T1 while T1 is
+	 * larger than p, of T2 otherwise.
+	 *
+	 * @return the frame number, pinned
+	 * @exception BufferPoolExceededException
+	 *                if every frame is pinned
+	 */
+	public synchronized int pick_victim() throws BufferPoolExceededException {
+		int frame = claim(free);
+		if (frame >= 0)
+			return frame;
+
+		boolean fromT1 = t1.size() > 0 && t1.size() > p;
+		frame = fromT1 ? claim(t1, b1) : claim(t2, b2);
+		if (frame < 0)
+			frame = fromT1 ? claim(t2, b2) : claim(t1, b1);
+		if (frame >= 0)
+			return frame;
+
+		throw new BufferPoolExceededException(null, "BUFMGR: BUFFER_EXCEEDED.");
+	}
+
+	/**
+	 * Pin the first unpinned frame of the queue, take it out of the queue and
+	 * remember its page in the ghost queue. The ghost queues are cut so that
+	 * T1 and B1 hold at most c pages, and all four queues at most 2c.
+	 *
+	 * @return the frame number, or -1 if every frame of the queue is pinned
+	 */
+	private int claim(FrameQueue q, LinkedHashSet<Integer> ghost) {
+		int frame = claim(q);
+		if (frame < 0)
+			return -1;
+
+		// A flush may have emptied the frame already.
+		int pid = (mgr.frameTable())[frame].pageNo.pid;
+		if (pid != INVALID_PAGE)
+			ghost.add(pid);
+		while (t1.size() + b1.size() > c && !b1.isEmpty())
+			removeOldest(b1);
+		while (t1.size() + t2.size() + b1.size() + b2.size() > 2 * c)
+			removeOldest(b2.isEmpty() ? b1 : b2);
+		return frame;
+	}
+
+	/**
+	 * Pin the first unpinned frame of the queue and take it out of the queue.
+	 *
+	 * @return the frame number, or -1 if every frame of the queue is pinned
+	 */
+	private int claim(FrameQueue q) {
+		for (int frame = q.head(); frame >= 0; frame = q.next(frame)) {
+			if ((mgr.frameTable())[frame].claim()) {
+				q.remove(frame);
+				state_bit[frame].state = Pinned;
+				return frame;
+			}
+		}
+		return -1;
+	}
+
+	private void removeOldest(LinkedHashSet<Integer> ghost) {
+		Iterator<Integer> oldest = ghost.iterator();
+		oldest.next();
+		oldest.remove();
+	}
+
+	/**
+	 * get the page replacement policy name
+	 *
+	 * @return return the name of replacement policy used
+	 */
+	public String name() {
+		return "ARC";
+	}
+
+	/**
+	 * print out the information of frame usage
+	 */
+	public synchronized void info() {
+		super.info();
+
+		System.out.println("ARC REPLACEMENT: p " + p + ", T1 " + t1.size() + " frames, T2 " + t2.size()
+				+ " frames, B1 " + b1.size() + " pages, B2 " + b2.size() + " pages, " + free.size()
+				+ " free frames");
+	}
+
+}
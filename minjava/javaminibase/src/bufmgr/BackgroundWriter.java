@@ -0,0 +1,84 @@
+/* File BackgroundWriter.java */
+
+package bufmgr;
+
+/**
+ * Writes dirty pages out in the background, so that a victim frame is
+ * usually clean and pinPage rarely waits for a write before it can read.
+ * The thread is woken up by unpinPage when a page is marked dirty. Every
+ * SystemDefs.MINIBASE_BG_WRITER_DELAY milliseconds it has BufMgr write the
+ * dirty pages no one has pinned, sorted by page number and merged into
+ * multi-page writes. It stops after a round with nothing to write and no
+ * page marked dirty meanwhile, so an idle buffer manager keeps no thread
+ * alive.
+ */
+class BackgroundWriter implements Runnable {
+
+	private BufMgr mgr;
+
+	/** Milliseconds between rounds. */
+	private long delay;
+
+	/** True if a page was marked dirty since the round began. */
+	private volatile boolean requested;
+
+	/** The writing thread, or null if none is running. */
+	private Thread worker;
+
+	/**
+	 * Create a background writer for a buffer manager.
+	 *
+	 * @param mgrArg
+	 *            the buffer manager whose pages are written
+	 * @param delayArg
+	 *            milliseconds between rounds
+	 */
+	public BackgroundWriter(BufMgr mgrArg, long delayArg) {
+		mgr = mgrArg;
+		delay = delayArg;
+	}
+
+	/** Tell the writer that a page was marked dirty. */
+	public void wake() {
+		if (requested)
+			return;
+
+		synchronized (this) {
+			requested = true;
+			if (worker == null) {
+				worker = new Thread(this, "minibase-bgwriter");
+				worker.setDaemon(true);
+				worker.start();
+			}
+		}
+	}
+
+	/** Write dirty pages every delay milliseconds while there are any. */
+	public void run() {
+		while (true) {
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException e) {
+				// Go on with the round.
+			}
+
+			requested = false;
+			int written;
+			try {
+				written = mgr.writeDirtyPages();
+			} catch (Exception e) {
+				// The pages stay dirty and are written when they are replaced.
+				written = 0;
+			}
+
+			if (written == 0) {
+				synchronized (this) {
+					if (!requested) {
+						worker = null;
+						return;
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,263 @@
+/* File BufHashTbl.java */
+
+package bufmgr;
+
+import java.util.*;
+import java.util.concurrent.locks.*;
+import global.*;
+
+/**
+ * A buffer hashtable to keep track of pages in the buffer pool. It inserts,
+ * retrieves and removes pages from the hash table.
+ *
+ * The table is split into stripes by page number, each with its own lock, so
+ * threads working on different pages rarely wait for each other. A stripe
+ * uses open addressing with linear probing on two parallel int arrays, so an
+ * insert allocates nothing and a lookup touches a few adjacent slots. A
+ * stripe doubles in size when it becomes half full.
+ *
+ * insert, lookup and remove lock the stripe of the page themselves. A caller
+ * that needs several steps to be atomic holds the stripe with lock/unlock
+ * around them; the locks are reentrant.
+ */
+class BufHashTbl implements GlobalConst {
+
+	/** Number of stripes, a power of two. */
+	private static final int NUM_STRIPES = 64;
+
+	/** One lock and open-addressing table per stripe. */
+	private static class Stripe {
+
+		/** Lock of the stripe. */
+		final ReentrantLock lock = new ReentrantLock();
+
+		/** Page number held by each slot, INVALID_PAGE means empty. */
+		int[] pages;
+
+		/** Frame number of the page in the same slot. */
+		int[] frames;
+
+		/** Number of slots minus one; the number of slots is a power of two. */
+		int mask;
+
+		/** 32 minus log2 of the number of slots. */
+		int shift;
+
+		/** Number of pages in the stripe. */
+		int count;
+
+		Stripe(int size) {
+			mask = size - 1;
+			shift = 32 - Integer.numberOfTrailingZeros(size);
+			pages = new int[size];
+			frames = new int[size];
+			Arrays.fill(pages, INVALID_PAGE);
+		}
+
+		/** Returns the slot where the search for a page starts. */
+		int hash(int pid) {
+			return (mix(pid) << 6) >>> shift;
+		}
+	}
+
+	private Stripe[] stripes = new Stripe[NUM_STRIPES];
+
+	/**
+	 * Fibonacci hashing spreads consecutive page numbers over the table: the
+	 * top bits pick the stripe, the next ones the slot in the stripe.
+	 */
+	private static int mix(int pid) {
+		return pid * 0x9E3779B9;
+	}
+
+	private Stripe stripe(int pid) {
+		return stripes[mix(pid) >>> 26];
+	}
+
+	/**
+	 * Creates a buffer hash table object.
+	 *
+	 * @param numbufs
+	 *            number of frames in the buffer pool.
+	 */
+	public BufHashTbl(int numbufs) {
+		int size = 16;
+		while (size * NUM_STRIPES < 2 * numbufs)
+			size <<= 1;
+
+		for (int i = 0; i < NUM_STRIPES; i++)
+			stripes[i] = new Stripe(size);
+	}
+
+	/** Locks the stripe of the given page. */
+	public void lock(int pid) {
+		stripe(pid).lock.lock();
+	}
+
+	/** Unlocks the stripe of the given page. */
+	public void unlock(int pid) {
+		stripe(pid).lock.unlock();
+	}
+
+	/** Locks every stripe, in a fixed order. */
+	public void lockAll() {
+		for (int i = 0; i < NUM_STRIPES; i++)
+			stripes[i].lock.lock();
+	}
+
+	/** Unlocks every stripe. */
+	public void unlockAll() {
+		for (int i = NUM_STRIPES - 1; i >= 0; i--)
+			stripes[i].lock.unlock();
+	}
+
+	/**
+	 * Insert association between page pageNo and frame frameNo into the hash
+	 * table.
+	 *
+	 * @param pageNo
+	 *            page number in the bucket.
+	 * @param frameNo
+	 *            frame number in the bucket.
+	 * @return true if successful.
+	 */
+	public boolean insert(PageId pageNo, int frameNo) {
+
+		Stripe s = stripe(pageNo.pid);
+		s.lock.lock();
+		try {
+			if (2 * (s.count + 1) > s.pages.length)
+				grow(s);
+
+			int i = s.hash(pageNo.pid);
+			while (s.pages[i] != INVALID_PAGE && s.pages[i] != pageNo.pid)
+				i = (i + 1) & s.mask;
+
+			if (s.pages[i] == INVALID_PAGE)
+				s.count++;
+			s.pages[i] = pageNo.pid;
+			s.frames[i] = frameNo;
+		} finally {
+			s.lock.unlock();
+		}
+
+		return true;
+	}
+
+	/** Double the size of a stripe and insert its pages again. */
+	private void grow(Stripe s) {
+		int[] pages = s.pages;
+		int[] frames = s.frames;
+
+		Stripe bigger = new Stripe(2 * pages.length);
+		for (int j = 0; j < pages.length; j++) {
+			if (pages[j] == INVALID_PAGE)
+				continue;
+			int i = bigger.hash(pages[j]);
+			while (bigger.pages[i] != INVALID_PAGE)
+				i = (i + 1) & bigger.mask;
+			bigger.pages[i] = pages[j];
+			bigger.frames[i] = frames[j];
+		}
+
+		s.pages = bigger.pages;
+		s.frames = bigger.frames;
+		s.mask = bigger.mask;
+		s.shift = bigger.shift;
+	}
+
+	/**
+	 * Find a page in the hashtable, return INVALID_PAGE on failure, otherwise
+	 * the frame number.
+	 * 
+	 * @param pageNo
+	 *            page number in the bucket.
+	 */
+	public int lookup(PageId pageNo) {
+
+		int pid = pageNo.pid;
+		if (pid == INVALID_PAGE)
+			return INVALID_PAGE;
+
+		Stripe s = stripe(pid);
+		s.lock.lock();
+		try {
+			for (int i = s.hash(pid); s.pages[i] != INVALID_PAGE; i = (i + 1) & s.mask) {
+				if (s.pages[i] == pid)
+					return s.frames[i];
+			}
+		} finally {
+			s.lock.unlock();
+		}
+
+		return (INVALID_PAGE);
+
+	}
+
+	/**
+	 * Remove the page from the hashtable.
+	 * 
+	 * @param pageNo
+	 *            page number of the bucket.
+	 */
+	public boolean remove(PageId pageNo) {
+
+		// Allow INVALID_PAGE to be removed all they want.
+		if (pageNo.pid == INVALID_PAGE)
+			return true;
+
+		Stripe s = stripe(pageNo.pid);
+		s.lock.lock();
+		try {
+			int i = s.hash(pageNo.pid);
+			while (s.pages[i] != pageNo.pid) {
+				if (s.pages[i] == INVALID_PAGE) {
+					System.err.println("ERROR: Page " + pageNo.pid + " was not found in hashtable.\n");
+
+					return false;
+				}
+				i = (i + 1) & s.mask;
+			}
+
+			// Shift later entries of the probe sequence back into the hole, so
+			// that no lookup stops early at an empty slot.
+			int hole = i;
+			for (int j = (hole + 1) & s.mask; s.pages[j] != INVALID_PAGE; j = (j + 1) & s.mask) {
+				int home = s.hash(s.pages[j]);
+				if (((j - home) & s.mask) >= ((j - hole) & s.mask)) {
+					s.pages[hole] = s.pages[j];
+					s.frames[hole] = s.frames[j];
+					hole = j;
+				}
+			}
+			s.pages[hole] = INVALID_PAGE;
+			s.count--;
+		} finally {
+			s.lock.unlock();
+		}
+
+		return true;
+
+	}
+
+	/** Show hashtable contents. */
+	public void display() {
+
+		System.out.println("HASH Table contents :FrameNo[PageNo]");
+
+		lockAll();
+		try {
+			for (Stripe s : stripes) {
+				for (int i = 0; i < s.pages.length; i++) {
+					if (s.pages[i] != INVALID_PAGE)
+						System.out.println(s.frames[i] + "[" + s.pages[i] + "]-");
+				}
+			}
+		} finally {
+			unlockAll();
+		}
+		System.out.println("");
+
+	}
+
+}
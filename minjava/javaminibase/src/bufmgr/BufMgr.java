@@ -4,6 +4,8 @@ package bufmgr;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
 import diskmgr.*;
 import global.*;
 
@@ -11,9 +13,17 @@ import global.*;
  * A frame description class. It describes each page in the buffer pool, the
  * page number in the file, whether it is dirty or not, its pin count, and the
  * pin count change when pinning or unpinning a page.
+ *
+ * The pin count is changed atomically, so threads may pin and unpin the same
+ * frame at once. A frame whose page is being read is marked as loading; other
+ * threads that pin the page meanwhile wait in awaitLoad until the read is
+ * done.
  */
 class FrameDesc implements GlobalConst {
 
+	private static final AtomicIntegerFieldUpdater<FrameDesc> PIN_CNT = AtomicIntegerFieldUpdater
+			.newUpdater(FrameDesc.class, "pin_cnt");
+
 	/** The page within file, or INVALID_PAGE if the frame is empty. */
 	public PageId pageNo;
 
@@ -21,10 +31,13 @@ class FrameDesc implements GlobalConst {
 	 * the dirty bit, 1 (TRUE) stands for this frame is altered, 0 (FALSE) for
 	 * clean frames.
 	 */
-	public boolean dirty;
+	public volatile boolean dirty;
 
 	/** The pin count for the page in this frame */
-	public int pin_cnt;
+	public volatile int pin_cnt;
+
+	/** True while the page is being read into the frame. */
+	private volatile boolean loading;
 
 	/**
 	 * Creates a FrameDesc object, initialize pageNo, dirty and pin_count.
@@ -53,7 +66,7 @@ class FrameDesc implements GlobalConst {
 	 * @return the incremented pin count.
 	 */
 	public int pin() {
-		return (++pin_cnt);
+		return PIN_CNT.incrementAndGet(this);
 	}
 
 	/**
@@ -64,171 +77,54 @@ class FrameDesc implements GlobalConst {
 	 */
 	public int unpin() {
 
-		pin_cnt = (pin_cnt <= 0) ? 0 : pin_cnt - 1;
-
-		return (pin_cnt);
-	}
-}
-
-// *****************************************************
-
-/**
- * A buffer hashtable entry description class. It describes each entry for the
- * buffer hash table, the page number and frame number for that page, the
- * pointer points to the next hash table entry.
- */
-class BufHTEntry {
-	/** The next entry in this hashtable bucket. */
-	public BufHTEntry next;
-
-	/** This page number. */
-	public PageId pageNo = new PageId();
-
-	/** The frame we are stored in. */
-	public int frameNo;
-}
-
-// *****************************************************
-
-/**
- * A buffer hashtable to keep track of pages in the buffer pool. It inserts,
- * retrieves and removes pages from the h ash table.
- */
-class BufHashTbl implements GlobalConst {
-
-	/** Hash Table size, small number for debugging. */
-	private static final int HTSIZE = 20;
-
-	/**
-	 * Each slot holds a linked list of BufHTEntrys, NULL means none.
-	 */
-	private BufHTEntry ht[] = new BufHTEntry[HTSIZE];
-
-	/**
-	 * Returns the number of hash bucket used, value between 0 and HTSIZE-1
-	 *
-	 * @param pageNo
-	 *            the page number for the page in file.
-	 * @return the bucket number in the hash table.
-	 */
-	private int hash(PageId pageNo) {
-		return (pageNo.pid % HTSIZE);
-	}
-
-	/** Creates a buffer hash table object. */
-	public BufHashTbl() {
-		for (int i = 0; i < HTSIZE; i++)
-			ht[i] = null;
+		while (true) {
+			int cnt = pin_cnt;
+			if (cnt <= 0)
+				return 0;
+			if (PIN_CNT.compareAndSet(this, cnt, cnt - 1))
+				return (cnt - 1);
+		}
 	}
 
 	/**
-	 * Insert association between page pageNo and frame frameNo into the hash
-	 * table.
+	 * Pins the frame only if no one else has it pinned. This is how a
+	 * replacer takes a victim frame.
 	 *
-	 * @param pageNo
-	 *            page number in the bucket.
-	 * @param frameNo
-	 *            frame number in the bucket.
-	 * @return true if successful.
+	 * @return true if the pin count went from 0 to 1.
 	 */
-	public boolean insert(PageId pageNo, int frameNo) {
-
-		BufHTEntry ent = new BufHTEntry();
-		int index = hash(pageNo);
-
-		ent.pageNo.pid = pageNo.pid;
-		ent.frameNo = frameNo;
-
-		ent.next = ht[index]; // insert this page at the top
-		ht[index] = ent;
-
-		return true;
+	public boolean claim() {
+		return PIN_CNT.compareAndSet(this, 0, 1);
 	}
 
-	/**
-	 * Find a page in the hashtable, return INVALID_PAGE on failure, otherwise
-	 * the frame number.
-	 * 
-	 * @param pageNo
-	 *            page number in the bucket.
-	 */
-	public int lookup(PageId pageNo) {
-
-		BufHTEntry ent;
-		if (pageNo.pid == INVALID_PAGE)
-			return INVALID_PAGE;
-
-		for (ent = ht[hash(pageNo)]; ent != null; ent = ent.next) {
-			if (ent.pageNo.pid == pageNo.pid) {
-				return (ent.frameNo);
-			}
-		}
-
-		return (INVALID_PAGE);
-
+	/** Marks the frame as being read into. */
+	public void startLoad() {
+		loading = true;
 	}
 
-	/**
-	 * Remove the page from the hashtable.
-	 * 
-	 * @param pageNo
-	 *            page number of the bucket.
-	 */
-	public boolean remove(PageId pageNo) {
-
-		BufHTEntry cur, prev = null;
-
-		// Allow INVALID_PAGE to be removed all they want.
-		if (pageNo.pid == INVALID_PAGE)
-			return true;
-
-		int indx = hash(pageNo);
-		for (cur = ht[indx]; cur != null; cur = cur.next) {
-
-			if (cur.pageNo.pid == pageNo.pid)
-				break;
-			prev = cur;
-		}
-
-		if (cur != null) {
-			if (prev != null)
-				prev.next = cur.next;
-			else
-				ht[indx] = cur.next;
-
-		} else {
-			System.err.println("ERROR: Page " + pageNo.pid + " was not found in hashtable.\n");
-
-			return false;
-		}
-
-		return true;
-
+	/** Marks the read as done and wakes up the threads waiting for it. */
+	public synchronized void endLoad() {
+		loading = false;
+		notifyAll();
 	}
 
-	/** Show hashtable contents. */
-	public void display() {
-		BufHTEntry cur;
-
-		System.out.println("HASH Table contents :FrameNo[PageNo]");
-
-		for (int i = 0; i < HTSIZE; i++) {
-			// System.out.println ( "\nindex: " + i + "-" );
-			if (ht[i] != null) {
+	/** Waits until the page has been read into the frame. */
+	public void awaitLoad() {
+		if (!loading)
+			return;
 
-				for (cur = ht[i]; cur != null; cur = cur.next) {
-					System.out.println(cur.frameNo + "[" + cur.pageNo.pid + "]-");
+		boolean interrupted = false;
+		synchronized (this) {
+			while (loading) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
 				}
-				System.out.println("\t\t");
-
-			} else {
-				System.out.println("NONE\t");
 			}
 		}
-		System.out.println("");
-
+		if (interrupted)
+			Thread.currentThread().interrupt();
 	}
-
 }
 
 // *****************************************************
@@ -236,9 +132,15 @@ class BufHashTbl implements GlobalConst {
 /**
  * A clock algorithm for buffer pool replacement policy. It picks up the frame
  * in the buffer pool to be replaced. This is the default replacement policy.
+ *
+ * The clock hand is advanced atomically and a victim is taken by raising its
+ * pin count from 0 to 1 with compare-and-set, so several threads can look for
+ * victims at the same time without a lock.
  */
 class Clock extends Replacer {
 
+	private AtomicInteger hand = new AtomicInteger(-1);
+
 	/** Creates a clock object. */
 	public Clock(BufMgr javamgr) {
 		super(javamgr);
@@ -254,36 +156,30 @@ class Clock extends Replacer {
 	 * @throws BufferPoolExceededException.
 	 */
 	public int pick_victim() throws BufferPoolExceededException, PagePinnedException {
-		int num = 0;
 		int numBuffers = mgr.getNumBuffers();
+		FrameDesc[] frames = mgr.frameTable();
 
-		head = (head + 1) % numBuffers;
-		while (state_bit[head].state != Available) {
-			if (state_bit[head].state == Referenced)
-				state_bit[head].state = Available;
-
-			if (num == 2 * numBuffers) {
+		for (int num = 0; num <= 2 * numBuffers; num++) {
+			int frame = Math.floorMod(hand.incrementAndGet(), numBuffers);
 
-				throw new BufferPoolExceededException(null, "BUFMGR: BUFFER_EXCEEDED.");
+			if (frames[frame].pin_count() != 0)
+				continue;
 
+			// Give referenced frames a second chance.
+			if (state_bit[frame].state == Referenced) {
+				state_bit[frame].state = Available;
+				continue;
 			}
-			++num;
-			head = (head + 1) % numBuffers;
-		}
-
-		// Make sure pin count is 0.
-		/** need to convert assert to a similar function. */
-		// assert( (mgr.frameTable())[head].pin_count() == 0 );
 
-		if ((mgr.frameTable())[head].pin_count() != 0) {
-			throw new PagePinnedException(null, "BUFMGR: PIN_COUNT IS NOT 0.");
+			// Pin this victim so that other threads can't pick it as victim.
+			if (frames[frame].claim()) {
+				state_bit[frame].state = Pinned;
+				head = frame;
+				return frame;
+			}
 		}
 
-		state_bit[head].state = Pinned; // Pin this victim so that other
-		(mgr.frameTable())[head].pin();
-		// process can't pick it as victim (???)
-
-		return head;
+		throw new BufferPoolExceededException(null, "BUFMGR: BUFFER_EXCEEDED.");
 	}
 
 	/**
@@ -314,13 +210,13 @@ class Clock extends Replacer {
 public class BufMgr implements GlobalConst {
 
 	/** The hash table, only allocated once. */
-	private BufHashTbl hashTable = new BufHashTbl();
+	private BufHashTbl hashTable;
 
 	/** Total number of buffer frames in the buffer pool. */
 	private int numBuffers;
 
 	/** physical buffer pool. */
-	private byte[][] bufPool; // default = byte[NUMBUF][MAX_SPACE];
+	private byte[][] bufPool; // default = byte[NUMBUF][JavabasePageSize];
 
 	/** An array of Descriptors one per frame. */
 	private FrameDesc[] frmeTable; // default = new FrameDesc[NUMBUF];
@@ -328,6 +224,63 @@ public class BufMgr implements GlobalConst {
 	/** The replacer object, which is only used in this class. */
 	private Replacer replacer;
 
+	/**
+	 * Clean pages evicted from the frames, kept in direct memory, or null if
+	 * SystemDefs.MINIBASE_VICTIM_CACHE_PAGES is 0.
+	 */
+	private VictimCache victimCache;
+
+	/** Largest number of frames in the ring of sequential scans. */
+	private static final int SCAN_RING_SIZE = 32;
+
+	/**
+	 * Frames that pages pinned with AccessHint.Sequential are read into, or
+	 * null if the pool is too small to spare them.
+	 */
+	private BufferRing scanRing;
+
+	/**
+	 * Reads the pages sequential scans ask for ahead of them, or null if
+	 * read-ahead is off.
+	 */
+	private ReadAhead readAhead;
+
+	/** Number of pages a scan may ask for ahead of the page it is on. */
+	private int readAheadWindow;
+
+	/**
+	 * Writes dirty pages out in the background, or null if
+	 * SystemDefs.MINIBASE_BG_WRITER_DELAY is 0.
+	 */
+	private BackgroundWriter bgWriter;
+
+	/** Most frames the background writer pins at once. */
+	private static final int WRITE_BATCH = 32;
+
+	/**
+	 * Held by the background writer while it writes a batch and by the
+	 * flushes and freePage, so they do not empty a frame the writer is
+	 * writing.
+	 */
+	private ReentrantLock writeBackLock = new ReentrantLock();
+
+	/**
+	 * The pages whose frames flushAllPages emptied, sorted. A flush only
+	 * adds to them, so a second flush, which finds the dirty pages gone,
+	 * does not lose the ones the first took out of the pool; freePage takes
+	 * a freed page out. Changed only under writeBackLock.
+	 */
+	private int[] flushedPages = new int[0];
+
+	/**
+	 * The frames that hold B-tree header and index pages for good, or null if
+	 * there is no such tier.
+	 */
+	private IndexTier indexTier;
+
+	/** The hint of pinPage without one. */
+	private static final AccessHint RANDOM_ACCESS = new AccessHint(AccessHint.Random);
+
 	/**
 	 * Factor out the common code for the two versions of Flush
 	 *
@@ -353,11 +306,32 @@ public class BufMgr implements GlobalConst {
 	 */
 	private void privFlushPages(PageId pageid, int all_pages) throws HashOperationException, PageUnpinnedException,
 			PagePinnedException, PageNotFoundException, BufMgrException, IOException {
+
+		// Keep the background writer and other threads out of the page table
+		// while frames are written and emptied.
+		writeBackLock.lock();
+		hashTable.lockAll();
+		try {
+			if (all_pages != 0)
+				flushAllFrames();
+			else
+				flushFrames(pageid);
+		} finally {
+			hashTable.unlockAll();
+			writeBackLock.unlock();
+		}
+	}
+
+	/** Flush one page, run with every stripe locked. */
+	private void flushFrames(PageId pageid) throws HashOperationException, PagePinnedException,
+			PageNotFoundException, PageUnpinnedException, BufMgrException {
 		int i;
 		int unpinned = 0;
 
-		for (i = 0; i < numBuffers; i++) // write all valid dirty pages to disk
-			if ((all_pages != 0) || (frmeTable[i].pageNo.pid == pageid.pid)) {
+		for (i = 0; i < numBuffers; i++) // write the page to disk if dirty
+			if (frmeTable[i].pageNo.pid == pageid.pid) {
+
+				unkeepFrame(i);
 
 				if (frmeTable[i].pin_count() != 0)
 					unpinned++;
@@ -374,7 +348,7 @@ public class BufMgr implements GlobalConst {
 					write_page(pageid, apage);
 
 					try {
-						hashTable.remove(pageid);
+						hashTable.remove(frmeTable[i].pageNo);
 					}
 
 					catch (Exception e2) {
@@ -385,18 +359,212 @@ public class BufMgr implements GlobalConst {
 					frmeTable[i].dirty = false;
 				}
 
-				if (all_pages == 0) {
+				if (unpinned != 0)
+					throw new PagePinnedException(null, "BUFMGR: PAGE_PINNED.");
+			}
+	}
 
-					if (unpinned != 0)
-						throw new PagePinnedException(null, "BUFMGR: PAGE_PINNED.");
+	/**
+	 * Flush every dirty page, run with every stripe locked. The dirty frames
+	 * are sorted by page number, so that each run of consecutive pages is
+	 * written with one write, in file order.
+	 */
+	private void flushAllFrames() throws HashOperationException, PageNotFoundException, PageUnpinnedException,
+			BufMgrException {
+		int unpinned = 0;
+
+		for (int i = 0; i < numBuffers; i++) {
+			unkeepFrame(i);
+
+			if (frmeTable[i].pin_count() != 0)
+				unpinned++;
+
+			if (frmeTable[i].dirty != false && frmeTable[i].pageNo.pid == INVALID_PAGE)
+				throw new PageNotFoundException(null, "BUFMGR: INVALID_PAGE_NO");
+		}
+
+		long[] dirty = dirtyFrames(false);
+		writeSorted(dirty, dirty.length);
+
+		// Remember the pages for the warm list before the frames are emptied.
+		int[] emptied = new int[dirty.length];
+		for (int k = 0; k < dirty.length; k++)
+			emptied[k] = pageOf(dirty[k]);
+		flushedPages = merge(flushedPages, emptied);
+
+		for (int k = 0; k < dirty.length; k++) {
+			int i = frameOf(dirty[k]);
+
+			try {
+				hashTable.remove(frmeTable[i].pageNo);
+			}
+
+			catch (Exception e2) {
+				throw new HashOperationException(e2, "BUFMGR: HASH_TBL_ERROR.");
+			}
+
+			frmeTable[i].pageNo.pid = INVALID_PAGE; // frame is empty
+			frmeTable[i].dirty = false;
+		}
+
+		if (unpinned != 0)
+			//throw new PagePinnedException(null, "BUFMGR: PAGE_PINNED.");
+			System.out.println(" ");
+	}
+
+	/** Returns the pages in the pool, sorted. */
+	private int[] residentPages() {
+		int[] pids = new int[numBuffers];
+		int n = 0;
+
+		for (int i = 0; i < numBuffers; i++)
+			if (frmeTable[i].pageNo.pid != INVALID_PAGE)
+				pids[n++] = frmeTable[i].pageNo.pid;
+
+		pids = Arrays.copyOf(pids, n);
+		Arrays.sort(pids);
+		return pids;
+	}
+
+	/**
+	 * Returns the frames holding dirty pages, sorted by page number. Each is
+	 * the page number in the high and the frame number in the low 32 bits.
+	 *
+	 * @param unpinnedOnly
+	 *            leave out the frames someone has pinned
+	 */
+	private long[] dirtyFrames(boolean unpinnedOnly) {
+		long[] dirty = new long[numBuffers];
+		int n = 0;
+
+		for (int i = 0; i < numBuffers; i++) {
+			int pid = frmeTable[i].pageNo.pid;
+			if (frmeTable[i].dirty == false || pid == INVALID_PAGE)
+				continue;
+			if (unpinnedOnly && frmeTable[i].pin_count() != 0)
+				continue;
+			dirty[n++] = ((long) pid << 32) | i;
+		}
+
+		dirty = Arrays.copyOf(dirty, n);
+		Arrays.sort(dirty);
+		return dirty;
+	}
+
+	private static int pageOf(long entry) {
+		return (int) (entry >>> 32);
+	}
+
+	private static int frameOf(long entry) {
+		return (int) entry;
+	}
+
+	/**
+	 * Write the pages of the first n frames of a list made by dirtyFrames,
+	 * with one write for each run of consecutive pages.
+	 */
+	private void writeSorted(long[] sorted, int n) throws BufMgrException {
+		int i = 0;
+
+		while (i < n) {
+			int run = 1;
+			while ((i + run < n) && (pageOf(sorted[i + run]) == pageOf(sorted[i]) + run))
+				run++;
+
+			PageId pageid = new PageId(pageOf(sorted[i]));
+			if (run == 1) {
+				write_page(pageid, new Page(bufPool[frameOf(sorted[i])]));
+			} else {
+				Page[] pages = new Page[run];
+				for (int k = 0; k < run; k++)
+					pages[k] = new Page(bufPool[frameOf(sorted[i + k])]);
+
+				write_pages(pageid, run, pages);
+			}
+			i += run;
+		}
+	}
+
+	/**
+	 * Write out the dirty pages no one has pinned, in page order, leaving
+	 * them in the pool as clean pages. This is the work of the background
+	 * writer. The frames are written WRITE_BATCH at a time, each batch pinned
+	 * while it is written so that it is not replaced meanwhile.
+	 *
+	 * @return the number of pages written
+	 * @exception BufMgrException
+	 *                if a write failed; the pages of the batch stay dirty
+	 */
+	int writeDirtyPages() throws BufMgrException, InvalidFrameNumberException, PageUnpinnedException {
+		long[] dirty = dirtyFrames(true);
+		long[] batch = new long[WRITE_BATCH];
+		int written = 0;
+
+		for (int next = 0; next < dirty.length;) {
+			int n = 0;
+
+			writeBackLock.lock();
+			try {
+				// Pin the frames that still hold their dirty page.
+				while (n < WRITE_BATCH && next < dirty.length) {
+					int frameNo = frameOf(dirty[next]);
+					FrameDesc frame = frmeTable[frameNo];
+					if (frame.pin_count() == 0 && replacer.claim(frameNo)) {
+						if (frame.pageNo.pid == pageOf(dirty[next]) && frame.dirty == true) {
+							batch[n++] = dirty[next];
+						} else {
+							replacer.unpin(frameNo);
+						}
+					}
+					next++;
+				}
+
+				// Clear the bits first: a change made during the write sets
+				// them again.
+				for (int k = 0; k < n; k++)
+					frmeTable[frameOf(batch[k])].dirty = false;
+				try {
+					writeSorted(batch, n);
+				} catch (BufMgrException e) {
+					for (int k = 0; k < n; k++)
+						frmeTable[frameOf(batch[k])].dirty = true;
+					throw e;
+				}
+				written += n;
+			} finally {
+				try {
+					unpinBatch(batch, n);
+				} finally {
+					writeBackLock.unlock();
 				}
 			}
+		}
 
-		if (all_pages != 0) {
-			if (unpinned != 0)
-				//throw new PagePinnedException(null, "BUFMGR: PAGE_PINNED.");
-				System.out.println(" ");
+		return written;
+	}
+
+	/**
+	 * Unpin the frames of a batch of writeDirtyPages, each of them even if
+	 * another one fails.
+	 */
+	private void unpinBatch(long[] batch, int n) throws InvalidFrameNumberException, PageUnpinnedException {
+		InvalidFrameNumberException invalid = null;
+		PageUnpinnedException unpinned = null;
+
+		for (int k = 0; k < n; k++) {
+			try {
+				replacer.unpin(frameOf(batch[k]));
+			} catch (InvalidFrameNumberException e) {
+				invalid = e;
+			} catch (PageUnpinnedException e) {
+				unpinned = e;
+			}
 		}
+
+		if (invalid != null)
+			throw invalid;
+		if (unpinned != null)
+			throw unpinned;
 	}
 
 	/**
@@ -405,20 +573,44 @@ public class BufMgr implements GlobalConst {
 	 * @param numbufs
 	 *            number of buffers in the buffer pool.
 	 * @param replacerArg
-	 *            name of the buffer replacement policy.
+	 *            name of the buffer replacement policy: "Clock", "LRU",
+	 *            "MRU", "2Q" or "ARC".
 	 */
 	public BufMgr(int numbufs, String replacerArg)
 
 	{
 
 		numBuffers = numbufs;
+		hashTable = new BufHashTbl(numBuffers);
 		frmeTable = new FrameDesc[numBuffers];
-		bufPool = new byte[numBuffers][MAX_SPACE];
+		bufPool = new byte[numBuffers][SystemDefs.JavabasePageSize];
 		frmeTable = new FrameDesc[numBuffers];
 
 		for (int i = 0; i < numBuffers; i++) // initialize frameTable
 			frmeTable[i] = new FrameDesc();
 
+		if (SystemDefs.MINIBASE_VICTIM_CACHE_PAGES > 0)
+			victimCache = new VictimCache(SystemDefs.MINIBASE_VICTIM_CACHE_PAGES, SystemDefs.JavabasePageSize);
+
+		// A scan may have an eighth of the pool.
+		if (numBuffers / 8 >= 2)
+			scanRing = new BufferRing(Math.min(SCAN_RING_SIZE, numBuffers / 8));
+
+		// Pages read ahead go to the ring; half of it is left for the pages
+		// the scans are on.
+		if (scanRing != null && SystemDefs.MINIBASE_READ_AHEAD > 0) {
+			readAheadWindow = Math.min(SystemDefs.MINIBASE_READ_AHEAD, scanRing.size() / 2);
+			readAhead = new ReadAhead(this, scanRing);
+		}
+
+		if (SystemDefs.MINIBASE_BG_WRITER_DELAY > 0)
+			bgWriter = new BackgroundWriter(this, SystemDefs.MINIBASE_BG_WRITER_DELAY);
+
+		// Index pages may hold a quarter of the pool for good.
+		int tierSize = Math.min(SystemDefs.MINIBASE_INDEX_TIER_PAGES, numBuffers / 4);
+		if (tierSize > 0)
+			indexTier = new IndexTier(numBuffers, tierSize);
+
 		if (replacerArg == null) {
 
 			replacer = new Clock(this);
@@ -434,6 +626,12 @@ public class BufMgr implements GlobalConst {
 			} else if (replacerArg.compareTo("MRU") == 0) {
 				replacer = new LRU(this);
 				System.out.println("Replacer: MRU\n");
+			} else if (replacerArg.compareTo("2Q") == 0) {
+				replacer = new TwoQ(this);
+				System.out.println("Replacer: 2Q\n");
+			} else if (replacerArg.compareTo("ARC") == 0) {
+				replacer = new ARC(this);
+				System.out.println("Replacer: ARC\n");
 			} else {
 				replacer = new Clock(this);
 				System.out.println("Replacer:Unknown, Use Clock\n");
@@ -485,87 +683,430 @@ public class BufMgr implements GlobalConst {
 	public void pinPage(PageId pin_pgid, Page page, boolean emptyPage)
 			throws ReplacerException, HashOperationException, PageUnpinnedException, InvalidFrameNumberException,
 			PageNotReadException, BufferPoolExceededException, PagePinnedException, BufMgrException, IOException {
+		pinPage(pin_pgid, page, emptyPage, RANDOM_ACCESS);
+	}
+
+	/**
+	 * Pin a page as pinPage(PageId, Page, boolean) does, telling the buffer
+	 * manager how the page will be used. A page pinned with
+	 * AccessHint.Sequential that is not in the pool is read into the frames
+	 * of a small ring shared by the sequential scans, so that a scan does not
+	 * push the rest of the pool out. A page pinned with
+	 * AccessHint.IndexInternal is kept in the pool for good, as keepPage
+	 * does. AccessHint.Random pages use the whole pool.
+	 *
+	 * @param pin_pgid
+	 *            page number in the minibase.
+	 * @param page
+	 *            the pointer poit to the page.
+	 * @param emptyPage
+	 *            true (empty page); false (non-empty page)
+	 * @param hint
+	 *            how the page will be used.
+	 *
+	 * @exception ReplacerException
+	 *                if there is a replacer error.
+	 * @exception HashOperationException
+	 *                if there is a hashtable error.
+	 * @exception PageUnpinnedException
+	 *                if there is a page that is already unpinned.
+	 * @exception InvalidFrameNumberException
+	 *                if there is an invalid frame number .
+	 * @exception PageNotReadException
+	 *                if a page cannot be read.
+	 * @exception BufferPoolExceededException
+	 *                if the buffer pool is full.
+	 * @exception PagePinnedException
+	 *                if a page is left pinned .
+	 * @exception BufMgrException
+	 *                other error occured in bufmgr layer
+	 * @exception IOException
+	 *                if there is other kinds of I/O error.
+	 */
+	public void pinPage(PageId pin_pgid, Page page, boolean emptyPage, AccessHint hint)
+			throws ReplacerException, HashOperationException, PageUnpinnedException, InvalidFrameNumberException,
+			PageNotReadException, BufferPoolExceededException, PagePinnedException, BufMgrException, IOException {
 		int frameNo;
-		boolean bst, bst2;
-		PageId oldpageNo = new PageId(-1);
-		int needwrite = 0;
+		BufferRing ring = (hint.accessHint == AccessHint.Sequential) ? scanRing : null;
+
+		if (ring != null && readAhead != null)
+			readAhead.cancel(pin_pgid.pid);
 		PCounter.preadIncrement();
-		frameNo = hashTable.lookup(pin_pgid);
 
-		if (frameNo < 0) { // Not in the buffer pool
+		while (true) {
+			frameNo = pinResident(pin_pgid);
 
-			frameNo = replacer.pick_victim(); // frameNo is pinned
-			if (frameNo < 0) {
-				page = null;
-				throw new ReplacerException(null, "BUFMGR: REPLACER_ERROR.");
+			if (frameNo >= 0) { // the page is in the buffer pool
 
-			}
+				// Another thread may still be reading the page in.
+				frmeTable[frameNo].awaitLoad();
+				if (frmeTable[frameNo].pageNo.pid != pin_pgid.pid) {
+					// That read failed; start over.
+					replacer.unpin(frameNo);
+					continue;
+				}
 
-			if ((frmeTable[frameNo].pageNo.pid != INVALID_PAGE) && (frmeTable[frameNo].dirty == true)) {
-				needwrite = 1;
-				oldpageNo.pid = frmeTable[frameNo].pageNo.pid;
+				break;
 			}
 
-			bst = hashTable.remove(frmeTable[frameNo].pageNo);
-			if (bst != true) {
-				throw new HashOperationException(null, "BUFMGR: HASH_TABLE_ERROR.");
-			}
+			// Not in the buffer pool
+			frameNo = claimFrame(pin_pgid, ring); // frameNo is pinned
+			if (frameNo < 0)
+				continue; // another thread brought the page in first
 
-			frmeTable[frameNo].pageNo.pid = INVALID_PAGE; // frame is empty
-			frmeTable[frameNo].dirty = false; // not dirty
+			// read in the page if not empty
+			if (emptyPage == false) {
+				try {
+					Page apage = new Page(bufPool[frameNo]);
 
-			bst2 = hashTable.insert(pin_pgid, frameNo);
+					read_page(pin_pgid, apage);
+				} catch (Exception e) {
 
-			(frmeTable[frameNo].pageNo).pid = pin_pgid.pid;
-			frmeTable[frameNo].dirty = false;
+					releaseFrame(frameNo, e);
+
+					throw new PageNotReadException(e, "BUFMGR: DB_READ_PAGE_ERROR.");
+				}
 
-			if (bst2 != true) {
-				throw new HashOperationException(null, "BUFMGR: HASH_TABLE_ERROR.");
 			}
+			frmeTable[frameNo].endLoad();
+			break;
+		}
 
-			Page apage = new Page(bufPool[frameNo]);
-			if (needwrite == 1) {
-				write_page(oldpageNo, apage);
-			} // end of needwrite..
+		if (hint.accessHint == AccessHint.IndexInternal)
+			keepFrame(frameNo);
 
-			// read in the page if not empty
-			if (emptyPage == false) {
-				try {
-					apage.setpage(bufPool[frameNo]);
+		page.setpage(bufPool[frameNo]);
+	}
 
-					read_page(pin_pgid, apage);
-				} catch (Exception e) {
+	/**
+	 * Pin the page if it is in the buffer pool. The page may still be being
+	 * read in by another thread.
+	 *
+	 * @return the frame of the page, or -1 if the page is not in the pool.
+	 */
+	private int pinResident(PageId pageno) throws InvalidFrameNumberException {
+		hashTable.lock(pageno.pid);
+		try {
+			int frameNo = hashTable.lookup(pageno);
+			if (frameNo >= 0)
+				replacer.pin(frameNo);
+			return frameNo;
+		} finally {
+			hashTable.unlock(pageno.pid);
+		}
+	}
 
-					bst = hashTable.remove(frmeTable[frameNo].pageNo);
-					if (bst != true)
-						throw new HashOperationException(e, "BUFMGR: HASH_TABLE_ERROR.");
+	/**
+	 * Keep a B-tree header or index page in the pool for good: the page
+	 * joins the index tier, where the replacer does not pick it, if it is
+	 * not in the tier yet and the tier has room. It stays there until it is
+	 * flushed or freed. The caller must have the page pinned. Nothing is done
+	 * if the tier is off (SystemDefs.MINIBASE_INDEX_TIER_PAGES is 0 or the
+	 * pool is too small).
+	 *
+	 * @param pageno
+	 *            page number in the minibase.
+	 *
+	 * @exception HashEntryNotFoundException
+	 *                if the page is not in the buffer pool.
+	 * @exception InvalidFrameNumberException
+	 *                if there is an invalid frame number.
+	 */
+	public void keepPage(PageId pageno) throws HashEntryNotFoundException, InvalidFrameNumberException {
+		if (indexTier == null)
+			return;
+
+		int frameNo = hashTable.lookup(pageno);
+		if (frameNo < 0)
+			throw new HashEntryNotFoundException(null, "BUFMGR: HASH_NOT_FOUND.");
+
+		keepFrame(frameNo);
+	}
 
-					frmeTable[frameNo].pageNo.pid = INVALID_PAGE; // frame is
-																	// empty
-					frmeTable[frameNo].dirty = false;
+	/** Add a pinned frame to the index tier, pinning it for the tier. */
+	private void keepFrame(int frameNo) throws InvalidFrameNumberException {
+		if (indexTier != null && indexTier.keep(frameNo))
+			replacer.pin(frameNo);
+	}
 
-					bst = replacer.unpin(frameNo);
+	/** Take a frame out of the index tier, dropping the tier's pin. */
+	private void unkeepFrame(int frameNo) throws PageUnpinnedException, BufMgrException {
+		if (indexTier == null || !indexTier.release(frameNo))
+			return;
 
-					if (bst != true)
-						throw new ReplacerException(e, "BUFMGR: REPLACER_ERROR.");
+		try {
+			replacer.unpin(frameNo);
+		} catch (InvalidFrameNumberException e) {
+			throw new BufMgrException(e, "BUFMGR: BAD_FRAMENO.");
+		}
+	}
+
+	/**
+	 * Ask for a page that a sequential scan will pin soon to be read into the
+	 * buffer pool in the background. The page is read into the ring of the
+	 * sequential scans. Nothing is done if read-ahead is off
+	 * (SystemDefs.MINIBASE_READ_AHEAD is 0 or the pool is too small for a
+	 * ring).
+	 *
+	 * @param pageno
+	 *            page number in the minibase.
+	 */
+	public void readAhead(PageId pageno) {
+		if (readAhead != null && pageno.pid != INVALID_PAGE)
+			readAhead.request(pageno.pid);
+	}
+
+	/**
+	 * Returns the number of pages a sequential scan may ask for with
+	 * readAhead before it pins them, 0 if read-ahead is off.
+	 */
+	public int getReadAheadWindow() {
+		return readAheadWindow;
+	}
+
+	/**
+	 * Bring a run of n contiguous pages, starting with page start, into the
+	 * buffer pool without pinning them. Pages already in the pool are skipped;
+	 * each stretch of missing pages is read with one vectored read straight
+	 * into the frames picked for it. Loading stops early, without an error,
+	 * when no more frames can be replaced.
+	 *
+	 * @param start
+	 *            page number of the first page of the run
+	 * @param n
+	 *            number of pages in the run
+	 *
+	 * @exception ReplacerException
+	 *                if there is a replacer error.
+	 * @exception HashOperationException
+	 *                if there is a hashtable error.
+	 * @exception PageUnpinnedException
+	 *                if there is a page that is already unpinned.
+	 * @exception InvalidFrameNumberException
+	 *                if there is an invalid frame number .
+	 * @exception PageNotReadException
+	 *                if a page cannot be read.
+	 * @exception PagePinnedException
+	 *                if a page is left pinned .
+	 * @exception BufMgrException
+	 *                other error occured in bufmgr layer
+	 */
+	public void loadPages(PageId start, int n) throws ReplacerException, HashOperationException,
+			PageUnpinnedException, InvalidFrameNumberException, PageNotReadException, PagePinnedException,
+			BufMgrException {
+		loadPages(start, n, null);
+	}
+
+	/**
+	 * loadPages(PageId, int) reading the pages into the frames of a ring, if
+	 * ring is not null.
+	 */
+	void loadPages(PageId start, int n, BufferRing ring) throws ReplacerException, HashOperationException,
+			PageUnpinnedException, InvalidFrameNumberException, PageNotReadException, PagePinnedException,
+			BufMgrException {
+
+		int[] frames = new int[n];
+		PageId pageno = new PageId();
+		int i = 0;
+
+		while (i < n) {
+
+			// Skip the pages that are already in the pool.
+			pageno.pid = start.pid + i;
+			if (hashTable.lookup(pageno) >= 0) {
+				i++;
+				continue;
+			}
+
+			// Claim a frame for every page of the stretch of missing pages.
+			int run = 0;
+			boolean poolFull = false;
+			while ((i + run < n) && (hashTable.lookup(pageno) < 0)) {
+				int frameNo;
+				try {
+					frameNo = claimFrame(pageno, ring);
+				} catch (BufferPoolExceededException e) {
+					poolFull = true;
+					break;
+				} catch (ReplacerException e) {
+					poolFull = true;
+					break;
+				}
+				if (frameNo < 0)
+					break; // another thread is bringing the page in
+
+				frames[run] = frameNo;
+				run++;
+				pageno.pid++;
+			}
+
+			if (run > 0) {
+				Page[] pages = new Page[run];
+				for (int k = 0; k < run; k++)
+					pages[k] = new Page(bufPool[frames[k]]);
+
+				try {
+					read_pages(new PageId(start.pid + i), run, pages);
+				} catch (Exception e) {
+					for (int k = 0; k < run; k++)
+						releaseFrame(frames[k], e);
 
 					throw new PageNotReadException(e, "BUFMGR: DB_READ_PAGE_ERROR.");
 				}
 
+				// Leave the pages in the pool as replacement candidates.
+				for (int k = 0; k < run; k++) {
+					frmeTable[frames[k]].endLoad();
+					replacer.unpin(frames[k]);
+				}
 			}
 
-			page.setpage(bufPool[frameNo]);
+			if (poolFull)
+				return;
 
-			// return true;
+			i += run;
+		}
+	}
 
-		} else { // the page is in the buffer pool ( frameNo > 0 )
+	/**
+	 * Pick a victim frame for page pageno, write out the page the frame holds
+	 * if that page is dirty, and enter pageno in the hash table. The frame is
+	 * returned pinned and marked as loading; its contents are not read. If
+	 * another thread enters pageno first, the frame is given back and -1 is
+	 * returned.
+	 *
+	 * If ring is not null, the frame is taken from the ring when the ring has
+	 * one to give back, and joins the ring otherwise.
+	 */
+	private int claimFrame(PageId pageno, BufferRing ring) throws ReplacerException, HashOperationException,
+			BufferPoolExceededException, PagePinnedException, BufMgrException, PageUnpinnedException,
+			InvalidFrameNumberException {
+		int frameNo;
+		boolean bst;
 
-			page.setpage(bufPool[frameNo]);
-			replacer.pin(frameNo);
+		while (true) {
+			frameNo = (ring == null) ? -1 : ring.next(this, replacer);
+			if (frameNo < 0)
+				frameNo = replacer.pick_victim(); // frameNo is pinned
+			if (frameNo < 0) {
+				throw new ReplacerException(null, "BUFMGR: REPLACER_ERROR.");
+
+			}
+
+			int oldpid = frmeTable[frameNo].pageNo.pid;
+			boolean evicted;
+			try {
+				evicted = (oldpid == INVALID_PAGE) || evict(frameNo, oldpid);
+			} catch (BufMgrException e) {
+				replacer.unpin(frameNo);
+				throw e;
+			}
+			if (evicted)
+				break;
+
+			// Another thread is using the old page again; leave it there.
+			replacer.unpin(frameNo);
+		}
+
+		hashTable.lock(pageno.pid);
+		try {
+			if (hashTable.lookup(pageno) >= 0) {
+				replacer.free(frameNo);
+				return -1;
+			}
+
+			frmeTable[frameNo].pageNo.pid = pageno.pid;
+			frmeTable[frameNo].dirty = false;
+			frmeTable[frameNo].startLoad();
+
+			bst = hashTable.insert(pageno, frameNo);
+			if (bst != true) {
+				throw new HashOperationException(null, "BUFMGR: HASH_TABLE_ERROR.");
+			}
+		} finally {
+			hashTable.unlock(pageno.pid);
+		}
+
+		if (ring != null)
+			ring.add(frameNo, pageno.pid);
+
+		return frameNo;
+	}
+
+	/**
+	 * Take the page oldpid out of the victim frame frameNo, writing it out
+	 * first if it is dirty. The page stays in the hash table during the
+	 * write, so threads that need it meanwhile still find it.
+	 *
+	 * @return false if another thread pinned or changed the page meanwhile.
+	 */
+	private boolean evict(int frameNo, int oldpid) throws HashOperationException, BufMgrException {
+		FrameDesc frame = frmeTable[frameNo];
+		PageId oldpageNo = new PageId(oldpid);
+
+		if (frame.dirty == true) {
+			// Clear the bit first: a change made during the write sets it
+			// again.
+			frame.dirty = false;
+			try {
+				Page apage = new Page(bufPool[frameNo]);
+				write_page(oldpageNo, apage);
+			} catch (BufMgrException e) {
+				frame.dirty = true;
+				throw e;
+			}
+		} else if (victimCache != null) {
+			// The page is the same as on disk; keep a copy of it.
+			victimCache.put(oldpid, bufPool[frameNo]);
+		}
+
+		hashTable.lock(oldpid);
+		try {
+			// A flush may have emptied the frame already.
+			if (frame.pageNo.pid != oldpid)
+				return true;
+
+			if (frame.pin_count() != 1 || frame.dirty == true)
+				return false;
+
+			if (hashTable.remove(oldpageNo) != true)
+				throw new HashOperationException(null, "BUFMGR: HASH_TABLE_ERROR.");
 
+			frame.pageNo.pid = INVALID_PAGE; // frame is empty
+			return true;
+		} finally {
+			hashTable.unlock(oldpid);
 		}
 	}
 
+	/**
+	 * Undo claimFrame after the page could not be read: empty the frame, wake
+	 * up the threads waiting for the page and unpin it.
+	 */
+	private void releaseFrame(int frameNo, Exception e) throws HashOperationException, ReplacerException,
+			PageUnpinnedException, InvalidFrameNumberException {
+		boolean bst;
+		int pid = frmeTable[frameNo].pageNo.pid;
+
+		hashTable.lock(pid);
+		try {
+			bst = hashTable.remove(frmeTable[frameNo].pageNo);
+			if (bst != true)
+				throw new HashOperationException(e, "BUFMGR: HASH_TABLE_ERROR.");
+
+			frmeTable[frameNo].pageNo.pid = INVALID_PAGE; // frame is empty
+			frmeTable[frameNo].dirty = false;
+		} finally {
+			hashTable.unlock(pid);
+		}
+		frmeTable[frameNo].endLoad();
+
+		bst = replacer.unpin(frameNo);
+
+		if (bst != true)
+			throw new ReplacerException(e, "BUFMGR: REPLACER_ERROR.");
+	}
+
 	/**
 	 * To unpin a page specified by a pageId. If pincount>0, decrement it and if
 	 * it becomes zero, put it in a group of replacement candidates. if
@@ -602,13 +1143,18 @@ public class BufMgr implements GlobalConst {
 
 		}
 
+		// Mark the page dirty while it is still pinned, so that it cannot be
+		// replaced before the mark is seen.
+		if (dirty == true) {
+			frmeTable[frameNo].dirty = dirty;
+			if (bgWriter != null)
+				bgWriter.wake();
+		}
+
 		if ((replacer.unpin(frameNo)) != true) {
 			throw new ReplacerException(null, "BUFMGR: REPLACER_ERROR.");
 		}
 
-		if (dirty == true)
-			frmeTable[frameNo].dirty = dirty;
-
 	}
 
 	/**
@@ -710,34 +1256,49 @@ public class BufMgr implements GlobalConst {
 			InvalidFrameNumberException, PageNotReadException, BufferPoolExceededException, PagePinnedException,
 			PageUnpinnedException, HashEntryNotFoundException, BufMgrException, DiskMgrException, IOException {
 		int frameNo;
-		frameNo = hashTable.lookup(globalPageId);
 
-		// if globalPageId is not in pool, frameNo < 0
-		// then call deallocate
-		if (frameNo < 0) {
-			deallocate_page(globalPageId);
+		// The background writer may have the frame pinned while it writes it;
+		// wait for the batch, so the frame is not freed under the writer.
+		writeBackLock.lock();
+		hashTable.lock(globalPageId.pid);
+		try {
+			frameNo = hashTable.lookup(globalPageId);
 
-			return;
-		}
-		if (frameNo >= (int) numBuffers) {
-			throw new InvalidBufferException(null, "BUFMGR, BAD_BUFFER");
+			// if globalPageId is not in pool, frameNo < 0
+			// then just deallocate
+			if (frameNo >= 0) {
+				if (frameNo >= (int) numBuffers) {
+					throw new InvalidBufferException(null, "BUFMGR, BAD_BUFFER");
 
-		}
+				}
 
-		try {
-			replacer.free(frameNo);
-		} catch (Exception e1) {
-			throw new ReplacerException(e1, "BUFMGR, REPLACER_ERROR");
-		}
+				unkeepFrame(frameNo);
 
-		try {
-			hashTable.remove(frmeTable[frameNo].pageNo);
-		} catch (Exception e2) {
-			throw new HashOperationException(e2, "BUFMGR, HASH_TABLE_ERROR");
+				try {
+					replacer.free(frameNo);
+				} catch (Exception e1) {
+					throw new ReplacerException(e1, "BUFMGR, REPLACER_ERROR");
+				}
+
+				try {
+					hashTable.remove(frmeTable[frameNo].pageNo);
+				} catch (Exception e2) {
+					throw new HashOperationException(e2, "BUFMGR, HASH_TABLE_ERROR");
+				}
+
+				frmeTable[frameNo].pageNo.pid = INVALID_PAGE; // frame is empty
+				frmeTable[frameNo].dirty = false;
+			}
+
+			// A freed page is not worth reading in again.
+			flushedPages = without(flushedPages, globalPageId.pid);
+		} finally {
+			hashTable.unlock(globalPageId.pid);
+			writeBackLock.unlock();
 		}
 
-		frmeTable[frameNo].pageNo.pid = INVALID_PAGE; // frame is empty
-		frmeTable[frameNo].dirty = false;
+		if (victimCache != null)
+			victimCache.remove(globalPageId.pid);
 
 		deallocate_page(globalPageId);
 
@@ -789,6 +1350,94 @@ public class BufMgr implements GlobalConst {
 		privFlushPages(pageId, 1);
 	}
 
+	/**
+	 * Returns the most frames the index tier may hold, 0 if there is no
+	 * tier.
+	 */
+	public int getIndexTierSize() {
+		return (indexTier == null) ? 0 : indexTier.capacity();
+	}
+
+	/** Returns the number of frames in the index tier. */
+	public int getIndexTierPages() {
+		return (indexTier == null) ? 0 : indexTier.size();
+	}
+
+	/**
+	 * Returns the number of times a page was kept (see keepPage) that was in
+	 * the index tier already.
+	 */
+	public long getIndexTierHits() {
+		return (indexTier == null) ? 0 : indexTier.hits();
+	}
+
+	/**
+	 * Returns the number of times a page was kept (see keepPage) that was not
+	 * in the index tier, whether it joined the tier or found it full.
+	 */
+	public long getIndexTierMisses() {
+		return (indexTier == null) ? 0 : indexTier.misses();
+	}
+
+	/**
+	 * Returns the pages worth reading in again when the database is reopened:
+	 * the pages in the pool, and the ones that were in it when flushAllPages
+	 * last emptied the frames of the dirty pages.
+	 *
+	 * @return the page numbers, sorted, each once.
+	 */
+	public int[] getWarmPages() {
+		return merge(residentPages(), flushedPages);
+	}
+
+	/** Merge two sorted lists of pages, dropping the pages found in both. */
+	private static int[] merge(int[] a, int[] b) {
+		int[] pids = new int[a.length + b.length];
+		int i = 0, j = 0, n = 0;
+
+		while (i < a.length || j < b.length) {
+			int pid;
+			if (j == b.length || (i < a.length && a[i] <= b[j]))
+				pid = a[i++];
+			else
+				pid = b[j++];
+			if (n == 0 || pids[n - 1] != pid)
+				pids[n++] = pid;
+		}
+
+		return Arrays.copyOf(pids, n);
+	}
+
+	/** Returns a sorted list of pages without the given page. */
+	private static int[] without(int[] pids, int pid) {
+		int k = Arrays.binarySearch(pids, pid);
+		if (k < 0)
+			return pids;
+
+		int[] rest = new int[pids.length - 1];
+		System.arraycopy(pids, 0, rest, 0, k);
+		System.arraycopy(pids, k + 1, rest, k, rest.length - k);
+		return rest;
+	}
+
+	/**
+	 * Read the given pages into the buffer pool in a background thread, in
+	 * page-number order, without pinning them. At most three quarters of the
+	 * pool is filled this way, so the first queries still find free frames.
+	 *
+	 * @param pids
+	 *            the page numbers, sorted.
+	 */
+	public void warmUp(int[] pids) {
+		int n = Math.min(pids.length, numBuffers * 3 / 4);
+		if (n == 0)
+			return;
+
+		Thread worker = new Thread(new WarmUp(this, Arrays.copyOf(pids, n)), "minibase-warmup");
+		worker.setDaemon(true);
+		worker.start();
+	}
+
 	/**
 	 * Gets the total number of buffers.
 	 *
@@ -814,6 +1463,9 @@ public class BufMgr implements GlobalConst {
 
 	private void write_page(PageId pageno, Page page) throws BufMgrException {
 
+		if (victimCache != null)
+			victimCache.remove(pageno.pid);
+
 		try {
 			SystemDefs.JavabaseDB.write_page(pageno, page);
 		} catch (Exception e) {
@@ -822,8 +1474,36 @@ public class BufMgr implements GlobalConst {
 
 	} // end of write_page
 
+	private void read_pages(PageId start, int n, Page[] pages) throws BufMgrException {
+
+		try {
+			SystemDefs.JavabaseDB.read_pages(start, n, pages);
+		} catch (Exception e) {
+			throw new BufMgrException(e, "BufMgr.java: read_pages() failed");
+		}
+
+	} // end of read_pages
+
+	private void write_pages(PageId start, int n, Page[] pages) throws BufMgrException {
+
+		if (victimCache != null) {
+			for (int i = 0; i < n; i++)
+				victimCache.remove(start.pid + i);
+		}
+
+		try {
+			SystemDefs.JavabaseDB.write_pages(start, n, pages);
+		} catch (Exception e) {
+			throw new BufMgrException(e, "BufMgr.java: write_pages() failed");
+		}
+
+	} // end of write_pages
+
 	private void read_page(PageId pageno, Page page) throws BufMgrException {
 
+		if (victimCache != null && victimCache.get(pageno.pid, page.getpage()))
+			return;
+
 		try {
 			SystemDefs.JavabaseDB.read_page(pageno, page);
 		} catch (Exception e) {
@@ -0,0 +1,83 @@
+/* File BufferRing.java */
+
+package bufmgr;
+
+import global.*;
+
+/**
+ * A small ring of frames that sequential scans read their pages into, like
+ * the buffer access strategies of PostgreSQL. A scan of a large file thus
+ * cycles through the same few frames instead of pushing the index pages and
+ * the hot pages of other files out of the pool.
+ *
+ * A frame joins the ring when the replacer hands it out for a sequential pin.
+ * When the ring comes round to it again, the frame is taken back without
+ * asking the replacer, as long as it still holds the page the ring read into
+ * it and no one has it pinned. Otherwise the ring leaves the frame to the
+ * pool and takes a new one from the replacer.
+ *
+ * Its methods are synchronized, so scans of several threads share the ring.
+ */
+class BufferRing implements GlobalConst {
+
+	/** Frame in each slot of the ring, or -1. */
+	private int[] frames;
+
+	/** Page the ring read into the frame of each slot. */
+	private int[] pages;
+
+	/** The slot to use next. */
+	private int pos;
+
+	/**
+	 * Create an empty ring.
+	 *
+	 * @param size
+	 *            number of frames in the ring
+	 */
+	public BufferRing(int size) {
+		frames = new int[size];
+		pages = new int[size];
+		for (int i = 0; i < size; i++)
+			frames[i] = -1;
+		pos = 0;
+	}
+
+	/**
+	 * Take the frame of the current slot if it can be used again. The frame
+	 * is pinned by replacer.claim; the caller empties it and hands it back to
+	 * add along with the new page.
+	 *
+	 * @return the frame number, pinned, or -1 if the replacer has to pick one
+	 */
+	public synchronized int next(BufMgr mgr, Replacer replacer) {
+		int frameNo = frames[pos];
+		if (frameNo < 0)
+			return -1;
+
+		if ((mgr.frameTable())[frameNo].pageNo.pid != pages[pos] || !replacer.claim(frameNo)) {
+			frames[pos] = -1;
+			return -1;
+		}
+		return frameNo;
+	}
+
+	/**
+	 * Put a frame in the current slot and move on to the next slot.
+	 *
+	 * @param frameNo
+	 *            the frame the page was read into
+	 * @param pid
+	 *            the page read into it
+	 */
+	public synchronized void add(int frameNo, int pid) {
+		frames[pos] = frameNo;
+		pages[pos] = pid;
+		pos = (pos + 1) % frames.length;
+	}
+
+	/** Returns the number of frames the ring may hold. */
+	public int size() {
+		return frames.length;
+	}
+}
@@ -0,0 +1,88 @@
+/* File FrameQueue.java */
+
+package bufmgr;
+
+/**
+ * A queue of buffer frames for the replacers that keep frames in recency
+ * order. It is a doubly linked list threaded through arrays indexed by frame
+ * number, so moving a frame costs no allocation. The head is the least
+ * recently added frame. A frame is in at most one queue at a time.
+ *
+ * The queue is not synchronized; the replacer that owns it is.
+ */
+class FrameQueue {
+
+	private int[] prev;
+	private int[] next;
+	private boolean[] queued;
+	private int head = -1;
+	private int tail = -1;
+	private int size;
+
+	/**
+	 * Create an empty queue.
+	 *
+	 * @param numbufs
+	 *            number of frames in the buffer pool
+	 */
+	public FrameQueue(int numbufs) {
+		prev = new int[numbufs];
+		next = new int[numbufs];
+		queued = new boolean[numbufs];
+	}
+
+	/** Returns the number of frames in the queue. */
+	public int size() {
+		return size;
+	}
+
+	/** Returns true if the frame is in this queue. */
+	public boolean contains(int frameNo) {
+		return queued[frameNo];
+	}
+
+	/** Returns the least recently added frame, or -1 if the queue is empty. */
+	public int head() {
+		return head;
+	}
+
+	/** Returns the frame after frameNo, or -1 at the tail. */
+	public int next(int frameNo) {
+		return next[frameNo];
+	}
+
+	/** Add the frame at the tail. */
+	public void add(int frameNo) {
+		prev[frameNo] = tail;
+		next[frameNo] = -1;
+		if (tail >= 0)
+			next[tail] = frameNo;
+		else
+			head = frameNo;
+		tail = frameNo;
+		queued[frameNo] = true;
+		size++;
+	}
+
+	/** Take the frame out of the queue. */
+	public void remove(int frameNo) {
+		if (prev[frameNo] >= 0)
+			next[prev[frameNo]] = next[frameNo];
+		else
+			head = next[frameNo];
+		if (next[frameNo] >= 0)
+			prev[next[frameNo]] = prev[frameNo];
+		else
+			tail = prev[frameNo];
+		queued[frameNo] = false;
+		size--;
+	}
+
+	/** Move the frame to the tail. */
+	public void moveToTail(int frameNo) {
+		if (frameNo != tail) {
+			remove(frameNo);
+			add(frameNo);
+		}
+	}
+}
@@ -0,0 +1,105 @@
+/* File IndexTier.java */
+
+package bufmgr;
+
+/**
+ * The frames of the buffer pool that hold B-tree header and index pages for
+ * good. The buffer manager keeps one pin on each of these frames, so that the
+ * replacer never picks them and the pages every lookup goes through are not
+ * pushed out by heap scans. A page joins the tier the first time it is kept
+ * while the tier has room, and leaves it only when it is flushed or freed.
+ *
+ * The tier counts how often a page asked to be kept was already in it, so
+ * that the number of frames it may hold (SystemDefs.MINIBASE_INDEX_TIER_PAGES)
+ * can be sized.
+ */
+class IndexTier {
+
+	/** True for the frames in the tier. */
+	private boolean[] kept;
+
+	/** Most frames in the tier. */
+	private int capacity;
+
+	/** Frames in the tier. */
+	private int size;
+
+	/** Pages kept that were in the tier already. */
+	private long hits;
+
+	/** Pages kept that were not in the tier. */
+	private long misses;
+
+	/**
+	 * Create an empty tier.
+	 *
+	 * @param numBuffers
+	 *            number of frames in the buffer pool
+	 * @param capacityArg
+	 *            most frames in the tier
+	 */
+	public IndexTier(int numBuffers, int capacityArg) {
+		kept = new boolean[numBuffers];
+		capacity = capacityArg;
+	}
+
+	/**
+	 * Add a frame to the tier, if it is not in it yet and there is room.
+	 *
+	 * @param frameNo
+	 *            a pinned frame holding an index page
+	 * @return true if the frame joined the tier; the caller must pin it once
+	 *         more for the tier.
+	 */
+	public synchronized boolean keep(int frameNo) {
+		if (kept[frameNo]) {
+			hits++;
+			return false;
+		}
+
+		misses++;
+		if (size == capacity)
+			return false;
+
+		kept[frameNo] = true;
+		size++;
+		return true;
+	}
+
+	/**
+	 * Take a frame out of the tier.
+	 *
+	 * @param frameNo
+	 *            the frame
+	 * @return true if the frame was in the tier; the caller must unpin it
+	 *         once for the tier.
+	 */
+	public synchronized boolean release(int frameNo) {
+		if (!kept[frameNo])
+			return false;
+
+		kept[frameNo] = false;
+		size--;
+		return true;
+	}
+
+	/** Returns the most frames the tier may hold. */
+	public int capacity() {
+		return capacity;
+	}
+
+	/** Returns the number of frames in the tier. */
+	public synchronized int size() {
+		return size;
+	}
+
+	/** Returns the number of pages kept that were in the tier already. */
+	public synchronized long hits() {
+		return hits;
+	}
+
+	/** Returns the number of pages kept that were not in the tier. */
+	public synchronized long misses() {
+		return misses;
+	}
+}
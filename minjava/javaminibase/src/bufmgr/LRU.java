@@ -7,7 +7,8 @@ import global.*;
 
 /**
  * class LRU is a subclass of class Replacer using LRU algorithm for page
- * replacement
+ * replacement. Its methods that use the frame list are synchronized, so
+ * threads take turns at it.
  */
 class LRU extends Replacer {
 
@@ -48,7 +49,7 @@ class LRU extends Replacer {
 	 * @see BufMgr
 	 * @see Replacer
 	 */
-	public void setBufferManager(BufMgr mgr) {
+	public synchronized void setBufferManager(BufMgr mgr) {
 		super.setBufferManager(mgr);
 		frames = new int[mgr.getNumBuffers()];
 		nframes = 0;
@@ -72,7 +73,7 @@ class LRU extends Replacer {
 	 *            the frame number to pin
 	 * @exception InvalidFrameNumberException
 	 */
-	public void pin(int frameNo) throws InvalidFrameNumberException {
+	public synchronized void pin(int frameNo) throws InvalidFrameNumberException {
 		super.pin(frameNo);
 
 		update(frameNo);
@@ -86,7 +87,7 @@ class LRU extends Replacer {
 	 * @return return the frame number return -1 if failed
 	 */
 
-	public int pick_victim() {
+	public synchronized int pick_victim() {
 		int numBuffers = mgr.getNumBuffers();
 		int frame;
 
@@ -94,15 +95,14 @@ class LRU extends Replacer {
 			frame = nframes++;
 			frames[frame] = frame;
 			state_bit[frame].state = Pinned;
-			(mgr.frameTable())[frame].pin();
+			(mgr.frameTable())[frame].claim();
 			return frame;
 		}
 
 		for (int i = 0; i < numBuffers; ++i) {
 			frame = frames[i];
-			if (state_bit[frame].state != Pinned) {
+			if ((mgr.frameTable())[frame].claim()) {
 				state_bit[frame].state = Pinned;
-				(mgr.frameTable())[frame].pin();
 				update(frame);
 				return frame;
 			}
@@ -123,7 +123,7 @@ class LRU extends Replacer {
 	/**
 	 * print out the information of frame usage
 	 */
-	public void info() {
+	public synchronized void info() {
 		super.info();
 
 		System.out.print("LRU REPLACEMENT");
@@ -7,7 +7,8 @@ import global.*;
 
 /**
  * class MRU is a subclass of class Replacer using MRU algorithm for page
- * replacement
+ * replacement. Its methods that use the frame list are synchronized, so
+ * threads take turns at it.
  */
 class MRU extends Replacer {
 
@@ -29,7 +30,7 @@ class MRU extends Replacer {
 	 * @see Replacer
 	 */
 
-	public void setBufferManager(BufMgr mgr) {
+	public synchronized void setBufferManager(BufMgr mgr) {
 		super.setBufferManager(mgr);
 
 		int numBuffers = mgr.getNumBuffers();
@@ -86,7 +87,7 @@ class MRU extends Replacer {
 	 * @@exception InvalidFrameNumberException
 	 */
 
-	public void pin(int frameNo) throws InvalidFrameNumberException {
+	public synchronized void pin(int frameNo) throws InvalidFrameNumberException {
 		super.pin(frameNo);
 
 		update(frameNo);
@@ -99,7 +100,7 @@ class MRU extends Replacer {
 	 * @return return the frame number return -1 if No victims found
 	 */
 
-	public int pick_victim() {
+	public synchronized int pick_victim() {
 		int numBuffers = mgr.getNumBuffers();
 		int i, frame;
 
@@ -111,16 +112,15 @@ class MRU extends Replacer {
 					frames[i] *= -1;
 				frame = frames[i];
 				state_bit[frame].state = Pinned;
-				(mgr.frameTable())[frame].pin();
+				(mgr.frameTable())[frame].claim();
 				update(frame);
 				return frame;
 			}
 
 		for (i = 0; i < numBuffers; ++i) {
 			frame = frames[i];
-			if (state_bit[frame].state != Pinned) {
+			if ((mgr.frameTable())[frame].claim()) {
 				state_bit[frame].state = Pinned;
-				(mgr.frameTable())[frame].pin();
 				update(frame);
 				return frame;
 			}
@@ -143,7 +143,7 @@ class MRU extends Replacer {
 	 * print out the information of frame usage
 	 */
 
-	public void info() {
+	public synchronized void info() {
 		super.info();
 
 		System.out.print("MRU REPLACEMENT");
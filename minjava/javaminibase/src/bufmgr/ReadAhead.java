@@ -0,0 +1,120 @@
+/* File ReadAhead.java */
+
+package bufmgr;
+
+import java.util.concurrent.*;
+import global.*;
+
+/**
+ * Reads the data pages a sequential scan is about to get to, in the
+ * background. The scan asks for the pages it learns about from the
+ * DataPageInfo records of its directory page; a daemon thread reads them into
+ * the frames of the scan ring, so that the scan finds them in the pool
+ * instead of waiting for the disk.
+ *
+ * A request is only a hint. It is dropped when the queue is full, and a page
+ * that cannot be read is left for the scan to read. The thread is started by
+ * the first request and stops after it has been idle for a while, so a
+ * buffer manager that is no longer used does not keep a thread alive.
+ */
+class ReadAhead implements Runnable, GlobalConst {
+
+	/** Most pages waiting to be read. */
+	private static final int QUEUE_SIZE = 64;
+
+	/** How long the thread waits for a request before it stops. */
+	private static final long IDLE_MILLIS = 1000;
+
+	private BufMgr mgr;
+
+	/** The ring the pages are read into, or null for the whole pool. */
+	private BufferRing ring;
+
+	private ArrayBlockingQueue<Integer> queue = new ArrayBlockingQueue<Integer>(QUEUE_SIZE);
+
+	/** The thread reading the pages, or null if none is running. */
+	private Thread worker;
+
+	/**
+	 * Create a read-ahead for a buffer manager.
+	 *
+	 * @param mgrArg
+	 *            the buffer manager to read the pages into
+	 * @param ringArg
+	 *            the ring the pages are read into, or null
+	 */
+	public ReadAhead(BufMgr mgrArg, BufferRing ringArg) {
+		mgr = mgrArg;
+		ring = ringArg;
+	}
+
+	/**
+	 * Ask for a page to be read in the background.
+	 *
+	 * @param pid
+	 *            the page number
+	 */
+	public void request(int pid) {
+		if (!queue.offer(pid))
+			return; // the thread is behind; the scan will read the page
+
+		synchronized (this) {
+			if (worker == null) {
+				worker = new Thread(this, "minibase-readahead");
+				worker.setDaemon(true);
+				worker.start();
+			}
+		}
+	}
+
+	/**
+	 * Withdraw the request for a page, as the scan has got to it. This keeps
+	 * a thread that is behind the scan from reading pages the scan is done
+	 * with.
+	 *
+	 * @param pid
+	 *            the page number
+	 */
+	public void cancel(int pid) {
+		if (!queue.isEmpty())
+			queue.remove(pid);
+	}
+
+	/**
+	 * Read the pages asked for, a run of consecutive page numbers with one
+	 * read, until no request has come for IDLE_MILLIS. Only the run being
+	 * read is taken off the queue, so the rest can still be withdrawn.
+	 */
+	public void run() {
+		while (true) {
+			Integer pid;
+			try {
+				pid = queue.poll(IDLE_MILLIS, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				pid = null;
+			}
+
+			if (pid == null) {
+				synchronized (this) {
+					if (queue.isEmpty()) {
+						worker = null;
+						return;
+					}
+				}
+				continue;
+			}
+
+			int start = pid;
+			int run = 1;
+			while (run < QUEUE_SIZE && (pid = queue.peek()) != null && pid == start + run
+					&& queue.remove(pid))
+				run++;
+
+			try {
+				mgr.loadPages(new PageId(start), run, ring);
+			} catch (Exception e) {
+				// The scan reads the pages itself.
+			}
+		}
+	}
+}
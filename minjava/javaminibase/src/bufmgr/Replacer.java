@@ -66,9 +66,8 @@ abstract class Replacer implements GlobalConst {
 
 		}
 
-		(mgr.frameTable())[frameNo].unpin();
-
-		if ((mgr.frameTable())[frameNo].pin_count() == 0)
+		// Only the thread that drops the pin count to zero marks the frame.
+		if ((mgr.frameTable())[frameNo].unpin() == 0)
 			state_bit[frameNo].state = Referenced;
 		return true;
 
@@ -95,6 +94,24 @@ abstract class Replacer implements GlobalConst {
 
 	}
 
+	/**
+	 * Pins a frame for a new page, without asking the replacement policy,
+	 * if no one has it pinned. This is how a BufferRing takes its frames
+	 * back.
+	 *
+	 * @param frameNo
+	 *            frame number of the page.
+	 * @return true if the frame was pinned.
+	 */
+	public boolean claim(int frameNo) {
+
+		if (!(mgr.frameTable())[frameNo].claim())
+			return false;
+
+		state_bit[frameNo].state = Pinned;
+		return true;
+	}
+
 	/** Must pin the returned frame. */
 	public abstract int pick_victim() throws BufferPoolExceededException, PagePinnedException;
 
@@ -0,0 +1,216 @@
+/* File TwoQ.java */
+
+package bufmgr;
+
+import java.util.*;
+import global.*;
+
+/**
+ * class TwoQ is a subclass of class Replacer using the 2Q algorithm (Johnson
+ * and Shasha) for page replacement. A page read into the pool first goes to
+ * the FIFO queue A1in. When it leaves A1in its page id is remembered in the
+ * ghost queue A1out, and only a page that is asked for again while in A1out
+ * goes to the LRU queue Am. A scan that reads every page once therefore
+ * cycles through A1in and leaves the pages in Am alone.
+ *
+ * A1in is kept to a quarter of the pool and A1out remembers half as many
+ * pages as the pool holds. Its methods are synchronized, so threads take
+ * turns at the queues.
+ */
+class TwoQ extends Replacer {
+
+	/** Frames without a page. */
+	private FrameQueue free;
+
+	/** Frames with a page read in once, oldest first. */
+	private FrameQueue a1in;
+
+	/** Frames with a page asked for again, least recently used first. */
+	private FrameQueue am;
+
+	/** Page ids of the pages that left A1in, oldest first. */
+	private LinkedHashSet<Integer> a1out;
+
+	/** Target size of A1in. */
+	private int kin;
+
+	/** Size of A1out. */
+	private int kout;
+
+	/**
+	 * Class constructor.
+	 */
+	public TwoQ(BufMgr mgrArg) {
+		super(mgrArg);
+	}
+
+	/**
+	 * Calling super class the same method, and putting every frame on the
+	 * free queue.
+	 *
+	 * @param mgr
+	 *            a BufMgr object
+	 * @see BufMgr
+	 * @see Replacer
+	 */
+	public synchronized void setBufferManager(BufMgr mgr) {
+		super.setBufferManager(mgr);
+		int numBuffers = mgr.getNumBuffers();
+
+		free = new FrameQueue(numBuffers);
+		a1in = new FrameQueue(numBuffers);
+		am = new FrameQueue(numBuffers);
+		a1out = new LinkedHashSet<Integer>();
+		kin = Math.max(1, numBuffers / 4);
+		kout = Math.max(1, numBuffers / 2);
+
+		for (int i = 0; i < numBuffers; i++)
+			free.add(i);
+	}
+
+	/**
+	 * Calling super class the same method, and moving a page of Am to the
+	 * most recently used end.
+	 *
+	 * @param frameNo
+	 *            the frame number to pin
+	 * @exception InvalidFrameNumberException
+	 */
+	public synchronized void pin(int frameNo) throws InvalidFrameNumberException {
+		super.pin(frameNo);
+
+		if (am.contains(frameNo))
+			am.moveToTail(frameNo);
+	}
+
+	/**
+	 * Calling super class the same method. A frame handed out by pick_victim
+	 * goes to a queue when it is unpinned for the first time, as its page is
+	 * known by then.
+	 *
+	 * @param frameNo
+	 *            the frame number to unpin
+	 * @exception InvalidFrameNumberException
+	 * @exception PageUnpinnedException
+	 */
+	public synchronized boolean unpin(int frameNo) throws InvalidFrameNumberException, PageUnpinnedException {
+		super.unpin(frameNo);
+
+		if ((mgr.frameTable())[frameNo].pin_count() == 0 && !free.contains(frameNo) && !a1in.contains(frameNo)
+				&& !am.contains(frameNo)) {
+
+			int pid = (mgr.frameTable())[frameNo].pageNo.pid;
+			if (pid == INVALID_PAGE)
+				free.add(frameNo);
+			else if (a1out.remove(pid))
+				am.add(frameNo);
+			else
+				a1in.add(frameNo);
+		}
+		return true;
+	}
+
+	/**
+	 * Calling super class the same method, and putting the frame on the free
+	 * queue.
+	 *
+	 * @param frameNo
+	 *            the frame number to free
+	 * @exception PagePinnedException
+	 */
+	public synchronized void free(int frameNo) throws PagePinnedException {
+		super.free(frameNo);
+
+		if (a1in.contains(frameNo))
+			a1in.remove(frameNo);
+		else if (am.contains(frameNo))
+			am.remove(frameNo);
+		if (!free.contains(frameNo))
+			free.add(frameNo);
+	}
+
+	/**
+	 * Finding a free frame in the buffer pool or choosing a page to replace
+	 * using the 2Q policy: the oldest page of A1in while A1in is over its
+	 * size, the least recently used page of Am otherwise.
+	 *
+	 * @return the frame number, pinned
+	 * @exception BufferPoolExceededException
+	 *                if every frame is pinned
+	 */
+	public synchronized int pick_victim() throws BufferPoolExceededException {
+		int frame = claim(free);
+		if (frame >= 0)
+			return frame;
+
+		if (a1in.size() > kin) {
+			frame = claimFromA1in();
+			if (frame >= 0)
+				return frame;
+		}
+
+		frame = claim(am);
+		if (frame >= 0)
+			return frame;
+
+		frame = claimFromA1in();
+		if (frame >= 0)
+			return frame;
+
+		throw new BufferPoolExceededException(null, "BUFMGR: BUFFER_EXCEEDED.");
+	}
+
+	/** Take a frame out of A1in and remember its page in A1out. */
+	private int claimFromA1in() {
+		int frame = claim(a1in);
+		if (frame < 0)
+			return -1;
+
+		// A flush may have emptied the frame already.
+		int pid = (mgr.frameTable())[frame].pageNo.pid;
+		if (pid != INVALID_PAGE)
+			a1out.add(pid);
+		if (a1out.size() > kout) {
+			Iterator<Integer> oldest = a1out.iterator();
+			oldest.next();
+			oldest.remove();
+		}
+		return frame;
+	}
+
+	/**
+	 * Pin the first unpinned frame of the queue and take it out of the queue.
+	 *
+	 * @return the frame number, or -1 if every frame of the queue is pinned
+	 */
+	private int claim(FrameQueue q) {
+		for (int frame = q.head(); frame >= 0; frame = q.next(frame)) {
+			if ((mgr.frameTable())[frame].claim()) {
+				q.remove(frame);
+				state_bit[frame].state = Pinned;
+				return frame;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * get the page replacement policy name
+	 *
+	 * @return return the name of replacement policy used
+	 */
+	public String name() {
+		return "2Q";
+	}
+
+	/**
+	 * print out the information of frame usage
+	 */
+	public synchronized void info() {
+		super.info();
+
+		System.out.println("2Q REPLACEMENT: A1in " + a1in.size() + " frames, Am " + am.size() + " frames, A1out "
+				+ a1out.size() + " pages, " + free.size() + " free frames");
+	}
+
+}
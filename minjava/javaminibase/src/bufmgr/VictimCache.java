@@ -0,0 +1,159 @@
+/* File VictimCache.java */
+
+package bufmgr;
+
+import java.nio.*;
+import global.*;
+
+/**
+ * An optional cache of clean pages evicted from the frames of BufMgr, kept in
+ * direct memory outside the Java heap. The pages live in large slabs
+ * allocated with ByteBuffer.allocateDirect, so a big cache does not add
+ * thousands of long-lived arrays for the garbage collector to trace.
+ *
+ * This is not a buffer pool: the frames stay heap byte arrays and all page
+ * access goes through them. A clean page is copied in here when its frame is
+ * replaced, and a miss in the frames is served by copying the page back
+ * instead of reading it from disk. Misses the cache cannot serve are read
+ * from disk straight into the frame. A page written or freed through BufMgr
+ * is forgotten, so the cache only holds pages that are the same as on disk.
+ *
+ * It pays when the working set is larger than the frames but fits in memory;
+ * every hit costs a page copy. SystemDefs.MINIBASE_VICTIM_CACHE_PAGES turns
+ * it on; it is off by default.
+ */
+class VictimCache implements GlobalConst {
+
+	/** Size of one slab (64 MB). */
+	private static final int SLAB_BYTES = 1 << 26;
+
+	private int page_size;
+
+	/** Number of slots in one slab. */
+	private int slab_pages;
+
+	private ByteBuffer[] slabs;
+
+	/** Number of slots. */
+	private int num_slots;
+
+	/** Page held by each slot, or INVALID_PAGE. */
+	private int[] pids;
+
+	/** Clock reference bit of each slot. */
+	private boolean[] referenced;
+
+	private int hand;
+
+	/** Maps page ids to slots. */
+	private BufHashTbl table;
+
+	/** Key for table lookups, used under the lock of this object. */
+	private PageId key = new PageId();
+
+	/**
+	 * Create a victim cache.
+	 *
+	 * @param num_slots
+	 *            number of pages the cache holds
+	 * @param page_size
+	 *            size in bytes of a page
+	 */
+	public VictimCache(int num_slots, int page_size) {
+		this.num_slots = num_slots;
+		this.page_size = page_size;
+		slab_pages = SLAB_BYTES / page_size;
+
+		int num_slabs = (num_slots + slab_pages - 1) / slab_pages;
+		slabs = new ByteBuffer[num_slabs];
+		for (int i = 0; i < num_slabs; i++) {
+			int pages = Math.min(slab_pages, num_slots - i * slab_pages);
+			slabs[i] = ByteBuffer.allocateDirect(pages * page_size);
+		}
+
+		pids = new int[num_slots];
+		for (int i = 0; i < num_slots; i++)
+			pids[i] = INVALID_PAGE;
+		referenced = new boolean[num_slots];
+		table = new BufHashTbl(num_slots);
+	}
+
+	/** Returns the number of pages the cache holds. */
+	public int getNumSlots() {
+		return num_slots;
+	}
+
+	/** Returns a view of one slot, with the page as its remaining bytes. */
+	private ByteBuffer view(int slot) {
+		ByteBuffer b = slabs[slot / slab_pages].duplicate();
+		int offset = (slot % slab_pages) * page_size;
+		b.limit(offset + page_size);
+		b.position(offset);
+		return b;
+	}
+
+	/**
+	 * Copy the page into dst if the cache holds it.
+	 *
+	 * @return true if the page was found
+	 */
+	public synchronized boolean get(int pid, byte[] dst) {
+		key.pid = pid;
+		int slot = table.lookup(key);
+		if (slot < 0)
+			return false;
+
+		view(slot).get(dst, 0, Math.min(dst.length, page_size));
+		referenced[slot] = true;
+		return true;
+	}
+
+	/**
+	 * Keep a copy of a clean page evicted from a frame. Nothing is copied if
+	 * the cache holds the page already, since the copy is the same as the
+	 * disk.
+	 */
+	public synchronized void put(int pid, byte[] src) {
+		key.pid = pid;
+		int slot = table.lookup(key);
+		if (slot >= 0) {
+			referenced[slot] = true;
+			return;
+		}
+
+		slot = pick_victim();
+		if (pids[slot] != INVALID_PAGE) {
+			key.pid = pids[slot];
+			table.remove(key);
+			key.pid = pid;
+		}
+		pids[slot] = pid;
+		table.insert(key, slot);
+		referenced[slot] = true;
+		view(slot).put(src, 0, Math.min(src.length, page_size));
+	}
+
+	/** Forget the page, which was written or freed. */
+	public synchronized void remove(int pid) {
+		key.pid = pid;
+		int slot = table.lookup(key);
+		if (slot < 0)
+			return;
+		table.remove(key);
+		pids[slot] = INVALID_PAGE;
+	}
+
+	/** Pick a slot to replace with the clock algorithm. */
+	private int pick_victim() {
+		while (true) {
+			int slot = hand;
+			hand = (hand + 1) % num_slots;
+
+			if (pids[slot] != INVALID_PAGE && referenced[slot]) {
+				referenced[slot] = false;
+				continue;
+			}
+			return slot;
+		}
+	}
+}
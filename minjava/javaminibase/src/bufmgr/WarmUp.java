@@ -0,0 +1,49 @@
+/* File WarmUp.java */
+
+package bufmgr;
+
+import global.*;
+
+/**
+ * Reads a list of pages into the buffer pool in the background, after a
+ * database is reopened, so that the first queries find the pages that were
+ * in the pool when it was closed. The pages are read in page-number order,
+ * each run of consecutive pages with one read. A page that cannot be read is
+ * skipped; the queries read it themselves if they need it.
+ */
+class WarmUp implements Runnable {
+
+	private BufMgr mgr;
+
+	/** The pages to read, sorted. */
+	private int[] pids;
+
+	/**
+	 * Create a warm-up for a buffer manager.
+	 *
+	 * @param mgrArg
+	 *            the buffer manager to read the pages into
+	 * @param pidsArg
+	 *            the pages to read, sorted by page number
+	 */
+	public WarmUp(BufMgr mgrArg, int[] pidsArg) {
+		mgr = mgrArg;
+		pids = pidsArg;
+	}
+
+	/** Read the pages. */
+	public void run() {
+		for (int i = 0; i < pids.length;) {
+			int run = 1;
+			while (i + run < pids.length && pids[i + run] == pids[i] + run)
+				run++;
+
+			try {
+				mgr.loadPages(new PageId(pids[i]), run);
+			} catch (Exception e) {
+				// The queries read the pages themselves.
+			}
+			i += run;
+		}
+	}
+}
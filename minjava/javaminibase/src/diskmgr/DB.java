@@ -7,7 +7,9 @@ import global.*;
 
 public class DB implements GlobalConst {
 
-	private static final int bits_per_page = MAX_SPACE * 8;
+	/** Smallest and largest page size a DB can be created with. */
+	public static final int MIN_PAGE_SIZE = MINIBASE_PAGESIZE;
+	public static final int MAX_PAGE_SIZE = 16 * 1024;
 
 	//task 9
 	private PCounter pCounter;
@@ -34,8 +36,14 @@ public class DB implements GlobalConst {
 
 		name = fname;
 
-		// Creaat a random access file
-		fp = new RandomAccessFile(fname, "rw");
+		// The buffer pool must have been set up for the page size of the file.
+		set_page_size(db_file_page_size(fname));
+		if (page_size != SystemDefs.JavabasePageSize)
+			throw new DiskMgrException(null, "DB page size " + page_size + " does not match the buffer pool page size "
+					+ SystemDefs.JavabasePageSize);
+
+		// Open the file with the selected storage backend
+		storage = DBStorage.open(fname, SystemDefs.MINIBASE_DB_STORAGE, page_size);
 
 		PageId pageId = new PageId();
 		Page apage = new Page();
@@ -50,6 +58,12 @@ public class DB implements GlobalConst {
 		num_pages = firstpg.getNumDBPages();
 
 		unpinPage(pageId, false /* undirty */);
+
+		load_space_map();
+		load_file_directory();
+
+		if (SystemDefs.MINIBASE_WARM_RESTART && SystemDefs.JavabaseBM != null)
+			SystemDefs.JavabaseBM.warmUp(load_warm_list());
 	}
 
 	/**
@@ -66,7 +80,8 @@ public class DB implements GlobalConst {
 
 	/**
 	 * DB Constructors. Create a database with the specified number of pages
-	 * where the page size is the default page size.
+	 * where the page size is the page size of the buffer pool
+	 * (SystemDefs.JavabasePageSize).
 	 *
 	 * @param name
 	 *            DB name
@@ -88,16 +103,22 @@ public class DB implements GlobalConst {
 		name = new String(fname);
 		num_pages = (num_pgs > 2) ? num_pgs : 2;
 
+		int size = SystemDefs.JavabasePageSize;
+		if (size < MIN_PAGE_SIZE || size > MAX_PAGE_SIZE || Integer.bitCount(size) != 1)
+			throw new DiskMgrException(null, "DB page size " + size + " is not a power of two between "
+					+ MIN_PAGE_SIZE + " and " + MAX_PAGE_SIZE);
+		set_page_size(size);
+
 		File DBfile = new File(name);
 
 		DBfile.delete();
+		new File(warm_list_name()).delete();
 
-		// Creaat a random access file
-		fp = new RandomAccessFile(fname, "rw");
+		// Open the file with the selected storage backend
+		storage = DBStorage.open(fname, SystemDefs.MINIBASE_DB_STORAGE, page_size);
 
 		// Make the file num_pages pages long, filled with zeroes.
-		fp.seek((long) (num_pages * MINIBASE_PAGESIZE - 1));
-		fp.writeByte(0);
+		storage.extend(num_pages);
 
 		// Initialize space map and directory pages.
 
@@ -110,24 +131,39 @@ public class DB implements GlobalConst {
 		DBFirstPage firstpg = new DBFirstPage(apage);
 
 		firstpg.setNumDBPages(num_pages);
+		firstpg.setPageSize(page_size);
+		directory = new FileDirectory();
+		directory.addHeaderPage(pageId.pid, firstpg.getNumOfEntries());
 		unpinPage(pageId, true /* dirty */);
 
 		// Calculate how many pages are needed for the space map. Reserve pages
 		// 0 and 1 and as many additional pages for the space map as are needed.
 		int num_map_pages = (num_pages + bits_per_page - 1) / bits_per_page;
 
+		space = new SpaceMap(num_pages, page_size);
 		set_bits(pageId, 1 + num_map_pages, 1);
 
 	}
 
 	/**
-	 * Close DB file.
+	 * Close DB file. Space-map pages changed since the DB was opened are
+	 * written back first. If SystemDefs.MINIBASE_WARM_RESTART is set, the
+	 * pages in the buffer pool are recorded in the warm list of the DB.
 	 * 
 	 * @exception IOException
 	 *                I/O errors.
 	 */
 	public void closeDB() throws IOException {
-		fp.close();
+		try {
+			flush_space_map();
+		} catch (InvalidPageNumberException e) {
+			throw new IOException("DB space map could not be written", e);
+		} catch (FileIOException e) {
+			throw new IOException("DB space map could not be written", e);
+		}
+		if (SystemDefs.MINIBASE_WARM_RESTART && SystemDefs.JavabaseBM != null)
+			save_warm_list(SystemDefs.JavabaseBM.getWarmPages());
+		storage.close();
 	}
 
 	/**
@@ -138,13 +174,16 @@ public class DB implements GlobalConst {
 	 */
 	public void DBDestroy() throws IOException {
 
-		fp.close();
+		storage.close();
 		File DBfile = new File(name);
 		DBfile.delete();
+		new File(warm_list_name()).delete();
 	}
 
 	/**
-	 * Read the contents of the specified page into a Page object
+	 * Read the contents of the specified page into a Page object. Page reads
+	 * and writes keep no shared file position and may be issued from several
+	 * threads at once.
 	 *
 	 * @param pageno
 	 *            pageId which will be read
@@ -163,13 +202,10 @@ public class DB implements GlobalConst {
 		if ((pageno.pid < 0) || (pageno.pid >= num_pages))
 			throw new InvalidPageNumberException(null, "BAD_PAGE_NUMBER");
 
-		// Seek to the correct page
-		fp.seek((long) (pageno.pid * MINIBASE_PAGESIZE));
-
 		// Read the appropriate number of bytes.
-		byte[] buffer = apage.getpage(); // new byte[MINIBASE_PAGESIZE];
+		byte[] buffer = apage.getpage(); // new byte[page_size];
 		try {
-			fp.read(buffer);
+			storage.read(pageno.pid, buffer);
 		} catch (IOException e) {
 			throw new FileIOException(e, "DB file I/O error");
 		}
@@ -198,12 +234,9 @@ public class DB implements GlobalConst {
 		if ((pageno.pid < 0) || (pageno.pid >= num_pages))
 			throw new InvalidPageNumberException(null, "INVALID_PAGE_NUMBER");
 
-		// Seek to the correct page
-		fp.seek((long) (pageno.pid * MINIBASE_PAGESIZE));
-
 		// Write the appropriate number of bytes.
 		try {
-			fp.write(apage.getpage());
+			storage.write(pageno.pid, apage.getpage());
 		} catch (IOException e) {
 			throw new FileIOException(e, "DB file I/O error");
 		}
@@ -212,6 +245,92 @@ public class DB implements GlobalConst {
 
 	}
 
+	/**
+	 * Read a run of n contiguous pages, starting with the specified page, into
+	 * the first n Page objects of dst. The whole run is moved with one
+	 * vectored read instead of one read per page. An empty run (n = 0) moves
+	 * nothing.
+	 *
+	 * @param start
+	 *            pageId of the first page of the run
+	 * @param n
+	 *            number of pages in the run
+	 * @param dst
+	 *            page objects which hold the contents of the pages
+	 *
+	 * @exception InvalidPageNumberException
+	 *                invalid page number
+	 * @exception FileIOException
+	 *                file I/O error
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public void read_pages(PageId start, int n, Page[] dst)
+			throws InvalidPageNumberException, FileIOException, IOException {
+
+		if ((start.pid < 0) || (n < 0) || (start.pid + n > num_pages) || (n > dst.length))
+			throw new InvalidPageNumberException(null, "BAD_PAGE_NUMBER");
+
+		if (n == 0)
+			return;
+
+		byte[][] buffers = new byte[n][];
+		for (int i = 0; i < n; i++)
+			buffers[i] = dst[i].getpage();
+
+		try {
+			storage.read(start.pid, buffers);
+		} catch (IOException e) {
+			throw new FileIOException(e, "DB file I/O error");
+		}
+
+		for (int i = 0; i < n; i++)
+			PCounter.readIncrement();
+	}
+
+	/**
+	 * Write the first n Page objects of src to the run of n contiguous pages
+	 * starting with the specified page. The whole run is moved with one
+	 * vectored write instead of one write per page. An empty run (n = 0) moves
+	 * nothing.
+	 *
+	 * @param start
+	 *            pageId of the first page of the run
+	 * @param n
+	 *            number of pages in the run
+	 * @param src
+	 *            the page objects will be wrote to disk
+	 *
+	 * @exception InvalidPageNumberException
+	 *                invalid page number
+	 * @exception FileIOException
+	 *                file I/O error
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public void write_pages(PageId start, int n, Page[] src)
+			throws InvalidPageNumberException, FileIOException, IOException {
+
+		if ((start.pid < 0) || (n < 0) || (start.pid + n > num_pages) || (n > src.length))
+			throw new InvalidPageNumberException(null, "INVALID_PAGE_NUMBER");
+
+		if (n == 0)
+			return;
+
+		byte[][] buffers = new byte[n][];
+		for (int i = 0; i < n; i++)
+			buffers[i] = src[i].getpage();
+
+		try {
+			storage.write(start.pid, buffers);
+		} catch (IOException e) {
+			throw new FileIOException(e, "DB file I/O error");
+		}
+
+		for (int i = 0; i < n; i++)
+			PCounter.writeIncrement();
+	}
+
 	/**
 	 * Allocate a set of pages where the run size is taken to be 1 by default.
 	 * Gives back the page number of the first page of the allocated run. with
@@ -265,67 +384,12 @@ public class DB implements GlobalConst {
 		if (runsize < 0)
 			throw new InvalidRunSizeException(null, "Negative run_size");
 
-		int run_size = runsize;
-		int num_map_pages = (num_pages + bits_per_page - 1) / bits_per_page;
-		int current_run_start = 0;
-		int current_run_length = 0;
-
-		// This loop goes over each page in the space map.
-		PageId pgid = new PageId();
-		byte[] pagebuf;
-		int byteptr;
-
-		for (int i = 0; i < num_map_pages; ++i) {// start forloop01
-
-			pgid.pid = 1 + i;
-			// Pin the space-map page.
-
-			Page apage = new Page();
-			pinPage(pgid, apage, false /* read disk */);
+		// Search the in-memory space map a word at a time for a free run.
+		int run_start = space.findFreeRun(runsize, next_fit);
 
-			pagebuf = apage.getpage();
-			byteptr = 0;
-
-			// get the num of bits on current page
-			int num_bits_this_page = num_pages - i * bits_per_page;
-			if (num_bits_this_page > bits_per_page)
-				num_bits_this_page = bits_per_page;
-
-			// Walk the page looking for a sequence of 0 bits of the appropriate
-			// length. The outer loop steps through the page's bytes, the inner
-			// one steps through each byte's bits.
-
-			for (; num_bits_this_page > 0 && current_run_length < run_size; ++byteptr) {// start
-																						// forloop02
-
-				Integer intmask = new Integer(1);
-				Byte mask = new Byte(intmask.byteValue());
-				byte tmpmask = mask.byteValue();
-
-				while (mask.intValue() != 0 && (num_bits_this_page > 0) && (current_run_length < run_size))
-
-				{
-					if ((pagebuf[byteptr] & tmpmask) != 0) {
-						current_run_start += current_run_length + 1;
-						current_run_length = 0;
-					} else
-						++current_run_length;
-
-					tmpmask <<= 1;
-					mask = new Byte(tmpmask);
-					--num_bits_this_page;
-				}
-
-			} // end of forloop02
-				// Unpin the space-map page.
-
-			unpinPage(pgid, false /* undirty */);
-
-		} // end of forloop01
-
-		if (current_run_length >= run_size) {
-			start_page_num.pid = current_run_start;
-			set_bits(start_page_num, run_size, 1);
+		if (run_start >= 0) {
+			start_page_num.pid = run_start;
+			set_bits(start_page_num, runsize, 1);
 
 			return;
 		}
@@ -425,61 +489,34 @@ public class DB implements GlobalConst {
 
 		// Does the file already exist?
 
-		if (get_file_entry(fname) != null)
+		if (directory.get(fname) != null)
 			throw new DuplicateEntryException(null, "DB fileentry already exists");
 
 		Page apage = new Page();
 
-		boolean found = false;
 		int free_slot = 0;
 		PageId hpid = new PageId();
-		PageId nexthpid = new PageId(0);
 		DBHeaderPage dp;
-		do {// Start DO01
-			// System.out.println("start do01");
-			hpid.pid = nexthpid.pid;
 
-			// Pin the header page
+		// The directory knows the first free slot in the chain, if any.
+		int[] free = directory.firstFreeSlot();
+		if (free != null) {
+			hpid.pid = free[0];
+			free_slot = free[1];
 			pinPage(hpid, apage, false /* read disk */);
+			dp = openHeaderPage(hpid, apage);
+		} else {
+			// Have to add a new header page after the last one.
+			hpid.pid = directory.lastHeaderPage();
+			pinPage(hpid, apage, false /* read disk */);
+			dp = openHeaderPage(hpid, apage);
 
-			// This complication is because the first page has a different
-			// structure from that of subsequent pages.
-			if (hpid.pid == 0) {
-				dp = new DBFirstPage();
-				((DBFirstPage) dp).openPage(apage);
-			} else {
-				dp = new DBDirectoryPage();
-				((DBDirectoryPage) dp).openPage(apage);
-			}
-
-			nexthpid = dp.getNextPage();
-			int entry = 0;
-
-			PageId tmppid = new PageId();
-			while (entry < dp.getNumOfEntries()) {
-				dp.getFileEntry(tmppid, entry);
-				if (tmppid.pid == INVALID_PAGE)
-					break;
-				entry++;
-			}
-
-			if (entry < dp.getNumOfEntries()) {
-				free_slot = entry;
-				found = true;
-			} else if (nexthpid.pid != INVALID_PAGE) {
-				// We only unpin if we're going to continue looping.
-				unpinPage(hpid, false /* undirty */);
-			}
-
-		} while ((nexthpid.pid != INVALID_PAGE) && (!found)); // End of DO01
-
-		// Have to add a new header page if possible.
-		if (!found) {
+			PageId nexthpid = new PageId();
 			try {
 				allocate_page(nexthpid);
-			} catch (Exception e) { // need rethrow an exception!!!!
+			} catch (OutOfSpaceException e) {
 				unpinPage(hpid, false /* undirty */);
-				e.printStackTrace();
+				throw e;
 			}
 
 			// Set the next-page pointer on the previous directory page.
@@ -490,7 +527,8 @@ public class DB implements GlobalConst {
 			hpid.pid = nexthpid.pid;
 
 			pinPage(hpid, apage, true/* no diskIO */);
-			dp = new DBDirectoryPage(apage);
+			dp = new DBDirectoryPage(apage, page_size);
+			directory.addHeaderPage(hpid.pid, dp.getNumOfEntries());
 
 			free_slot = 0;
 		}
@@ -505,6 +543,7 @@ public class DB implements GlobalConst {
 
 		unpinPage(hpid, true /* dirty */);
 
+		directory.put(fname, start_page_num.pid, hpid.pid, free_slot);
 	}
 
 	/**
@@ -527,60 +566,24 @@ public class DB implements GlobalConst {
 	public void delete_file_entry(String fname) throws FileEntryNotFoundException, IOException, FileIOException,
 			InvalidPageNumberException, DiskMgrException {
 
-		Page apage = new Page();
-		boolean found = false;
-		int slot = 0;
-		PageId hpid = new PageId();
-		PageId nexthpid = new PageId(0);
-		PageId tmppid = new PageId();
-		DBHeaderPage dp;
-
-		do { // startDO01
-			hpid.pid = nexthpid.pid;
-
-			// Pin the header page.
-			pinPage(hpid, apage, false/* read disk */);
-
-			// This complication is because the first page has a different
-			// structure from that of subsequent pages.
-			if (hpid.pid == 0) {
-				dp = new DBFirstPage();
-				((DBFirstPage) dp).openPage(apage);
-			} else {
-				dp = new DBDirectoryPage();
-				((DBDirectoryPage) dp).openPage(apage);
-			}
-			nexthpid = dp.getNextPage();
-
-			int entry = 0;
-
-			String tmpname;
-			while (entry < dp.getNumOfEntries()) {
-				tmpname = dp.getFileEntry(tmppid, entry);
-
-				if ((tmppid.pid != INVALID_PAGE) && (tmpname.compareTo(fname) == 0))
-					break;
-				entry++;
-			}
-
-			if (entry < dp.getNumOfEntries()) {
-				slot = entry;
-				found = true;
-			} else {
-				unpinPage(hpid, false /* undirty */);
-			}
+		FileDirectory.Entry entry = directory.get(fname);
+		if (entry == null) // Entry not found - nothing deleted
+			throw new FileEntryNotFoundException(null, "DB file not found");
 
-		} while ((nexthpid.pid != INVALID_PAGE) && (!found)); // EndDO01
+		Page apage = new Page();
+		PageId hpid = new PageId(entry.header_pid);
 
-		if (!found) // Entry not found - nothing deleted
-			throw new FileEntryNotFoundException(null, "DB file not found");
+		// Pin the header page.
+		pinPage(hpid, apage, false/* read disk */);
+		DBHeaderPage dp = openHeaderPage(hpid, apage);
 
 		// Have to delete record at hpnum:slot
-		tmppid.pid = INVALID_PAGE;
-		dp.setFileEntry(tmppid, "\0", slot);
+		PageId tmppid = new PageId(INVALID_PAGE);
+		dp.setFileEntry(tmppid, "\0", entry.slot);
 
 		unpinPage(hpid, true /* dirty */);
 
+		directory.remove(fname);
 	}
 
 	/**
@@ -601,75 +604,217 @@ public class DB implements GlobalConst {
 	public PageId get_file_entry(String name)
 			throws IOException, FileIOException, InvalidPageNumberException, DiskMgrException {
 
+		FileDirectory.Entry entry = directory.get(name);
+		if (entry == null) // Entry not found - don't post error, just fail.
+			return null;
+
+		return new PageId(entry.start_pid);
+	}
+
+	/**
+	 * Functions to return some characteristics of the database.
+	 */
+	public String db_name() {
+		return name;
+	}
+
+	public int db_num_pages() {
+		return num_pages;
+	}
+
+	public int db_page_size() {
+		return page_size;
+	}
+
+	/**
+	 * Read the page size of an existing database file from its first page.
+	 * The size is kept within the first MINIBASE_PAGESIZE bytes, so it can be
+	 * read before the page size is known. Files written before the page size
+	 * was stored have 1 KB pages.
+	 *
+	 * @param fname
+	 *            name of the database file
+	 * @return the page size in bytes
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public static int db_file_page_size(String fname) throws IOException {
+		RandomAccessFile fp = new RandomAccessFile(fname, "r");
+		try {
+			fp.seek(DBFirstPage.PAGE_SIZE);
+			int size = fp.readInt();
+			return (size == 0) ? MINIBASE_PAGESIZE : size;
+		} finally {
+			fp.close();
+		}
+	}
+
+	private void set_page_size(int size) {
+		page_size = size;
+		bits_per_page = size * 8;
+	}
+
+	/**
+	 * Choose how allocate_page searches the space map: next fit continues
+	 * after the most recent allocation, so a growing file gets adjacent
+	 * pages; first fit (the default) always starts at page 0.
+	 *
+	 * @param on
+	 *            true for next fit, false for first fit
+	 */
+	public void set_next_fit(boolean on) {
+		next_fit = on;
+	}
+
+	/**
+	 * Write the space-map pages changed since they were last written back
+	 * to disk. Allocations only change the in-memory space map; this is done
+	 * when the DB is closed, so the allocations and deallocations of a
+	 * process that dies before closeDB are lost.
+	 *
+	 * @exception InvalidPageNumberException
+	 *                invalid page number
+	 * @exception FileIOException
+	 *                file I/O error
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public void flush_space_map() throws InvalidPageNumberException, FileIOException, IOException {
+		if (space == null)
+			return;
+
+		Page apage = new Page();
+		PageId pgid = new PageId();
+		for (int i = 0; i < space.getNumMapPages(); i++) {
+			if (space.isDirty(i)) {
+				pgid.pid = 1 + i;
+				space.storePage(i, apage.getpage());
+				write_page(pgid, apage);
+				space.setClean(i);
+			}
+		}
+	}
+
+	/**
+	 * Walk the chain of directory pages of an opened DB and build the
+	 * in-memory file directory from it.
+	 */
+	private void load_file_directory() throws IOException, DiskMgrException {
+		directory = new FileDirectory();
+
 		Page apage = new Page();
-		boolean found = false;
-		int slot = 0;
 		PageId hpid = new PageId();
 		PageId nexthpid = new PageId(0);
-		DBHeaderPage dp;
-		
-		do {// Start DO01
-
-			// System.out.println("get_file_entry do-loop01: "+name);
+		PageId tmppid = new PageId();
+		do {
 			hpid.pid = nexthpid.pid;
 
-			// Pin the header page.
-			pinPage(hpid, apage, false /* no diskIO */);
-
-			// This complication is because the first page has a different
-			// structure from that of subsequent pages.
-			if (hpid.pid == 0) {
-				dp = new DBFirstPage();
-				((DBFirstPage) dp).openPage(apage);
-			} else {
-				dp = new DBDirectoryPage();
-				((DBDirectoryPage) dp).openPage(apage);
-			}
+			pinPage(hpid, apage, false /* read disk */);
+			DBHeaderPage dp = openHeaderPage(hpid, apage);
 			nexthpid = dp.getNextPage();
 
-			int entry = 0;
-			PageId tmppid = new PageId();
-			String tmpname;
-
-			while (entry < dp.getNumOfEntries()) {
-				tmpname = dp.getFileEntry(tmppid, entry);
-				if ((tmppid.pid != INVALID_PAGE) && (tmpname.compareTo(name) == 0))
-					break;
-				entry++;
-			}
-			if (entry < dp.getNumOfEntries()) {
-				slot = entry;
-				found = true;
+			directory.addHeaderPage(hpid.pid, dp.getNumOfEntries());
+			for (int entry = 0; entry < dp.getNumOfEntries(); entry++) {
+				String tmpname = dp.getFileEntry(tmppid, entry);
+				if (tmppid.pid != INVALID_PAGE)
+					directory.put(tmpname, tmppid.pid, hpid.pid, entry);
 			}
 
 			unpinPage(hpid, false /* undirty */);
 
-		} while ((nexthpid.pid != INVALID_PAGE) && (!found));// End of DO01
+		} while (nexthpid.pid != INVALID_PAGE);
+	}
 
-		if (!found) // Entry not found - don't post error, just fail.
-		{
-			// System.out.println("entry NOT found");
-			return null;
+	/**
+	 * Open a pinned directory page. This complication is because the first
+	 * page has a different structure from that of subsequent pages.
+	 */
+	private DBHeaderPage openHeaderPage(PageId hpid, Page apage) {
+		if (hpid.pid == 0) {
+			DBFirstPage dp = new DBFirstPage();
+			dp.openPage(apage);
+			return dp;
 		}
+		DBDirectoryPage dp = new DBDirectoryPage();
+		dp.openPage(apage);
+		return dp;
+	}
 
-		PageId startpid = new PageId();
-		dp.getFileEntry(startpid, slot);
-		return startpid;
+	/** Returns the name of the file holding the warm list of the DB. */
+	private String warm_list_name() {
+		return name + ".warm";
 	}
 
 	/**
-	 * Functions to return some characteristics of the database.
+	 * Write the warm list: the number of pages, then their page numbers, in
+	 * a side file next to the DB. A list that cannot be written is left out;
+	 * the DB is only reopened with a cold buffer pool.
 	 */
-	public String db_name() {
-		return name;
+	private void save_warm_list(int[] pids) {
+		try {
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(warm_list_name())));
+			try {
+				out.writeInt(pids.length);
+				for (int i = 0; i < pids.length; i++)
+					out.writeInt(pids[i]);
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			new File(warm_list_name()).delete();
+		}
 	}
 
-	public int db_num_pages() {
-		return num_pages;
+	/**
+	 * Read the warm list written when the DB was last closed.
+	 *
+	 * @return the page numbers, sorted; none if there is no usable list
+	 */
+	private int[] load_warm_list() {
+		File f = new File(warm_list_name());
+		if (!f.exists())
+			return new int[0];
+
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)));
+			try {
+				int n = in.readInt();
+				if (n < 0 || n > num_pages)
+					return new int[0];
+
+				int[] pids = new int[n];
+				for (int i = 0; i < n; i++) {
+					pids[i] = in.readInt();
+					if (pids[i] < 0 || pids[i] >= num_pages || (i > 0 && pids[i] <= pids[i - 1]))
+						return new int[0];
+				}
+				return pids;
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			return new int[0];
+		}
 	}
 
-	public int db_page_size() {
-		return MINIBASE_PAGESIZE;
+	/**
+	 * Read the space-map pages of an opened DB into memory.
+	 */
+	private void load_space_map() throws InvalidPageNumberException, FileIOException, IOException {
+		space = new SpaceMap(num_pages, page_size);
+
+		Page apage = new Page();
+		PageId pgid = new PageId();
+		for (int i = 0; i < space.getNumMapPages(); i++) {
+			pgid.pid = 1 + i;
+			read_page(pgid, apage);
+			space.loadPage(i, apage.getpage());
+		}
+	}
+
+	public String db_storage() {
+		return storage.name();
 	}
 
 	/**
@@ -694,16 +839,10 @@ public class DB implements GlobalConst {
 		int bit_number = 0;
 
 		// This loop goes over each page in the space map.
-		PageId pgid = new PageId();
 		System.out.println("num_map_pages = " + num_map_pages);
 		System.out.println("num_pages = " + num_pages);
 		for (int i = 0; i < num_map_pages; i++) {// start forloop01
 
-			pgid.pid = 1 + i; // space map starts at page1
-			// Pin the space-map page.
-			Page apage = new Page();
-			pinPage(pgid, apage, false/* read disk */);
-
 			// How many bits should we examine on this page?
 			int num_bits_this_page = num_pages - i * bits_per_page;
 			System.out.println("num_bits_this_page = " + num_bits_this_page);
@@ -711,48 +850,42 @@ public class DB implements GlobalConst {
 			if (num_bits_this_page > bits_per_page)
 				num_bits_this_page = bits_per_page;
 
-			// Walk the page looking for a sequence of 0 bits of the appropriate
-			// length. The outer loop steps through the page's bytes, the inner
-			// one steps through each byte's bits.
-
-			int pgptr = 0;
-			byte[] pagebuf = apage.getpage();
-			int mask;
-			for (; num_bits_this_page > 0; pgptr++) {// start forloop02
-
-				for (mask = 1; mask < 256
-						&& num_bits_this_page > 0; mask = (mask << 1), --num_bits_this_page, ++bit_number) {// start
-																											// forloop03
-
-					int bit = pagebuf[pgptr] & mask;
-					if ((bit_number % 10) == 0)
-						if ((bit_number % 50) == 0) {
-							if (bit_number > 0)
-								System.out.println("\n");
-							System.out.print("\t" + bit_number + ": ");
-						} else
-							System.out.print(' ');
+			for (; num_bits_this_page > 0; --num_bits_this_page, ++bit_number) {// start
+																				// forloop02
 
-					if (bit != 0)
-						System.out.print("1");
-					else
-						System.out.print("0");
+				if ((bit_number % 10) == 0)
+					if ((bit_number % 50) == 0) {
+						if (bit_number > 0)
+							System.out.println("\n");
+						System.out.print("\t" + bit_number + ": ");
+					} else
+						System.out.print(' ');
 
-				} // end of forloop03
+				if (space.isSet(bit_number))
+					System.out.print("1");
+				else
+					System.out.print("0");
 
 			} // end of forloop02
 
-			unpinPage(pgid, false /* undirty */);
-
 		} // end of forloop01
 
 		System.out.println();
 
 	}
 
-	private RandomAccessFile fp;
+	private DBStorage storage;
 	private int num_pages;
 	private String name;
+	private int page_size;
+	private int bits_per_page;
+
+	/** In-memory space map; its dirty pages are written back lazily. */
+	private SpaceMap space;
+	private boolean next_fit = false;
+
+	/** In-memory file directory, changed together with the directory pages. */
+	private FileDirectory directory;
 
 	/**
 	 * Set runsize bits starting from start to value specified
@@ -763,68 +896,7 @@ public class DB implements GlobalConst {
 		if ((start_page.pid < 0) || (start_page.pid + run_size > num_pages))
 			throw new InvalidPageNumberException(null, "Bad page number");
 
-		// Locate the run within the space map.
-		int first_map_page = start_page.pid / bits_per_page + 1;
-		int last_map_page = (start_page.pid + run_size - 1) / bits_per_page + 1;
-		int first_bit_no = start_page.pid % bits_per_page;
-
-		// The outer loop goes over all space-map pages we need to touch.
-
-		for (PageId pgid = new PageId(first_map_page); pgid.pid <= last_map_page; pgid.pid = pgid.pid
-				+ 1, first_bit_no = 0) {// Start forloop01
-
-			// Pin the space-map page.
-			Page pg = new Page();
-
-			pinPage(pgid, pg, false/* no diskIO */);
-
-			byte[] pgbuf = pg.getpage();
-
-			// Locate the piece of the run that fits on this page.
-			int first_byte_no = first_bit_no / 8;
-			int first_bit_offset = first_bit_no % 8;
-			int last_bit_no = first_bit_no + run_size - 1;
-
-			if (last_bit_no >= bits_per_page)
-				last_bit_no = bits_per_page - 1;
-
-			int last_byte_no = last_bit_no / 8;
-
-			// This loop actually flips the bits on the current page.
-			int cur_posi = first_byte_no;
-			for (; cur_posi <= last_byte_no; ++cur_posi, first_bit_offset = 0) {// start
-																				// forloop02
-
-				int max_bits_this_byte = 8 - first_bit_offset;
-				int num_bits_this_byte = (run_size > max_bits_this_byte ? max_bits_this_byte : run_size);
-
-				int imask = 1;
-				int temp;
-				imask = ((imask << num_bits_this_byte) - 1) << first_bit_offset;
-				Integer intmask = new Integer(imask);
-				Byte mask = new Byte(intmask.byteValue());
-				byte bytemask = mask.byteValue();
-
-				if (bit == 1) {
-					temp = (pgbuf[cur_posi] | bytemask);
-					intmask = new Integer(temp);
-					pgbuf[cur_posi] = intmask.byteValue();
-				} else {
-
-					temp = pgbuf[cur_posi] & (255 ^ bytemask);
-					intmask = new Integer(temp);
-					pgbuf[cur_posi] = intmask.byteValue();
-				}
-				run_size -= num_bits_this_byte;
-
-			} // end of forloop02
-
-			// Unpin the space-map page.
-
-			unpinPage(pgid, true /* dirty */);
-
-		} // end of forloop01
-
+		space.setBits(start_page.pid, run_size, bit);
 	}
 
 	/**
@@ -864,7 +936,7 @@ public class DB implements GlobalConst {
  */
 interface PageUsedBytes {
 	int DIR_PAGE_USED_BYTES = 8 + 8;
-	int FIRST_PAGE_USED_BYTES = DIR_PAGE_USED_BYTES + 4;
+	int FIRST_PAGE_USED_BYTES = DIR_PAGE_USED_BYTES + 8;
 }
 
 /**
@@ -892,9 +964,11 @@ class DBHeaderPage implements PageUsedBytes, GlobalConst {
 	 *            a page of Page object
 	 * @param pageusedbytes
 	 *            number of bytes used on the page
+	 * @param pagebytes
+	 *            number of bytes of the page that hold the header
 	 * @exception IOException
 	 */
-	public DBHeaderPage(Page page, int pageusedbytes) throws IOException {
+	public DBHeaderPage(Page page, int pageusedbytes, int pagebytes) throws IOException {
 		data = page.getpage();
 		PageId pageno = new PageId();
 		pageno.pid = INVALID_PAGE;
@@ -902,7 +976,7 @@ class DBHeaderPage implements PageUsedBytes, GlobalConst {
 
 		PageId temppid = getNextPage();
 
-		int num_entries = (MAX_SPACE - pageusedbytes) / SIZE_OF_FILE_ENTRY;
+		int num_entries = (pagebytes - pageusedbytes) / SIZE_OF_FILE_ENTRY;
 		setNumOfEntries(num_entries);
 
 		for (int index = 0; index < num_entries; ++index)
@@ -1017,7 +1091,12 @@ class DBHeaderPage implements PageUsedBytes, GlobalConst {
  */
 class DBFirstPage extends DBHeaderPage {
 
+	/*
+	 * The first page keeps the layout of a 1 KB page whatever the page size,
+	 * so that the page size can be read before it is known.
+	 */
 	protected static final int NUM_DB_PAGE = MINIBASE_PAGESIZE - 4;
+	protected static final int PAGE_SIZE = MINIBASE_PAGESIZE - 8;
 
 	/**
 	 * Default construtor
@@ -1035,7 +1114,7 @@ class DBFirstPage extends DBHeaderPage {
 	 *                I/O errors
 	 */
 	public DBFirstPage(Page page) throws IOException {
-		super(page, FIRST_PAGE_USED_BYTES);
+		super(page, FIRST_PAGE_USED_BYTES, MINIBASE_PAGESIZE);
 	}
 
 	/**
@@ -1072,6 +1151,18 @@ class DBFirstPage extends DBHeaderPage {
 		return (Convert.getIntValue(NUM_DB_PAGE, data));
 	}
 
+	/**
+	 * set the page size of the DB
+	 * 
+	 * @param size
+	 *            the page size in bytes
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public void setPageSize(int size) throws IOException {
+		Convert.setIntValue(size, PAGE_SIZE, data);
+	}
+
 }
 
 /**
@@ -1091,10 +1182,12 @@ class DBDirectoryPage extends DBHeaderPage { // implements PageUsedBytes
 	 * 
 	 * @param page
 	 *            a page of Page object
+	 * @param page_size
+	 *            page size of the DB
 	 * @exception IOException
 	 */
-	public DBDirectoryPage(Page page) throws IOException {
-		super(page, DIR_PAGE_USED_BYTES);
+	public DBDirectoryPage(Page page, int page_size) throws IOException {
+		super(page, DIR_PAGE_USED_BYTES, page_size);
 	}
 
 	/**
@@ -0,0 +1,128 @@
+/* File DBStorage.java */
+
+package diskmgr;
+
+import java.io.*;
+import global.*;
+
+/**
+ * A super class for the storage backends of the DB class. It moves whole pages
+ * between the database file and the byte arrays of Page objects. Page number
+ * checks and the page counters stay in DB, so every backend is accounted for
+ * in the same way.
+ *
+ * read and write must be safe to call from several threads at once.
+ */
+abstract class DBStorage implements GlobalConst {
+
+	/** Size in bytes of a page of the database file. */
+	protected int page_size;
+
+	protected DBStorage(int page_size) {
+		this.page_size = page_size;
+	}
+
+	/**
+	 * Read the page with the given number into buffer.
+	 *
+	 * @param pageno
+	 *            number of the page in the file
+	 * @param buffer
+	 *            byte array of one page; a shorter array moves only its
+	 *            length
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public abstract void read(int pageno, byte[] buffer) throws IOException;
+
+	/**
+	 * Write buffer to the page with the given number.
+	 *
+	 * @param pageno
+	 *            number of the page in the file
+	 * @param buffer
+	 *            byte array of one page; a shorter array moves only its
+	 *            length
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public abstract void write(int pageno, byte[] buffer) throws IOException;
+
+	/**
+	 * Read the run of pages starting at pageno into buffers, one page per
+	 * buffer.
+	 *
+	 * @param pageno
+	 *            number of the first page of the run
+	 * @param buffers
+	 *            byte arrays of one page each
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public abstract void read(int pageno, byte[][] buffers) throws IOException;
+
+	/**
+	 * Write buffers to the run of pages starting at pageno, one page per
+	 * buffer.
+	 *
+	 * @param pageno
+	 *            number of the first page of the run
+	 * @param buffers
+	 *            byte arrays of one page each
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public abstract void write(int pageno, byte[][] buffers) throws IOException;
+
+	/**
+	 * Make the file at least num_pages pages long. New pages are zero filled.
+	 *
+	 * @param num_pages
+	 *            number of pages the file must hold
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public abstract void extend(int num_pages) throws IOException;
+
+	/**
+	 * Write out anything still held in memory and close the file.
+	 *
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public abstract void close() throws IOException;
+
+	/**
+	 * Returns the number of bytes to move for a page buffer: the whole page,
+	 * or only the length of a buffer shorter than a page, as the original
+	 * RandomAccessFile code did.
+	 */
+	protected int pageBytes(byte[] buffer) {
+		return Math.min(buffer.length, page_size);
+	}
+
+	/** Returns the name of the storage backend. */
+	public abstract String name();
+
+	/**
+	 * Open the database file with the backend of the given name. An unknown or
+	 * null name falls back to the "File" backend.
+	 *
+	 * @param fname
+	 *            name of the database file
+	 * @param storageArg
+	 *            name of the storage backend, "File" or "Mmap"
+	 * @param page_size
+	 *            size in bytes of a page of the file
+	 * @return the opened backend
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public static DBStorage open(String fname, String storageArg, int page_size) throws IOException {
+
+		if (storageArg != null && storageArg.compareTo("Mmap") == 0)
+			return new MappedStorage(fname, page_size);
+
+		return new FileStorage(fname, page_size);
+	}
+}
@@ -0,0 +1,97 @@
+/* File FileDirectory.java */
+
+package diskmgr;
+
+import java.util.*;
+import global.*;
+
+/**
+ * In-memory copy of the DB file directory. It maps every file name to its
+ * first page and to the directory slot holding the entry, and keeps the free
+ * slots in chain order, so DB can look up, add and delete file entries
+ * without walking the chain of directory pages.
+ *
+ * The directory pages stay the only persistent copy: DB changes the page and
+ * this map together, and rebuilds the map from the pages when a DB is opened.
+ */
+class FileDirectory implements GlobalConst {
+
+	/** Location of one file entry. */
+	static class Entry {
+		int start_pid;
+		int header_pid;
+		int slot;
+
+		Entry(int start_pid, int header_pid, int slot) {
+			this.start_pid = start_pid;
+			this.header_pid = header_pid;
+			this.slot = slot;
+		}
+	}
+
+	private HashMap<String, Entry> entries = new HashMap<String, Entry>();
+
+	/** Page ids of the directory pages, in chain order. */
+	private ArrayList<Integer> header_pids = new ArrayList<Integer>();
+	private HashMap<Integer, Integer> chain_pos = new HashMap<Integer, Integer>();
+
+	/**
+	 * Free slots, as (position of the page in the chain) << 32 | slot, so the
+	 * first free slot is the one the chain walk would find.
+	 */
+	private TreeSet<Long> free_slots = new TreeSet<Long>();
+
+	/** Returns the entry for the given file name, or null. */
+	public Entry get(String fname) {
+		return entries.get(fname);
+	}
+
+	/**
+	 * Record a directory page appended to the chain, with all of its slots
+	 * free.
+	 *
+	 * @param header_pid
+	 *            page id of the directory page
+	 * @param num_entries
+	 *            number of slots on the page
+	 */
+	public void addHeaderPage(int header_pid, int num_entries) {
+		chain_pos.put(header_pid, header_pids.size());
+		header_pids.add(header_pid);
+		for (int slot = 0; slot < num_entries; slot++)
+			free_slots.add(key(header_pid, slot));
+	}
+
+	/** Returns the page id of the last directory page of the chain. */
+	public int lastHeaderPage() {
+		return header_pids.get(header_pids.size() - 1);
+	}
+
+	/**
+	 * Returns the first free slot in chain order as {header_pid, slot}, or
+	 * null if every directory page is full.
+	 */
+	public int[] firstFreeSlot() {
+		if (free_slots.isEmpty())
+			return null;
+		long key = free_slots.first();
+		return new int[] { header_pids.get((int) (key >>> 32)), (int) key };
+	}
+
+	/** Record a file entry stored in the given slot. */
+	public void put(String fname, int start_pid, int header_pid, int slot) {
+		free_slots.remove(key(header_pid, slot));
+		entries.put(fname, new Entry(start_pid, header_pid, slot));
+	}
+
+	/** Forget the entry of the given file and free its slot. */
+	public void remove(String fname) {
+		Entry e = entries.remove(fname);
+		if (e != null)
+			free_slots.add(key(e.header_pid, e.slot));
+	}
+
+	private long key(int header_pid, int slot) {
+		return ((long) chain_pos.get(header_pid) << 32) | slot;
+	}
+}
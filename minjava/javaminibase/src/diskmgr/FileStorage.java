@@ -0,0 +1,105 @@
+/* File FileStorage.java */
+
+package diskmgr;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+
+/**
+ * The default storage backend. Every page transfer is a positional read or
+ * write on the file's FileChannel. No file position is shared between calls,
+ * so several threads may read and write pages at the same time.
+ *
+ * A run of pages is moved with one scattering read or gathering write. Those
+ * calls go through the channel position, so runs are serialized on the
+ * channel; single-page transfers never look at the position and are not
+ * blocked by them.
+ */
+class FileStorage extends DBStorage {
+
+	private RandomAccessFile fp;
+	private FileChannel channel;
+
+	/**
+	 * Open (or create) the database file.
+	 *
+	 * @param fname
+	 *            name of the database file
+	 * @param page_size
+	 *            size in bytes of a page of the file
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public FileStorage(String fname, int page_size) throws IOException {
+		super(page_size);
+		fp = new RandomAccessFile(fname, "rw");
+		channel = fp.getChannel();
+	}
+
+	public void read(int pageno, byte[] buffer) throws IOException {
+		ByteBuffer dst = ByteBuffer.wrap(buffer, 0, pageBytes(buffer));
+		long position = (long) pageno * page_size;
+
+		// A positional read may come back short; keep going until the page
+		// is complete or the end of the file is reached.
+		while (dst.hasRemaining()) {
+			int n = channel.read(dst, position + dst.position());
+			if (n < 0)
+				break;
+		}
+	}
+
+	public void write(int pageno, byte[] buffer) throws IOException {
+		ByteBuffer src = ByteBuffer.wrap(buffer, 0, pageBytes(buffer));
+		long position = (long) pageno * page_size;
+
+		while (src.hasRemaining())
+			channel.write(src, position + src.position());
+	}
+
+	public void read(int pageno, byte[][] buffers) throws IOException {
+		ByteBuffer[] dsts = wrap(buffers);
+
+		synchronized (channel) {
+			channel.position((long) pageno * page_size);
+			while (dsts[dsts.length - 1].hasRemaining()) {
+				if (channel.read(dsts) < 0)
+					break;
+			}
+		}
+	}
+
+	public void write(int pageno, byte[][] buffers) throws IOException {
+		ByteBuffer[] srcs = wrap(buffers);
+
+		synchronized (channel) {
+			channel.position((long) pageno * page_size);
+			while (srcs[srcs.length - 1].hasRemaining())
+				channel.write(srcs);
+		}
+	}
+
+	/** Wrap the page of every buffer for a vectored transfer. */
+	private ByteBuffer[] wrap(byte[][] buffers) {
+		ByteBuffer[] bufs = new ByteBuffer[buffers.length];
+		for (int i = 0; i < buffers.length; i++)
+			bufs[i] = ByteBuffer.wrap(buffers[i], 0, pageBytes(buffers[i]));
+		return bufs;
+	}
+
+	public synchronized void extend(int num_pages) throws IOException {
+		long length = (long) num_pages * page_size;
+		if (channel.size() < length)
+			channel.write(ByteBuffer.wrap(new byte[1]), length - 1);
+	}
+
+	public void close() throws IOException {
+		channel.close();
+		fp.close();
+	}
+
+	public String name() {
+		return "File";
+	}
+}
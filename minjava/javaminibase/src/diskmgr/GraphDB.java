@@ -13,8 +13,10 @@ import btree.PinPageException;
 import edgeheap.EdgeHeapfile;
 import global.AttrType;
 import global.GlobalConst;
+import global.SystemDefs;
 import heap.FieldNumberOutOfBoundException;
 import heap.InvalidTypeException;
+import heap.LabelDictionary;
 import nodeheap.HFBufMgrException;
 import nodeheap.HFDiskMgrException;
 import nodeheap.HFException;
@@ -26,6 +28,8 @@ import nodeheap.NodeHeapfile;
 public class GraphDB extends DB implements GlobalConst{
 	private static String NODEFILENAME = "nodeheapfile";
 	private static String EDGEFILENAME = "edgeheapfile";
+	private static String LABELFILENAME = "labeldictionary";
+	public LabelDictionary labelDictionary;
 	public NodeHeapfile nodeHeapfile;
 	public EdgeHeapfile edgeHeapfile;
 	public BTreeFile nodeLabelIndexFile;
@@ -43,6 +47,7 @@ public class GraphDB extends DB implements GlobalConst{
 			throws IOException, InvalidPageNumberException, FileIOException, DiskMgrException {
 		super.openDB(fname, num_pgs);
 		try {
+			labelDictionary = new LabelDictionary(LABELFILENAME);
 			createFiles();
 			createIndexFiles();
 		} catch (Exception e) {
@@ -53,6 +58,7 @@ public class GraphDB extends DB implements GlobalConst{
 	public void openDB(String fname) throws InvalidPageNumberException, FileIOException, DiskMgrException, IOException{
 		super.openDB(fname);
 		try {
+			labelDictionary = new LabelDictionary(LABELFILENAME);
 			createFiles();
 			createIndexFiles();
 		} catch (Exception e) {
@@ -63,8 +69,9 @@ public class GraphDB extends DB implements GlobalConst{
 	private void createFiles() throws HFException, HFBufMgrException, HFDiskMgrException, IOException, 
 		GetFileEntryException, ConstructPageException, AddFileEntryException, edgeheap.HFException, 
 		edgeheap.HFBufMgrException, edgeheap.HFDiskMgrException, PinPageException {
-		this.nodeHeapfile = new NodeHeapfile(NODEFILENAME);
-		this.edgeHeapfile = new EdgeHeapfile(EDGEFILENAME);
+		this.nodeHeapfile = new NodeHeapfile(NODEFILENAME, SystemDefs.MINIBASE_FIXED_PAGES);
+		this.edgeHeapfile = new EdgeHeapfile(EDGEFILENAME, SystemDefs.MINIBASE_PAX_EDGES ? EdgeHeapfile.PAX_PAGES
+				: SystemDefs.MINIBASE_FIXED_PAGES ? EdgeHeapfile.FIXED_PAGES : EdgeHeapfile.SLOTTED_PAGES);
 	}
 	
 	private void createIndexFiles() throws GetFileEntryException, ConstructPageException, AddFileEntryException, IOException, PinPageException {
@@ -77,6 +84,39 @@ public class GraphDB extends DB implements GlobalConst{
 		
 	}
 	
+	/**
+	 * Close the graph DB. The node and edge counts of the heap files are
+	 * written to disk first, so that they need not be counted again when the
+	 * DB is opened, and the buffer pool is flushed, as the counts change the
+	 * file entries of the DB.
+	 * 
+	 * @exception IOException
+	 *                I/O errors.
+	 */
+	public void closeDB() throws IOException {
+		try {
+			if (nodeHeapfile != null)
+				nodeHeapfile.saveStats();
+			if (edgeHeapfile != null)
+				edgeHeapfile.saveStats();
+		} catch (HFBufMgrException e) {
+			throw new IOException("Node counts could not be written", e);
+		} catch (HFDiskMgrException e) {
+			throw new IOException("Node counts could not be written", e);
+		} catch (edgeheap.HFBufMgrException e) {
+			throw new IOException("Edge counts could not be written", e);
+		} catch (edgeheap.HFDiskMgrException e) {
+			throw new IOException("Edge counts could not be written", e);
+		}
+		try {
+			if (SystemDefs.JavabaseBM != null)
+				SystemDefs.JavabaseBM.flushAllPages();
+		} catch (Exception e) {
+			throw new IOException("Buffer pool could not be flushed", e);
+		}
+		super.closeDB();
+	}
+
 	public int getNodeCnt() throws InvalidSlotNumberException, InvalidTupleSizeException, HFDiskMgrException, 
 		HFBufMgrException, IOException, HFException, InvalidTypeException, heap.InvalidTupleSizeException{
 		int iNodeCnt = 0;
@@ -120,4 +160,24 @@ public class GraphDB extends DB implements GlobalConst{
 		iLabelCnt = nodeHeapfile.getLabelCnt() + edgeHeapfile.getLabelCnt();
 		return iLabelCnt;
 	}
+
+	/**
+	 * Estimates of the distinct counts above, from HyperLogLog sketches kept
+	 * by the heap files. They are cheap to keep and may overestimate after
+	 * deletions.
+	 */
+	public long estimateSourceCnt() throws edgeheap.HFBufMgrException, edgeheap.HFDiskMgrException,
+		edgeheap.InvalidTupleSizeException, IOException {
+		return edgeHeapfile.estimateSourceCnt();
+	}
+
+	public long estimateDestinationCnt() throws edgeheap.HFBufMgrException, edgeheap.HFDiskMgrException,
+		edgeheap.InvalidTupleSizeException, IOException {
+		return edgeHeapfile.estimateDestinationCnt();
+	}
+
+	public long estimateLabelCnt() throws HFBufMgrException, HFDiskMgrException, InvalidTupleSizeException,
+		edgeheap.HFBufMgrException, edgeheap.HFDiskMgrException, edgeheap.InvalidTupleSizeException, IOException {
+		return nodeHeapfile.estimateLabelCnt() + edgeHeapfile.estimateLabelCnt();
+	}
 }
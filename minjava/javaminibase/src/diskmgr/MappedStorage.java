@@ -0,0 +1,142 @@
+/* File MappedStorage.java */
+
+package diskmgr;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+
+/**
+ * A storage backend that maps the database file into memory. The file is
+ * mapped in segments of SEGMENT_BYTES bytes so that files larger than 2 GB can
+ * be served, and a segment is mapped the first time one of its pages is used.
+ * A page transfer is then a memory copy between the mapping and the Page's
+ * byte array instead of a seek plus a read or write system call.
+ *
+ * When the file grows past the end of a mapped segment the segment is mapped
+ * again with the new length. Page transfers work on private views of the
+ * segments, so several threads may read and write pages at the same time.
+ */
+class MappedStorage extends DBStorage {
+
+	/** Size of one mapped segment (64 MB). */
+	private static final int SEGMENT_BYTES = 1 << 26;
+
+	/** Number of pages in one mapped segment. */
+	private int segment_pages;
+
+	private RandomAccessFile fp;
+	private FileChannel channel;
+
+	/**
+	 * Mapped segments, null until a page in the segment is used. The array is
+	 * replaced, never changed in place, so readers need no lock.
+	 */
+	private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+	/**
+	 * Open (or create) the database file.
+	 *
+	 * @param fname
+	 *            name of the database file
+	 * @param page_size
+	 *            size in bytes of a page of the file
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public MappedStorage(String fname, int page_size) throws IOException {
+		super(page_size);
+		segment_pages = SEGMENT_BYTES / page_size;
+		fp = new RandomAccessFile(fname, "rw");
+		channel = fp.getChannel();
+	}
+
+	/**
+	 * Return a private view of the segment holding the page, positioned at the
+	 * start of that page. Each caller gets its own view, so concurrent
+	 * transfers do not share a buffer position.
+	 */
+	private ByteBuffer pageView(int pageno) throws IOException {
+
+		int segno = pageno / segment_pages;
+		int offset = (pageno % segment_pages) * page_size;
+
+		MappedByteBuffer[] segs = segments;
+		MappedByteBuffer seg = (segno < segs.length) ? segs[segno] : null;
+		if (seg == null || seg.capacity() < offset + page_size)
+			seg = mapSegment(segno, offset);
+
+		ByteBuffer view = seg.duplicate();
+		view.position(offset);
+		return view;
+	}
+
+	/**
+	 * Map (or map again, if the file has grown) the segment segno so that it
+	 * covers the page starting at offset within the segment.
+	 */
+	private synchronized MappedByteBuffer mapSegment(int segno, int offset) throws IOException {
+
+		MappedByteBuffer[] segs = segments;
+		MappedByteBuffer seg = (segno < segs.length) ? segs[segno] : null;
+
+		// Another thread may have mapped it while we waited for the lock.
+		if (seg != null && seg.capacity() >= offset + page_size)
+			return seg;
+
+		long start = (long) segno * SEGMENT_BYTES;
+		long length = Math.min((long) SEGMENT_BYTES, channel.size() - start);
+		if (length < offset + page_size)
+			throw new EOFException("page lies past the end of the DB file");
+
+		if (seg != null)
+			seg.force();
+		seg = channel.map(FileChannel.MapMode.READ_WRITE, start, length);
+
+		MappedByteBuffer[] grown = new MappedByteBuffer[Math.max(segs.length, segno + 1)];
+		System.arraycopy(segs, 0, grown, 0, segs.length);
+		grown[segno] = seg;
+		segments = grown;
+
+		return seg;
+	}
+
+	public void read(int pageno, byte[] buffer) throws IOException {
+		pageView(pageno).get(buffer, 0, pageBytes(buffer));
+	}
+
+	public void write(int pageno, byte[] buffer) throws IOException {
+		pageView(pageno).put(buffer, 0, pageBytes(buffer));
+	}
+
+	public void read(int pageno, byte[][] buffers) throws IOException {
+		for (int i = 0; i < buffers.length; i++)
+			pageView(pageno + i).get(buffers[i], 0, pageBytes(buffers[i]));
+	}
+
+	public void write(int pageno, byte[][] buffers) throws IOException {
+		for (int i = 0; i < buffers.length; i++)
+			pageView(pageno + i).put(buffers[i], 0, pageBytes(buffers[i]));
+	}
+
+	public synchronized void extend(int num_pages) throws IOException {
+		long length = (long) num_pages * page_size;
+		if (fp.length() < length)
+			fp.setLength(length);
+	}
+
+	public synchronized void close() throws IOException {
+		MappedByteBuffer[] segs = segments;
+		for (int i = 0; i < segs.length; i++) {
+			if (segs[i] != null)
+				segs[i].force();
+		}
+		segments = new MappedByteBuffer[0];
+		channel.close();
+		fp.close();
+	}
+
+	public String name() {
+		return "Mmap";
+	}
+}
@@ -10,10 +10,10 @@ public class PCounter {
 	prcounter =0;
 	pwcounter =0;
 	}
-	public static void readIncrement() {
+	public static synchronized void readIncrement() {
 		rcounter++;
 	}
-	public static void writeIncrement() {
+	public static synchronized void writeIncrement() {
 		wcounter++;
 	}
 	
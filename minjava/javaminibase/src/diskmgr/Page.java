@@ -11,11 +11,12 @@ import global.*;
 public class Page implements GlobalConst {
 
 	/**
-	 * default constructor
+	 * default constructor: an empty page of the page size of the open
+	 * database
 	 */
 
 	public Page() {
-		data = new byte[MAX_SPACE];
+		data = new byte[SystemDefs.JavabasePageSize];
 
 	}
 
@@ -0,0 +1,204 @@
+/* File SpaceMap.java */
+
+package diskmgr;
+
+import global.*;
+
+/**
+ * In-memory copy of the DB space map. Bit i is set when page i is allocated.
+ * The bits are kept in a long[] so free runs are found a word (64 pages) at a
+ * time, and every space-map page whose bits changed is remembered so DB can
+ * write back only those pages.
+ *
+ * The on-disk layout is unchanged: page i is bit (i % 8) of byte
+ * (i % bits_per_page) / 8 on space-map page 1 + i / bits_per_page, where
+ * bits_per_page is eight times the page size.
+ */
+class SpaceMap implements GlobalConst {
+
+	/** Number of pages whose bits live on one space-map page. */
+	private int bits_per_page;
+
+	private int words_per_page;
+
+	private long[] words;
+	private boolean[] dirty;
+	private int num_pages;
+
+	/** Where the next next-fit search starts. */
+	private int cursor;
+
+	/**
+	 * Create an empty space map (no page allocated) for num_pages pages.
+	 *
+	 * @param num_pages
+	 *            number of pages in the DB
+	 * @param page_size
+	 *            size in bytes of a page of the DB
+	 */
+	public SpaceMap(int num_pages, int page_size) {
+		this.num_pages = num_pages;
+		bits_per_page = page_size * 8;
+		words_per_page = bits_per_page / 64;
+		int num_map_pages = getNumMapPages();
+		words = new long[num_map_pages * words_per_page];
+		dirty = new boolean[num_map_pages];
+		cursor = 0;
+	}
+
+	/** Returns the number of space-map pages (starting at page 1). */
+	public int getNumMapPages() {
+		return (num_pages + bits_per_page - 1) / bits_per_page;
+	}
+
+	/**
+	 * Copy the bits of a space-map page read from disk into the map.
+	 *
+	 * @param mapPage
+	 *            index of the space-map page, 0 for DB page 1
+	 * @param buf
+	 *            contents of the space-map page
+	 */
+	public void loadPage(int mapPage, byte[] buf) {
+		int base = mapPage * words_per_page;
+		for (int w = 0; w < words_per_page; w++) {
+			long word = 0;
+			for (int b = 7; b >= 0; b--)
+				word = (word << 8) | (buf[w * 8 + b] & 0xffL);
+			words[base + w] = word;
+		}
+		dirty[mapPage] = false;
+	}
+
+	/**
+	 * Copy the bits of one space-map page into buf, in the on-disk layout.
+	 *
+	 * @param mapPage
+	 *            index of the space-map page, 0 for DB page 1
+	 * @param buf
+	 *            page buffer to fill
+	 */
+	public void storePage(int mapPage, byte[] buf) {
+		int base = mapPage * words_per_page;
+		for (int w = 0; w < words_per_page; w++) {
+			long word = words[base + w];
+			for (int b = 0; b < 8; b++, word >>>= 8)
+				buf[w * 8 + b] = (byte) word;
+		}
+	}
+
+	/** Returns whether the given space-map page changed since it was stored. */
+	public boolean isDirty(int mapPage) {
+		return dirty[mapPage];
+	}
+
+	/** Marks the given space-map page as written back. */
+	public void setClean(int mapPage) {
+		dirty[mapPage] = false;
+	}
+
+	/** Returns whether page pid is allocated. */
+	public boolean isSet(int pid) {
+		return (words[pid >>> 6] & (1L << pid)) != 0;
+	}
+
+	/**
+	 * Set (bit = 1) or clear (bit = 0) the bits of run_size pages starting
+	 * at start.
+	 */
+	public void setBits(int start, int run_size, int bit) {
+		int end = start + run_size;
+		if (run_size <= 0)
+			return;
+
+		for (int mp = start / bits_per_page; mp <= (end - 1) / bits_per_page; mp++)
+			dirty[mp] = true;
+
+		int first = start >>> 6;
+		int last = (end - 1) >>> 6;
+		for (int w = first; w <= last; w++) {
+			long mask = -1L;
+			if (w == first)
+				mask &= -1L << (start & 63);
+			if (w == last)
+				mask &= -1L >>> (63 - ((end - 1) & 63));
+
+			if (bit == 1)
+				words[w] |= mask;
+			else
+				words[w] &= ~mask;
+		}
+	}
+
+	/**
+	 * Find run_size free pages in a row, searching first fit from page 0 or
+	 * next fit from the end of the previous allocation. The run is not
+	 * marked as allocated.
+	 *
+	 * @param run_size
+	 *            number of pages wanted
+	 * @param nextFit
+	 *            start searching at the next-fit cursor, wrapping around to
+	 *            page 0
+	 * @return the first page of the run, or -1 if there is none
+	 */
+	public int findFreeRun(int run_size, boolean nextFit) {
+		if (run_size == 0)
+			return 0;
+
+		int start = nextFit ? cursor : 0;
+		int found = findFreeRun(start, num_pages, run_size);
+		if (found < 0 && start > 0)
+			found = findFreeRun(0, Math.min(num_pages, start + run_size - 1), run_size);
+
+		if (found >= 0)
+			cursor = (found + run_size < num_pages) ? found + run_size : 0;
+		return found;
+	}
+
+	/** First fit for a run of n free pages that lies within [from, limit). */
+	private int findFreeRun(int from, int limit, int n) {
+		int i = nextClear(from, limit);
+		while (i >= 0 && i + n <= limit) {
+			int j = nextSet(i, i + n);
+			if (j < 0)
+				return i;
+			i = nextClear(j, limit);
+		}
+		return -1;
+	}
+
+	/** First clear bit in [from, limit), or -1. */
+	private int nextClear(int from, int limit) {
+		if (from >= limit)
+			return -1;
+		int w = from >>> 6;
+		long word = ~words[w] & (-1L << (from & 63));
+		while (true) {
+			if (word != 0) {
+				int i = (w << 6) + Long.numberOfTrailingZeros(word);
+				return (i < limit) ? i : -1;
+			}
+			if (++w << 6 >= limit)
+				return -1;
+			word = ~words[w];
+		}
+	}
+
+	/** First set bit in [from, limit), or -1. */
+	private int nextSet(int from, int limit) {
+		if (from >= limit)
+			return -1;
+		int w = from >>> 6;
+		long word = words[w] & (-1L << (from & 63));
+		while (true) {
+			if (word != 0) {
+				int i = (w << 6) + Long.numberOfTrailingZeros(word);
+				return (i < limit) ? i : -1;
+			}
+			if (++w << 6 >= limit)
+				return -1;
+			word = words[w];
+		}
+	}
+}
@@ -0,0 +1,174 @@
+package edgeheap;
+
+import java.io.IOException;
+
+import global.EID;
+import global.GlobalConst;
+import global.NID;
+import global.SystemDefs;
+import heap.FieldNumberOutOfBoundException;
+import heap.InvalidTypeException;
+
+/**
+ * A sequential scan of an edge heap file that reads only some fields of the
+ * edges, the columns it is opened with, and may skip the edges whose weight
+ * is out of a range. It is a cursor: getNext moves to the next edge and the
+ * getters return the columns of that edge.
+ *
+ * On a file of EPaxPages each column is read from its own minipage, and the
+ * weight range is checked on the weight minipage alone, so the other fields
+ * of an edge that is skipped are never read. On the other formats the scan
+ * reads the edges whole and picks their fields, so it can be used on any
+ * edge heap file.
+ */
+public class EColumnScan implements GlobalConst {
+
+	/** The columns a scan can read, to be or'ed together. */
+	public static final int LABEL = 1, SOURCE = 2, DESTINATION = 4, WEIGHT = 8;
+
+	private EdgeHeapfile _hf;
+
+	/** The scan walking the data pages. */
+	private EScan _scan;
+
+	private int _columns;
+
+	/** The weight range, if one is set. */
+	private boolean _range;
+	private int _low, _high;
+
+	/** The current edge and the columns read of it. */
+	private EID _eid = new EID();
+	private String _label;
+	private NID _source, _destination;
+	private int _weight;
+
+	/**
+	 * Open a scan of the edges of a heap file.
+	 *
+	 * @param hf
+	 *            the edge heap file
+	 * @param columns
+	 *            the columns to read
+	 * @exception InvalidTupleSizeException
+	 *                Invalid tuple size
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public EColumnScan(EdgeHeapfile hf, int columns) throws InvalidTupleSizeException, IOException {
+		_hf = hf;
+		_columns = columns;
+		_scan = new EScan(hf);
+	}
+
+	/**
+	 * Skip the edges whose weight is not within a range.
+	 *
+	 * @param low
+	 *            the lowest weight of an edge returned
+	 * @param high
+	 *            the highest weight of an edge returned
+	 */
+	public void setWeightRange(int low, int high) {
+		_range = true;
+		_low = low;
+		_high = high;
+	}
+
+	/**
+	 * Move to the next edge in the weight range, if one is set, and read its
+	 * columns.
+	 *
+	 * @param eid
+	 *            set to the Edge ID of the edge
+	 * @return false if there are no more edges
+	 */
+	public boolean getNext(EID eid) throws InvalidTupleSizeException, IOException, InvalidSlotNumberException,
+			InvalidTypeException, heap.InvalidTupleSizeException, FieldNumberOutOfBoundException {
+		while (_scan._next(_eid)) {
+			if (_hf.hasPaxPages() ? _readPax((EPaxPage) _scan._page()) : _readEdge()) {
+				eid.pageNo.pid = _eid.pageNo.pid;
+				eid.slotNo = _eid.slotNo;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/* Read the columns of the current edge from the minipages. */
+	private boolean _readPax(EPaxPage page) throws IOException {
+		int slotno = _eid.slotNo;
+		if (_range || (_columns & WEIGHT) != 0) {
+			_weight = page.getWeight(slotno);
+			if (_range && (_weight < _low || _weight > _high))
+				return false;
+		}
+		if ((_columns & LABEL) != 0)
+			_label = SystemDefs.JavabaseDB.labelDictionary.getLabel(page.getLabelId(slotno));
+		if ((_columns & SOURCE) != 0)
+			_source = page.getSource(slotno);
+		if ((_columns & DESTINATION) != 0)
+			_destination = page.getDestination(slotno);
+		return true;
+	}
+
+	/* Read the columns of the current edge from the whole edge. */
+	private boolean _readEdge() throws IOException, InvalidSlotNumberException, InvalidTypeException,
+			heap.InvalidTupleSizeException, FieldNumberOutOfBoundException {
+		Edge edge = getEdge();
+		_weight = edge.getWeight();
+		if (_range && (_weight < _low || _weight > _high))
+			return false;
+		if ((_columns & LABEL) != 0)
+			_label = edge.getLabel();
+		if ((_columns & SOURCE) != 0)
+			_source = edge.getSource();
+		if ((_columns & DESTINATION) != 0)
+			_destination = edge.getDestination();
+		return true;
+	}
+
+	/* Check that the scan reads a column. */
+	private void _check(int column) throws FieldNumberOutOfBoundException {
+		if ((_columns & column) == 0)
+			throw new FieldNumberOutOfBoundException(null, "ECOLUMNSCAN: COLUMN_NOT_READ");
+	}
+
+	/** Returns the label of the current edge. */
+	public String getLabel() throws FieldNumberOutOfBoundException {
+		_check(LABEL);
+		return _label;
+	}
+
+	/** Returns the source of the current edge. */
+	public NID getSource() throws FieldNumberOutOfBoundException {
+		_check(SOURCE);
+		return _source;
+	}
+
+	/** Returns the destination of the current edge. */
+	public NID getDestination() throws FieldNumberOutOfBoundException {
+		_check(DESTINATION);
+		return _destination;
+	}
+
+	/** Returns the weight of the current edge. */
+	public int getWeight() throws FieldNumberOutOfBoundException {
+		_check(WEIGHT);
+		return _weight;
+	}
+
+	/**
+	 * Returns the whole current edge, with all its fields, in a byte array of
+	 * its own.
+	 */
+	public Edge getEdge() throws IOException, InvalidSlotNumberException, InvalidTypeException,
+			heap.InvalidTupleSizeException {
+		return _hf._decode(_scan._page().returnEdge(_eid));
+	}
+
+	/** Closes the scan. */
+	public void closescan() {
+		_scan.closescan();
+	}
+}
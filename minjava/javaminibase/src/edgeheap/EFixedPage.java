@@ -0,0 +1,278 @@
+/* File EFixedPage.java */
+
+package edgeheap;
+
+import java.io.*;
+import java.util.Arrays;
+
+import global.*;
+import heap.InvalidTupleSizeException;
+import heap.InvalidTypeException;
+import diskmgr.*;
+
+/**
+ * Class fixed-width edge heap file page: a data page of an edge heap file
+ * created with fixed-width pages. All the records of the page are as wide,
+ * so there is no slot directory: the record in slot i is at an offset
+ * computed from i, and a bitmap after the header tells which slots are in
+ * use. The records are kept without their tuple header, which the heap file
+ * puts back when it reads them.
+ *
+ * The header is that of EHFPage with other meanings for three of its
+ * fields: SLOT_CNT is the number of slots of the page, USED_PTR the width of
+ * a slot and FREE_SPACE the number of free slots. Records are never moved,
+ * and a deleted record leaves its slot to the next insertion.
+ */
+
+public class EFixedPage extends EHFPage {
+
+	/** Width of the slots of a page this object initializes. */
+	private int width;
+
+	/**
+	 * Constructor of class EFixedPage
+	 *
+	 * @param width
+	 *            the width of the slots when the page is initialized; a page
+	 *            that is opened keeps the width it was initialized with
+	 */
+	public EFixedPage(int width) {
+		this.width = width;
+	}
+
+	/**
+	 * Initialize a new page with as many slots of the width given to the
+	 * constructor, and their bitmap, as the page holds.
+	 *
+	 * @param pageNo
+	 *            the page number of a new page to be initialized
+	 * @param apage
+	 *            the Page to be initialized
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public void init(PageId pageNo, Page apage) throws IOException {
+		super.init(pageNo, apage);
+
+		// each slot takes its width and a bit of the bitmap
+		int slots = (SystemDefs.JavabasePageSize - DPFIXED) * 8 / (8 * width + 1);
+		Convert.setShortValue((short) slots, SLOT_CNT, data);
+		Convert.setShortValue((short) width, USED_PTR, data);
+		Convert.setShortValue((short) slots, FREE_SPACE, data);
+		Arrays.fill(data, DPFIXED, DPFIXED + (slots + 7) / 8, (byte) 0);
+	}
+
+	/* The offset of a slot in data[]. */
+	int _offset(int slotno) throws IOException {
+		int slots = Convert.getShortValue(SLOT_CNT, data);
+		return DPFIXED + (slots + 7) / 8 + slotno * Convert.getShortValue(USED_PTR, data);
+	}
+
+	/* Whether a slot of the page holds a record. */
+	private boolean _inUse(int slotno) throws IOException {
+		return slotno >= 0 && slotno < Convert.getShortValue(SLOT_CNT, data)
+				&& (data[DPFIXED + (slotno >> 3)] & (1 << (slotno & 7))) != 0;
+	}
+
+	/* The first slot from slotno on that is in use, or free, or -1. */
+	private int _findSlot(int slotno, boolean inUse) throws IOException {
+		int slots = Convert.getShortValue(SLOT_CNT, data);
+		for (int i = slotno; i < slots; i++) {
+			int bits = data[DPFIXED + (i >> 3)];
+			if (bits == (inUse ? 0 : -1))
+				i |= 7; // nothing to find in the rest of the byte
+			else if (((bits >> (i & 7)) & 1) == (inUse ? 1 : 0))
+				return i;
+		}
+		return -1;
+	}
+
+	/* Write a record into a slot. */
+	void _store(int slotno, byte[] record) throws IOException {
+		System.arraycopy(record, 0, data, _offset(slotno), record.length);
+	}
+
+	/* Copy the record of a slot to to[pos]. */
+	void _load(int slotno, byte[] to, int pos) throws IOException {
+		System.arraycopy(data, _offset(slotno), to, pos, Convert.getShortValue(USED_PTR, data));
+	}
+
+	private EID _eid(int slotno) throws IOException {
+		EID eid = new EID();
+		eid.pageNo.pid = Convert.getIntValue(CUR_PAGE, data);
+		eid.slotNo = slotno;
+		return eid;
+	}
+
+	/**
+	 * @param slotno
+	 *            slot number
+	 * @return the width of the slot, or EMPTY_SLOT if it is free
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public short getSlotLength(int slotno) throws IOException {
+		return _inUse(slotno) ? Convert.getShortValue(USED_PTR, data) : (short) EMPTY_SLOT;
+	}
+
+	/**
+	 * @param slotno
+	 *            slot number
+	 * @return the offset of the slot in the page
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public short getSlotOffset(int slotno) throws IOException {
+		return (short) _offset(slotno);
+	}
+
+	/**
+	 * inserts a new edge onto the first free slot of the page, returns eid
+	 * of this edge
+	 *
+	 * @param edge
+	 *            an edge without its tuple header, as wide as a slot
+	 * @return eid of edge, null if no slot is free
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public EID insertEdge(byte[] edge) throws IOException {
+		short free = Convert.getShortValue(FREE_SPACE, data);
+		if (free == 0 || edge.length != Convert.getShortValue(USED_PTR, data))
+			return null;
+
+		int slotno = _findSlot(0, false);
+		data[DPFIXED + (slotno >> 3)] |= 1 << (slotno & 7);
+		_store(slotno, edge);
+		Convert.setShortValue((short) (free - 1), FREE_SPACE, data);
+		return _eid(slotno);
+	}
+
+	/**
+	 * delete the edge with the specified eid
+	 *
+	 * @param eid
+	 *            the edge ID
+	 * @exception InvalidSlotNumberException
+	 *                Invalid slot number
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public void deleteEdge(EID eid) throws IOException, InvalidSlotNumberException {
+		int slotno = eid.slotNo;
+		if (!_inUse(slotno))
+			throw new InvalidSlotNumberException(null, "HEAPFILE: INVALID_SLOTNO");
+
+		data[DPFIXED + (slotno >> 3)] &= ~(1 << (slotno & 7));
+		short free = Convert.getShortValue(FREE_SPACE, data);
+		Convert.setShortValue((short) (free + 1), FREE_SPACE, data);
+	}
+
+	/**
+	 * @return eid of first edge on page, null if page contains no edges.
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public EID firstEdge() throws IOException {
+		int slotno = _findSlot(0, true);
+		return slotno < 0 ? null : _eid(slotno);
+	}
+
+	/**
+	 * @return eid of next edge on the page, null if no more edges exist on
+	 *         the page
+	 * @param curEid
+	 *            current edge ID
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public EID nextEdge(EID curEid) throws IOException {
+		int slotno = _findSlot(curEid.slotNo + 1, true);
+		return slotno < 0 ? null : _eid(slotno);
+	}
+
+	/* Check that the eid names a slot in use on this page. */
+	void _check(EID eid) throws IOException, InvalidSlotNumberException {
+		if (!_inUse(eid.slotNo) || eid.pageNo.pid != Convert.getIntValue(CUR_PAGE, data))
+			throw new InvalidSlotNumberException(null, "HEAPFILE: INVALID_SLOTNO");
+	}
+
+	/**
+	 * copies out the edge with eid eid, without its tuple header
+	 *
+	 * @param eid
+	 *            the edge ID
+	 * @return an edge contains the edge
+	 * @exception InvalidSlotNumberException
+	 *                Invalid slot number
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public Edge getEdge(EID eid)
+			throws IOException, InvalidSlotNumberException, InvalidTypeException, InvalidTupleSizeException {
+		_check(eid);
+		int recLen = Convert.getShortValue(USED_PTR, data);
+		byte[] record = new byte[recLen];
+		_load(eid.slotNo, record, 0);
+		return new Edge(record, 0, recLen);
+	}
+
+	/**
+	 * returns the edge with eid eid, without its tuple header, where it is
+	 * in the page
+	 *
+	 * @param eid
+	 *            the record ID
+	 * @return a tuple with its length and offset in the byte array
+	 * @exception InvalidSlotNumberException
+	 *                Invalid slot number
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public Edge returnEdge(EID eid)
+			throws IOException, InvalidSlotNumberException, InvalidTypeException, InvalidTupleSizeException {
+		_check(eid);
+		return new Edge(data, _offset(eid.slotNo), Convert.getShortValue(USED_PTR, data));
+	}
+
+	/**
+	 * returns the amount of available space on the page: the bytes of its
+	 * free slots.
+	 *
+	 * @return the amount of available space on the page
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public int available_space() throws IOException {
+		return Convert.getShortValue(FREE_SPACE, data) * Convert.getShortValue(USED_PTR, data);
+	}
+
+	/**
+	 * Determining if the page is empty
+	 *
+	 * @return true if the page has no edges in it, false otherwise
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public boolean empty() throws IOException {
+		return Convert.getShortValue(FREE_SPACE, data) == Convert.getShortValue(SLOT_CNT, data);
+	}
+
+	/**
+	 * Dump contents of a page
+	 *
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public void dumpPage() throws IOException {
+		int slots = Convert.getShortValue(SLOT_CNT, data);
+		System.out.println("dumpPage");
+		System.out.println("curPage= " + Convert.getIntValue(CUR_PAGE, data));
+		System.out.println("nextPage= " + Convert.getIntValue(NEXT_PAGE, data));
+		System.out.println("slots= " + slots + ", width= " + Convert.getShortValue(USED_PTR, data)
+				+ ", free= " + Convert.getShortValue(FREE_SPACE, data));
+		for (int i = 0; i < slots; i++)
+			if (_inUse(i))
+				System.out.println("slotNo " + i + " offset= " + _offset(i));
+	}
+}
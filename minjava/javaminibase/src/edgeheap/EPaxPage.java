@@ -0,0 +1,130 @@
+/* File EPaxPage.java */
+
+package edgeheap;
+
+import java.io.*;
+
+import global.*;
+import heap.InvalidTupleSizeException;
+import heap.InvalidTypeException;
+import diskmgr.*;
+
+/**
+ * Class columnar edge heap file page: a fixed-width page whose records are
+ * split by field into minipages, as in the PAX layout. After the header and
+ * the bitmap of the slots in use come the label ids of all the slots, then
+ * their sources, their destinations and their weights, each minipage as long
+ * as the number of slots times the width of its field. A scan that reads one
+ * field of the edges reads one minipage, and a predicate on the weight never
+ * touches the other fields.
+ *
+ * The records are those of EFixedPage, the label id followed by the source,
+ * the destination and the weight, and are put together again when they are
+ * read. Since the fields of a record are not next to each other, returnEdge
+ * returns a copy, and a record is changed on the page with _store.
+ */
+
+public class EPaxPage extends EFixedPage {
+
+	/** The fields of a record, in their order in the record. */
+	private static final int LABEL = 0, SOURCE = 1, DESTINATION = 2, WEIGHT = 3;
+
+	/** Width of each field. */
+	private static final int[] WIDTH = { 4, 8, 8, 4 };
+
+	/** Offset of each field in the record, and of its minipage in slots. */
+	private static final int[] START = { 0, 4, 12, 20 };
+
+	/**
+	 * Constructor of class EPaxPage
+	 */
+	public EPaxPage() {
+		super(Edge.fixed_size);
+	}
+
+	/* The offset of the minipage of a field in data[]. */
+	private int _minipage(int field) throws IOException {
+		int slots = Convert.getShortValue(SLOT_CNT, data);
+		return DPFIXED + (slots + 7) / 8 + slots * START[field];
+	}
+
+	/* The offset of the label id of a slot, where its record starts. */
+	int _offset(int slotno) throws IOException {
+		return _minipage(LABEL) + slotno * WIDTH[LABEL];
+	}
+
+	/* Write the fields of a record into the minipages. */
+	void _store(int slotno, byte[] record) throws IOException {
+		for (int field = LABEL; field <= WEIGHT; field++)
+			System.arraycopy(record, START[field], data, _minipage(field) + slotno * WIDTH[field], WIDTH[field]);
+	}
+
+	/* Put the fields of the record of a slot together at to[pos]. */
+	void _load(int slotno, byte[] to, int pos) throws IOException {
+		for (int field = LABEL; field <= WEIGHT; field++)
+			System.arraycopy(data, _minipage(field) + slotno * WIDTH[field], to, pos + START[field], WIDTH[field]);
+	}
+
+	/**
+	 * returns the edge with eid eid, without its tuple header. The fields
+	 * are put together in a byte array of their own.
+	 *
+	 * @param eid
+	 *            the record ID
+	 * @return a copy of the edge
+	 * @exception InvalidSlotNumberException
+	 *                Invalid slot number
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public Edge returnEdge(EID eid)
+			throws IOException, InvalidSlotNumberException, InvalidTypeException, InvalidTupleSizeException {
+		return getEdge(eid);
+	}
+
+	/**
+	 * @param slotno
+	 *            a slot in use
+	 * @return the id of the label of the edge in the slot
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public int getLabelId(int slotno) throws IOException {
+		return Convert.getIntValue(_minipage(LABEL) + slotno * WIDTH[LABEL], data);
+	}
+
+	/**
+	 * @param slotno
+	 *            a slot in use
+	 * @return the source of the edge in the slot
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public NID getSource(int slotno) throws IOException {
+		int pos = _minipage(SOURCE) + slotno * WIDTH[SOURCE];
+		return new NID(new PageId(Convert.getIntValue(pos, data)), Convert.getIntValue(pos + 4, data));
+	}
+
+	/**
+	 * @param slotno
+	 *            a slot in use
+	 * @return the destination of the edge in the slot
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public NID getDestination(int slotno) throws IOException {
+		int pos = _minipage(DESTINATION) + slotno * WIDTH[DESTINATION];
+		return new NID(new PageId(Convert.getIntValue(pos, data)), Convert.getIntValue(pos + 4, data));
+	}
+
+	/**
+	 * @param slotno
+	 *            a slot in use
+	 * @return the weight of the edge in the slot
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public int getWeight(int slotno) throws IOException {
+		return Convert.getIntValue(_minipage(WEIGHT) + slotno * WIDTH[WEIGHT], data);
+	}
+}
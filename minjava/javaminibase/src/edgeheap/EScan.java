@@ -9,6 +9,7 @@ import java.io.IOException;
 
 import diskmgr.PCounter;
 import diskmgr.Page;
+import global.AccessHint;
 import global.EID;
 import global.GlobalConst;
 import global.PageId;
@@ -57,6 +58,18 @@ public class EScan implements GlobalConst {
 	/** Status of next user status */
 	private boolean nextUserStatus;
 
+	/**
+	 * The last DataPageInfo record of the directory page whose data page was
+	 * asked for with readAhead.
+	 */
+	private EID aheadEid;
+
+	/** Number of data pages asked for ahead of the current one. */
+	private int ahead;
+
+	/** The pages of a scan are read once, so they go through the scan ring. */
+	private static final AccessHint SEQUENTIAL = new AccessHint(AccessHint.Sequential);
+
 	/**
 	 * The constructor pins the first directory page in the file and initializes
 	 * its private data members from the private data member from ehf
@@ -88,34 +101,51 @@ public class EScan implements GlobalConst {
 	public Edge getNext(EID eid) throws InvalidTupleSizeException, IOException {
 		Edge recptrEdge = null;
 
+		if (!_next(eid))
+			return null;
+
+		try {
+			recptrEdge = _hf._decode(datapage.returnEdge(eid));
+		}
+
+		catch (Exception e) {
+			// System.err.println("SCAN: Error in Scan" + e);
+			e.printStackTrace();
+		}
+
+		return recptrEdge;
+	}
+
+	/*
+	 * Move to the next edge without reading it: set eid to it and return
+	 * true, with its data page pinned as _page() until the next call, or
+	 * return false at the end of the scan.
+	 */
+	boolean _next(EID eid) throws InvalidTupleSizeException, IOException {
 		if (nextUserStatus != true) {
 			nextDataPage();
 		}
 
 		if (datapage == null)
-			return null;
+			return false;
 		
 		PCounter.preadIncrement();
 
 		eid.pageNo.pid = usereid.pageNo.pid;
 		eid.slotNo = usereid.slotNo;
 
-		try {
-			recptrEdge = datapage.getEdge(eid);
-		}
-
-		catch (Exception e) {
-			// System.err.println("SCAN: Error in Scan" + e);
-			e.printStackTrace();
-		}
-
 		usereid = datapage.nextEdge(eid);
 		if (usereid == null)
 			nextUserStatus = false;
 		else
 			nextUserStatus = true;
 
-		return recptrEdge;
+		return true;
+	}
+
+	/* The data page of the edge _next moved to. */
+	EHFPage _page() {
+		return datapage;
 	}
 
 	/**
@@ -425,9 +455,13 @@ public class EScan implements GlobalConst {
 
 			} else {
 
+				aheadEid = datapageEid;
+				ahead = 0;
+				readAhead();
+
 				// pin first data page
 				try {
-					datapage = new EHFPage();
+					datapage = _hf._datapage();
 					pinPage(datapageId, (Page) datapage, false);
 				} catch (Exception e) {
 					e.printStackTrace();
@@ -505,6 +539,7 @@ public class EScan implements GlobalConst {
 
 				try {
 					datapageEid = dirpage.firstEdge();
+					ahead = 0;
 					nextDataPageStatus = true;
 				} catch (Exception e) {
 					nextDataPageStatus = false;
@@ -535,8 +570,15 @@ public class EScan implements GlobalConst {
 		dpinfo = new DataPageInfo(recedge);
 		datapageId.pid = dpinfo.pageId.pid;
 
+		if (ahead > 0) {
+			ahead--;
+		} else {
+			aheadEid = datapageEid;
+		}
+		readAhead();
+
 		try {
-			datapage = new EHFPage();
+			datapage = _hf._datapage();
 			pinPage(dpinfo.pageId, (Page) datapage, false);
 		}
 
@@ -597,6 +639,30 @@ public class EScan implements GlobalConst {
 		return true;
 	}
 
+	/**
+	 * Ask the buffer manager to read the data pages listed after aheadEid on
+	 * the directory page in the background, until the window of the buffer
+	 * manager is full. Read-ahead is only a hint, so errors are ignored.
+	 */
+	private void readAhead() {
+		int window = SystemDefs.JavabaseBM.getReadAheadWindow();
+
+		try {
+			while (ahead < window) {
+				EID eid = dirpage.nextEdge(aheadEid);
+				if (eid == null)
+					break;
+
+				DataPageInfo dpinfo = new DataPageInfo(dirpage.getEdge(eid));
+				SystemDefs.JavabaseBM.readAhead(dpinfo.pageId);
+				aheadEid = eid;
+				ahead++;
+			}
+		} catch (Exception e) {
+			// The scan reads the pages itself.
+		}
+	}
+
 	/**
 	 * short cut to access the pinPage function in bufmgr package.
 	 * 
@@ -605,7 +671,7 @@ public class EScan implements GlobalConst {
 	private void pinPage(PageId pageno, Page page, boolean emptyPage) throws HFBufMgrException {
 
 		try {
-			SystemDefs.JavabaseBM.pinPage(pageno, page, emptyPage);
+			SystemDefs.JavabaseBM.pinPage(pageno, page, emptyPage, SEQUENTIAL);
 		} catch (Exception e) {
 			throw new HFBufMgrException(e, "Scan.java: pinPage() failed");
 		}
@@ -4,6 +4,7 @@ package edgeheap;
 import heap.FieldNumberOutOfBoundException;
 import heap.InvalidTupleSizeException;
 import heap.InvalidTypeException;
+import heap.LabelDictionary;
 import heap.Tuple;
 import java.io.*;
 import java.lang.*;
@@ -16,6 +17,23 @@ public class Edge extends Tuple {
      */
     public static final int max_size = 82;
 
+    /**
+     * Size of an edge as an edge heap file stores it, with the id of its
+     * label in the label dictionary in place of the label
+     */
+    public static final int record_size = max_size - LabelDictionary.LABEL_SIZE + LabelDictionary.ID_SIZE;
+
+    /**
+     * Size of the tuple header of a edge
+     */
+    public static final int header_size = 16;
+
+    /**
+     * Size of a edge as a heap file with fixed-width pages stores it, as its
+     * record without the tuple header
+     */
+    public static final int fixed_size = record_size - header_size;
+
     /**
      * Class constructor Create a new Edge with length = max_size,Edge offset =
      * 0.
@@ -163,6 +181,36 @@ public class Edge extends Tuple {
     public String getLabel() throws IOException, heap.FieldNumberOutOfBoundException{
         return getStrFld(1);
     }
+
+    /**
+     * To view the Label of the Edge where it is, without decoding it
+     * @return StringView of the Label
+     * @throws heap.FieldNumberOutOfBoundException
+     */
+    public StringView getLabelView() throws heap.FieldNumberOutOfBoundException {
+        return getStrView(1);
+    }
+
+    /**
+     * To check the Label of the Edge against a label, on the bytes
+     * @param label the label, from StringView.valueOf
+     * @return true if the Edge has the label
+     * @throws heap.FieldNumberOutOfBoundException
+     */
+    public boolean labelEquals(StringView label) throws heap.FieldNumberOutOfBoundException {
+        return equalsStrFld(1, label);
+    }
+
+    /**
+     * To compare the Label of the Edge with the Label of another, on the bytes
+     * @param other the other Edge
+     * @return negative, 0 or positive, as String.compareTo
+     * @throws IOException
+     * @throws heap.FieldNumberOutOfBoundException
+     */
+    public int compareLabel(Edge other) throws IOException, heap.FieldNumberOutOfBoundException {
+        return compareStrFld(1, other, 1);
+    }
     
     /**
      * To get the source node of the edge
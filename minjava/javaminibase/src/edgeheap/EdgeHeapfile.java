@@ -1,13 +1,17 @@
 package edgeheap;
 
 import java.io.*;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.List;
 
 import diskmgr.*;
 import bufmgr.*;
 import global.*;
 import heap.FieldNumberOutOfBoundException;
+import heap.FreeSpaceMap;
+import heap.HeapStats;
 import heap.InvalidTypeException;
+import heap.Tuple;
 
 /**  This Edgeheapfile implementation is directory-based. We maintain a
  *  directory of info about the data pages (which are of type EHFPage
@@ -50,6 +54,37 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 	private boolean _file_deleted;
 	private String _fileName;
 	private static int tempfilecount = 0;
+
+	/** Where the data pages with room are, built on the first insertion. */
+	private FreeSpaceMap _freeSpace = new FreeSpaceMap(SystemDefs.JavabasePageSize);
+
+	/**
+	 * The number of edges and distinct labels, sources and destinations, read
+	 * or counted on first use.
+	 */
+	private HeapStats _stats;
+
+	/**
+	 * Formats of the data pages of a file, kept as the type of its first
+	 * directory page: slotted EHFPages, fixed-width EFixedPages, or EPaxPages,
+	 * fixed-width pages that keep each field of the edges in a minipage.
+	 */
+	public static final short SLOTTED_PAGES = 0, FIXED_PAGES = 0x4658, PAX_PAGES = 0x5058;
+
+	/** Whether the data pages are EFixedPages, as set when the file is created. */
+	private boolean _fixed;
+
+	/** Whether the data pages are EPaxPages, as set when the file is created. */
+	private boolean _pax;
+
+	/*
+	 * A data page object for the format of the file's data pages.
+	 */
+	EHFPage _datapage() {
+		if (_pax)
+			return new EPaxPage();
+		return _fixed ? new EFixedPage(Edge.fixed_size) : new EHFPage();
+	}
 	
 	public String get_file_name() {
 		return _fileName;
@@ -72,7 +107,7 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 
 		// initialize internal values of the new page:
 
-		EHFPage hfpage = new EHFPage();
+		EHFPage hfpage = _datapage();
 		hfpage.init(pageId, apage);
 
 		dpinfop.pageId.pid = pageId.pid;
@@ -83,6 +118,162 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 
 	} // end of _newDatapage
 
+	/*
+	 * The counts of the file: read from its stats chain if that is up to
+	 * date, else counted with a scan of the file.
+	 */
+	private HeapStats _stats() throws HFBufMgrException, HFDiskMgrException, InvalidTupleSizeException, IOException {
+		if (_stats != null)
+			return _stats;
+
+		HeapStats stats = null;
+		try {
+			if (_ftype == ORDINARY)
+				stats = HeapStats.load(_fileName + ".stats");
+		} catch (heap.HFBufMgrException e) {
+			throw new HFBufMgrException(e, "Heapfile.java: HeapStats.load() failed");
+		} catch (heap.HFDiskMgrException e) {
+			throw new HFDiskMgrException(e, "Heapfile.java: HeapStats.load() failed");
+		}
+
+		if (stats == null) {
+			_stats = new HeapStats();
+			EColumnScan scan = openColumnScan(EColumnScan.LABEL | EColumnScan.SOURCE | EColumnScan.DESTINATION);
+			EID eid = new EID();
+			try {
+				while (scan.getNext(eid))
+					_stats.add(scan.getLabel(), scan.getSource(), scan.getDestination());
+			} catch (IOException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new InvalidTupleSizeException(e, "EdgeHeapfile.java: counting the edges failed");
+			} finally {
+				scan.closescan();
+			}
+		} else
+			_stats = stats;
+		return _stats;
+	}
+
+	/*
+	 * Add an edge to the counts of the file, or take it out of them. A
+	 * record without the fields of an edge has no label, source or
+	 * destination.
+	 */
+	private void _count(Edge edge, boolean add) throws IOException {
+		String label;
+		NID source, destination;
+		try {
+			label = edge.getLabel();
+			source = edge.getSource();
+			destination = edge.getDestination();
+		} catch (FieldNumberOutOfBoundException e) {
+			label = null;
+			source = destination = null;
+		}
+
+		if (add)
+			_stats.add(label, source, destination);
+		else
+			_stats.remove(label, source, destination);
+	}
+
+	/*
+	 * The record that stands for an edge on a data page, with the id of its
+	 * label in the label dictionary of the DB in place of the label.
+	 */
+	private byte[] _encode(byte[] edge) throws InvalidTupleSizeException, HFBufMgrException, HFDiskMgrException,
+			IOException {
+		if (edge.length != Edge.max_size)
+			throw new InvalidTupleSizeException(null, "not an edge");
+		try {
+			if (_fixed)
+				return SystemDefs.JavabaseDB.labelDictionary.encodeFields(edge, 0, edge.length);
+			return SystemDefs.JavabaseDB.labelDictionary.encode(edge, 0, edge.length);
+		} catch (heap.HFBufMgrException e) {
+			throw new HFBufMgrException(e, "EdgeHeapfile.java: label dictionary failed");
+		} catch (heap.HFDiskMgrException e) {
+			throw new HFDiskMgrException(e, "EdgeHeapfile.java: label dictionary failed");
+		}
+	}
+
+	/*
+	 * The edge a record on a data page stands for, in a byte array of its
+	 * own; the page need only stay pinned for the call. The Edge constructor
+	 * sets the header a record of a fixed-width page is kept without.
+	 */
+	Edge _decode(Tuple record) throws IOException, InvalidTypeException, heap.InvalidTupleSizeException {
+		if (_fixed)
+			return new Edge(SystemDefs.JavabaseDB.labelDictionary.decodeFields(record.returnTupleByteArray(),
+					record.getOffset(), record.getLength(), Edge.header_size), 0);
+		return new Edge(SystemDefs.JavabaseDB.labelDictionary.decode(record.returnTupleByteArray(),
+				record.getOffset(), record.getLength()), 0);
+	}
+
+	/*
+	 * Pin the data page named in the eid, if the free space map knows it as
+	 * a data page of this file and the directory entry the map gives still
+	 * names it; another instance open on the file may have freed the page
+	 * since this map was built. Returns false, with nothing pinned, if the
+	 * page is not known.
+	 */
+	private boolean _pinDataPage(EID eid, EHFPage datapage) throws HFBufMgrException, IOException,
+			InvalidSlotNumberException, InvalidTupleSizeException, InvalidTypeException, heap.InvalidTupleSizeException {
+		if (!_freeSpace.isLoaded())
+			_loadFreeSpaceMap();
+
+		PageId dirPageId = new PageId();
+		if (!_findDataPageDirect(eid, dirPageId, new EHFPage(), new PageId(), datapage, new RID()))
+			return false;
+
+		unpinPage(dirPageId, false /* undirty */);
+		return true;
+	}
+
+	/*
+	 * _findDataPage through the free space map: pin the directory page and
+	 * slot the map gives for the data page named in the eid, and the data
+	 * page. Returns false, with nothing pinned, if the map does not know the
+	 * page or is out of date.
+	 */
+	private boolean _findDataPageDirect(EID eid, PageId dirPageId, EHFPage dirpage, PageId dataPageId,
+			EHFPage datapage, RID rpDataPageRid) throws InvalidSlotNumberException, HFBufMgrException,
+			IOException, InvalidTupleSizeException, InvalidTypeException, heap.InvalidTupleSizeException {
+		int pid = eid.pageNo.pid;
+		if (!_freeSpace.isLoaded() || !_freeSpace.contains(pid))
+			return false;
+
+		PageId currentDirPageId = new PageId(_freeSpace.dirPageOf(pid));
+		EID dpinfoEid = new EID(new PageId(currentDirPageId.pid), _freeSpace.slotOf(pid));
+		pinPage(currentDirPageId, dirpage, false/* Rdisk */);
+
+		DataPageInfo dpinfo;
+		try {
+			dpinfo = new DataPageInfo(dirpage.returnEdge(dpinfoEid));
+		} catch (InvalidSlotNumberException e) {
+			dpinfo = null;
+		}
+		if (dpinfo == null || dpinfo.pageId.pid != pid) {
+			unpinPage(currentDirPageId, false /* undirty */);
+			return false;
+		}
+
+		pinPage(dpinfo.pageId, datapage, false/* Rdisk */);
+		try {
+			datapage.returnEdge(eid); // check the slot
+		} catch (InvalidSlotNumberException e) {
+			unpinPage(dpinfo.pageId, false /* undirty */);
+			unpinPage(currentDirPageId, false /* undirty */);
+			throw e;
+		}
+
+		dirPageId.pid = currentDirPageId.pid;
+		dataPageId.pid = pid;
+		rpDataPageRid.pageNo.pid = dpinfoEid.pageNo.pid;
+		rpDataPageRid.slotNo = dpinfoEid.slotNo;
+		return true;
+	}
+
 	/*
 	 * Internal EdgeHeapFile function (used in getEdge and updateEdge): returns
 	 * pinned directory page and pinned data page of the specified user
@@ -92,10 +283,13 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 	private boolean _findDataPage(EID eid, PageId dirPageId, EHFPage dirpage, PageId dataPageId, EHFPage datapage,
 			RID rpDataPageRid) throws InvalidSlotNumberException, InvalidTupleSizeException, HFException,
 			HFBufMgrException, HFDiskMgrException, Exception {
+		if (_findDataPageDirect(eid, dirPageId, dirpage, dataPageId, datapage, rpDataPageRid))
+			return true;
+
 		PageId currentDirPageId = new PageId(_firstDirPageId.pid);
 
 		EHFPage currentDirPage = new EHFPage();
-		EHFPage currentDataPage = new EHFPage();
+		EHFPage currentDataPage = _datapage();
 		EID currentDataPageEid = new EID();
 		PageId nextDirPageId = new PageId();
 		// datapageId is stored in dpinfo.pageId
@@ -206,6 +400,57 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 	public EdgeHeapfile(String name) throws HFException, HFBufMgrException, HFDiskMgrException, IOException
 
 	{
+		this(name, false);
+	}
+
+	/**
+	 * Initialize, as EdgeHeapfile(name), with the format of the data pages
+	 * of a new file. A file with fixed-width pages keeps its edges on
+	 * EFixedPages, which hold more edges than slotted pages and find them by
+	 * arithmetic, but never take records of another length. An existing file
+	 * keeps the format it was created with.
+	 *
+	 * @param name
+	 *            the name of the file, or null for a temporary file
+	 * @param fixed
+	 *            whether a new file has fixed-width data pages
+	 * @exception HFException
+	 *                heapfile exception
+	 * @exception HFBufMgrException
+	 *                exception thrown from bufmgr layer
+	 * @exception HFDiskMgrException
+	 *                exception thrown from diskmgr layer
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public EdgeHeapfile(String name, boolean fixed)
+			throws HFException, HFBufMgrException, HFDiskMgrException, IOException {
+		this(name, fixed ? FIXED_PAGES : SLOTTED_PAGES);
+	}
+
+	/**
+	 * Initialize, as EdgeHeapfile(name), with one of the formats of data
+	 * pages for a new file. An existing file keeps the format it was created
+	 * with.
+	 *
+	 * @param name
+	 *            the name of the file, or null for a temporary file
+	 * @param format
+	 *            SLOTTED_PAGES, FIXED_PAGES or PAX_PAGES
+	 * @exception HFException
+	 *                heapfile exception
+	 * @exception HFBufMgrException
+	 *                exception thrown from bufmgr layer
+	 * @exception HFDiskMgrException
+	 *                exception thrown from diskmgr layer
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public EdgeHeapfile(String name, short format)
+			throws HFException, HFBufMgrException, HFDiskMgrException, IOException {
+		if (format != SLOTTED_PAGES && format != FIXED_PAGES && format != PAX_PAGES)
+			throw new HFException(null, "unknown page format");
+
 		// Give us a prayer of destructing cleanly if construction fails.
 		_file_deleted = true;
 		_fileName = null;
@@ -259,9 +504,18 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 
 			firstDirPage.setNextPage(pageId);
 			firstDirPage.setPrevPage(pageId);
+			firstDirPage.setType(format);
 			unpinPage(_firstDirPageId, true /* dirty */ );
 
+		} else {
+			// the type of the first directory page tells the format
+			EHFPage firstDirPage = new EHFPage();
+			pinPage(_firstDirPageId, firstDirPage, false /* Rdisk */);
+			format = firstDirPage.getType();
+			unpinPage(_firstDirPageId, false /* undirty */);
 		}
+		_pax = format == PAX_PAGES;
+		_fixed = _pax || format == FIXED_PAGES;
 		_file_deleted = false;
 		// ASSERTIONS:
 		// - ALL private data members of class Heapfile are valid:
@@ -292,45 +546,7 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 			HFBufMgrException, IOException, InvalidTypeException, heap.InvalidTupleSizeException
 
 	{
-		int answer = 0;
-		PageId currentDirPageId = new PageId(_firstDirPageId.pid);
-
-		PageId nextDirPageId = new PageId(0);
-
-		EHFPage currentDirPage = new EHFPage();
-		Page pageinbuffer = new Page();
-
-		while (currentDirPageId.pid != INVALID_PAGE) {
-			pinPage(currentDirPageId, currentDirPage, false);
-			PCounter.readIncrement();
-			EID eid = new EID();
-			Edge enEdge;
-			for (eid = currentDirPage.firstEdge(); eid != null; // eid==NULL
-																	// means no
-																	// more
-																	// edge
-					eid = currentDirPage.nextEdge(eid)) {
-				enEdge = currentDirPage.getEdge(eid);
-				DataPageInfo dpinfo = new DataPageInfo(enEdge);
-
-				answer += dpinfo.recct;
-			}
-
-			// ASSERTIONS: no more edge
-			// - we have read all datapage edges on
-			// the current directory page.
-
-			nextDirPageId = currentDirPage.getNextPage();
-			unpinPage(currentDirPageId, false /* undirty */);
-			currentDirPageId.pid = nextDirPageId.pid;
-		}
-
-		// ASSERTIONS:
-		// - if error, exceptions
-		// - if end of heapfile reached: currentDirPageId == INVALID_PAGE
-		// - if not yet end of heapfile: currentDirPageId valid
-
-		return answer;
+		return _stats().getRecCnt();
 	} // end of getRecCnt
 
 	/**
@@ -362,225 +578,297 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 	 */
 	public EID insertEdge(byte[] recPtr) throws InvalidSlotNumberException, InvalidTupleSizeException,
 			SpaceNotAvailableException, HFException, HFBufMgrException, HFDiskMgrException, IOException, InvalidTypeException, heap.InvalidTupleSizeException {
-		int dpinfoLen = 0;
+		recPtr = _encode(recPtr);
 		int recLen = recPtr.length;
-		boolean found;
-		EID currentDataPageEid = new EID();
-		Page pageinbuffer = new Page();
-		EHFPage currentDirPage = new EHFPage();
-		EHFPage currentDataPage = new EHFPage();
+		PageId dirPageId = new PageId();
+		EHFPage dirPage = new EHFPage();
+		EHFPage dataPage = _datapage();
+		EID dpinfoEid;
+		DataPageInfo dpinfo;
+
+		_stats();
+		if (!_freeSpace.isLoaded())
+			_loadFreeSpaceMap();
+
+		while (true) {
+			int pid = _freeSpace.find(recLen);
+			if (pid == INVALID_PAGE)
+				break;
+
+			// Pin the directory page with the DataPageInfo of the data page
+			// and check that the map is up to date.
+			dirPageId.pid = _freeSpace.dirPageOf(pid);
+			dpinfoEid = new EID(new PageId(dirPageId.pid), _freeSpace.slotOf(pid));
+			pinPage(dirPageId, dirPage, false/* Rdisk */);
+			try {
+				dpinfo = new DataPageInfo(dirPage.returnEdge(dpinfoEid));
+			} catch (InvalidSlotNumberException e) {
+				dpinfo = null;
+			}
 
-		EHFPage nextDirPage = new EHFPage();
-		PageId currentDirPageId = new PageId(_firstDirPageId.pid);
-		PageId nextDirPageId = new PageId(); // OK
+			if (dpinfo != null && dpinfo.pageId.pid == pid && dpinfo.availspace >= recLen) {
+				pinPage(dpinfo.pageId, dataPage, false/* Rdisk */);
+				return _insertEdge(recPtr, dirPageId, dirPage, dpinfoEid, dpinfo, dataPage);
+			}
 
-		pinPage(currentDirPageId, currentDirPage, false/* Rdisk */);
+			unpinPage(dirPageId, false /* undirty */);
+			_loadFreeSpaceMap();
+		}
 
-		found = false;
-		Edge anEdge;
-		DataPageInfo dpinfo = new DataPageInfo();
-		while (found == false) { // Start While01
-									// look for suitable dpinfo-struct
-			for (currentDataPageEid = currentDirPage
-					.firstEdge(); currentDataPageEid != null; currentDataPageEid = currentDirPage
-							.nextEdge(currentDataPageEid)) {
-				anEdge = currentDirPage.getEdge(currentDataPageEid);
+		// No data page has room: add one, with its DataPageInfo on a
+		// directory page with room.
+		_pinDirPageWithRoom(dirPageId, dirPage);
 
-				dpinfo = new DataPageInfo(anEdge);
+		dpinfo = new DataPageInfo();
+		dataPage = _newDatapage(dpinfo);
+		PCounter.writeIncrement();
 
-				// need check the edge length == DataPageInfo'slength
+		dpinfoEid = dirPage.insertEdge(dpinfo.convertToEdge().getTupleByteArray());
+		if (dpinfoEid == null)
+			throw new HFException(null, "no space to insert rec.");
+		if (dirPage.available_space() < DataPageInfo.size)
+			_freeSpace.setDirRoom(dirPageId.pid, false);
 
-				if (recLen <= dpinfo.availspace) {
-					found = true;
+		dpinfo = new DataPageInfo(dirPage.returnEdge(dpinfoEid));
+		return _insertEdge(recPtr, dirPageId, dirPage, dpinfoEid, dpinfo, dataPage);
+	}
+
+	/*
+	 * Insert the edge into a pinned data page with room for it, update its
+	 * DataPageInfo on the pinned directory page and the free space map, and
+	 * unpin both pages.
+	 */
+	private EID _insertEdge(byte[] recPtr, PageId dirPageId, EHFPage dirPage, EID dpinfoEid, DataPageInfo dpinfo,
+			EHFPage dataPage) throws SpaceNotAvailableException, HFBufMgrException, IOException,
+			InvalidSlotNumberException, InvalidTypeException, heap.InvalidTupleSizeException {
+
+		if (!(dataPage.available_space() >= recPtr.length)) {
+			unpinPage(dpinfo.pageId, false /* undirty */);
+			unpinPage(dirPageId, false /* undirty */);
+			throw new SpaceNotAvailableException(null, "no available space");
+		}
+
+		EID eid;
+		eid = dataPage.insertEdge(recPtr);
+		_count(_decode(dataPage.returnEdge(eid)), true);
+
+		dpinfo.recct++;
+		dpinfo.availspace = dataPage.available_space();
+		dpinfo.flushToTuple(); // dpinfo is on the directory page
+
+		unpinPage(dpinfo.pageId, true /* = DIRTY */);
+		unpinPage(dirPageId, true /* = DIRTY */);
+
+		_freeSpace.setPage(dpinfo.pageId.pid, dirPageId.pid, dpinfoEid.slotNo, dpinfo.availspace);
+
+		return eid;
+	}
+
+	/**
+	 * Bulk load edges into file, return their eids in the same order. The
+	 * edges go onto new data pages, filled one after the other up to the fill
+	 * factor, and the DataPageInfo records of the pages are written a
+	 * directory page at a time, so no existing page is searched or updated
+	 * per edge. The space a fill factor below 1 leaves on each page is taken
+	 * by later insertions.
+	 *
+	 * @param recPtrs
+	 *            the edges
+	 * @param fillFactor
+	 *            the part of a data page to fill, more than 0 and at most 1;
+	 *            a page gets at least one edge
+	 *
+	 * @exception InvalidSlotNumberException
+	 *                invalid slot number
+	 * @exception InvalidTupleSizeException
+	 *                invalid tuple size
+	 * @exception SpaceNotAvailableException
+	 *                an edge does not fit on an empty page
+	 * @exception HFException
+	 *                heapfile exception
+	 * @exception HFBufMgrException
+	 *                exception thrown from bufmgr layer
+	 * @exception HFDiskMgrException
+	 *                exception thrown from diskmgr layer
+	 * @exception IOException
+	 *                I/O errors
+	 *
+	 * @return the eids of the edges
+	 * @throws heap.InvalidTupleSizeException 
+	 * @throws InvalidTypeException 
+	 */
+	public EID[] bulkInsertEdges(byte[][] recPtrs, double fillFactor) throws InvalidSlotNumberException,
+			InvalidTupleSizeException, SpaceNotAvailableException, HFException, HFBufMgrException,
+			HFDiskMgrException, IOException, InvalidTypeException, heap.InvalidTupleSizeException {
+		if (!(fillFactor > 0 && fillFactor <= 1))
+			throw new HFException(null, "fill factor out of range");
+
+		_stats();
+		if (!_freeSpace.isLoaded())
+			_loadFreeSpaceMap();
+
+		// DataPageInfo records that fit on an empty directory page
+		int dirBatch = (SystemDefs.JavabasePageSize - EHFPage.DPFIXED) / (DataPageInfo.size + EHFPage.SIZE_OF_SLOT);
+
+		byte[][] records = new byte[recPtrs.length][];
+		for (int k = 0; k < recPtrs.length; k++)
+			records[k] = _encode(recPtrs[k]);
+
+		EID[] eids = new EID[recPtrs.length];
+		List<DataPageInfo> filled = new ArrayList<DataPageInfo>(dirBatch);
+		int i = 0;
+
+		while (i < recPtrs.length) {
+			DataPageInfo dpinfo = new DataPageInfo();
+			EHFPage dataPage = _newDatapage(dpinfo);
+			PCounter.writeIncrement();
+
+			// free bytes the fill factor keeps on the page
+			int reserve = (int) (dpinfo.availspace * (1 - fillFactor));
+
+			while (i < recPtrs.length) {
+				int avail = dataPage.available_space();
+				int recLen = records[i].length;
+				if (avail < recLen || (dpinfo.recct > 0 && avail - recLen < reserve))
 					break;
-				}
+
+				eids[i] = dataPage.insertEdge(records[i]);
+				_count(_decode(dataPage.returnEdge(eids[i])), true);
+				dpinfo.recct++;
+				i++;
 			}
+			dpinfo.availspace = dataPage.available_space();
 
-			// two cases:
-			// (1) found == true:
-			// currentDirPage has a datapagerecord which can accomodate
-			// the record which we have to insert
-			// (2) found == false:
-			// there is no datapagerecord on the current directory page
-			// whose corresponding datapage has enough space free
-			// several subcases: see below
-			if (found == false) { // Start IF01
-									// case (2)
-
-				// System.out.println("no datapagerecord on the current
-				// directory is OK");
-				// System.out.println("dirpage availspace
-				// "+currentDirPage.available_space());
-
-				// on the current directory page is no datapagerecord which has
-				// enough free space
-				//
-				// two cases:
-				//
-				// - (2.1) (currentDirPage->available_space() >=
-				// sizeof(DataPageInfo):
-				// if there is enough space on the current directory page
-				// to accomodate a new datapagerecord (type DataPageInfo),
-				// then insert a new DataPageInfo on the current directory
-				// page
-				// - (2.2) (currentDirPage->available_space() <=
-				// sizeof(DataPageInfo):
-				// look at the next directory page, if necessary, create it.
-
-				if (currentDirPage.available_space() >= dpinfo.size) {
-					// Start IF02
-					// case (2.1) : add a new data page edge into the
-					// current directory page
-					currentDataPage = _newDatapage(dpinfo);
-					PCounter.writeIncrement();
-					// currentDataPage is pinned! and dpinfo->pageId is also
-					// locked
-					// in the exclusive mode
-
-					// didn't check if currentDataPage==NULL, auto exception
-
-					// currentDataPage is pinned: insert its edge
-					// calling a EHFPage function
-
-					anEdge = dpinfo.convertToEdge();
-
-					byte[] tmpData = anEdge.getTupleByteArray();
-					currentDataPageEid = currentDirPage.insertEdge(tmpData);
-
-					EID tmpeid = currentDirPage.firstEdge();
-
-					// need catch error here!
-					if (currentDataPageEid == null)
-						throw new HFException(null, "no space to insert rec.");
-
-					// end the loop, because a new datapage with its edge
-					// in the current directorypage was created and inserted
-					// into
-					// the heapfile; the new datapage has enough space for the
-					// edge which the user wants to insert
-
-					found = true;
-
-				} // end of IF02
-				else { // Start else 02
-						// case (2.2)
-					nextDirPageId = currentDirPage.getNextPage();
-					// two sub-cases:
-					//
-					// (2.2.1) nextDirPageId != INVALID_PAGE:
-					// get the next directory page from the buffer manager
-					// and do another look
-					// (2.2.2) nextDirPageId == INVALID_PAGE:
-					// append a new directory page at the end of the current
-					// page and then do another loop
-
-					if (nextDirPageId.pid != INVALID_PAGE) { // Start IF03
-																// case (2.2.1):
-																// there is
-																// another
-																// directory
-																// page:
-						unpinPage(currentDirPageId, false);
-
-						currentDirPageId.pid = nextDirPageId.pid;
-
-						pinPage(currentDirPageId, currentDirPage, false);
-
-						// now go back to the beginning of the outer while-loop
-						// and
-						// search on the current directory page for a suitable
-						// datapage
-					} // End of IF03
-					else { // Start Else03
-							// case (2.2): append a new directory page after
-							// currentDirPage
-							// since it is the last directory page
-						nextDirPageId = newPage(pageinbuffer, 1);
-						// need check error!
-						if (nextDirPageId == null)
-							throw new HFException(null, "can't new pae");
-
-						// initialize new directory page
-						nextDirPage.init(nextDirPageId, pageinbuffer);
-						PageId temppid = new PageId(INVALID_PAGE);
-						nextDirPage.setNextPage(temppid);
-						nextDirPage.setPrevPage(currentDirPageId);
-
-						// update current directory page and unpin it
-						// currentDirPage is already locked in the Exclusive
-						// mode
-						currentDirPage.setNextPage(nextDirPageId);
-						unpinPage(currentDirPageId, true/* dirty */);
-
-						currentDirPageId.pid = nextDirPageId.pid;
-						currentDirPage = new EHFPage(nextDirPage);
-
-						// remark that MINIBASE_BM->newPage already
-						// pinned the new directory page!
-						// Now back to the beginning of the while-loop, using
-						// the
-						// newly created directory page.
-
-					} // End of else03
-				} // End of else02
-					// ASSERTIONS:
-					// - if found == true: search will end and see assertions
-					// below
-					// - if found == false: currentDirPage, currentDirPageId
-					// valid and pinned
-
-			} // end IF01
-			else { // Start else01
-					// found == true:
-					// we have found a datapage with enough space,
-					// but we have not yet pinned the datapage:
+			if (dpinfo.recct == 0) {
+				// The page is freed as it is not in the directory.
+				unpinPage(dpinfo.pageId, false /* undirty */);
+				freePage(dpinfo.pageId);
+				_addDirEntries(filled);
+				throw new SpaceNotAvailableException(null, "no available space");
+			}
 
-				// ASSERTIONS:
-				// - dpinfo valid
+			unpinPage(dpinfo.pageId, true /* = DIRTY */);
+			filled.add(dpinfo);
+			if (filled.size() == dirBatch)
+				_addDirEntries(filled);
+		}
 
-				// System.out.println("find the dirpagerecord on current page");
+		_addDirEntries(filled);
+		return eids;
+	}
 
-				pinPage(dpinfo.pageId, currentDataPage, false);
-				// currentDataPage.openEHFpage(pageinbuffer);
+	/*
+	 * Write the DataPageInfo records of new data pages onto directory pages
+	 * with room, pinning each directory page once, and enter the pages in
+	 * the free space map. Empties the list.
+	 */
+	private void _addDirEntries(List<DataPageInfo> filled)
+			throws HFException, HFBufMgrException, HFDiskMgrException, IOException, InvalidSlotNumberException,
+			InvalidTupleSizeException, InvalidTypeException, heap.InvalidTupleSizeException {
+		PageId dirPageId = new PageId();
+		EHFPage dirPage = new EHFPage();
+		int k = 0;
 
-			} // End else01
-		} // end of While01
+		while (k < filled.size()) {
+			_pinDirPageWithRoom(dirPageId, dirPage);
 
-		// ASSERTIONS:
-		// - currentDirPageId, currentDirPage valid and pinned
-		// - dpinfo.pageId, currentDataPageRid valid
-		// - currentDataPage is pinned!
+			while (k < filled.size() && dirPage.available_space() >= DataPageInfo.size) {
+				DataPageInfo dpinfo = filled.get(k++);
+				EID dpinfoEid = dirPage.insertEdge(dpinfo.convertToEdge().getTupleByteArray());
+				if (dpinfoEid == null) {
+					unpinPage(dirPageId, true /* = DIRTY */);
+					throw new HFException(null, "no space to insert rec.");
+				}
+				_freeSpace.setPage(dpinfo.pageId.pid, dirPageId.pid, dpinfoEid.slotNo, dpinfo.availspace);
+			}
 
-		if ((dpinfo.pageId).pid == INVALID_PAGE) // check error!
-			throw new HFException(null, "invalid PageId");
+			if (dirPage.available_space() < DataPageInfo.size)
+				_freeSpace.setDirRoom(dirPageId.pid, false);
+			unpinPage(dirPageId, true /* = DIRTY */);
+		}
 
-		if (!(currentDataPage.available_space() >= recLen))
-			throw new SpaceNotAvailableException(null, "no available space");
+		filled.clear();
+	}
 
-		if (currentDataPage == null)
-			throw new HFException(null, "can't find Data page");
+	/*
+	 * Pin a directory page with room for another DataPageInfo, appending a
+	 * new one after the last directory page if all are full.
+	 */
+	private void _pinDirPageWithRoom(PageId dirPageId, EHFPage dirPage)
+			throws HFException, HFBufMgrException, HFDiskMgrException, IOException, InvalidSlotNumberException,
+			InvalidTupleSizeException, InvalidTypeException, heap.InvalidTupleSizeException {
+
+		while (true) {
+			int pid = _freeSpace.dirWithRoom();
+			if (pid == INVALID_PAGE)
+				break;
+
+			dirPageId.pid = pid;
+			pinPage(dirPageId, dirPage, false/* Rdisk */);
+			if (dirPage.available_space() >= DataPageInfo.size)
+				return;
+
+			unpinPage(dirPageId, false /* undirty */);
+			_freeSpace.setDirRoom(pid, false);
+		}
 
-		EID eid;
-		eid = currentDataPage.insertEdge(recPtr);
+		PageId lastDirPageId = new PageId(_freeSpace.lastDirPage());
+		EHFPage lastDirPage = new EHFPage();
+		pinPage(lastDirPageId, lastDirPage, false/* Rdisk */);
 
-		dpinfo.recct++;
-		dpinfo.availspace = currentDataPage.available_space();
+		if (lastDirPage.getNextPage().pid != INVALID_PAGE) {
+			// Another EdgeHeapfile on the file appended a directory page.
+			unpinPage(lastDirPageId, false /* undirty */);
+			_loadFreeSpaceMap();
+			_pinDirPageWithRoom(dirPageId, dirPage);
+			return;
+		}
 
-		unpinPage(dpinfo.pageId, true /* = DIRTY */);
+		Page pageinbuffer = new Page();
+		PageId nextDirPageId = newPage(pageinbuffer, 1);
+		if (nextDirPageId == null)
+			throw new HFException(null, "can't new pae");
 
-		// DataPage is now released
-		anEdge = currentDirPage.returnEdge(currentDataPageEid);
-		DataPageInfo dpinfo_ondirpage = new DataPageInfo(anEdge);
+		// initialize new directory page; newPage already pinned it
+		dirPage.init(nextDirPageId, pageinbuffer);
+		dirPage.setNextPage(new PageId(INVALID_PAGE));
+		dirPage.setPrevPage(lastDirPageId);
 
-		dpinfo_ondirpage.availspace = dpinfo.availspace;
-		dpinfo_ondirpage.recct = dpinfo.recct;
-		dpinfo_ondirpage.pageId.pid = dpinfo.pageId.pid;
-		dpinfo_ondirpage.flushToTuple();
+		lastDirPage.setNextPage(nextDirPageId);
+		unpinPage(lastDirPageId, true /* dirty */);
 
-		unpinPage(currentDirPageId, true /* = DIRTY */);
+		dirPageId.pid = nextDirPageId.pid;
+		_freeSpace.setDirRoom(nextDirPageId.pid, true);
+		_freeSpace.setLastDirPage(nextDirPageId.pid);
+	}
 
-		return eid;
+	/*
+	 * Build the free space map from the DataPageInfo records of the
+	 * directory pages.
+	 */
+	private void _loadFreeSpaceMap() throws HFBufMgrException, IOException, InvalidSlotNumberException,
+			InvalidTupleSizeException, InvalidTypeException, heap.InvalidTupleSizeException {
+		PageId currentDirPageId = new PageId(_firstDirPageId.pid);
+		EHFPage currentDirPage = new EHFPage();
 
+		_freeSpace.clear();
+		while (currentDirPageId.pid != INVALID_PAGE) {
+			pinPage(currentDirPageId, currentDirPage, false/* Rdisk */);
+
+			for (EID eid = currentDirPage.firstEdge(); eid != null; eid = currentDirPage.nextEdge(eid)) {
+				DataPageInfo dpinfo = new DataPageInfo(currentDirPage.getEdge(eid));
+				_freeSpace.setPage(dpinfo.pageId.pid, currentDirPageId.pid, eid.slotNo, dpinfo.availspace);
+			}
+
+			if (currentDirPage.available_space() >= DataPageInfo.size)
+				_freeSpace.setDirRoom(currentDirPageId.pid, true);
+			_freeSpace.setLastDirPage(currentDirPageId.pid);
+
+			PageId nextDirPageId = currentDirPage.getNextPage();
+			unpinPage(currentDirPageId, false /* undirty */);
+			currentDirPageId.pid = nextDirPageId.pid;
+		}
+		_freeSpace.markLoaded();
 	}
 
 	/**
@@ -608,10 +896,11 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 		boolean status;
 		EHFPage currentDirPage = new EHFPage();
 		PageId currentDirPageId = new PageId();
-		EHFPage currentDataPage = new EHFPage();
+		EHFPage currentDataPage = _datapage();
 		PageId currentDataPageId = new PageId();
 		EID currentDataPageEid = new EID();
 
+		_stats();
 		status = _findDataPage(eid, currentDirPageId, currentDirPage, currentDataPageId, currentDataPage,
 				currentDataPageEid);
 
@@ -629,6 +918,7 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 		DataPageInfo pdpinfo = new DataPageInfo(anEdge);
 
 		// delete the edge on the datapage
+		_count(_decode(currentDataPage.returnEdge(eid)), false);
 		currentDataPage.deleteEdge(eid);
 
 		pdpinfo.recct--;
@@ -643,6 +933,10 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 
 			unpinPage(currentDirPageId, true /* = DIRTY */);
 
+			if (_freeSpace.isLoaded())
+				_freeSpace.setPage(currentDataPageId.pid, currentDirPageId.pid, currentDataPageEid.slotNo,
+						pdpinfo.availspace);
+
 		} else {
 			// the edge is already deleted:
 			// we're removing the last edge on datapage so free datapage
@@ -655,6 +949,8 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 			unpinPage(currentDataPageId, false /* undirty */);
 
 			freePage(currentDataPageId);
+			if (_freeSpace.isLoaded())
+				_freeSpace.removePage(currentDataPageId.pid);
 
 			// delete corresponding DataPageInfo-entry on the directory page:
 			// currentDataPageRid points to datapage (from for loop above)
@@ -705,8 +1001,11 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 				}
 
 				// delete empty directory page: (automatically unpinned?)
+				pageId = currentDirPage.getPrevPage();
 				unpinPage(currentDirPageId, false/* undirty */);
 				freePage(currentDirPageId);
+				if (_freeSpace.isLoaded())
+					_freeSpace.removeDir(currentDirPageId.pid, pageId.pid);
 
 			} else {
 				// either (the directory page has at least one more
@@ -715,6 +1014,8 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 				// in both cases we do not delete it, but we have to unpin it:
 
 				unpinPage(currentDirPageId, true /* == DIRTY */);
+				if (_freeSpace.isLoaded())
+					_freeSpace.setDirRoom(currentDirPageId.pid, true);
 
 			}
 		}
@@ -750,21 +1051,21 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 		boolean status;
 		EHFPage dirPage = new EHFPage();
 		PageId currentDirPageId = new PageId();
-		EHFPage dataPage = new EHFPage();
+		EHFPage dataPage = _datapage();
 		PageId currentDataPageId = new PageId();
 		EID currentDataPageEid = new EID();
 
+		_stats();
 		status = _findDataPage(eid, currentDirPageId, dirPage, currentDataPageId, dataPage, currentDataPageEid);
 
 		if (status != true)
 			return status; // edge not found
-		Edge anEdge = new Edge();
-		anEdge = dataPage.returnEdge(eid);
+		Edge anEdge = dataPage.returnEdge(eid);
 
 		// Assume update a edge with a edge whose length is equal to
 		// the original edge
 
-		if (newEdge.getLength() != anEdge.getLength()) {
+		if (newEdge.getLength() != Edge.max_size) {
 			unpinPage(currentDataPageId, false /* undirty */);
 			unpinPage(currentDirPageId, false /* undirty */);
 
@@ -773,7 +1074,13 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 		}
 
 		// new copy of this edge fits in old space;
-		anEdge.tupleCopy(newEdge);
+		byte[] record = _encode(newEdge.getEdgeByteArray());
+		_count(_decode(anEdge), false);
+		if (_pax) // returnEdge gave a copy
+			((EPaxPage) dataPage)._store(eid.slotNo, record);
+		else
+			anEdge.tupleCopy(new Tuple(record, 0, record.length));
+		_count(_decode(dataPage.returnEdge(eid)), true);
 		unpinPage(currentDataPageId, true /* = DIRTY */);
 
 		unpinPage(currentDirPageId, false /* undirty */);
@@ -806,10 +1113,20 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 	 */
 	public Edge getEdge(EID eid) throws InvalidSlotNumberException, InvalidTupleSizeException, HFException,
 			HFDiskMgrException, HFBufMgrException, Exception {
+		EHFPage page = _datapage();
+		if (_pinDataPage(eid, page)) {
+			// The eid names a data page of this file and a slot in use on it.
+			try {
+				return _decode(page.returnEdge(eid));
+			} finally {
+				unpinPage(eid.pageNo, false /* undirty */);
+			}
+		}
+
 		boolean status;
 		EHFPage dirPage = new EHFPage();
 		PageId currentDirPageId = new PageId();
-		EHFPage dataPage = new EHFPage();
+		EHFPage dataPage = _datapage();
 		PageId currentDataPageId = new PageId();
 		RID currentDataPageRid = new RID();
 
@@ -818,13 +1135,12 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 		if (status != true)
 			return null; // edge not found
 
-		Edge anEdge = new Edge();
-		anEdge = dataPage.getEdge(eid);
+		Edge anEdge = _decode(dataPage.returnEdge(eid));
 
 		/*
-		 * getEdge has copied the contents of eid into recPtr and fixed up
-		 * recLen also. We simply have to unpin dirpage and datapage which were
-		 * originally pinned by _findDataPage.
+		 * _decode has copied the edge out of the page. We simply have to
+		 * unpin dirpage and datapage which were originally pinned by
+		 * _findDataPage.
 		 */
 
 		unpinPage(currentDataPageId, false /* undirty */);
@@ -835,6 +1151,36 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 
 	}
 
+	/**
+	 * Whether the data pages of the file are fixed-width pages, of either
+	 * layout.
+	 */
+	public boolean hasFixedPages() {
+		return _fixed;
+	}
+
+	/**
+	 * Whether the data pages of the file are columnar EPaxPages.
+	 */
+	public boolean hasPaxPages() {
+		return _pax;
+	}
+
+	/**
+	 * Initiate a sequential scan that reads only some fields of the edges.
+	 *
+	 * @param columns
+	 *            the fields to read, an or of EColumnScan.LABEL, SOURCE,
+	 *            DESTINATION and WEIGHT
+	 * @exception InvalidTupleSizeException
+	 *                Invalid edge size
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public EColumnScan openColumnScan(int columns) throws InvalidTupleSizeException, IOException {
+		return new EColumnScan(this, columns);
+	}
+
 	/**
 	 * Initiate a sequential scan.
 	 * 
@@ -874,6 +1220,8 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 
 		// Mark the deleted flag (even if it doesn't get all the way done).
 		_file_deleted = true;
+		_freeSpace.clear();
+		_stats = null;
 
 		// Deallocate all data pages
 		PageId currentDirPageId = new PageId();
@@ -912,6 +1260,40 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 		}
 
 		delete_file_entry(_fileName);
+
+		try {
+			HeapStats.destroy(_fileName + ".stats");
+		} catch (heap.HFBufMgrException e) {
+			throw new HFBufMgrException(e, "Heapfile.java: HeapStats.destroy() failed");
+		} catch (heap.HFDiskMgrException e) {
+			throw new HFDiskMgrException(e, "Heapfile.java: HeapStats.destroy() failed");
+		}
+	}
+
+	/**
+	 * Write the counts of edges, labels, sources and destinations to disk, so
+	 * that the next time the file is opened they are read back rather than
+	 * counted with a scan. They are read again on their next use.
+	 *
+	 * @exception HFBufMgrException
+	 *                exception thrown from bufmgr layer
+	 * @exception HFDiskMgrException
+	 *                exception thrown from diskmgr layer
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public void saveStats() throws HFBufMgrException, HFDiskMgrException, IOException {
+		if (_stats == null || _ftype != ORDINARY)
+			return;
+
+		try {
+			_stats.save(_fileName + ".stats");
+		} catch (heap.HFBufMgrException e) {
+			throw new HFBufMgrException(e, "Heapfile.java: HeapStats.save() failed");
+		} catch (heap.HFDiskMgrException e) {
+			throw new HFDiskMgrException(e, "Heapfile.java: HeapStats.save() failed");
+		}
+		_stats = null;
 	}
 
 	/**
@@ -1019,45 +1401,8 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 	 * @throws heap.InvalidTupleSizeException 
 	 * @throws InvalidTypeException 
 	 */
-	public int getSourceCnt() throws HFBufMgrException, InvalidSlotNumberException, FieldNumberOutOfBoundException, InvalidTupleSizeException, IOException, InvalidTypeException, heap.InvalidTupleSizeException{
-		HashSet<NID> SourceSet = new HashSet<NID>();
-		
-		int answer = 0;
-		PageId currentDirPageId = new PageId(_firstDirPageId.pid);
-	
-		PageId nextDirPageId = new PageId(0);
-	
-		EHFPage currentDirPage = new EHFPage();
-		Page pageinbuffer = new Page();
-	
-		while (currentDirPageId.pid != INVALID_PAGE) {
-			pinPage(currentDirPageId, currentDirPage, false);
-			EID eid = new EID();
-			Edge enEdge;
-			for (eid = currentDirPage.firstEdge(); eid != null; // eid==NULL
-																	// means no
-																	// more
-																	// edge
-					eid = currentDirPage.nextEdge(eid)) {
-				enEdge = currentDirPage.getEdge(eid);
-				SourceSet.add(enEdge.getSource());
-			}
-	
-			// ASSERTIONS: no more edge
-			// - we have read all datapage edges on
-			// the current directory page.
-	
-			nextDirPageId = currentDirPage.getNextPage();
-			unpinPage(currentDirPageId, false /* undirty */);
-			currentDirPageId.pid = nextDirPageId.pid;
-		}
-	
-		// ASSERTIONS:
-		// - if error, exceptions
-		// - if end of heapfile reached: currentDirPageId == INVALID_PAGE
-		// - if not yet end of heapfile: currentDirPageId valid
-		answer = SourceSet.size();
-		return answer;
+	public int getSourceCnt() throws HFBufMgrException, HFDiskMgrException, InvalidSlotNumberException, FieldNumberOutOfBoundException, InvalidTupleSizeException, IOException, InvalidTypeException, heap.InvalidTupleSizeException{
+		return _stats().getSourceCnt();
 	} // end of getRecCnt
 	
 		
@@ -1077,45 +1422,8 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 	 * @throws heap.InvalidTupleSizeException 
 	 * @throws InvalidTypeException 
 	 */	
-	public int getDestinationCnt() throws HFBufMgrException, InvalidSlotNumberException, FieldNumberOutOfBoundException, InvalidTupleSizeException, IOException, InvalidTypeException, heap.InvalidTupleSizeException{
-		HashSet<NID> DestinationSet = new HashSet<NID>();
-		
-		int answer = 0;
-		PageId currentDirPageId = new PageId(_firstDirPageId.pid);
-	
-		PageId nextDirPageId = new PageId(0);
-	
-		EHFPage currentDirPage = new EHFPage();
-		Page pageinbuffer = new Page();
-	
-		while (currentDirPageId.pid != INVALID_PAGE) {
-			pinPage(currentDirPageId, currentDirPage, false);
-			EID eid = new EID();
-			Edge enEdge;
-			for (eid = currentDirPage.firstEdge(); eid != null; // eid==NULL
-																	// means no
-																	// more
-																	// edge
-					eid = currentDirPage.nextEdge(eid)) {
-				enEdge = currentDirPage.getEdge(eid);
-				DestinationSet.add(enEdge.getDestination());
-			}
-	
-			// ASSERTIONS: no more edge
-			// - we have read all datapage edges on
-			// the current directory page.
-	
-			nextDirPageId = currentDirPage.getNextPage();
-			unpinPage(currentDirPageId, false /* undirty */);
-			currentDirPageId.pid = nextDirPageId.pid;
-		}
-	
-		// ASSERTIONS:
-		// - if error, exceptions
-		// - if end of heapfile reached: currentDirPageId == INVALID_PAGE
-		// - if not yet end of heapfile: currentDirPageId valid
-		answer = DestinationSet.size();
-		return answer;
+	public int getDestinationCnt() throws HFBufMgrException, HFDiskMgrException, InvalidSlotNumberException, FieldNumberOutOfBoundException, InvalidTupleSizeException, IOException, InvalidTypeException, heap.InvalidTupleSizeException{
+		return _stats().getDestinationCnt();
 	} // end of getRecCnt
 	
 	/**
@@ -1134,46 +1442,63 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 	 * @throws heap.InvalidTupleSizeException 
 	 * @throws InvalidTypeException 
 	 */
-	public int getLabelCnt() throws HFBufMgrException, InvalidSlotNumberException, FieldNumberOutOfBoundException, InvalidTupleSizeException, IOException, InvalidTypeException, heap.InvalidTupleSizeException{
-		HashSet<String> LabelSet = new HashSet<String>();
-		
-		int answer = 0;
-		PageId currentDirPageId = new PageId(_firstDirPageId.pid);
-	
-		PageId nextDirPageId = new PageId(0);
-	
-		EHFPage currentDirPage = new EHFPage();
-		Page pageinbuffer = new Page();
-	
-		while (currentDirPageId.pid != INVALID_PAGE) {
-			pinPage(currentDirPageId, currentDirPage, false);
-			EID eid = new EID();
-			Edge enEdge;
-			for (eid = currentDirPage.firstEdge(); eid != null; // eid==NULL
-																	// means no
-																	// more
-																	// edge
-					eid = currentDirPage.nextEdge(eid)) {
-				enEdge = currentDirPage.getEdge(eid);
-				LabelSet.add(enEdge.getLabel());
-			}
-	
-			// ASSERTIONS: no more edge
-			// - we have read all datapage edges on
-			// the current directory page.
-	
-			nextDirPageId = currentDirPage.getNextPage();
-			unpinPage(currentDirPageId, false /* undirty */);
-			currentDirPageId.pid = nextDirPageId.pid;
-		}
-	
-		// ASSERTIONS:
-		// - if error, exceptions
-		// - if end of heapfile reached: currentDirPageId == INVALID_PAGE
-		// - if not yet end of heapfile: currentDirPageId valid
-		answer = LabelSet.size();
-		return answer;
+	public int getLabelCnt() throws HFBufMgrException, HFDiskMgrException, InvalidSlotNumberException, FieldNumberOutOfBoundException, InvalidTupleSizeException, IOException, InvalidTypeException, heap.InvalidTupleSizeException{
+		return _stats().getLabelCnt();
 	} // end of getRecCnt
+
+	/**
+	 * Return an estimate of the number of unique Labels in file, from a sketch
+	 * that is cheaper to keep than the exact count. It may overestimate after
+	 * deletions.
+	 *
+	 * @exception InvalidTupleSizeException
+	 *                invalid tuple size
+	 * @exception HFBufMgrException
+	 *                exception thrown from bufmgr layer
+	 * @exception HFDiskMgrException
+	 *                exception thrown from diskmgr layer
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public long estimateLabelCnt() throws HFBufMgrException, HFDiskMgrException, InvalidTupleSizeException, IOException {
+		return _stats().estimateLabelCnt();
+	}
+
+	/**
+	 * Return an estimate of the number of unique Source NID's in file, from a sketch
+	 * that is cheaper to keep than the exact count. It may overestimate after
+	 * deletions.
+	 *
+	 * @exception InvalidTupleSizeException
+	 *                invalid tuple size
+	 * @exception HFBufMgrException
+	 *                exception thrown from bufmgr layer
+	 * @exception HFDiskMgrException
+	 *                exception thrown from diskmgr layer
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public long estimateSourceCnt() throws HFBufMgrException, HFDiskMgrException, InvalidTupleSizeException, IOException {
+		return _stats().estimateSourceCnt();
+	}
+
+	/**
+	 * Return an estimate of the number of unique Destination NID's in file, from a sketch
+	 * that is cheaper to keep than the exact count. It may overestimate after
+	 * deletions.
+	 *
+	 * @exception InvalidTupleSizeException
+	 *                invalid tuple size
+	 * @exception HFBufMgrException
+	 *                exception thrown from bufmgr layer
+	 * @exception HFDiskMgrException
+	 *                exception thrown from diskmgr layer
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public long estimateDestinationCnt() throws HFBufMgrException, HFDiskMgrException, InvalidTupleSizeException, IOException {
+		return _stats().estimateDestinationCnt();
+	}
 	
 
 }// End of HeapFile
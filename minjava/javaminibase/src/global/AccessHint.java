@@ -0,0 +1,54 @@
+package global;
+
+/**
+ * Enumeration class for AccessHint, which tells the buffer manager how a
+ * pinned page is going to be used.
+ *
+ */
+
+public class AccessHint {
+
+	/** A page that may be asked for again; the default. */
+	public static final int Random = 0;
+
+	/** A page of a scan that reads every page of a file once. */
+	public static final int Sequential = 1;
+
+	/** An inner page of an index, asked for by most lookups. */
+	public static final int IndexInternal = 2;
+
+	public int accessHint;
+
+	/**
+	 * AccessHint Constructor <br>
+	 * An access hint can be defined as
+	 * <ul>
+	 * <li>AccessHint accessHint = new AccessHint(AccessHint.Sequential);
+	 * </ul>
+	 * and subsequently used as
+	 * <ul>
+	 * <li>if (accessHint.accessHint == AccessHint.Sequential) ....
+	 * </ul>
+	 *
+	 * @param _accessHint
+	 *            The possible ways of using a page
+	 */
+
+	public AccessHint(int _accessHint) {
+		accessHint = _accessHint;
+	}
+
+	public String toString() {
+
+		switch (accessHint) {
+		case Random:
+			return "Random";
+		case Sequential:
+			return "Sequential";
+		case IndexInternal:
+			return "IndexInternal";
+		}
+		return ("Unexpected AccessHint " + accessHint);
+	}
+
+}
@@ -3,10 +3,39 @@
 package global;
 
 import java.io.*;
-import java.lang.*;
-
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads and writes field values in byte arrays, in the format of
+ * DataInputStream and DataOutputStream: big-endian integers, floats and
+ * characters, and strings as a 2-byte length followed by modified UTF-8.
+ * The values are read and written in place through big-endian views of the
+ * array, with no stream and no temporary array; only the getters of strings,
+ * descriptors and RIDs allocate, for the value they return.
+ */
 public class Convert {
 
+	/** Big-endian int view of a byte array. */
+	private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+	/** Big-endian short view of a byte array. */
+	private static final VarHandle SHORT = MethodHandles.byteArrayViewVarHandle(short[].class,
+			ByteOrder.BIG_ENDIAN);
+
+	/*
+	 * Fail, as System.arraycopy did, before a value of several fields is
+	 * partly written.
+	 */
+	private static void checkRange(int position, int length, byte[] data) {
+		if (position < 0 || position + length > data.length)
+			throw new ArrayIndexOutOfBoundsException(
+					"last index " + (position + length) + " out of bounds for byte[" + data.length + "]");
+	}
+
 	/**
 	 * read 4 bytes from given byte array at the specified position convert it
 	 * to an integer
@@ -20,23 +49,7 @@ public class Convert {
 	 * @return the integer
 	 */
 	public static int getIntValue(int position, byte[] data) throws java.io.IOException {
-		InputStream in;
-		DataInputStream instr;
-		int value;
-		byte tmp[] = new byte[4];
-
-		// copy the value from data array out to a tmp byte array
-		System.arraycopy(data, position, tmp, 0, 4);
-
-		/*
-		 * creates a new data input stream to read data from the specified input
-		 * stream
-		 */
-		in = new ByteArrayInputStream(tmp);
-		instr = new DataInputStream(in);
-		value = instr.readInt();
-
-		return value;
+		return (int) INT.get(data, position);
 	}
 
 	/**
@@ -52,23 +65,7 @@ public class Convert {
 	 * @return the float value
 	 */
 	public static float getFloValue(int position, byte[] data) throws java.io.IOException {
-		InputStream in;
-		DataInputStream instr;
-		float value;
-		byte tmp[] = new byte[4];
-
-		// copy the value from data array out to a tmp byte array
-		System.arraycopy(data, position, tmp, 0, 4);
-
-		/*
-		 * creates a new data input stream to read data from the specified input
-		 * stream
-		 */
-		in = new ByteArrayInputStream(tmp);
-		instr = new DataInputStream(in);
-		value = instr.readFloat();
-
-		return value;
+		return Float.intBitsToFloat((int) INT.get(data, position));
 	}
 
 	/**
@@ -84,23 +81,7 @@ public class Convert {
 	 * @return the short integer
 	 */
 	public static short getShortValue(int position, byte[] data) throws java.io.IOException {
-		InputStream in;
-		DataInputStream instr;
-		short value;
-		byte tmp[] = new byte[2];
-
-		// copy the value from data array out to a tmp byte array
-		System.arraycopy(data, position, tmp, 0, 2);
-
-		/*
-		 * creates a new data input stream to read data from the specified input
-		 * stream
-		 */
-		in = new ByteArrayInputStream(tmp);
-		instr = new DataInputStream(in);
-		value = instr.readShort();
-
-		return value;
+		return (short) SHORT.get(data, position);
 	}
 
 	/**
@@ -118,22 +99,163 @@ public class Convert {
 	 * @return the string
 	 */
 	public static String getStrValue(int position, byte[] data, int length) throws java.io.IOException {
-		InputStream in;
-		DataInputStream instr;
-		String value;
-		byte tmp[] = new byte[length];
-
-		// copy the value from data array out to a tmp byte array
-		System.arraycopy(data, position, tmp, 0, length);
-
-		/*
-		 * creates a new data input stream to read data from the specified input
-		 * stream
-		 */
-		in = new ByteArrayInputStream(tmp);
-		instr = new DataInputStream(in);
-		value = instr.readUTF();
-		return value;
+		// A 2-byte length, then the modified UTF-8 bytes.
+		if (length < 2)
+			throw new EOFException();
+		int utflen = (short) SHORT.get(data, position) & 0xffff;
+		if (utflen + 2 > length)
+			throw new EOFException();
+
+		int start = position + 2;
+		int end = start + utflen;
+		int i = start;
+		while (i < end && data[i] >= 0)
+			i++;
+		if (i == end)
+			return new String(data, start, utflen, StandardCharsets.ISO_8859_1);
+
+		char[] chars = new char[utflen];
+		int n = 0;
+		for (int k = start; k < i; k++)
+			chars[n++] = (char) data[k];
+		while (i < end) {
+			int c = data[i] & 0xff;
+			if (c < 0x80) {
+				chars[n++] = (char) c;
+				i++;
+			} else if ((c >> 5) == 0x6) {
+				if (i + 2 > end || (data[i + 1] & 0xc0) != 0x80)
+					throw new UTFDataFormatException("malformed input around byte " + (i - start));
+				chars[n++] = (char) (((c & 0x1f) << 6) | (data[i + 1] & 0x3f));
+				i += 2;
+			} else if ((c >> 4) == 0xe) {
+				if (i + 3 > end || (data[i + 1] & 0xc0) != 0x80 || (data[i + 2] & 0xc0) != 0x80)
+					throw new UTFDataFormatException("malformed input around byte " + (i - start));
+				chars[n++] = (char) (((c & 0x0f) << 12) | ((data[i + 1] & 0x3f) << 6) | (data[i + 2] & 0x3f));
+				i += 3;
+			} else
+				throw new UTFDataFormatException("malformed input around byte " + (i - start));
+		}
+		return new String(chars, 0, n);
+	}
+
+	/*
+	 * The character whose modified UTF-8 bytes start at i. Only the first
+	 * byte of a character has other high bits than 10.
+	 */
+	private static int charAt(byte[] data, int i, int end) throws UTFDataFormatException {
+		int c = data[i] & 0xff;
+		if (c < 0x80)
+			return c;
+		if ((c >> 5) == 0x6 && i + 2 <= end)
+			return ((c & 0x1f) << 6) | (data[i + 1] & 0x3f);
+		if ((c >> 4) == 0xe && i + 3 <= end)
+			return ((c & 0x0f) << 12) | ((data[i + 1] & 0x3f) << 6) | (data[i + 2] & 0x3f);
+		throw new UTFDataFormatException("malformed input");
+	}
+
+	/**
+	 * compares two strings in byte arrays, as written by setStrValue, without
+	 * decoding them. The strings are ordered as String.compareTo orders them:
+	 * modified UTF-8 keeps the order of the characters in the order of the
+	 * bytes, but for the character 0, which is written as 2 bytes.
+	 *
+	 * @param position1
+	 *            the position of the first string in data1[]
+	 * @param data1
+	 *            a byte array
+	 * @param position2
+	 *            the position of the second string in data2[]
+	 * @param data2
+	 *            a byte array
+	 * @exception java.io.IOException
+	 *                I/O errors
+	 * @return negative if the first string is smaller, 0 if they are equal,
+	 *         positive if it is bigger
+	 */
+	public static int compareStrValue(int position1, byte[] data1, int position2, byte[] data2)
+			throws java.io.IOException {
+		int len1 = (short) SHORT.get(data1, position1) & 0xffff;
+		int len2 = (short) SHORT.get(data2, position2) & 0xffff;
+		int start1 = position1 + 2;
+		int start2 = position2 + 2;
+		int i = Arrays.mismatch(data1, start1, start1 + len1, data2, start2, start2 + len2);
+		if (i < 0)
+			return 0;
+		if (i == len1 || i == len2)
+			return len1 - len2;
+
+		// The strings differ in the character the mismatch falls in.
+		while (i > 0 && (data1[start1 + i] & 0xc0) == 0x80)
+			i--;
+		return charAt(data1, start1 + i, start1 + len1) - charAt(data2, start2 + i, start2 + len2);
+	}
+
+	/**
+	 * compares a string with a string in a byte array, as written by
+	 * setStrValue, decoding one character at a time.
+	 *
+	 * @param value
+	 *            the string
+	 * @param position
+	 *            the position of the other string in data[]
+	 * @param data
+	 *            a byte array
+	 * @exception java.io.IOException
+	 *                I/O errors
+	 * @return negative if value is smaller, 0 if they are equal, positive if
+	 *         it is bigger
+	 */
+	public static int compareStrValue(String value, int position, byte[] data) throws java.io.IOException {
+		int i = position + 2;
+		int end = i + ((short) SHORT.get(data, position) & 0xffff);
+		int k = 0;
+		for (; k < value.length() && i < end; k++) {
+			int c = charAt(data, i, end);
+			if (value.charAt(k) != c)
+				return value.charAt(k) - c;
+			int lead = data[i] & 0xff;
+			i += lead < 0x80 ? 1 : (lead >> 5) == 0x6 ? 2 : 3;
+		}
+		return k < value.length() ? 1 : i < end ? -1 : 0;
+	}
+
+	/**
+	 * tells whether two strings in byte arrays, as written by setStrValue,
+	 * are equal, comparing their bytes.
+	 *
+	 * @param position1
+	 *            the position of the first string in data1[]
+	 * @param data1
+	 *            a byte array
+	 * @param position2
+	 *            the position of the second string in data2[]
+	 * @param data2
+	 *            a byte array
+	 * @return true if the strings are equal
+	 */
+	public static boolean equalStrValue(int position1, byte[] data1, int position2, byte[] data2) {
+		int len = (short) SHORT.get(data1, position1) & 0xffff;
+		if (len != ((short) SHORT.get(data2, position2) & 0xffff))
+			return false;
+		return Arrays.equals(data1, position1 + 2, position1 + 2 + len, data2, position2 + 2, position2 + 2 + len);
+	}
+
+	/**
+	 * copies a string from one byte array to another, as written by
+	 * setStrValue, without decoding it.
+	 *
+	 * @param fromPosition
+	 *            the position of the string in from[]
+	 * @param from
+	 *            a byte array
+	 * @param position
+	 *            the position in data[]
+	 * @param data
+	 *            a byte array
+	 */
+	public static void copyStrValue(int fromPosition, byte[] from, int position, byte[] data) {
+		System.arraycopy(from, fromPosition, data, position, 2 + ((short) SHORT.get(from, fromPosition) & 0xffff));
 	}
 
 	/**
@@ -149,21 +271,7 @@ public class Convert {
 	 * @return the character
 	 */
 	public static char getCharValue(int position, byte[] data) throws java.io.IOException {
-		InputStream in;
-		DataInputStream instr;
-		char value;
-		byte tmp[] = new byte[2];
-		// copy the value from data array out to a tmp byte array
-		System.arraycopy(data, position, tmp, 0, 2);
-
-		/*
-		 * creates a new data input stream to read data from the specified input
-		 * stream
-		 */
-		in = new ByteArrayInputStream(tmp);
-		instr = new DataInputStream(in);
-		value = instr.readChar();
-		return value;
+		return (char) (short) SHORT.get(data, position);
 	}
 
 
@@ -180,32 +288,9 @@ public class Convert {
 	 * @return the RID object
 	 */
 	public static RID getRIDValue (int position, byte[] data) throws java.io.IOException {
-		InputStream in;
-		DataInputStream instr;
-		int value[];
-		value = new int[2];
-
-		for (int i = 0; i < 2; i++) {
-
-			byte tmp[] = new byte[4];
-			System.arraycopy(data, position, tmp, 0, 4);
-			/*
-			 * creates a new data input stream to read data from the specified
-			 * input stream
-			 */
-			in = new ByteArrayInputStream(tmp);
-			instr = new DataInputStream(in);
-			value[i] = instr.readInt();
-
-		}
-		int pageNo = value[0];
-		int slotNo = value[1];
-		PageId page = new PageId(pageNo);
-		RID retRID = new RID(page, slotNo);
-
-		//retDesc.set(value[0], value[1], value[2], value[3], value[4]);
-		return retRID;
-
+		int pageNo = (int) INT.get(data, position);
+		int slotNo = (int) INT.get(data, position + 4);
+		return new RID(new PageId(pageNo), slotNo);
 	}
 
 
@@ -224,29 +309,11 @@ public class Convert {
 	 * @return the Descriptor object
 	 */
 	public static Descriptor getDescValue(int position, byte[] data) throws java.io.IOException {
-		InputStream in;
-		DataInputStream instr;
 		Descriptor retDesc = new Descriptor();
-		int value[];
-		value = new int[5];
-
-		for (int i = 0; i < 5; i++) {
-
-			byte tmp[] = new byte[4];
-			System.arraycopy(data, position, tmp, 0 , 4);
-			/*
-			 * creates a new data input stream to read data from the specified
-			 * input stream
-			 */
-			in = new ByteArrayInputStream(tmp);
-			instr = new DataInputStream(in);
-			value[i] = instr.readInt();
-			position += 4;
-
-		}
-		retDesc.set(value[0], value[1], value[2], value[3], value[4]);
+		retDesc.set((int) INT.get(data, position), (int) INT.get(data, position + 4),
+				(int) INT.get(data, position + 8), (int) INT.get(data, position + 12),
+				(int) INT.get(data, position + 16));
 		return retDesc;
-
 	}
 
 	/**
@@ -262,32 +329,9 @@ public class Convert {
 	 *                I/O errors
 	 */
 	public static void setDescValue(Descriptor descValue, int position, byte[] data) throws java.io.IOException {
-		/*
-		 * creates a new data output stream to write data to underlying output
-		 * stream
-		 */
-
-		OutputStream out = new ByteArrayOutputStream();
-		DataOutputStream outstr = new DataOutputStream(out);
-
-		for (int i = 0; i < 5; i++) {
-			int value = descValue.get(i);
-
-			// write the value to the output stream
-			outstr.writeInt(value);
-
-			// creates a byte array with this output stream size and the
-			// valid contents of the buffer have been copied into it
-			byte[] B = ((ByteArrayOutputStream) out).toByteArray();
-
-			if(i == 4){
-			// copies the first 4 bytes of this byte array into data[]
-				System.arraycopy(B, 0, data, position, 20);
-			}
-			//position += 4;
-
-		}
-
+		checkRange(position, 20, data);
+		for (int i = 0; i < 5; i++)
+			INT.set(data, position + 4 * i, descValue.get(i));
 	}
 
 
@@ -305,41 +349,9 @@ public class Convert {
 	 *                I/O errors
 	 */
 	public static void setRIDValue(RID rid, int position, byte[] data) throws java.io.IOException {
-		/*
-		 * creates a new data output stream to write data to underlying output
-		 * stream
-		 */
-
-		OutputStream out = new ByteArrayOutputStream();
-		DataOutputStream outstr = new DataOutputStream(out);
-
-		int pageNo = rid.pageNo.pid;
-		int slotNo = rid.slotNo;
-
-		// write the value to the output stream
-		outstr.writeInt(pageNo);
-
-		// creates a byte array with this output stream size and the
-		// valid contents of the buffer have been copied into it
-		byte[] B = ((ByteArrayOutputStream) out).toByteArray();
-
-		// copies the first 4 bytes of this byte array into data[]
-		System.arraycopy(B, 0, data, position, 4);
-		position += 4;
-
-		// write the value to the output stream
-		outstr.writeInt(slotNo);
-
-		// creates a byte array with this output stream size and the
-		// valid contents of the buffer have been copied into it
-		byte[] B1 = ((ByteArrayOutputStream) out).toByteArray();
-
-		// copies the first 4 bytes of this byte array into data[]
-		System.arraycopy(B1, 0, data, position, 4);
-		position += 4;
-
-
-
+		checkRange(position, 8, data);
+		INT.set(data, position, rid.pageNo.pid);
+		INT.set(data, position + 4, rid.slotNo);
 	}
 
 
@@ -356,25 +368,7 @@ public class Convert {
 	 *                I/O errors
 	 */
 	public static void setIntValue(int value, int position, byte[] data) throws java.io.IOException {
-		/*
-		 * creates a new data output stream to write data to underlying output
-		 * stream
-		 */
-
-		OutputStream out = new ByteArrayOutputStream();
-		DataOutputStream outstr = new DataOutputStream(out);
-
-		// write the value to the output stream
-
-		outstr.writeInt(value);
-
-		// creates a byte array with this output stream size and the
-		// valid contents of the buffer have been copied into it
-		byte[] B = ((ByteArrayOutputStream) out).toByteArray();
-
-		// copies the first 4 bytes of this byte array into data[]
-		System.arraycopy(B, 0, data, position, 4);
-
+		INT.set(data, position, value);
 	}
 
 	/**
@@ -390,25 +384,7 @@ public class Convert {
 	 *                I/O errors
 	 */
 	public static void setFloValue(float value, int position, byte[] data) throws java.io.IOException {
-		/*
-		 * creates a new data output stream to write data to underlying output
-		 * stream
-		 */
-
-		OutputStream out = new ByteArrayOutputStream();
-		DataOutputStream outstr = new DataOutputStream(out);
-
-		// write the value to the output stream
-
-		outstr.writeFloat(value);
-
-		// creates a byte array with this output stream size and the
-		// valid contents of the buffer have been copied into it
-		byte[] B = ((ByteArrayOutputStream) out).toByteArray();
-
-		// copies the first 4 bytes of this byte array into data[]
-		System.arraycopy(B, 0, data, position, 4);
-
+		INT.set(data, position, Float.floatToIntBits(value));
 	}
 
 	/**
@@ -424,25 +400,7 @@ public class Convert {
 	 *                I/O errors
 	 */
 	public static void setShortValue(short value, int position, byte[] data) throws java.io.IOException {
-		/*
-		 * creates a new data output stream to write data to underlying output
-		 * stream
-		 */
-
-		OutputStream out = new ByteArrayOutputStream();
-		DataOutputStream outstr = new DataOutputStream(out);
-
-		// write the value to the output stream
-
-		outstr.writeShort(value);
-
-		// creates a byte array with this output stream size and the
-		// valid contents of the buffer have been copied into it
-		byte[] B = ((ByteArrayOutputStream) out).toByteArray();
-
-		// copies the first 2 bytes of this byte array into data[]
-		System.arraycopy(B, 0, data, position, 2);
-
+		SHORT.set(data, position, value);
 	}
 
 	/**
@@ -459,25 +417,41 @@ public class Convert {
 	 *                I/O errors
 	 */
 	public static void setStrValue(String value, int position, byte[] data) throws java.io.IOException {
-		/*
-		 * creates a new data output stream to write data to underlying output
-		 * stream
-		 */
-
-		OutputStream out = new ByteArrayOutputStream();
-		DataOutputStream outstr = new DataOutputStream(out);
-
-		// write the value to the output stream
-
-		outstr.writeUTF(value);
-		// creates a byte array with this output stream size and the
-		// valid contents of the buffer have been copied into it
-		byte[] B = ((ByteArrayOutputStream) out).toByteArray();
-
-		int sz = outstr.size();
-		// copies the contents of this byte array into data[]
-		System.arraycopy(B, 0, data, position, sz);
-
+		int strlen = value.length();
+		int utflen = strlen;
+		boolean ascii = true;
+		for (int i = 0; i < strlen; i++) {
+			char c = value.charAt(i);
+			if (c == 0 || c >= 0x80) {
+				ascii = false;
+				utflen += (c >= 0x800) ? 2 : 1;
+			}
+		}
+		if (utflen > 65535)
+			throw new UTFDataFormatException("encoded string too long: " + utflen + " bytes");
+		checkRange(position, utflen + 2, data);
+
+		// A 2-byte length, then the modified UTF-8 bytes.
+		SHORT.set(data, position, (short) utflen);
+		int n = position + 2;
+		if (ascii) {
+			for (int i = 0; i < strlen; i++)
+				data[n++] = (byte) value.charAt(i);
+			return;
+		}
+		for (int i = 0; i < strlen; i++) {
+			char c = value.charAt(i);
+			if (c != 0 && c < 0x80) {
+				data[n++] = (byte) c;
+			} else if (c < 0x800) {
+				data[n++] = (byte) (0xc0 | (c >> 6));
+				data[n++] = (byte) (0x80 | (c & 0x3f));
+			} else {
+				data[n++] = (byte) (0xe0 | (c >> 12));
+				data[n++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+				data[n++] = (byte) (0x80 | (c & 0x3f));
+			}
+		}
 	}
 
 	/**
@@ -493,23 +467,6 @@ public class Convert {
 	 *                I/O errors
 	 */
 	public static void setCharValue(char value, int position, byte[] data) throws java.io.IOException {
-		/*
-		 * creates a new data output stream to write data to underlying output
-		 * stream
-		 */
-
-		OutputStream out = new ByteArrayOutputStream();
-		DataOutputStream outstr = new DataOutputStream(out);
-
-		// write the value to the output stream
-		outstr.writeChar(value);
-
-		// creates a byte array with this output stream size and the
-		// valid contents of the buffer have been copied into it
-		byte[] B = ((ByteArrayOutputStream) out).toByteArray();
-
-		// copies contents of this byte array into data[]
-		System.arraycopy(B, 0, data, position, 2);
-
+		SHORT.set(data, position, (short) value);
 	}
 }
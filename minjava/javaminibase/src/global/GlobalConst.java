@@ -5,7 +5,11 @@ public interface GlobalConst {
 	public static final int MINIBASE_MAXARRSIZE = 50;
 	public static final int NUMBUF = 200;
 
-	/** Size of page. */
+	/**
+	 * Size of page of a database created with the default settings, and the
+	 * part of the first page that holds the DB header. The page size of the
+	 * open database is SystemDefs.JavabasePageSize.
+	 */
 	public static final int MINIBASE_PAGESIZE = 1024; // in bytes
 
 	/** Size of each frame. */
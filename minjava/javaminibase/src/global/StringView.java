@@ -0,0 +1,126 @@
+package global;
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * class StringView : a string in a byte array, as written by
+ * Convert.setStrValue, seen where it is. Views are compared and tested for
+ * equality on the bytes, so that a label read from a record need not be
+ * decoded to a String to be sorted or matched.
+ *
+ * A view does not copy the bytes: it sees any change to the array, and keeps
+ * the whole array from being garbage collected.
+ */
+public class StringView {
+
+	private byte[] data;
+
+	private int position;
+
+	/**
+	 * constructor of class
+	 *
+	 * @param data
+	 *            the byte array holding the string
+	 * @param position
+	 *            the position of the string in data[]
+	 */
+	public StringView(byte[] data, int position) {
+		this.data = data;
+		this.position = position;
+	}
+
+	/**
+	 * Returns a view of a string, written to a byte array of its own. It is
+	 * meant to be made once, as the value a query looks for, and compared
+	 * with the strings of many records.
+	 *
+	 * @param value
+	 *            the string
+	 * @exception java.io.IOException
+	 *                I/O errors
+	 */
+	public static StringView valueOf(String value) throws java.io.IOException {
+		byte[] bytes = new byte[2 + 3 * value.length()];
+		Convert.setStrValue(value, 0, bytes);
+		return new StringView(Arrays.copyOf(bytes, 2 + (Convert.getShortValue(0, bytes) & 0xffff)), 0);
+	}
+
+	/**
+	 * Move the view to another string, so that one view can be used for many.
+	 *
+	 * @param data
+	 *            the byte array holding the string
+	 * @param position
+	 *            the position of the string in data[]
+	 */
+	public void set(byte[] data, int position) {
+		this.data = data;
+		this.position = position;
+	}
+
+	/** Returns the byte array holding the string. */
+	public byte[] getData() {
+		return data;
+	}
+
+	/** Returns the position of the string in the byte array. */
+	public int getPosition() {
+		return position;
+	}
+
+	/**
+	 * Compare with another string, as String.compareTo would compare their
+	 * values.
+	 *
+	 * @param other
+	 *            the other string
+	 * @exception java.io.IOException
+	 *                I/O errors
+	 * @return negative if this string is smaller, 0 if they are equal,
+	 *         positive if it is bigger
+	 */
+	public int compareTo(StringView other) throws java.io.IOException {
+		return Convert.compareStrValue(position, data, other.position, other.data);
+	}
+
+	/**
+	 * Compare with a String.
+	 *
+	 * @param value
+	 *            the String
+	 * @exception java.io.IOException
+	 *                I/O errors
+	 * @return negative if this string is smaller, 0 if they are equal,
+	 *         positive if it is bigger
+	 */
+	public int compareTo(String value) throws java.io.IOException {
+		return -Convert.compareStrValue(value, position, data);
+	}
+
+	/**
+	 * Returns the string, decoded.
+	 *
+	 * @exception java.io.IOException
+	 *                I/O errors
+	 */
+	public String getValue() throws java.io.IOException {
+		return Convert.getStrValue(position, data, data.length - position);
+	}
+
+	public boolean equals(Object o) {
+		if (!(o instanceof StringView))
+			return false;
+		StringView other = (StringView) o;
+		return Convert.equalStrValue(position, data, other.position, other.data);
+	}
+
+	public int hashCode() {
+		int end = position + 2 + ((data[position] & 0xff) << 8 | data[position + 1] & 0xff);
+		int h = 1;
+		for (int i = position + 2; i < end; i++)
+			h = 31 * h + data[i];
+		return h;
+	}
+}
@@ -14,6 +14,80 @@ public class SystemDefs {
 	public static boolean MINIBASE_RESTART_FLAG = false;
 	public static String MINIBASE_DBNAME;
 
+	/**
+	 * Storage backend of the database file: "File" (seek and read/write on a
+	 * RandomAccessFile) or "Mmap" (memory-mapped file segments).
+	 */
+	public static String MINIBASE_DB_STORAGE = "File";
+
+	/**
+	 * Page size in bytes of newly created databases: a power of two from
+	 * 1 KB to 16 KB. An existing database keeps the page size it was created
+	 * with.
+	 */
+	public static int MINIBASE_DB_PAGESIZE = GlobalConst.MINIBASE_PAGESIZE;
+
+	/**
+	 * Number of clean pages evicted from the buffer pool that the buffer
+	 * manager keeps in a victim cache in direct memory, outside the Java
+	 * heap. 0, the default, turns the cache off.
+	 */
+	public static int MINIBASE_VICTIM_CACHE_PAGES = 0;
+
+	/**
+	 * Number of data pages a heap scan asks the buffer manager to read in the
+	 * background ahead of the page it is on. 0, the default, turns read-ahead
+	 * off.
+	 */
+	public static int MINIBASE_READ_AHEAD = 0;
+
+	/**
+	 * Milliseconds between the rounds in which the buffer manager writes its
+	 * dirty pages out in the background. 0, the default, turns the background
+	 * writer off.
+	 */
+	public static int MINIBASE_BG_WRITER_DELAY = 0;
+
+	/**
+	 * If true, closing a database records the pages in the buffer pool in a
+	 * side file (the database name followed by ".warm"), and reopening it
+	 * reads those pages back into the pool in the background. Off by default.
+	 */
+	public static boolean MINIBASE_WARM_RESTART = false;
+
+	/**
+	 * Most frames the buffer manager keeps B-tree header and index pages in
+	 * for good, never replacing them. The tier gets at most a quarter of the
+	 * pool. 0, the default, turns it off.
+	 */
+	public static int MINIBASE_INDEX_TIER_PAGES = 0;
+
+	/**
+	 * Part of each new data page the batch node and edge inserts fill when
+	 * they bulk load a heap file; the rest is left to later insertions.
+	 */
+	public static double MINIBASE_BULK_FILL_FACTOR = 0.9;
+
+	/**
+	 * If true, the node and edge heap files of a new database keep their
+	 * records on fixed-width pages, with a bitmap of the free slots in place
+	 * of a slot directory. A database keeps the format it was created with.
+	 */
+	public static boolean MINIBASE_FIXED_PAGES = false;
+
+	/**
+	 * If true, the edge heap file of a new database keeps each field of its
+	 * edges in a minipage of its data pages, so that scans of a few fields
+	 * read only those. It takes the place of MINIBASE_FIXED_PAGES for edges.
+	 */
+	public static boolean MINIBASE_PAX_EDGES = false;
+
+	/**
+	 * Page size in bytes of the open database, used for the buffer pool
+	 * frames and the layout of every page.
+	 */
+	public static int JavabasePageSize = GlobalConst.MINIBASE_PAGESIZE;
+
 	/**
 	 * Default constructor
 	 */
@@ -64,6 +138,16 @@ public class SystemDefs {
 		JavabaseLogName = null;
 		JavabaseCatalog = null;
 
+		// The buffer pool frames are made as large as the pages of the DB.
+		boolean open = (MINIBASE_RESTART_FLAG) || (num_pgs == 0);
+		try {
+			JavabasePageSize = open ? DB.db_file_page_size(dbname) : MINIBASE_DB_PAGESIZE;
+		} catch (Exception e) {
+			System.err.println("" + e);
+			e.printStackTrace();
+			Runtime.getRuntime().exit(1);
+		}
+
 		try {
 			JavabaseBM = new BufMgr(bufpoolsize, replacement_policy);
 			JavabaseDB = new GraphDB(0);
@@ -82,7 +166,7 @@ public class SystemDefs {
 
 		// create or open the DB
 
-		if ((MINIBASE_RESTART_FLAG) || (num_pgs == 0)) {
+		if (open) {
 			// open an existing database
 			try {
 				JavabaseDB.openDB(dbname);
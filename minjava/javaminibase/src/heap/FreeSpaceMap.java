@@ -0,0 +1,263 @@
+package heap;
+
+/** File FreeSpaceMap.java */
+
+import java.util.*;
+import global.*;
+
+/**
+ * FreeSpaceMap class : an in-memory map of the free space on the data pages
+ * of a directory-based heap file, so that an insertion goes straight to a data
+ * page with room instead of reading the whole directory.
+ *
+ * The data pages are kept in buckets by their free bytes, each bucket a
+ * 1/NUM_BUCKETS slice of the page size, so a page with room for a record is
+ * found by looking at a few buckets whatever the size of the file. For every
+ * data page the map also holds where its DataPageInfo is, the directory page
+ * and slot, so that the entry can be updated without a search. Besides, the
+ * map knows the directory pages with room for another DataPageInfo, and the
+ * last directory page, after which a new one is appended. As it knows every
+ * data page of the file, it also lets the heap file fetch a record straight
+ * from the page its id names.
+ *
+ * The DataPageInfo records on the directory pages stay the persistent copy
+ * of the same information. The heap file builds the map from them with one
+ * pass over the directory the first time it needs it, and keeps it up to
+ * date as it inserts and deletes. An entry of the map is only a hint: the
+ * heap file checks it against the directory page it points to and builds
+ * the map again if it is out of date.
+ */
+public class FreeSpaceMap implements GlobalConst {
+
+	/** Number of buckets the free space of a page can fall into. */
+	private static final int NUM_BUCKETS = 32;
+
+	/**
+	 * Most pages looked at in the bucket where some pages have room for a
+	 * record and some have not.
+	 */
+	private static final int PARTIAL_PROBES = 8;
+
+	/** The entry of a data page. */
+	private static class Entry {
+
+		/** the data page */
+		int dataPid;
+
+		/** the directory page and slot holding its DataPageInfo */
+		int dirPid, slotNo;
+
+		/** its free bytes */
+		int availspace;
+
+		/** the bucket it is in, and where in the bucket */
+		int bucket, index;
+	}
+
+	/** Free bytes per bucket. */
+	private int width;
+
+	private Map<Integer, Entry> pages = new HashMap<Integer, Entry>();
+
+	private List<List<Entry>> buckets = new ArrayList<List<Entry>>(NUM_BUCKETS);
+
+	/** Directory pages with room for another DataPageInfo. */
+	private Set<Integer> dirsWithRoom = new LinkedHashSet<Integer>();
+
+	private int lastDirPid = INVALID_PAGE;
+
+	private boolean loaded;
+
+	/**
+	 * Create an empty map, not loaded.
+	 *
+	 * @param pageSize
+	 *            the page size in bytes
+	 */
+	public FreeSpaceMap(int pageSize) {
+		width = Math.max(1, pageSize / NUM_BUCKETS);
+		for (int i = 0; i < NUM_BUCKETS; i++)
+			buckets.add(new ArrayList<Entry>());
+	}
+
+	/** Returns true if the map was built from the directory. */
+	public boolean isLoaded() {
+		return loaded;
+	}
+
+	/** Mark the map as built from the directory. */
+	public void markLoaded() {
+		loaded = true;
+	}
+
+	/** Forget everything, so that the map has to be built again. */
+	public void clear() {
+		pages.clear();
+		for (List<Entry> b : buckets)
+			b.clear();
+		dirsWithRoom.clear();
+		lastDirPid = INVALID_PAGE;
+		loaded = false;
+	}
+
+	private int bucketOf(int availspace) {
+		return Math.min(Math.max(availspace, 0) / width, NUM_BUCKETS - 1);
+	}
+
+	private void unlink(Entry e) {
+		List<Entry> b = buckets.get(e.bucket);
+		Entry last = b.remove(b.size() - 1);
+		if (last != e) {
+			last.index = e.index;
+			b.set(e.index, last);
+		}
+	}
+
+	/**
+	 * Enter a data page, or update its entry.
+	 *
+	 * @param dataPid
+	 *            the data page
+	 * @param dirPid
+	 *            the directory page holding its DataPageInfo
+	 * @param slotNo
+	 *            the slot of its DataPageInfo
+	 * @param availspace
+	 *            its free bytes
+	 */
+	public void setPage(int dataPid, int dirPid, int slotNo, int availspace) {
+		Entry e = pages.get(dataPid);
+		if (e == null) {
+			e = new Entry();
+			e.dataPid = dataPid;
+			e.bucket = -1;
+			pages.put(dataPid, e);
+		}
+
+		e.dirPid = dirPid;
+		e.slotNo = slotNo;
+		e.availspace = availspace;
+
+		// A full page is in no bucket, so it is never looked at for room.
+		int bucket = availspace > 0 ? bucketOf(availspace) : -1;
+		if (bucket == e.bucket)
+			return;
+
+		if (e.bucket >= 0)
+			unlink(e);
+		e.bucket = bucket;
+		if (bucket < 0)
+			return;
+		List<Entry> b = buckets.get(bucket);
+		e.index = b.size();
+		b.add(e);
+	}
+
+	/**
+	 * Take a freed data page out of the map.
+	 *
+	 * @param dataPid
+	 *            the data page
+	 */
+	public void removePage(int dataPid) {
+		Entry e = pages.remove(dataPid);
+		if (e != null && e.bucket >= 0)
+			unlink(e);
+	}
+
+	/**
+	 * Find a data page with room for a record.
+	 *
+	 * @param recLen
+	 *            the length of the record
+	 * @return the data page, or INVALID_PAGE if no page has room
+	 */
+	public int find(int recLen) {
+		// Every page in the buckets from fit on has room.
+		int fit = (recLen + width - 1) / width;
+		for (int i = fit; i < NUM_BUCKETS; i++) {
+			List<Entry> b = buckets.get(i);
+			if (!b.isEmpty())
+				return b.get(b.size() - 1).dataPid;
+		}
+
+		// Some pages in the bucket below may have room too.
+		int partial = Math.min(fit - 1, NUM_BUCKETS - 1);
+		if (partial >= 0) {
+			List<Entry> b = buckets.get(partial);
+			for (int k = b.size() - 1; k >= 0 && k >= b.size() - PARTIAL_PROBES; k--)
+				if (b.get(k).availspace >= recLen)
+					return b.get(k).dataPid;
+		}
+
+		return INVALID_PAGE;
+	}
+
+	/** Returns true if the page is a data page in the map. */
+	public boolean contains(int dataPid) {
+		return pages.containsKey(dataPid);
+	}
+
+	/** Returns the directory page holding the DataPageInfo of a data page. */
+	public int dirPageOf(int dataPid) {
+		return pages.get(dataPid).dirPid;
+	}
+
+	/** Returns the slot of the DataPageInfo of a data page. */
+	public int slotOf(int dataPid) {
+		return pages.get(dataPid).slotNo;
+	}
+
+	/**
+	 * Record whether a directory page has room for another DataPageInfo.
+	 *
+	 * @param dirPid
+	 *            the directory page
+	 * @param room
+	 *            true if it has room
+	 */
+	public void setDirRoom(int dirPid, boolean room) {
+		if (room)
+			dirsWithRoom.add(dirPid);
+		else
+			dirsWithRoom.remove(dirPid);
+	}
+
+	/**
+	 * Returns a directory page with room for another DataPageInfo, or
+	 * INVALID_PAGE if every directory page is full.
+	 */
+	public int dirWithRoom() {
+		Iterator<Integer> it = dirsWithRoom.iterator();
+		return it.hasNext() ? it.next() : INVALID_PAGE;
+	}
+
+	/**
+	 * Take a freed directory page out of the map.
+	 *
+	 * @param dirPid
+	 *            the directory page
+	 * @param prevPid
+	 *            the directory page before it
+	 */
+	public void removeDir(int dirPid, int prevPid) {
+		dirsWithRoom.remove(dirPid);
+		if (lastDirPid == dirPid)
+			lastDirPid = prevPid;
+	}
+
+	/** Returns the last directory page. */
+	public int lastDirPage() {
+		return lastDirPid;
+	}
+
+	/** Record the last directory page. */
+	public void setLastDirPage(int dirPid) {
+		lastDirPid = dirPid;
+	}
+
+	/** Returns the number of data pages in the map. */
+	public int size() {
+		return pages.size();
+	}
+}
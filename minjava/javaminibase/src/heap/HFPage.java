@@ -130,10 +130,10 @@ public class HFPage extends Page implements ConstSlot, GlobalConst {
 		Convert.setIntValue(prevPage.pid, PREV_PAGE, data);
 		Convert.setIntValue(nextPage.pid, NEXT_PAGE, data);
 
-		usedPtr = (short) MAX_SPACE; // offset in data array (grow backwards)
+		usedPtr = (short) SystemDefs.JavabasePageSize; // offset in data array (grow backwards)
 		Convert.setShortValue(usedPtr, USED_PTR, data);
 
-		freeSpace = (short) (MAX_SPACE - DPFIXED); // amount of space available
+		freeSpace = (short) (SystemDefs.JavabasePageSize - DPFIXED); // amount of space available
 		Convert.setShortValue(freeSpace, FREE_SPACE, data);
 
 	}
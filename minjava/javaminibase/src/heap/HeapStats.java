@@ -0,0 +1,373 @@
+package heap;
+
+/** File HeapStats.java */
+
+import java.io.*;
+import java.util.*;
+import global.*;
+import diskmgr.*;
+
+/**
+ * HeapStats class : the number of records of a node or edge heap file and
+ * the number of distinct labels, sources and destinations among them, kept
+ * up to date as records are inserted and deleted so that they are known
+ * without a pass over the file.
+ *
+ * Each distinct value has a count of the records that hold it; a value goes
+ * when its count drops to 0. A record without a source or destination, as
+ * a node, is given null for them and only counts towards the records and
+ * labels. Besides the exact counts, a HyperLogLog sketch of the labels, the
+ * sources and the destinations gives an estimate of each that is cheap to
+ * keep and to store; a sketch does not forget the values of deleted
+ * records, so it may overestimate until the counts are taken again from the
+ * records.
+ *
+ * The counts are kept in their own chain of pages, entered in the DB under
+ * the name of the heap file followed by ".stats". Each page starts with the
+ * next page of the chain, the number of bytes on the page and, on the first
+ * page, whether the chain holds the current counts. The heap file clears the
+ * flag when it reads the counts, as its changes from then on are only in
+ * memory, and sets it again when it writes them back; a chain with the flag
+ * clear is out of date, and the counts are taken again from the records.
+ */
+public class HeapStats implements GlobalConst {
+
+	/** Offsets of the header fields of a page of the chain. */
+	private static final int NEXT = 0, LENGTH = 4, VALID = 8;
+
+	/** Size of the header of a page of the chain. */
+	private static final int HEADER = 12;
+
+	private int records;
+
+	private Map<String, int[]> labels = new HashMap<String, int[]>();
+
+	private Map<Long, int[]> sources = new HashMap<Long, int[]>();
+
+	private Map<Long, int[]> destinations = new HashMap<Long, int[]>();
+
+	private HyperLogLog labelSketch = new HyperLogLog();
+
+	private HyperLogLog sourceSketch = new HyperLogLog();
+
+	private HyperLogLog destinationSketch = new HyperLogLog();
+
+	/** Create the counts of an empty file. */
+	public HeapStats() {
+	}
+
+	private static Long key(NID nid) {
+		return Long.valueOf(((long) nid.pageNo.pid << 32) | (nid.slotNo & 0xffffffffL));
+	}
+
+	private static <K> void increment(Map<K, int[]> counts, K key) {
+		int[] count = counts.get(key);
+		if (count == null)
+			counts.put(key, new int[] { 1 });
+		else
+			count[0]++;
+	}
+
+	private static <K> void decrement(Map<K, int[]> counts, K key) {
+		int[] count = counts.get(key);
+		if (count != null && --count[0] == 0)
+			counts.remove(key);
+	}
+
+	/**
+	 * Count an inserted record.
+	 *
+	 * @param label
+	 *            its label, or null if it has none
+	 * @param source
+	 *            its source, or null if it has none
+	 * @param destination
+	 *            its destination, or null if it has none
+	 */
+	public void add(String label, NID source, NID destination) {
+		records++;
+		if (label != null) {
+			increment(labels, label);
+			labelSketch.add(label);
+		}
+		if (source != null) {
+			Long key = key(source);
+			increment(sources, key);
+			sourceSketch.add(key.longValue());
+		}
+		if (destination != null) {
+			Long key = key(destination);
+			increment(destinations, key);
+			destinationSketch.add(key.longValue());
+		}
+	}
+
+	/**
+	 * Take a deleted record out of the counts.
+	 *
+	 * @param label
+	 *            its label, or null if it has none
+	 * @param source
+	 *            its source, or null if it has none
+	 * @param destination
+	 *            its destination, or null if it has none
+	 */
+	public void remove(String label, NID source, NID destination) {
+		records--;
+		if (label != null)
+			decrement(labels, label);
+		if (source != null)
+			decrement(sources, key(source));
+		if (destination != null)
+			decrement(destinations, key(destination));
+	}
+
+	/** Returns the number of records. */
+	public int getRecCnt() {
+		return records;
+	}
+
+	/** Returns the number of distinct labels. */
+	public int getLabelCnt() {
+		return labels.size();
+	}
+
+	/** Returns the number of distinct sources. */
+	public int getSourceCnt() {
+		return sources.size();
+	}
+
+	/** Returns the number of distinct destinations. */
+	public int getDestinationCnt() {
+		return destinations.size();
+	}
+
+	/** Returns an estimate of the number of distinct labels. */
+	public long estimateLabelCnt() {
+		return labelSketch.estimate();
+	}
+
+	/** Returns an estimate of the number of distinct sources. */
+	public long estimateSourceCnt() {
+		return sourceSketch.estimate();
+	}
+
+	/** Returns an estimate of the number of distinct destinations. */
+	public long estimateDestinationCnt() {
+		return destinationSketch.estimate();
+	}
+
+	/* A sketch no value was added to is written as a single flag. */
+	private static void writeSketch(DataOutputStream out, HyperLogLog sketch) throws IOException {
+		boolean empty = sketch.isEmpty();
+		out.writeBoolean(!empty);
+		if (!empty)
+			sketch.write(out);
+	}
+
+	private static void readSketch(DataInputStream in, HyperLogLog sketch) throws IOException {
+		if (in.readBoolean())
+			sketch.read(in);
+	}
+
+	private static void writeCounts(DataOutputStream out, Map<Long, int[]> counts) throws IOException {
+		out.writeInt(counts.size());
+		for (Map.Entry<Long, int[]> e : counts.entrySet()) {
+			out.writeLong(e.getKey().longValue());
+			out.writeInt(e.getValue()[0]);
+		}
+	}
+
+	private static void readCounts(DataInputStream in, Map<Long, int[]> counts) throws IOException {
+		for (int n = in.readInt(); n > 0; n--) {
+			long key = in.readLong();
+			counts.put(Long.valueOf(key), new int[] { in.readInt() });
+		}
+	}
+
+	/**
+	 * Read the counts from the chain of pages entered under a name, and mark
+	 * the chain out of date.
+	 *
+	 * @param entryName
+	 *            the name of the chain in the DB
+	 * @return the counts, or null if there is no chain or it is out of date
+	 */
+	public static HeapStats load(String entryName) throws HFBufMgrException, HFDiskMgrException, IOException {
+		PageId firstPageId = get_file_entry(entryName);
+		if (firstPageId == null)
+			return null;
+
+		Page apage = new Page();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PageId pageId = new PageId(firstPageId.pid);
+
+		pinPage(pageId, apage);
+		boolean valid = Convert.getIntValue(VALID, apage.getpage()) != 0;
+		if (valid) {
+			Convert.setIntValue(0, VALID, apage.getpage());
+			unpinPage(pageId, true /* dirty */);
+			flushPage(pageId);
+		} else {
+			unpinPage(pageId, false /* undirty */);
+			return null;
+		}
+
+		while (pageId.pid != INVALID_PAGE) {
+			pinPage(pageId, apage);
+			byte[] data = apage.getpage();
+			bytes.write(data, HEADER, Convert.getIntValue(LENGTH, data));
+			int next = Convert.getIntValue(NEXT, data);
+			unpinPage(pageId, false /* undirty */);
+			pageId.pid = next;
+		}
+
+		HeapStats stats = new HeapStats();
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		try {
+			stats.records = in.readInt();
+			for (int n = in.readInt(); n > 0; n--) {
+				String label = in.readUTF();
+				stats.labels.put(label, new int[] { in.readInt() });
+			}
+			readCounts(in, stats.sources);
+			readCounts(in, stats.destinations);
+			readSketch(in, stats.labelSketch);
+			readSketch(in, stats.sourceSketch);
+			readSketch(in, stats.destinationSketch);
+		} catch (EOFException e) {
+			// Written without the sketches: count again.
+			return null;
+		}
+		return stats;
+	}
+
+	/**
+	 * Write the counts to a new chain of pages entered under a name, in place
+	 * of the chain there was, and write the pages to disk.
+	 *
+	 * @param entryName
+	 *            the name of the chain in the DB
+	 */
+	public void save(String entryName) throws HFBufMgrException, HFDiskMgrException, IOException {
+		destroy(entryName);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(records);
+		out.writeInt(labels.size());
+		for (Map.Entry<String, int[]> e : labels.entrySet()) {
+			out.writeUTF(e.getKey());
+			out.writeInt(e.getValue()[0]);
+		}
+		writeCounts(out, sources);
+		writeCounts(out, destinations);
+		writeSketch(out, labelSketch);
+		writeSketch(out, sourceSketch);
+		writeSketch(out, destinationSketch);
+		out.flush();
+		byte[] data = bytes.toByteArray();
+
+		// Written from the last page back, so that each page knows the next.
+		int perPage = SystemDefs.JavabasePageSize - HEADER;
+		int pages = Math.max(1, (data.length + perPage - 1) / perPage);
+		int next = INVALID_PAGE;
+		Page apage = new Page();
+		for (int p = pages - 1; p >= 0; p--) {
+			PageId pageId = newPage(apage);
+			int len = Math.min(perPage, data.length - p * perPage);
+			Convert.setIntValue(next, NEXT, apage.getpage());
+			Convert.setIntValue(len, LENGTH, apage.getpage());
+			Convert.setIntValue(p == 0 ? 1 : 0, VALID, apage.getpage());
+			System.arraycopy(data, p * perPage, apage.getpage(), HEADER, len);
+			unpinPage(pageId, true /* dirty */);
+			flushPage(pageId);
+			next = pageId.pid;
+		}
+
+		add_file_entry(entryName, new PageId(next));
+	}
+
+	/**
+	 * Free the chain of pages entered under a name, if there is one.
+	 *
+	 * @param entryName
+	 *            the name of the chain in the DB
+	 */
+	public static void destroy(String entryName) throws HFBufMgrException, HFDiskMgrException, IOException {
+		PageId pageId = get_file_entry(entryName);
+		if (pageId == null)
+			return;
+
+		Page apage = new Page();
+		while (pageId.pid != INVALID_PAGE) {
+			pinPage(pageId, apage);
+			int next = Convert.getIntValue(NEXT, apage.getpage());
+			unpinPage(pageId, false /* undirty */);
+			freePage(pageId);
+			pageId = new PageId(next);
+		}
+
+		try {
+			SystemDefs.JavabaseDB.delete_file_entry(entryName);
+		} catch (Exception e) {
+			throw new HFDiskMgrException(e, "HeapStats.java: delete_file_entry() failed");
+		}
+	}
+
+	private static void pinPage(PageId pageno, Page page) throws HFBufMgrException {
+		try {
+			SystemDefs.JavabaseBM.pinPage(pageno, page, false /* read disk */);
+		} catch (Exception e) {
+			throw new HFBufMgrException(e, "HeapStats.java: pinPage() failed");
+		}
+	}
+
+	private static void unpinPage(PageId pageno, boolean dirty) throws HFBufMgrException {
+		try {
+			SystemDefs.JavabaseBM.unpinPage(pageno, dirty);
+		} catch (Exception e) {
+			throw new HFBufMgrException(e, "HeapStats.java: unpinPage() failed");
+		}
+	}
+
+	private static void flushPage(PageId pageno) throws HFBufMgrException {
+		try {
+			SystemDefs.JavabaseBM.flushPage(pageno);
+		} catch (Exception e) {
+			throw new HFBufMgrException(e, "HeapStats.java: flushPage() failed");
+		}
+	}
+
+	private static void freePage(PageId pageno) throws HFBufMgrException {
+		try {
+			SystemDefs.JavabaseBM.freePage(pageno);
+		} catch (Exception e) {
+			throw new HFBufMgrException(e, "HeapStats.java: freePage() failed");
+		}
+	}
+
+	private static PageId newPage(Page page) throws HFBufMgrException {
+		try {
+			return SystemDefs.JavabaseBM.newPage(page, 1);
+		} catch (Exception e) {
+			throw new HFBufMgrException(e, "HeapStats.java: newPage() failed");
+		}
+	}
+
+	private static PageId get_file_entry(String filename) throws HFDiskMgrException {
+		try {
+			return SystemDefs.JavabaseDB.get_file_entry(filename);
+		} catch (Exception e) {
+			throw new HFDiskMgrException(e, "HeapStats.java: get_file_entry() failed");
+		}
+	}
+
+	private static void add_file_entry(String filename, PageId pageno) throws HFDiskMgrException {
+		try {
+			SystemDefs.JavabaseDB.add_file_entry(filename, pageno);
+		} catch (Exception e) {
+			throw new HFDiskMgrException(e, "HeapStats.java: add_file_entry() failed");
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package heap;
+
+/** File HyperLogLog.java */
+
+import java.io.*;
+
+/**
+ * HyperLogLog class : an estimate of the number of distinct values added to
+ * it, in a fixed amount of memory whatever the number of values.
+ *
+ * Each value is hashed to 64 bits. The first PRECISION bits pick one of the
+ * registers, and the register keeps the most leading zeros plus one seen in
+ * the other bits. The estimate is a harmonic mean of the registers, with
+ * linear counting of the empty registers while few values have been added.
+ * With 4096 registers the standard error is about 1.6%.
+ *
+ * Values cannot be taken out: a sketch keeps counting a value after the
+ * records that hold it are deleted, until it is built again.
+ */
+public class HyperLogLog {
+
+	/** Number of hash bits that pick a register. */
+	private static final int PRECISION = 12;
+
+	private static final int NUM_REGISTERS = 1 << PRECISION;
+
+	private static final double ALPHA = 0.7213 / (1 + 1.079 / NUM_REGISTERS);
+
+	private byte[] registers = new byte[NUM_REGISTERS];
+
+	/** Create an empty sketch. */
+	public HyperLogLog() {
+	}
+
+	/** The finalizer of MurmurHash3: spreads every input bit over the hash. */
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/**
+	 * Add a value.
+	 *
+	 * @param value
+	 *            a 64-bit value, as the page and slot of an id
+	 */
+	public void add(long value) {
+		addHash(mix(value));
+	}
+
+	/**
+	 * Add a string value.
+	 *
+	 * @param value
+	 *            the string
+	 */
+	public void add(String value) {
+		// FNV-1a over the characters, then mixed.
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < value.length(); i++) {
+			h ^= value.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		addHash(mix(h));
+	}
+
+	private void addHash(long hash) {
+		int index = (int) (hash >>> (64 - PRECISION));
+		int rank = Math.min(Long.numberOfLeadingZeros(hash << PRECISION), 64 - PRECISION) + 1;
+		if (rank > registers[index])
+			registers[index] = (byte) rank;
+	}
+
+	/** Returns the estimated number of distinct values added. */
+	public long estimate() {
+		double sum = 0;
+		int zeros = 0;
+		for (int i = 0; i < NUM_REGISTERS; i++) {
+			sum += 1.0 / (1L << registers[i]);
+			if (registers[i] == 0)
+				zeros++;
+		}
+
+		double e = ALPHA * NUM_REGISTERS * NUM_REGISTERS / sum;
+		if (e <= 2.5 * NUM_REGISTERS && zeros != 0)
+			e = NUM_REGISTERS * Math.log((double) NUM_REGISTERS / zeros);
+		return Math.round(e);
+	}
+
+	/** Returns true if no value was added. */
+	public boolean isEmpty() {
+		for (int i = 0; i < NUM_REGISTERS; i++)
+			if (registers[i] != 0)
+				return false;
+		return true;
+	}
+
+	/** Write the registers. */
+	public void write(DataOutputStream out) throws IOException {
+		out.write(registers);
+	}
+
+	/** Read the registers written by write. */
+	public void read(DataInputStream in) throws IOException {
+		in.readFully(registers);
+	}
+}
@@ -0,0 +1,334 @@
+package heap;
+
+/** File LabelDictionary.java */
+
+import java.io.*;
+import java.util.*;
+import global.*;
+import diskmgr.*;
+
+/**
+ * LabelDictionary class : the labels of the nodes and edges of a DB, each
+ * given a dense int id, so that a record on a data page holds the 4-byte id
+ * of its label in place of the 46-byte string field. The ids are given in the
+ * order the labels are first seen and are never taken back, as a label may
+ * still be in a record of some file when it goes from another; a label that
+ * is no longer in any record keeps its id.
+ *
+ * The ids do not keep the order of the labels, so the label indexes stay on
+ * the strings, and a record is turned back into a node or an edge with its
+ * label string when it is read from its page.
+ *
+ * The labels are kept in their own chain of pages, entered in the DB under a
+ * name. Each page starts with the next page of the chain and the number of
+ * bytes used on the page, and holds the labels in the order of their ids, as
+ * Convert.setStrValue writes them; a label is not split across pages. A new
+ * label is written to the last page through the buffer pool, as a record is
+ * written to its data page, and goes to disk with it.
+ */
+public class LabelDictionary implements GlobalConst {
+
+	/** Offsets of the header fields of a page of the chain. */
+	private static final int NEXT = 0, USED = 4;
+
+	/** Size of the header of a page of the chain. */
+	private static final int HEADER = 8;
+
+	/** Width of the label field of a node or an edge, with its length. */
+	public static final int LABEL_SIZE = 46;
+
+	/** Width of the label id that takes the place of the label field. */
+	public static final int ID_SIZE = 4;
+
+	private Map<StringView, Integer> ids = new HashMap<StringView, Integer>();
+
+	/** The labels, by id, as written to the pages. */
+	private List<StringView> encoded = new ArrayList<StringView>();
+
+	/** The labels, by id, decoded once. */
+	private List<String> labels = new ArrayList<String>();
+
+	private String entryName;
+
+	/** The last page of the chain, or INVALID_PAGE before the first label. */
+	private PageId lastPageId = new PageId(INVALID_PAGE);
+
+	private int lastUsed;
+
+	/**
+	 * Open the dictionary entered under a name and read its labels. If there
+	 * is none, the dictionary is empty, and its chain is entered with the
+	 * first label.
+	 *
+	 * @param entryName
+	 *            the name of the chain in the DB
+	 */
+	public LabelDictionary(String entryName) throws HFBufMgrException, HFDiskMgrException, IOException {
+		this.entryName = entryName;
+		PageId pageId = get_file_entry(entryName);
+		if (pageId == null)
+			return;
+
+		Page apage = new Page();
+		while (true) {
+			pinPage(pageId, apage);
+			byte[] data = apage.getpage();
+			int used = Convert.getIntValue(USED, data);
+			int next = Convert.getIntValue(NEXT, data);
+			for (int pos = HEADER; pos < used;) {
+				int len = 2 + (Convert.getShortValue(pos, data) & 0xffff);
+				_add(new StringView(Arrays.copyOfRange(data, pos, pos + len), 0));
+				pos += len;
+			}
+			unpinPage(pageId, false /* undirty */);
+
+			if (next == INVALID_PAGE) {
+				lastPageId.pid = pageId.pid;
+				lastUsed = used;
+				break;
+			}
+			pageId = new PageId(next);
+		}
+	}
+
+	/* Give the next id to a label, in memory. */
+	private int _add(StringView label) throws IOException {
+		int id = encoded.size();
+		encoded.add(label);
+		labels.add(label.getValue());
+		ids.put(label, Integer.valueOf(id));
+		return id;
+	}
+
+	/** Returns the number of labels. */
+	public int size() {
+		return encoded.size();
+	}
+
+	/**
+	 * Returns the id of a label, or -1 if the label has none.
+	 *
+	 * @param label
+	 *            the label
+	 */
+	public int lookup(StringView label) {
+		Integer id = ids.get(label);
+		return id == null ? -1 : id.intValue();
+	}
+
+	/**
+	 * Returns the id of a label, giving it the next id and writing it to the
+	 * last page of the chain if it has none.
+	 *
+	 * @param label
+	 *            the label; it is copied if it is added
+	 */
+	public int getId(StringView label) throws HFBufMgrException, HFDiskMgrException, IOException {
+		Integer id = ids.get(label);
+		if (id != null)
+			return id.intValue();
+
+		byte[] from = label.getData();
+		int pos = label.getPosition();
+		int len = 2 + (Convert.getShortValue(pos, from) & 0xffff);
+		StringView copy = new StringView(Arrays.copyOfRange(from, pos, pos + len), 0);
+
+		Page apage = new Page();
+		if (lastPageId.pid == INVALID_PAGE || lastUsed + len > SystemDefs.JavabasePageSize) {
+			PageId pageId = newPage(apage);
+			Convert.setIntValue(INVALID_PAGE, NEXT, apage.getpage());
+			Convert.setIntValue(HEADER, USED, apage.getpage());
+			unpinPage(pageId, true /* dirty */);
+
+			if (lastPageId.pid == INVALID_PAGE)
+				add_file_entry(entryName, pageId);
+			else {
+				pinPage(lastPageId, apage);
+				Convert.setIntValue(pageId.pid, NEXT, apage.getpage());
+				unpinPage(lastPageId, true /* dirty */);
+			}
+
+			lastPageId.pid = pageId.pid;
+			lastUsed = HEADER;
+		}
+
+		pinPage(lastPageId, apage);
+		System.arraycopy(copy.getData(), 0, apage.getpage(), lastUsed, len);
+		lastUsed += len;
+		Convert.setIntValue(lastUsed, USED, apage.getpage());
+		unpinPage(lastPageId, true /* dirty */);
+
+		return _add(copy);
+	}
+
+	/**
+	 * Returns the label with an id.
+	 *
+	 * @param id
+	 *            the id
+	 */
+	public String getLabel(int id) {
+		return labels.get(id);
+	}
+
+	/**
+	 * Returns a view of the label with an id, as Convert.setStrValue writes
+	 * it. The bytes are those of the dictionary and are not to be changed.
+	 *
+	 * @param id
+	 *            the id
+	 */
+	public StringView getLabelView(int id) {
+		return encoded.get(id);
+	}
+
+	/**
+	 * Returns the record that stands for a node or an edge on a data page: the
+	 * tuple with its label field, the first one, replaced by the id of the
+	 * label. The field offsets in the header are moved to match, so the
+	 * record is itself a tuple with an integer first field.
+	 *
+	 * @param tuple
+	 *            the byte array holding the node or edge
+	 * @param offset
+	 *            the offset of the tuple in the byte array
+	 * @param length
+	 *            the length of the tuple
+	 */
+	public byte[] encode(byte[] tuple, int offset, int length)
+			throws HFBufMgrException, HFDiskMgrException, IOException {
+		int fldCnt = Convert.getShortValue(offset, tuple);
+		int hdr = (fldCnt + 2) * 2;
+		byte[] record = new byte[length - LABEL_SIZE + ID_SIZE];
+
+		System.arraycopy(tuple, offset, record, 0, hdr);
+		_moveOffsets(record, fldCnt, ID_SIZE - LABEL_SIZE);
+		Convert.setIntValue(getId(new StringView(tuple, offset + hdr)), hdr, record);
+		System.arraycopy(tuple, offset + hdr + LABEL_SIZE, record, hdr + ID_SIZE, length - hdr - LABEL_SIZE);
+		return record;
+	}
+
+	/**
+	 * Returns the node or edge a record written by encode stands for, as a
+	 * tuple in a byte array of its own.
+	 *
+	 * @param record
+	 *            the byte array holding the record
+	 * @param offset
+	 *            the offset of the record in the byte array
+	 * @param length
+	 *            the length of the record
+	 */
+	public byte[] decode(byte[] record, int offset, int length) throws IOException {
+		int fldCnt = Convert.getShortValue(offset, record);
+		int hdr = (fldCnt + 2) * 2;
+		byte[] tuple = new byte[length - ID_SIZE + LABEL_SIZE];
+
+		System.arraycopy(record, offset, tuple, 0, hdr);
+		_moveOffsets(tuple, fldCnt, LABEL_SIZE - ID_SIZE);
+		StringView label = encoded.get(Convert.getIntValue(offset + hdr, record));
+		Convert.copyStrValue(label.getPosition(), label.getData(), hdr, tuple);
+		System.arraycopy(record, offset + hdr + ID_SIZE, tuple, hdr + LABEL_SIZE, length - hdr - ID_SIZE);
+		return tuple;
+	}
+
+	/**
+	 * Returns the fields of the record encode would write, without the tuple
+	 * header: the id of the label and the fields after it. This is the record
+	 * of a page whose records all have the same fields, so that their header
+	 * need not be kept.
+	 *
+	 * @param tuple
+	 *            the byte array holding the node or edge
+	 * @param offset
+	 *            the offset of the tuple in the byte array
+	 * @param length
+	 *            the length of the tuple
+	 */
+	public byte[] encodeFields(byte[] tuple, int offset, int length)
+			throws HFBufMgrException, HFDiskMgrException, IOException {
+		int hdr = (Convert.getShortValue(offset, tuple) + 2) * 2;
+		byte[] record = new byte[length - hdr - LABEL_SIZE + ID_SIZE];
+
+		Convert.setIntValue(getId(new StringView(tuple, offset + hdr)), 0, record);
+		System.arraycopy(tuple, offset + hdr + LABEL_SIZE, record, ID_SIZE, length - hdr - LABEL_SIZE);
+		return record;
+	}
+
+	/**
+	 * Returns the fields of the node or edge a record written by encodeFields
+	 * stands for, in a byte array of its own, after room left for a tuple
+	 * header that the caller sets.
+	 *
+	 * @param record
+	 *            the byte array holding the record
+	 * @param offset
+	 *            the offset of the record in the byte array
+	 * @param length
+	 *            the length of the record
+	 * @param header
+	 *            the size of the tuple header to leave room for
+	 */
+	public byte[] decodeFields(byte[] record, int offset, int length, int header) throws IOException {
+		byte[] tuple = new byte[header + length - ID_SIZE + LABEL_SIZE];
+
+		StringView label = encoded.get(Convert.getIntValue(offset, record));
+		Convert.copyStrValue(label.getPosition(), label.getData(), header, tuple);
+		System.arraycopy(record, offset + ID_SIZE, tuple, header + LABEL_SIZE, length - ID_SIZE);
+		return tuple;
+	}
+
+	/*
+	 * Set the header of a tuple starting at 0 in data[] to have its first
+	 * field at the end of the header and the fields after the first moved by
+	 * shift bytes.
+	 */
+	private static void _moveOffsets(byte[] data, int fldCnt, int shift) throws IOException {
+		int base = (fldCnt + 2) * 2 - Convert.getShortValue(2, data);
+		for (int i = 0; i <= fldCnt; i++) {
+			int pos = 2 + 2 * i;
+			int off = Convert.getShortValue(pos, data) + base + (i > 0 ? shift : 0);
+			Convert.setShortValue((short) off, pos, data);
+		}
+	}
+
+	private static void pinPage(PageId pageno, Page page) throws HFBufMgrException {
+		try {
+			SystemDefs.JavabaseBM.pinPage(pageno, page, false /* read disk */);
+		} catch (Exception e) {
+			throw new HFBufMgrException(e, "LabelDictionary.java: pinPage() failed");
+		}
+	}
+
+	private static void unpinPage(PageId pageno, boolean dirty) throws HFBufMgrException {
+		try {
+			SystemDefs.JavabaseBM.unpinPage(pageno, dirty);
+		} catch (Exception e) {
+			throw new HFBufMgrException(e, "LabelDictionary.java: unpinPage() failed");
+		}
+	}
+
+	private static PageId newPage(Page page) throws HFBufMgrException {
+		try {
+			return SystemDefs.JavabaseBM.newPage(page, 1);
+		} catch (Exception e) {
+			throw new HFBufMgrException(e, "LabelDictionary.java: newPage() failed");
+		}
+	}
+
+	private static PageId get_file_entry(String filename) throws HFDiskMgrException {
+		try {
+			return SystemDefs.JavabaseDB.get_file_entry(filename);
+		} catch (Exception e) {
+			throw new HFDiskMgrException(e, "LabelDictionary.java: get_file_entry() failed");
+		}
+	}
+
+	private static void add_file_entry(String filename, PageId pageno) throws HFDiskMgrException {
+		try {
+			SystemDefs.JavabaseDB.add_file_entry(filename, pageno);
+		} catch (Exception e) {
+			throw new HFDiskMgrException(e, "LabelDictionary.java: add_file_entry() failed");
+		}
+	}
+}
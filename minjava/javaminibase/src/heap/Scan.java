@@ -53,6 +53,9 @@ public class Scan implements GlobalConst {
 	/** Status of next user status */
 	private boolean nextUserStatus;
 
+	/** The pages of a scan are read once, so they go through the scan ring. */
+	private static final AccessHint SEQUENTIAL = new AccessHint(AccessHint.Sequential);
+
 	/**
 	 * The constructor pins the first directory page in the file and initializes
 	 * its private data members from the private data member from hf
@@ -597,7 +600,7 @@ public class Scan implements GlobalConst {
 	private void pinPage(PageId pageno, Page page, boolean emptyPage) throws HFBufMgrException {
 
 		try {
-			SystemDefs.JavabaseBM.pinPage(pageno, page, emptyPage);
+			SystemDefs.JavabaseBM.pinPage(pageno, page, emptyPage, SEQUENTIAL);
 		} catch (Exception e) {
 			throw new HFBufMgrException(e, "Scan.java: pinPage() failed");
 		}
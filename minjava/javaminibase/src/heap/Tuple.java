@@ -371,6 +371,90 @@ public class Tuple implements GlobalConst {
 			throw new FieldNumberOutOfBoundException(null, "TUPLE:TUPLE_FLDNO_OUT_OF_BOUND");
 	}
 
+	/**
+	 * Set this string field to a string field of another tuple, copying its
+	 * bytes
+	 *
+	 * @param fldNo
+	 *            the field number
+	 * @param from
+	 *            the other tuple
+	 * @param fromFldNo
+	 *            the field number in the other tuple
+	 * @exception FieldNumberOutOfBoundException
+	 *                Tuple field number out of bound
+	 */
+
+	public Tuple setStrFld(int fldNo, Tuple from, int fromFldNo) throws FieldNumberOutOfBoundException {
+		if ((fldNo > 0) && (fldNo <= fldCnt) && (fromFldNo > 0) && (fromFldNo <= from.fldCnt)) {
+			Convert.copyStrValue(from.fldOffset[fromFldNo - 1], from.data, fldOffset[fldNo - 1], data);
+			return this;
+		} else
+			throw new FieldNumberOutOfBoundException(null, "TUPLE:TUPLE_FLDNO_OUT_OF_BOUND");
+	}
+
+	/**
+	 * Compare this string field with a string field of another tuple on
+	 * their bytes, without decoding them
+	 *
+	 * @param fldNo
+	 *            the field number
+	 * @param other
+	 *            the other tuple
+	 * @param otherFldNo
+	 *            the field number in the other tuple
+	 * @return negative if this field is smaller, 0 if they are equal, positive
+	 *         if it is bigger, as String.compareTo
+	 * @exception IOException
+	 *                I/O errors
+	 * @exception FieldNumberOutOfBoundException
+	 *                Tuple field number out of bound
+	 */
+
+	public int compareStrFld(int fldNo, Tuple other, int otherFldNo)
+			throws IOException, FieldNumberOutOfBoundException {
+		if ((fldNo > 0) && (fldNo <= fldCnt) && (otherFldNo > 0) && (otherFldNo <= other.fldCnt))
+			return Convert.compareStrValue(fldOffset[fldNo - 1], data, other.fldOffset[otherFldNo - 1], other.data);
+		else
+			throw new FieldNumberOutOfBoundException(null, "TUPLE:TUPLE_FLDNO_OUT_OF_BOUND");
+	}
+
+	/**
+	 * Tell whether this string field holds a value, comparing bytes
+	 *
+	 * @param fldNo
+	 *            the field number
+	 * @param value
+	 *            the value, as StringView.valueOf makes it
+	 * @return true if the field holds the value
+	 * @exception FieldNumberOutOfBoundException
+	 *                Tuple field number out of bound
+	 */
+
+	public boolean equalsStrFld(int fldNo, StringView value) throws FieldNumberOutOfBoundException {
+		if ((fldNo > 0) && (fldNo <= fldCnt))
+			return Convert.equalStrValue(fldOffset[fldNo - 1], data, value.getPosition(), value.getData());
+		else
+			throw new FieldNumberOutOfBoundException(null, "TUPLE:TUPLE_FLDNO_OUT_OF_BOUND");
+	}
+
+	/**
+	 * View this string field where it is, without copying or decoding it
+	 *
+	 * @param fldNo
+	 *            the field number
+	 * @return a view of the field in the tuple
+	 * @exception FieldNumberOutOfBoundException
+	 *                Tuple field number out of bound
+	 */
+
+	public StringView getStrView(int fldNo) throws FieldNumberOutOfBoundException {
+		if ((fldNo > 0) && (fldNo <= fldCnt))
+			return new StringView(data, fldOffset[fldNo - 1]);
+		else
+			throw new FieldNumberOutOfBoundException(null, "TUPLE:TUPLE_FLDNO_OUT_OF_BOUND");
+	}
+
 	/**
 	 * setHdr will set the header of this tuple.
 	 *
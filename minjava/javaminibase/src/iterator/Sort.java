@@ -622,7 +622,7 @@ public class Sort extends Iterator implements GlobalConst {
 			}
 		} else {
 			for (int k = 0; k < _n_pages; k++)
-				bufs[k] = new byte[MAX_SPACE];
+				bufs[k] = new byte[SystemDefs.JavabasePageSize];
 		}
 
 		first_time = true;
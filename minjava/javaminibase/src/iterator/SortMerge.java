@@ -204,8 +204,8 @@ public class SortMerge extends Iterator implements GlobalConst {
 		// NOTE -- THESE PAGES ARE NOT OBTAINED FROM THE BUFFER POOL
 		// ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
 		_n_pages = 1;
-		_bufs1 = new byte[_n_pages][MINIBASE_PAGESIZE];
-		_bufs2 = new byte[_n_pages][MINIBASE_PAGESIZE];
+		_bufs1 = new byte[_n_pages][SystemDefs.JavabasePageSize];
+		_bufs2 = new byte[_n_pages][SystemDefs.JavabasePageSize];
 
 		temp_file_fd1 = null;
 		temp_file_fd2 = null;
@@ -48,7 +48,7 @@ public class SpoofIbuf implements GlobalConst {
 		curr_page = 0;
 		t_rd_from_pg = 0;
 		done = false;
-		t_per_pg = MINIBASE_PAGESIZE / t_size;
+		t_per_pg = SystemDefs.JavabasePageSize / t_size;
 
 		n_tuples = Ntuples;
 
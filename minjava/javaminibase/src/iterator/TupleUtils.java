@@ -42,7 +42,6 @@ public class TupleUtils {
 			double distance, Descriptor target) throws IOException, UnknowAttrType, TupleUtilsException {
 		int t1_i, t2_i;
 		float t1_r, t2_r;
-		String t1_s, t2_s;
 		Descriptor t1_d, t2_d;
 
 		switch (fldType.attrType) {
@@ -74,19 +73,18 @@ public class TupleUtils {
 			if (t1_r > t2_r)
 				return 1;
 
-		case AttrType.attrString: // Compare two strings
+		case AttrType.attrString: // Compare two strings, on their bytes
 			try {
-				t1_s = t1.getStrFld(t1_fld_no);
-				t2_s = t2.getStrFld(t2_fld_no);
+				t1_i = t1.compareStrFld(t1_fld_no, t2, t2_fld_no);
 			} catch (FieldNumberOutOfBoundException e) {
 				throw new TupleUtilsException(e, "FieldNumberOutOfBoundException is caught by TupleUtils.java");
 			}
 
-			// Now handle the special case that is posed by the max_values for
-			// strings...
-			if (t1_s.compareTo(t2_s) > 0)
+			// The max_values for strings, a string of the biggest character,
+			// and the min_values, of the character 0, compare as Strings do.
+			if (t1_i > 0)
 				return 1;
-			if (t1_s.compareTo(t2_s) < 0)
+			if (t1_i < 0)
 				return -1;
 			return 0;
 		case AttrType.attrDesc:
@@ -241,7 +239,7 @@ public class TupleUtils {
 			break;
 		case AttrType.attrString:
 			try {
-				value.setStrFld(fld_no, tuple.getStrFld(fld_no));
+				value.setStrFld(fld_no, tuple, fld_no);
 			} catch (FieldNumberOutOfBoundException e) {
 				throw new TupleUtilsException(e, "FieldNumberOutOfBoundException is caught by TupleUtils.java");
 			}
@@ -0,0 +1,268 @@
+/* File NFixedPage.java */
+
+package nodeheap;
+
+import java.io.*;
+import java.util.Arrays;
+
+import global.*;
+import heap.InvalidTupleSizeException;
+import heap.InvalidTypeException;
+import diskmgr.*;
+
+/**
+ * Class fixed-width node heap file page: a data page of a node heap file
+ * created with fixed-width pages. All the records of the page are as wide,
+ * so there is no slot directory: the record in slot i is at an offset
+ * computed from i, and a bitmap after the header tells which slots are in
+ * use. The records are kept without their tuple header, which the heap file
+ * puts back when it reads them.
+ *
+ * The header is that of NHFPage with other meanings for three of its
+ * fields: SLOT_CNT is the number of slots of the page, USED_PTR the width of
+ * a slot and FREE_SPACE the number of free slots. Records are never moved,
+ * and a deleted record leaves its slot to the next insertion.
+ */
+
+public class NFixedPage extends NHFPage {
+
+	/** Width of the slots of a page this object initializes. */
+	private int width;
+
+	/**
+	 * Constructor of class NFixedPage
+	 *
+	 * @param width
+	 *            the width of the slots when the page is initialized; a page
+	 *            that is opened keeps the width it was initialized with
+	 */
+	public NFixedPage(int width) {
+		this.width = width;
+	}
+
+	/**
+	 * Initialize a new page with as many slots of the width given to the
+	 * constructor, and their bitmap, as the page holds.
+	 *
+	 * @param pageNo
+	 *            the page number of a new page to be initialized
+	 * @param apage
+	 *            the Page to be initialized
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public void init(PageId pageNo, Page apage) throws IOException {
+		super.init(pageNo, apage);
+
+		// each slot takes its width and a bit of the bitmap
+		int slots = (SystemDefs.JavabasePageSize - DPFIXED) * 8 / (8 * width + 1);
+		Convert.setShortValue((short) slots, SLOT_CNT, data);
+		Convert.setShortValue((short) width, USED_PTR, data);
+		Convert.setShortValue((short) slots, FREE_SPACE, data);
+		Arrays.fill(data, DPFIXED, DPFIXED + (slots + 7) / 8, (byte) 0);
+	}
+
+	/* The offset of a slot in data[]. */
+	private int _offset(int slotno) throws IOException {
+		int slots = Convert.getShortValue(SLOT_CNT, data);
+		return DPFIXED + (slots + 7) / 8 + slotno * Convert.getShortValue(USED_PTR, data);
+	}
+
+	/* Whether a slot of the page holds a record. */
+	private boolean _inUse(int slotno) throws IOException {
+		return slotno >= 0 && slotno < Convert.getShortValue(SLOT_CNT, data)
+				&& (data[DPFIXED + (slotno >> 3)] & (1 << (slotno & 7))) != 0;
+	}
+
+	/* The first slot from slotno on that is in use, or free, or -1. */
+	private int _findSlot(int slotno, boolean inUse) throws IOException {
+		int slots = Convert.getShortValue(SLOT_CNT, data);
+		for (int i = slotno; i < slots; i++) {
+			int bits = data[DPFIXED + (i >> 3)];
+			if (bits == (inUse ? 0 : -1))
+				i |= 7; // nothing to find in the rest of the byte
+			else if (((bits >> (i & 7)) & 1) == (inUse ? 1 : 0))
+				return i;
+		}
+		return -1;
+	}
+
+	private NID _nid(int slotno) throws IOException {
+		NID nid = new NID();
+		nid.pageNo.pid = Convert.getIntValue(CUR_PAGE, data);
+		nid.slotNo = slotno;
+		return nid;
+	}
+
+	/**
+	 * @param slotno
+	 *            slot number
+	 * @return the width of the slot, or EMPTY_SLOT if it is free
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public short getSlotLength(int slotno) throws IOException {
+		return _inUse(slotno) ? Convert.getShortValue(USED_PTR, data) : (short) EMPTY_SLOT;
+	}
+
+	/**
+	 * @param slotno
+	 *            slot number
+	 * @return the offset of the slot in the page
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public short getSlotOffset(int slotno) throws IOException {
+		return (short) _offset(slotno);
+	}
+
+	/**
+	 * inserts a new node onto the first free slot of the page, returns nid
+	 * of this node
+	 *
+	 * @param node
+	 *            a node without its tuple header, as wide as a slot
+	 * @return nid of node, null if no slot is free
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public NID insertNode(byte[] node) throws IOException {
+		short free = Convert.getShortValue(FREE_SPACE, data);
+		if (free == 0 || node.length != Convert.getShortValue(USED_PTR, data))
+			return null;
+
+		int slotno = _findSlot(0, false);
+		data[DPFIXED + (slotno >> 3)] |= 1 << (slotno & 7);
+		System.arraycopy(node, 0, data, _offset(slotno), node.length);
+		Convert.setShortValue((short) (free - 1), FREE_SPACE, data);
+		return _nid(slotno);
+	}
+
+	/**
+	 * delete the node with the specified nid
+	 *
+	 * @param nid
+	 *            the node ID
+	 * @exception InvalidSlotNumberException
+	 *                Invalid slot number
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public void deleteNode(NID nid) throws IOException, InvalidSlotNumberException {
+		int slotno = nid.slotNo;
+		if (!_inUse(slotno))
+			throw new InvalidSlotNumberException(null, "HEAPFILE: INVALID_SLOTNO");
+
+		data[DPFIXED + (slotno >> 3)] &= ~(1 << (slotno & 7));
+		short free = Convert.getShortValue(FREE_SPACE, data);
+		Convert.setShortValue((short) (free + 1), FREE_SPACE, data);
+	}
+
+	/**
+	 * @return nid of first node on page, null if page contains no nodes.
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public NID firstNode() throws IOException {
+		int slotno = _findSlot(0, true);
+		return slotno < 0 ? null : _nid(slotno);
+	}
+
+	/**
+	 * @return nid of next node on the page, null if no more nodes exist on
+	 *         the page
+	 * @param curnid
+	 *            current node ID
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public NID nextNode(NID curnid) throws IOException {
+		int slotno = _findSlot(curnid.slotNo + 1, true);
+		return slotno < 0 ? null : _nid(slotno);
+	}
+
+	/* Check that the nid names a slot in use on this page. */
+	private void _check(NID nid) throws IOException, InvalidSlotNumberException {
+		if (!_inUse(nid.slotNo) || nid.pageNo.pid != Convert.getIntValue(CUR_PAGE, data))
+			throw new InvalidSlotNumberException(null, "HEAPFILE: INVALID_SLOTNO");
+	}
+
+	/**
+	 * copies out the node with nid nid, without its tuple header
+	 *
+	 * @param nid
+	 *            the node ID
+	 * @return a node contains the node
+	 * @exception InvalidSlotNumberException
+	 *                Invalid slot number
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public Node getNode(NID nid)
+			throws IOException, InvalidSlotNumberException, InvalidTypeException, InvalidTupleSizeException {
+		_check(nid);
+		int recLen = Convert.getShortValue(USED_PTR, data);
+		byte[] record = new byte[recLen];
+		System.arraycopy(data, _offset(nid.slotNo), record, 0, recLen);
+		return new Node(record, 0, recLen);
+	}
+
+	/**
+	 * returns the node with nid nid, without its tuple header, where it is
+	 * in the page
+	 *
+	 * @param nid
+	 *            the record ID
+	 * @return a tuple with its length and offset in the byte array
+	 * @exception InvalidSlotNumberException
+	 *                Invalid slot number
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public Node returnNode(NID nid)
+			throws IOException, InvalidSlotNumberException, InvalidTypeException, InvalidTupleSizeException {
+		_check(nid);
+		return new Node(data, _offset(nid.slotNo), Convert.getShortValue(USED_PTR, data));
+	}
+
+	/**
+	 * returns the amount of available space on the page: the bytes of its
+	 * free slots.
+	 *
+	 * @return the amount of available space on the page
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public int available_space() throws IOException {
+		return Convert.getShortValue(FREE_SPACE, data) * Convert.getShortValue(USED_PTR, data);
+	}
+
+	/**
+	 * Determining if the page is empty
+	 *
+	 * @return true if the page has no nodes in it, false otherwise
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public boolean empty() throws IOException {
+		return Convert.getShortValue(FREE_SPACE, data) == Convert.getShortValue(SLOT_CNT, data);
+	}
+
+	/**
+	 * Dump contents of a page
+	 *
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public void dumpPage() throws IOException {
+		int slots = Convert.getShortValue(SLOT_CNT, data);
+		System.out.println("dumpPage");
+		System.out.println("curPage= " + Convert.getIntValue(CUR_PAGE, data));
+		System.out.println("nextPage= " + Convert.getIntValue(NEXT_PAGE, data));
+		System.out.println("slots= " + slots + ", width= " + Convert.getShortValue(USED_PTR, data)
+				+ ", free= " + Convert.getShortValue(FREE_SPACE, data));
+		for (int i = 0; i < slots; i++)
+			if (_inUse(i))
+				System.out.println("slotNo " + i + " offset= " + _offset(i));
+	}
+}
@@ -52,6 +52,18 @@ public class NScan implements GlobalConst {
 	/** Status of next user status */
 	private boolean nextUserStatus;
 
+	/**
+	 * The last DataPageInfo record of the directory page whose data page was
+	 * asked for with readAhead.
+	 */
+	private NID aheadNid;
+
+	/** Number of data pages asked for ahead of the current one. */
+	private int ahead;
+
+	/** The pages of a scan are read once, so they go through the scan ring. */
+	private static final AccessHint SEQUENTIAL = new AccessHint(AccessHint.Sequential);
+
 	/**
 	 * The constructor pins the first directory page in the file and initializes
 	 * its private data members from the private data member from nhf
@@ -96,7 +108,7 @@ public class NScan implements GlobalConst {
 		nid.slotNo = usernid.slotNo;
 
 		try {
-			recptrtuple = datapage.getNode(nid);
+			recptrtuple = _hf._decode(datapage.returnNode(nid));
 		}
 
 		catch (Exception e) {
@@ -419,9 +431,13 @@ public class NScan implements GlobalConst {
 
 			} else {
 
+				aheadNid = datapageNid;
+				ahead = 0;
+				readAhead();
+
 				// pin first data page
 				try {
-					datapage = new NHFPage();
+					datapage = _hf._datapage();
 					pinPage(datapageId, (Page) datapage, false);
 				} catch (Exception e) {
 					e.printStackTrace();
@@ -499,6 +515,7 @@ public class NScan implements GlobalConst {
 
 				try {
 					datapageNid = dirpage.firstNode();
+					ahead = 0;
 					nextDataPageStatus = true;
 				} catch (Exception e) {
 					nextDataPageStatus = false;
@@ -529,8 +546,15 @@ public class NScan implements GlobalConst {
 		dpinfo = new DataPageInfo(rectuple);
 		datapageId.pid = dpinfo.pageId.pid;
 
+		if (ahead > 0) {
+			ahead--;
+		} else {
+			aheadNid = datapageNid;
+		}
+		readAhead();
+
 		try {
-			datapage = new NHFPage();
+			datapage = _hf._datapage();
 			pinPage(dpinfo.pageId, (Page) datapage, false);
 		}
 
@@ -591,6 +615,30 @@ public class NScan implements GlobalConst {
 		return true;
 	}
 
+	/**
+	 * Ask the buffer manager to read the data pages listed after aheadNid on
+	 * the directory page in the background, until the window of the buffer
+	 * manager is full. Read-ahead is only a hint, so errors are ignored.
+	 */
+	private void readAhead() {
+		int window = SystemDefs.JavabaseBM.getReadAheadWindow();
+
+		try {
+			while (ahead < window) {
+				NID nid = dirpage.nextNode(aheadNid);
+				if (nid == null)
+					break;
+
+				DataPageInfo dpinfo = new DataPageInfo(dirpage.getNode(nid));
+				SystemDefs.JavabaseBM.readAhead(dpinfo.pageId);
+				aheadNid = nid;
+				ahead++;
+			}
+		} catch (Exception e) {
+			// The scan reads the pages itself.
+		}
+	}
+
 	/**
 	 * short cut to access the pinPage function in bufmgr package.
 	 * 
@@ -599,7 +647,7 @@ public class NScan implements GlobalConst {
 	private void pinPage(PageId pageno, Page page, boolean emptyPage) throws HFBufMgrException {
 
 		try {
-			SystemDefs.JavabaseBM.pinPage(pageno, page, emptyPage);
+			SystemDefs.JavabaseBM.pinPage(pageno, page, emptyPage, SEQUENTIAL);
 		} catch (Exception e) {
 			throw new HFBufMgrException(e, "Scan.java: pinPage() failed");
 		}
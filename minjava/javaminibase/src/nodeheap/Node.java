@@ -4,6 +4,7 @@ package nodeheap;
 
 import heap.InvalidTupleSizeException;
 import heap.InvalidTypeException;
+import heap.LabelDictionary;
 import heap.Tuple;
 
 import java.io.*;
@@ -17,6 +18,23 @@ public class Node extends Tuple {
      */
     public static final int max_size = 74;
 
+    /**
+     * Size of a node as a node heap file stores it, with the id of its label
+     * in the label dictionary in place of the label
+     */
+    public static final int record_size = max_size - LabelDictionary.LABEL_SIZE + LabelDictionary.ID_SIZE;
+
+    /**
+     * Size of the tuple header of a node
+     */
+    public static final int header_size = 8;
+
+    /**
+     * Size of a node as a heap file with fixed-width pages stores it, as its
+     * record without the tuple header
+     */
+    public static final int fixed_size = record_size - header_size;
+
     /**
      * length of this node
      */
@@ -228,6 +246,36 @@ public class Node extends Tuple {
             return getStrFld(1);
     }
 
+    /**
+     * To view the label of the node where it is, without decoding it
+     * @return StringView of the label
+     * @throws heap.FieldNumberOutOfBoundException
+     */
+    public StringView getLabelView() throws heap.FieldNumberOutOfBoundException {
+        return getStrView(1);
+    }
+
+    /**
+     * To check the label of the node against a label, on the bytes
+     * @param label the label, from StringView.valueOf
+     * @return true if the node has the label
+     * @throws heap.FieldNumberOutOfBoundException
+     */
+    public boolean labelEquals(StringView label) throws heap.FieldNumberOutOfBoundException {
+        return equalsStrFld(1, label);
+    }
+
+    /**
+     * To compare the label of the node with the label of another, on the bytes
+     * @param other the other node
+     * @return negative, 0 or positive, as String.compareTo
+     * @throws IOException
+     * @throws heap.FieldNumberOutOfBoundException
+     */
+    public int compareLabel(Node other) throws IOException, heap.FieldNumberOutOfBoundException {
+        return compareStrFld(1, other, 1);
+    }
+
     public Descriptor getDesc() throws IOException, heap.FieldNumberOutOfBoundException {
         return getDescFld(2);
     }
@@ -1,7 +1,8 @@
 package nodeheap;
 
 import java.io.IOException;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.List;
 
 import diskmgr.PCounter;
 import diskmgr.Page;
@@ -11,6 +12,8 @@ import global.PageId;
 import global.RID;
 import global.SystemDefs;
 import heap.FieldNumberOutOfBoundException;
+import heap.FreeSpaceMap;
+import heap.HeapStats;
 import heap.InvalidTypeException;
 import heap.Tuple;
 
@@ -56,6 +59,25 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 	private String _fileName;
 	private static int tempfilecount = 0;
 
+	/** Where the data pages with room are, built on the first insertion. */
+	private FreeSpaceMap _freeSpace = new FreeSpaceMap(SystemDefs.JavabasePageSize);
+
+	/** The number of nodes and distinct labels, read or counted on first use. */
+	private HeapStats _stats;
+
+	/** Type of the first directory page of a file with fixed-width pages. */
+	private static final short FIXED_PAGES = 0x4658;
+
+	/** Whether the data pages are NFixedPages, as set when the file is created. */
+	private boolean _fixed;
+
+	/*
+	 * A data page object for the format of the file's data pages.
+	 */
+	NHFPage _datapage() {
+		return _fixed ? new NFixedPage(Node.fixed_size) : new NHFPage();
+	}
+
 	/*
 	 * get a new datapage from the buffer manager and initialize dpinfo
 	 * 
@@ -72,7 +94,7 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 
 		// initialize internal values of the new page:
 
-		NHFPage hfpage = new NHFPage();
+		NHFPage hfpage = _datapage();
 		hfpage.init(pageId, apage);
 
 		dpinfop.pageId.pid = pageId.pid;
@@ -83,6 +105,150 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 
 	} // end of _newDatapage
 
+	/*
+	 * The counts of the file: read from its stats chain if that is up to
+	 * date, else counted with a scan of the file.
+	 */
+	private HeapStats _stats() throws HFBufMgrException, HFDiskMgrException, InvalidTupleSizeException, IOException {
+		if (_stats != null)
+			return _stats;
+
+		HeapStats stats = null;
+		try {
+			if (_ftype == ORDINARY)
+				stats = HeapStats.load(_fileName + ".stats");
+		} catch (heap.HFBufMgrException e) {
+			throw new HFBufMgrException(e, "Heapfile.java: HeapStats.load() failed");
+		} catch (heap.HFDiskMgrException e) {
+			throw new HFDiskMgrException(e, "Heapfile.java: HeapStats.load() failed");
+		}
+
+		if (stats == null) {
+			_stats = new HeapStats();
+			NScan scan = openScan();
+			NID nid = new NID();
+			for (Node node = scan.getNext(nid); node != null; node = scan.getNext(nid))
+				_count(node, true);
+			scan.closescan();
+		} else
+			_stats = stats;
+		return _stats;
+	}
+
+	/*
+	 * Add a node to the counts of the file, or take it out of them. A record
+	 * without the fields of a node has no label.
+	 */
+	private void _count(Node node, boolean add) throws IOException {
+		String label;
+		try {
+			label = node.getLabel();
+		} catch (FieldNumberOutOfBoundException e) {
+			label = null;
+		}
+
+		if (add)
+			_stats.add(label, null, null);
+		else
+			_stats.remove(label, null, null);
+	}
+
+	/*
+	 * The record that stands for a node on a data page, with the id of its
+	 * label in the label dictionary of the DB in place of the label.
+	 */
+	private byte[] _encode(byte[] node) throws InvalidTupleSizeException, HFBufMgrException, HFDiskMgrException,
+			IOException {
+		if (node.length != Node.max_size)
+			throw new InvalidTupleSizeException(null, "not a node");
+		try {
+			if (_fixed)
+				return SystemDefs.JavabaseDB.labelDictionary.encodeFields(node, 0, node.length);
+			return SystemDefs.JavabaseDB.labelDictionary.encode(node, 0, node.length);
+		} catch (heap.HFBufMgrException e) {
+			throw new HFBufMgrException(e, "NodeHeapfile.java: label dictionary failed");
+		} catch (heap.HFDiskMgrException e) {
+			throw new HFDiskMgrException(e, "NodeHeapfile.java: label dictionary failed");
+		}
+	}
+
+	/*
+	 * The node a record on a data page stands for, in a byte array of its
+	 * own; the page need only stay pinned for the call. The Node constructor
+	 * sets the header a record of a fixed-width page is kept without.
+	 */
+	Node _decode(Tuple record) throws IOException {
+		if (_fixed)
+			return new Node(SystemDefs.JavabaseDB.labelDictionary.decodeFields(record.returnTupleByteArray(),
+					record.getOffset(), record.getLength(), Node.header_size), 0);
+		return new Node(SystemDefs.JavabaseDB.labelDictionary.decode(record.returnTupleByteArray(),
+				record.getOffset(), record.getLength()), 0);
+	}
+
+	/*
+	 * Pin the data page named in the nid, if the free space map knows it as
+	 * a data page of this file and the directory entry the map gives still
+	 * names it; another instance open on the file may have freed the page
+	 * since this map was built. Returns false, with nothing pinned, if the
+	 * page is not known.
+	 */
+	private boolean _pinDataPage(NID nid, NHFPage datapage) throws HFBufMgrException, IOException,
+			InvalidSlotNumberException, InvalidTupleSizeException, InvalidTypeException, heap.InvalidTupleSizeException {
+		if (!_freeSpace.isLoaded())
+			_loadFreeSpaceMap();
+
+		PageId dirPageId = new PageId();
+		if (!_findDataPageDirect(nid, dirPageId, new NHFPage(), new PageId(), datapage, new RID()))
+			return false;
+
+		unpinPage(dirPageId, false /* undirty */);
+		return true;
+	}
+
+	/*
+	 * _findDataPage through the free space map: pin the directory page and
+	 * slot the map gives for the data page named in the nid, and the data
+	 * page. Returns false, with nothing pinned, if the map does not know the
+	 * page or is out of date.
+	 */
+	private boolean _findDataPageDirect(NID nid, PageId dirPageId, NHFPage dirpage, PageId dataPageId,
+			NHFPage datapage, RID rpDataPageRid) throws InvalidSlotNumberException, HFBufMgrException,
+			IOException, InvalidTupleSizeException, InvalidTypeException, heap.InvalidTupleSizeException {
+		int pid = nid.pageNo.pid;
+		if (!_freeSpace.isLoaded() || !_freeSpace.contains(pid))
+			return false;
+
+		PageId currentDirPageId = new PageId(_freeSpace.dirPageOf(pid));
+		NID dpinfoNid = new NID(new PageId(currentDirPageId.pid), _freeSpace.slotOf(pid));
+		pinPage(currentDirPageId, dirpage, false/* Rdisk */);
+
+		DataPageInfo dpinfo;
+		try {
+			dpinfo = new DataPageInfo(dirpage.returnNode(dpinfoNid));
+		} catch (InvalidSlotNumberException e) {
+			dpinfo = null;
+		}
+		if (dpinfo == null || dpinfo.pageId.pid != pid) {
+			unpinPage(currentDirPageId, false /* undirty */);
+			return false;
+		}
+
+		pinPage(dpinfo.pageId, datapage, false/* Rdisk */);
+		try {
+			datapage.returnNode(nid); // check the slot
+		} catch (InvalidSlotNumberException e) {
+			unpinPage(dpinfo.pageId, false /* undirty */);
+			unpinPage(currentDirPageId, false /* undirty */);
+			throw e;
+		}
+
+		dirPageId.pid = currentDirPageId.pid;
+		dataPageId.pid = pid;
+		rpDataPageRid.pageNo.pid = dpinfoNid.pageNo.pid;
+		rpDataPageRid.slotNo = dpinfoNid.slotNo;
+		return true;
+	}
+
 	/*
 	 * Internal HeapFile function (used in getNode and updateNode): returns
 	 * pinned directory page and pinned data page of the specified user
@@ -92,10 +258,13 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 	private boolean _findDataPage(NID nid, PageId dirPageId, NHFPage dirpage, PageId dataPageId, NHFPage datapage,
 			RID rpDataPageRid) throws InvalidSlotNumberException, InvalidTupleSizeException, HFException,
 			HFBufMgrException, HFDiskMgrException, Exception {
+		if (_findDataPageDirect(nid, dirPageId, dirpage, dataPageId, datapage, rpDataPageRid))
+			return true;
+
 		PageId currentDirPageId = new PageId(_firstDirPageId.pid);
 
 		NHFPage currentDirPage = new NHFPage();
-		NHFPage currentDataPage = new NHFPage();
+		NHFPage currentDataPage = _datapage();
 		NID currentDataPageNid = new NID();
 		PageId nextDirPageId = new PageId();
 		// datapageId is stored in dpinfo.pageId
@@ -206,6 +375,31 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 	public NodeHeapfile(String name) throws HFException, HFBufMgrException, HFDiskMgrException, IOException
 
 	{
+		this(name, false);
+	}
+
+	/**
+	 * Initialize, as NodeHeapfile(name), with the format of the data pages
+	 * of a new file. A file with fixed-width pages keeps its nodes on
+	 * NFixedPages, which hold more nodes than slotted pages and find them by
+	 * arithmetic, but never take records of another length. An existing file
+	 * keeps the format it was created with.
+	 *
+	 * @param name
+	 *            the name of the file, or null for a temporary file
+	 * @param fixed
+	 *            whether a new file has fixed-width data pages
+	 * @exception HFException
+	 *                heapfile exception
+	 * @exception HFBufMgrException
+	 *                exception thrown from bufmgr layer
+	 * @exception HFDiskMgrException
+	 *                exception thrown from diskmgr layer
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public NodeHeapfile(String name, boolean fixed)
+			throws HFException, HFBufMgrException, HFDiskMgrException, IOException {
 		// Give us a prayer of destructing cleanly if construction fails.
 		_file_deleted = true;
 		_fileName = null;
@@ -259,8 +453,16 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 
 			firstDirPage.setNextPage(pageId);
 			firstDirPage.setPrevPage(pageId);
+			firstDirPage.setType(fixed ? FIXED_PAGES : 0);
 			unpinPage(_firstDirPageId, true /* dirty */ );
+			_fixed = fixed;
 
+		} else {
+			// the type of the first directory page tells the format
+			NHFPage firstDirPage = new NHFPage();
+			pinPage(_firstDirPageId, firstDirPage, false /* Rdisk */);
+			_fixed = firstDirPage.getType() == FIXED_PAGES;
+			unpinPage(_firstDirPageId, false /* undirty */);
 		}
 		_file_deleted = false;
 		// ASSERTIONS:
@@ -292,45 +494,7 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 			HFBufMgrException, IOException, InvalidTypeException, heap.InvalidTupleSizeException
 
 	{
-		int answer = 0;
-		PageId currentDirPageId = new PageId(_firstDirPageId.pid);
-
-		PageId nextDirPageId = new PageId(0);
-
-		NHFPage currentDirPage = new NHFPage();
-		Page pageinbuffer = new Page();
-
-		while (currentDirPageId.pid != INVALID_PAGE) {
-			pinPage(currentDirPageId, currentDirPage, false);
-			PCounter.readIncrement();
-			NID nid = new NID();
-			Node atuple;
-			for (nid = currentDirPage.firstNode(); nid != null; // nid==NULL
-																	// means no
-																	// more
-																	// nodes
-					nid = currentDirPage.nextNode(nid)) {
-				atuple = currentDirPage.getNode(nid);
-				DataPageInfo dpinfo = new DataPageInfo(atuple);
-
-				answer += dpinfo.nodect;
-			}
-			
-			// ASSERTIONS: no more node
-			// - we have read all datapage nodes on
-			// the current directory page.
-
-			nextDirPageId = currentDirPage.getNextPage();
-			unpinPage(currentDirPageId, false /* undirty */);
-			currentDirPageId.pid = nextDirPageId.pid;
-		}
-
-		// ASSERTIONS:
-		// - if error, exceptions
-		// - if end of heapfile reached: currentDirPageId == INVALID_PAGE
-		// - if not yet end of heapfile: currentDirPageId valid
-
-		return answer;
+		return _stats().getRecCnt();
 	} // end of getNodeCnt
 
 	/**
@@ -362,223 +526,297 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 	 */
 	public NID insertNode(byte[] recPtr) throws InvalidSlotNumberException, InvalidTupleSizeException,
 			SpaceNotAvailableException, HFException, HFBufMgrException, HFDiskMgrException, IOException, InvalidTypeException, heap.InvalidTupleSizeException {
-		int dpinfoLen = 0;
+		recPtr = _encode(recPtr);
 		int recLen = recPtr.length;
-		boolean found;
-		NID currentDataPageNid = new NID();
-		Page pageinbuffer = new Page();
-		NHFPage currentDirPage = new NHFPage();
-		NHFPage currentDataPage = new NHFPage();
+		PageId dirPageId = new PageId();
+		NHFPage dirPage = new NHFPage();
+		NHFPage dataPage = _datapage();
+		NID dpinfoNid;
+		DataPageInfo dpinfo;
+
+		_stats();
+		if (!_freeSpace.isLoaded())
+			_loadFreeSpaceMap();
+
+		while (true) {
+			int pid = _freeSpace.find(recLen);
+			if (pid == INVALID_PAGE)
+				break;
+
+			// Pin the directory page with the DataPageInfo of the data page
+			// and check that the map is up to date.
+			dirPageId.pid = _freeSpace.dirPageOf(pid);
+			dpinfoNid = new NID(new PageId(dirPageId.pid), _freeSpace.slotOf(pid));
+			pinPage(dirPageId, dirPage, false/* Rdisk */);
+			try {
+				dpinfo = new DataPageInfo(dirPage.returnNode(dpinfoNid));
+			} catch (InvalidSlotNumberException e) {
+				dpinfo = null;
+			}
 
-		NHFPage nextDirPage = new NHFPage();
-		PageId currentDirPageId = new PageId(_firstDirPageId.pid);
-		PageId nextDirPageId = new PageId(); // OK
-		pinPage(currentDirPageId, currentDirPage, false/* Rdisk */);
+			if (dpinfo != null && dpinfo.pageId.pid == pid && dpinfo.availspace >= recLen) {
+				pinPage(dpinfo.pageId, dataPage, false/* Rdisk */);
+				return _insertNode(recPtr, dirPageId, dirPage, dpinfoNid, dpinfo, dataPage);
+			}
+
+			unpinPage(dirPageId, false /* undirty */);
+			_loadFreeSpaceMap();
+		}
+
+		// No data page has room: add one, with its DataPageInfo on a
+		// directory page with room.
+		_pinDirPageWithRoom(dirPageId, dirPage);
+
+		dpinfo = new DataPageInfo();
+		dataPage = _newDatapage(dpinfo);
+		PCounter.writeIncrement();
 
-		found = false;
-		Node node;
+		dpinfoNid = dirPage.insertNode(dpinfo.convertToNode().getNodeByteArray());
+		if (dpinfoNid == null)
+			throw new HFException(null, "no space to insert rec.");
+		if (dirPage.available_space() < DataPageInfo.size)
+			_freeSpace.setDirRoom(dirPageId.pid, false);
 
-		DataPageInfo dpinfo = new DataPageInfo();
-		while (found == false) { // Start While01
-									// look for suitable dpinfo-struct
-		for (currentDataPageNid = currentDirPage.firstNode(); currentDataPageNid != null; currentDataPageNid = currentDirPage.nextNode(currentDataPageNid)) {
-				node = currentDirPage.getNode(currentDataPageNid);
+		dpinfo = new DataPageInfo(dirPage.returnNode(dpinfoNid));
+		return _insertNode(recPtr, dirPageId, dirPage, dpinfoNid, dpinfo, dataPage);
+	}
+
+	/*
+	 * Insert the node into a pinned data page with room for it, update its
+	 * DataPageInfo on the pinned directory page and the free space map, and
+	 * unpin both pages.
+	 */
+	private NID _insertNode(byte[] recPtr, PageId dirPageId, NHFPage dirPage, NID dpinfoNid, DataPageInfo dpinfo,
+			NHFPage dataPage) throws SpaceNotAvailableException, HFBufMgrException, IOException,
+			InvalidSlotNumberException, InvalidTypeException, heap.InvalidTupleSizeException {
 
-				dpinfo = new DataPageInfo(node);
+		if (!(dataPage.available_space() >= recPtr.length)) {
+			unpinPage(dpinfo.pageId, false /* undirty */);
+			unpinPage(dirPageId, false /* undirty */);
+			throw new SpaceNotAvailableException(null, "no available space");
+		}
+
+		NID nid;
+		nid = dataPage.insertNode(recPtr);
+		_count(_decode(dataPage.returnNode(nid)), true);
 
-				// need check the node length == DataPageInfo'slength
+		dpinfo.nodect++;
+		dpinfo.availspace = dataPage.available_space();
+		dpinfo.flushToTuple(); // dpinfo is on the directory page
+
+		unpinPage(dpinfo.pageId, true /* = DIRTY */);
+		unpinPage(dirPageId, true /* = DIRTY */);
+
+		_freeSpace.setPage(dpinfo.pageId.pid, dirPageId.pid, dpinfoNid.slotNo, dpinfo.availspace);
+
+		return nid;
+	}
 
-				if (recLen <= dpinfo.availspace) {
-					found = true;
+	/**
+	 * Bulk load nodes into file, return their nids in the same order. The
+	 * nodes go onto new data pages, filled one after the other up to the fill
+	 * factor, and the DataPageInfo records of the pages are written a
+	 * directory page at a time, so no existing page is searched or updated
+	 * per node. The space a fill factor below 1 leaves on each page is taken
+	 * by later insertions.
+	 *
+	 * @param recPtrs
+	 *            the nodes
+	 * @param fillFactor
+	 *            the part of a data page to fill, more than 0 and at most 1;
+	 *            a page gets at least one node
+	 *
+	 * @exception InvalidSlotNumberException
+	 *                invalid slot number
+	 * @exception InvalidTupleSizeException
+	 *                invalid tuple size
+	 * @exception SpaceNotAvailableException
+	 *                a node does not fit on an empty page
+	 * @exception HFException
+	 *                heapfile exception
+	 * @exception HFBufMgrException
+	 *                exception thrown from bufmgr layer
+	 * @exception HFDiskMgrException
+	 *                exception thrown from diskmgr layer
+	 * @exception IOException
+	 *                I/O errors
+	 *
+	 * @return the nids of the nodes
+	 * @throws heap.InvalidTupleSizeException 
+	 * @throws InvalidTypeException 
+	 */
+	public NID[] bulkInsertNodes(byte[][] recPtrs, double fillFactor) throws InvalidSlotNumberException,
+			InvalidTupleSizeException, SpaceNotAvailableException, HFException, HFBufMgrException,
+			HFDiskMgrException, IOException, InvalidTypeException, heap.InvalidTupleSizeException {
+		if (!(fillFactor > 0 && fillFactor <= 1))
+			throw new HFException(null, "fill factor out of range");
+
+		_stats();
+		if (!_freeSpace.isLoaded())
+			_loadFreeSpaceMap();
+
+		// DataPageInfo records that fit on an empty directory page
+		int dirBatch = (SystemDefs.JavabasePageSize - NHFPage.DPFIXED) / (DataPageInfo.size + NHFPage.SIZE_OF_SLOT);
+
+		byte[][] records = new byte[recPtrs.length][];
+		for (int k = 0; k < recPtrs.length; k++)
+			records[k] = _encode(recPtrs[k]);
+
+		NID[] nids = new NID[recPtrs.length];
+		List<DataPageInfo> filled = new ArrayList<DataPageInfo>(dirBatch);
+		int i = 0;
+
+		while (i < recPtrs.length) {
+			DataPageInfo dpinfo = new DataPageInfo();
+			NHFPage dataPage = _newDatapage(dpinfo);
+			PCounter.writeIncrement();
+
+			// free bytes the fill factor keeps on the page
+			int reserve = (int) (dpinfo.availspace * (1 - fillFactor));
+
+			while (i < recPtrs.length) {
+				int avail = dataPage.available_space();
+				int recLen = records[i].length;
+				if (avail < recLen || (dpinfo.nodect > 0 && avail - recLen < reserve))
 					break;
-				}
+
+				nids[i] = dataPage.insertNode(records[i]);
+				_count(_decode(dataPage.returnNode(nids[i])), true);
+				dpinfo.nodect++;
+				i++;
 			}
+			dpinfo.availspace = dataPage.available_space();
 
-			// two cases:
-			// (1) found == true:
-			// currentDirPage has a datapagenode which can accomodate
-			// the node which we have to insert
-			// (2) found == false:
-			// there is no datapagenode on the current directory page
-			// whose corresponding datapage has enough space free
-			// several subcases: see below
-			if (found == false) { // Start IF01
-									// case (2)
-
-				// System.out.println("no datapagenode on the current
-				// directory is OK");
-				// System.out.println("dirpage availspace
-				// "+currentDirPage.available_space());
-
-				// on the current directory page is no datapagenode which has
-				// enough free space
-				//
-				// two cases:
-				//
-				// - (2.1) (currentDirPage->available_space() >=
-				// sizeof(DataPageInfo):
-				// if there is enough space on the current directory page
-				// to accomodate a new datapagenode (type DataPageInfo),
-				// then insert a new DataPageInfo on the current directory
-				// page
-				// - (2.2) (currentDirPage->available_space() <=
-				// sizeof(DataPageInfo):
-				// look at the next directory page, if necessary, create it.
-
-				if (currentDirPage.available_space() >= dpinfo.size) {
-					// Start IF02
-					// case (2.1) : add a new data page node into the
-					// current directory page
-					currentDataPage = _newDatapage(dpinfo);
-					PCounter.writeIncrement();
-					// currentDataPage is pinned! and dpinfo->pageId is also
-					// locked
-					// in the exclusive mode
-
-					// didn't check if currentDataPage==NULL, auto exception
-
-					// currentDataPage is pinned: insert its node
-					// calling a HFPage function
-
-					node = dpinfo.convertToNode();
-
-					byte[] tmpData = node.getNodeByteArray();
-					currentDataPageNid = currentDirPage.insertNode(tmpData);
-
-					NID tmpnid = currentDirPage.firstNode();
-
-					// need catch error here!
-					if (currentDataPageNid == null)
-						throw new HFException(null, "no space to insert rec.");
-
-					// end the loop, because a new datapage with its node
-					// in the current directorypage was created and inserted
-					// into
-					// the heapfile; the new datapage has enough space for the
-					// node which the user wants to insert
-
-					found = true;
-
-				} // end of IF02
-				else { // Start else 02
-						// case (2.2)
-					nextDirPageId = currentDirPage.getNextPage();
-					// two sub-cases:
-					//
-					// (2.2.1) nextDirPageId != INVALID_PAGE:
-					// get the next directory page from the buffer manager
-					// and do another look
-					// (2.2.2) nextDirPageId == INVALID_PAGE:
-					// append a new directory page at the end of the current
-					// page and then do another loop
-
-					if (nextDirPageId.pid != INVALID_PAGE) { // Start IF03
-																// case (2.2.1):
-																// there is
-																// another
-																// directory
-																// page:
-						unpinPage(currentDirPageId, false);
-
-						currentDirPageId.pid = nextDirPageId.pid;
-
-						pinPage(currentDirPageId, currentDirPage, false);
-
-						// now go back to the beginning of the outer while-loop
-						// and
-						// search on the current directory page for a suitable
-						// datapage
-					} // End of IF03
-					else { // Start Else03
-							// case (2.2): append a new directory page after
-							// currentDirPage
-							// since it is the last directory page
-						nextDirPageId = newPage(pageinbuffer, 1);
-						// need check error!
-						if (nextDirPageId == null)
-							throw new HFException(null, "can't new pae");
-
-						// initialize new directory page
-						nextDirPage.init(nextDirPageId, pageinbuffer);
-						PageId temppid = new PageId(INVALID_PAGE);
-						nextDirPage.setNextPage(temppid);
-						nextDirPage.setPrevPage(currentDirPageId);
-
-						// update current directory page and unpin it
-						// currentDirPage is already locked in the Exclusive
-						// mode
-						currentDirPage.setNextPage(nextDirPageId);
-						unpinPage(currentDirPageId, true/* dirty */);
-
-						currentDirPageId.pid = nextDirPageId.pid;
-						currentDirPage = new NHFPage(nextDirPage);
-
-						// remark that MINIBASE_BM->newPage already
-						// pinned the new directory page!
-						// Now back to the beginning of the while-loop, using
-						// the
-						// newly created directory page.
-
-					} // End of else03
-				} // End of else02
-					// ASSERTIONS:
-					// - if found == true: search will end and see assertions
-					// below
-					// - if found == false: currentDirPage, currentDirPageId
-					// valid and pinned
-
-			} // end IF01
-			else { // Start else01
-					// found == true:
-					// we have found a datapage with enough space,
-					// but we have not yet pinned the datapage:
+			if (dpinfo.nodect == 0) {
+				// The page is freed as it is not in the directory.
+				unpinPage(dpinfo.pageId, false /* undirty */);
+				freePage(dpinfo.pageId);
+				_addDirEntries(filled);
+				throw new SpaceNotAvailableException(null, "no available space");
+			}
 
-				// ASSERTIONS:
-				// - dpinfo valid
+			unpinPage(dpinfo.pageId, true /* = DIRTY */);
+			filled.add(dpinfo);
+			if (filled.size() == dirBatch)
+				_addDirEntries(filled);
+		}
 
-				// System.out.println("find the dirpagenode on current page");
+		_addDirEntries(filled);
+		return nids;
+	}
 
-				pinPage(dpinfo.pageId, currentDataPage, false);
-				// currentDataPage.openHFpage(pageinbuffer);
+	/*
+	 * Write the DataPageInfo records of new data pages onto directory pages
+	 * with room, pinning each directory page once, and enter the pages in
+	 * the free space map. Empties the list.
+	 */
+	private void _addDirEntries(List<DataPageInfo> filled)
+			throws HFException, HFBufMgrException, HFDiskMgrException, IOException, InvalidSlotNumberException,
+			InvalidTupleSizeException, InvalidTypeException, heap.InvalidTupleSizeException {
+		PageId dirPageId = new PageId();
+		NHFPage dirPage = new NHFPage();
+		int k = 0;
 
-			} // End else01
-		} // end of While01
+		while (k < filled.size()) {
+			_pinDirPageWithRoom(dirPageId, dirPage);
 
-		// ASSERTIONS:
-		// - currentDirPageId, currentDirPage valid and pinned
-		// - dpinfo.pageId, currentDataPageRid valid
-		// - currentDataPage is pinned!
+			while (k < filled.size() && dirPage.available_space() >= DataPageInfo.size) {
+				DataPageInfo dpinfo = filled.get(k++);
+				NID dpinfoNid = dirPage.insertNode(dpinfo.convertToNode().getNodeByteArray());
+				if (dpinfoNid == null) {
+					unpinPage(dirPageId, true /* = DIRTY */);
+					throw new HFException(null, "no space to insert rec.");
+				}
+				_freeSpace.setPage(dpinfo.pageId.pid, dirPageId.pid, dpinfoNid.slotNo, dpinfo.availspace);
+			}
 
-		if ((dpinfo.pageId).pid == INVALID_PAGE) // check error!
-			throw new HFException(null, "invalid PageId");
+			if (dirPage.available_space() < DataPageInfo.size)
+				_freeSpace.setDirRoom(dirPageId.pid, false);
+			unpinPage(dirPageId, true /* = DIRTY */);
+		}
 
-		if (!(currentDataPage.available_space() >= recLen))
-			throw new SpaceNotAvailableException(null, "no available space");
+		filled.clear();
+	}
 
-		if (currentDataPage == null)
-			throw new HFException(null, "can't find Data page");
+	/*
+	 * Pin a directory page with room for another DataPageInfo, appending a
+	 * new one after the last directory page if all are full.
+	 */
+	private void _pinDirPageWithRoom(PageId dirPageId, NHFPage dirPage)
+			throws HFException, HFBufMgrException, HFDiskMgrException, IOException, InvalidSlotNumberException,
+			InvalidTupleSizeException, InvalidTypeException, heap.InvalidTupleSizeException {
+
+		while (true) {
+			int pid = _freeSpace.dirWithRoom();
+			if (pid == INVALID_PAGE)
+				break;
+
+			dirPageId.pid = pid;
+			pinPage(dirPageId, dirPage, false/* Rdisk */);
+			if (dirPage.available_space() >= DataPageInfo.size)
+				return;
+
+			unpinPage(dirPageId, false /* undirty */);
+			_freeSpace.setDirRoom(pid, false);
+		}
 
-		NID nid;
-		nid = currentDataPage.insertNode(recPtr);
+		PageId lastDirPageId = new PageId(_freeSpace.lastDirPage());
+		NHFPage lastDirPage = new NHFPage();
+		pinPage(lastDirPageId, lastDirPage, false/* Rdisk */);
 
-		dpinfo.nodect++;
-		dpinfo.availspace = currentDataPage.available_space();
+		if (lastDirPage.getNextPage().pid != INVALID_PAGE) {
+			// Another NodeHeapfile on the file appended a directory page.
+			unpinPage(lastDirPageId, false /* undirty */);
+			_loadFreeSpaceMap();
+			_pinDirPageWithRoom(dirPageId, dirPage);
+			return;
+		}
 
-		unpinPage(dpinfo.pageId, true /* = DIRTY */);
+		Page pageinbuffer = new Page();
+		PageId nextDirPageId = newPage(pageinbuffer, 1);
+		if (nextDirPageId == null)
+			throw new HFException(null, "can't new pae");
 
-		// DataPage is now released
-		node = currentDirPage.returnNode(currentDataPageNid);
-		DataPageInfo dpinfo_ondirpage = new DataPageInfo(node);
+		// initialize new directory page; newPage already pinned it
+		dirPage.init(nextDirPageId, pageinbuffer);
+		dirPage.setNextPage(new PageId(INVALID_PAGE));
+		dirPage.setPrevPage(lastDirPageId);
 
-		dpinfo_ondirpage.availspace = dpinfo.availspace;
-		dpinfo_ondirpage.nodect = dpinfo.nodect;
-		dpinfo_ondirpage.pageId.pid = dpinfo.pageId.pid;
-		dpinfo_ondirpage.flushToTuple();
+		lastDirPage.setNextPage(nextDirPageId);
+		unpinPage(lastDirPageId, true /* dirty */);
 
-		unpinPage(currentDirPageId, true /* = DIRTY */);
+		dirPageId.pid = nextDirPageId.pid;
+		_freeSpace.setDirRoom(nextDirPageId.pid, true);
+		_freeSpace.setLastDirPage(nextDirPageId.pid);
+	}
 
-		return nid;
+	/*
+	 * Build the free space map from the DataPageInfo records of the
+	 * directory pages.
+	 */
+	private void _loadFreeSpaceMap() throws HFBufMgrException, IOException, InvalidSlotNumberException,
+			InvalidTupleSizeException, InvalidTypeException, heap.InvalidTupleSizeException {
+		PageId currentDirPageId = new PageId(_firstDirPageId.pid);
+		NHFPage currentDirPage = new NHFPage();
+
+		_freeSpace.clear();
+		while (currentDirPageId.pid != INVALID_PAGE) {
+			pinPage(currentDirPageId, currentDirPage, false/* Rdisk */);
 
+			for (NID nid = currentDirPage.firstNode(); nid != null; nid = currentDirPage.nextNode(nid)) {
+				DataPageInfo dpinfo = new DataPageInfo(currentDirPage.getNode(nid));
+				_freeSpace.setPage(dpinfo.pageId.pid, currentDirPageId.pid, nid.slotNo, dpinfo.availspace);
+			}
+
+			if (currentDirPage.available_space() >= DataPageInfo.size)
+				_freeSpace.setDirRoom(currentDirPageId.pid, true);
+			_freeSpace.setLastDirPage(currentDirPageId.pid);
+
+			PageId nextDirPageId = currentDirPage.getNextPage();
+			unpinPage(currentDirPageId, false /* undirty */);
+			currentDirPageId.pid = nextDirPageId.pid;
+		}
+		_freeSpace.markLoaded();
 	}
 
 	/**
@@ -606,10 +844,11 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 		boolean status;
 		NHFPage currentDirPage = new NHFPage();
 		PageId currentDirPageId = new PageId();
-		NHFPage currentDataPage = new NHFPage();
+		NHFPage currentDataPage = _datapage();
 		PageId currentDataPageId = new PageId();
 		NID currentDataPageNid = new NID();
 
+		_stats();
 		status = _findDataPage(nid, currentDirPageId, currentDirPage, currentDataPageId, currentDataPage,
 				currentDataPageNid);
 
@@ -627,6 +866,7 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 		DataPageInfo pdpinfo = new DataPageInfo(atuple);
 
 		// delete the node on the datapage
+		_count(_decode(currentDataPage.returnNode(nid)), false);
 		currentDataPage.deleteNode(nid);
 
 		pdpinfo.nodect--;
@@ -641,6 +881,10 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 
 			unpinPage(currentDirPageId, true /* = DIRTY */);
 
+			if (_freeSpace.isLoaded())
+				_freeSpace.setPage(currentDataPageId.pid, currentDirPageId.pid, currentDataPageNid.slotNo,
+						pdpinfo.availspace);
+
 		} else {
 			// the node is already deleted:
 			// we're removing the last node on datapage so free datapage
@@ -654,6 +898,8 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 			unpinPage(currentDataPageId, false /* undirty */);
 			
 			freePage(currentDataPageId);
+			if (_freeSpace.isLoaded())
+				_freeSpace.removePage(currentDataPageId.pid);
 
 			// delete corresponding DataPageInfo-entry on the directory page:
 			// currentDataPageRid points to datapage (from for loop above)
@@ -704,8 +950,11 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 				}
 
 				// delete empty directory page: (automatically unpinned?)
+				pageId = currentDirPage.getPrevPage();
 				unpinPage(currentDirPageId, false/* undirty */);
 				freePage(currentDirPageId);
+				if (_freeSpace.isLoaded())
+					_freeSpace.removeDir(currentDirPageId.pid, pageId.pid);
 
 			} else {
 				// either (the directory page has at least one more
@@ -714,6 +963,8 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 				// in both cases we do not delete it, but we have to unpin it:
 
 				unpinPage(currentDirPageId, true /* == DIRTY */);
+				if (_freeSpace.isLoaded())
+					_freeSpace.setDirRoom(currentDirPageId.pid, true);
 
 			}
 		}
@@ -749,21 +1000,21 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 		boolean status;
 		NHFPage dirPage = new NHFPage();
 		PageId currentDirPageId = new PageId();
-		NHFPage dataPage = new NHFPage();
+		NHFPage dataPage = _datapage();
 		PageId currentDataPageId = new PageId();
 		NID currentDataPageNid = new NID();
 
+		_stats();
 		status = _findDataPage(nid, currentDirPageId, dirPage, currentDataPageId, dataPage, currentDataPageNid);
 
 		if (status != true)
 			return status; // node not found
-		Node atuple = new Node();
-		atuple = dataPage.returnNode(nid);
+		Node atuple = dataPage.returnNode(nid);
 
 		// Assume update a node with a node whose length is equal to
 		// the original node
 
-		if (newtuple.getLength() != atuple.getLength()) {
+		if (newtuple.getLength() != Node.max_size) {
 			unpinPage(currentDataPageId, false /* undirty */);
 			unpinPage(currentDirPageId, false /* undirty */);
 
@@ -772,7 +1023,10 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 		}
 
 		// new copy of this node fits in old space;
-		atuple.tupleCopy(newtuple);
+		byte[] record = _encode(newtuple.getNodeByteArray());
+		_count(_decode(atuple), false);
+		atuple.tupleCopy(new Tuple(record, 0, record.length));
+		_count(_decode(atuple), true);
 		unpinPage(currentDataPageId, true /* = DIRTY */);
 
 		unpinPage(currentDirPageId, false /* undirty */);
@@ -805,10 +1059,20 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 	 */
 	public Node getNode(NID nid) throws InvalidSlotNumberException, InvalidTupleSizeException, HFException,
 			HFDiskMgrException, HFBufMgrException, Exception {
+		NHFPage page = _datapage();
+		if (_pinDataPage(nid, page)) {
+			// The nid names a data page of this file and a slot in use on it.
+			try {
+				return _decode(page.returnNode(nid));
+			} finally {
+				unpinPage(nid.pageNo, false /* undirty */);
+			}
+		}
+
 		boolean status;
 		NHFPage dirPage = new NHFPage();
 		PageId currentDirPageId = new PageId();
-		NHFPage dataPage = new NHFPage();
+		NHFPage dataPage = _datapage();
 		PageId currentDataPageId = new PageId();
 		NID currentDataPageNid = new NID();
 
@@ -817,13 +1081,12 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 		if (status != true)
 			return null; // node not found
 
-		Node atuple = new Node();
-		atuple = dataPage.getNode(nid);
+		Node atuple = _decode(dataPage.returnNode(nid));
 
 		/*
-		 * getNode has copied the contents of nid into recPtr and fixed up
-		 * recLen also. We simply have to unpin dirpage and datapage which were
-		 * originally pinned by _findDataPage.
+		 * _decode has copied the node out of the page. We simply have to
+		 * unpin dirpage and datapage which were originally pinned by
+		 * _findDataPage.
 		 */
 
 		unpinPage(currentDataPageId, false /* undirty */);
@@ -834,6 +1097,13 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 
 	}
 
+	/**
+	 * Whether the data pages of the file are fixed-width pages.
+	 */
+	public boolean hasFixedPages() {
+		return _fixed;
+	}
+
 	/**
 	 * Initiate a sequential scan.
 	 * 
@@ -873,6 +1143,8 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 
 		// Mark the deleted flag (even if it doesn't get all the way done).
 		_file_deleted = true;
+		_freeSpace.clear();
+		_stats = null;
 
 		// Deallocate all data pages
 		PageId currentDirPageId = new PageId();
@@ -911,6 +1183,40 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 		}
 
 		delete_file_entry(_fileName);
+
+		try {
+			HeapStats.destroy(_fileName + ".stats");
+		} catch (heap.HFBufMgrException e) {
+			throw new HFBufMgrException(e, "Heapfile.java: HeapStats.destroy() failed");
+		} catch (heap.HFDiskMgrException e) {
+			throw new HFDiskMgrException(e, "Heapfile.java: HeapStats.destroy() failed");
+		}
+	}
+
+	/**
+	 * Write the counts of nodes and labels to disk, so that the next time the
+	 * file is opened they are read back rather than counted with a scan.
+	 * They are read again on their next use.
+	 *
+	 * @exception HFBufMgrException
+	 *                exception thrown from bufmgr layer
+	 * @exception HFDiskMgrException
+	 *                exception thrown from diskmgr layer
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public void saveStats() throws HFBufMgrException, HFDiskMgrException, IOException {
+		if (_stats == null || _ftype != ORDINARY)
+			return;
+
+		try {
+			_stats.save(_fileName + ".stats");
+		} catch (heap.HFBufMgrException e) {
+			throw new HFBufMgrException(e, "Heapfile.java: HeapStats.save() failed");
+		} catch (heap.HFDiskMgrException e) {
+			throw new HFDiskMgrException(e, "Heapfile.java: HeapStats.save() failed");
+		}
+		_stats = null;
 	}
 
 	/**
@@ -1022,48 +1328,26 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 			HFBufMgrException, IOException, FieldNumberOutOfBoundException, InvalidTypeException, heap.InvalidTupleSizeException
 
 	{
-		HashSet<String> LabelSet = new HashSet<String>();
-		int answer = 0;
-		PageId currentDirPageId = new PageId(_firstDirPageId.pid);
-
-		PageId nextDirPageId = new PageId(0);
+		return _stats().getLabelCnt();
+	} // end of getLabelCnt
 
-		NHFPage currentDirPage = new NHFPage();
-		Page pageinbuffer = new Page();
-
-		while (currentDirPageId.pid != INVALID_PAGE) {
-			pinPage(currentDirPageId, currentDirPage, false);
-
-			NID nid = new NID();
-			Node atuple;
-			for (nid = currentDirPage.firstNode(); nid != null; // nid==NULL
-																	// means no
-																	// more
-																	// nodes
-					nid = currentDirPage.nextNode(nid)) {
-				atuple = currentDirPage.getNode(nid);
-				LabelSet.add(atuple.getLabel());
-//				DataPageInfo dpinfo = new DataPageInfo(atuple);
-//
-//				answer += dpinfo.nodect;
-			}
-			
-			// ASSERTIONS: no more node
-			// - we have read all datapage nodes on
-			// the current directory page.
-
-			nextDirPageId = currentDirPage.getNextPage();
-			unpinPage(currentDirPageId, false /* undirty */);
-			currentDirPageId.pid = nextDirPageId.pid;
-		}
-
-		// ASSERTIONS:
-		// - if error, exceptions
-		// - if end of heapfile reached: currentDirPageId == INVALID_PAGE
-		// - if not yet end of heapfile: currentDirPageId valid
-		answer = LabelSet.size();
-		return answer;
-	} // end of getNodeCnt
+	/**
+	 * Return an estimate of the number of unique Labels in file, from a sketch
+	 * that is cheaper to keep than the exact count. It may overestimate after
+	 * deletions.
+	 *
+	 * @exception InvalidTupleSizeException
+	 *                invalid tuple size
+	 * @exception HFBufMgrException
+	 *                exception thrown from bufmgr layer
+	 * @exception HFDiskMgrException
+	 *                exception thrown from diskmgr layer
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public long estimateLabelCnt() throws HFBufMgrException, HFDiskMgrException, InvalidTupleSizeException, IOException {
+		return _stats().estimateLabelCnt();
+	}
 
 	
 	
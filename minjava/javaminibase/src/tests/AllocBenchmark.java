@@ -0,0 +1,186 @@
+package tests;
+
+import java.io.*;
+import java.util.*;
+import global.*;
+import diskmgr.*;
+
+/**
+ * This class times page allocation in the disk manager: a batch of
+ * allocate_page calls, random deallocate_page calls that leave holes, and a
+ * second batch that fills the holes again. It reports the time taken and the
+ * pages read and written through the DB, and checks that the space map
+ * survives closing and opening the database.
+ */
+class AllocDriver extends TestDriver implements GlobalConst {
+
+	private static final int NUM_DB_PAGES = 40000;
+	private static final int NUM_RUNS = 6000;
+	private static final int MAX_RUN = 8;
+
+	private boolean OK = true;
+	private boolean FAIL = false;
+
+	public AllocDriver() {
+		super("allocbench");
+	}
+
+	/** Run the allocate/free/allocate workload and print its cost. */
+	private boolean runWorkload(String label, boolean nextFit) {
+
+		new SystemDefs(dbpath, NUM_DB_PAGES, NUMBUF, "Clock");
+		DB db = SystemDefs.JavabaseDB;
+		db.set_next_fit(nextFit);
+
+		Random rnd = new Random(42);
+		List<int[]> runs = new ArrayList<int[]>();
+		int rbefore = PCounter.rcounter, wbefore = PCounter.wcounter;
+		long t0 = System.nanoTime();
+
+		try {
+			for (int i = 0; i < NUM_RUNS; i++) {
+				PageId pid = new PageId();
+				int n = 1 + rnd.nextInt(MAX_RUN);
+				db.allocate_page(pid, n);
+				runs.add(new int[] { pid.pid, n });
+			}
+
+			// Free every other run in random order, leaving holes.
+			Collections.shuffle(runs, rnd);
+			for (int i = runs.size() - 1; i >= 0; i -= 2) {
+				int[] run = runs.remove(i);
+				db.deallocate_page(new PageId(run[0]), run[1]);
+			}
+
+			for (int i = 0; i < NUM_RUNS / 2; i++) {
+				PageId pid = new PageId();
+				int n = 1 + rnd.nextInt(MAX_RUN);
+				db.allocate_page(pid, n);
+				runs.add(new int[] { pid.pid, n });
+			}
+		} catch (Exception e) {
+			System.err.print("*** Allocation workload failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		long ms = (System.nanoTime() - t0) / 1000000;
+		System.out.print("  - " + label + ": " + (NUM_RUNS + NUM_RUNS / 2) + " allocations, " + (NUM_RUNS / 2)
+				+ " deallocations in " + ms + " ms, " + (PCounter.rcounter - rbefore) + " page reads, "
+				+ (PCounter.wcounter - wbefore) + " page writes\n");
+
+		// No two live runs may share a page.
+		BitSet used = new BitSet();
+		for (int[] run : runs) {
+			for (int p = run[0]; p < run[0] + run[1]; p++) {
+				if (used.get(p)) {
+					System.err.print("*** Page " + p + " was allocated twice\n");
+					return FAIL;
+				}
+				used.set(p);
+			}
+		}
+
+		return OK;
+	}
+
+	protected boolean test1() {
+		System.out.print("\n  Test 1 times allocation with first fit\n");
+		return runWorkload("first fit", false);
+	}
+
+	protected boolean test2() {
+		System.out.print("\n  Test 2 times allocation with next fit\n");
+		return runWorkload("next fit", true);
+	}
+
+	protected boolean test3() {
+		System.out.print("\n  Test 3 checks that the space map is kept across a close\n");
+
+		new SystemDefs(dbpath, 2000, NUMBUF, "Clock");
+		DB db = SystemDefs.JavabaseDB;
+		PageId first = new PageId();
+		try {
+			db.allocate_page(first, 50);
+			db.deallocate_page(new PageId(first.pid + 10), 5);
+			int pageSize = db.db_page_size();
+			db.closeDB();
+
+			// The space map must be in the file itself, not only in a pool.
+			RandomAccessFile file = new RandomAccessFile(dbpath, "r");
+			try {
+				for (int p = first.pid; p < first.pid + 50; p++) {
+					file.seek(pageSize + p / 8);
+					boolean set = (file.read() & (1 << (p % 8))) != 0;
+					if (set != (p < first.pid + 10 || p >= first.pid + 15)) {
+						System.err.print("*** The space map on disk has the wrong bit for page " + p + "\n");
+						return FAIL;
+					}
+				}
+			} finally {
+				file.close();
+			}
+
+			// Open it again with a new buffer manager bound to the reopened
+			// DB; the pool of the first one read through the closed file.
+			SystemDefs.MINIBASE_RESTART_FLAG = true;
+			new SystemDefs(dbpath, 0, NUMBUF, "Clock");
+			SystemDefs.MINIBASE_RESTART_FLAG = false;
+			db = SystemDefs.JavabaseDB;
+
+			PageId again = new PageId();
+			db.allocate_page(again, 5);
+			if (again.pid != first.pid + 10) {
+				System.err.print("*** Expected the freed run at " + (first.pid + 10) + ", got " + again.pid + "\n");
+				return FAIL;
+			}
+			db.allocate_page(again, 1);
+			if (again.pid != first.pid + 50) {
+				System.err.print("*** Expected page " + (first.pid + 50) + ", got " + again.pid + "\n");
+				return FAIL;
+			}
+			db.closeDB();
+		} catch (Exception e) {
+			System.err.print("*** Could not reopen the database\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		System.out.print("  - The space map was written to disk and read back\n");
+		return OK;
+	}
+
+	protected boolean test4() {
+		return true;
+	}
+
+	protected boolean test5() {
+		return true;
+	}
+
+	protected boolean test6() {
+		return true;
+	}
+
+	protected String testName() {
+		return "Page allocation";
+	}
+}
+
+public class AllocBenchmark {
+
+	public static void main(String argv[]) {
+
+		AllocDriver ab = new AllocDriver();
+		boolean dbstatus;
+
+		dbstatus = ab.runTests();
+
+		if (dbstatus != true) {
+			System.err.println("Error encountered during page allocation tests:\n");
+			Runtime.getRuntime().exit(1);
+		}
+
+		Runtime.getRuntime().exit(0);
+	}
+}
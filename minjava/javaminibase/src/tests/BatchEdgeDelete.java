@@ -5,6 +5,7 @@ import edgeheap.Edge;
 import edgeheap.EdgeHeapfile;
 import global.EID;
 import global.NID;
+import global.StringView;
 import global.SystemDefs;
 import heap.FieldNumberOutOfBoundException;
 import heap.InvalidTupleSizeException;
@@ -28,6 +29,7 @@ public class BatchEdgeDelete {
     public EID getEdge(String edgeLabel) throws edgeheap.InvalidTupleSizeException, IOException, FieldNumberOutOfBoundException {
         EScan escan = new EScan(SystemDefs.JavabaseDB.edgeHeapfile);
         EID eid = new EID();
+        StringView label = StringView.valueOf(edgeLabel);
         boolean done = true;
         while(done){
             Edge e  = escan.getNext(eid);
@@ -36,7 +38,7 @@ public class BatchEdgeDelete {
                 escan.closescan();
                 break;
             }
-            if(e.getLabel().equals(edgeLabel)){
+            if(e.labelEquals(label)){
             	escan.closescan();
                 return eid;
             }
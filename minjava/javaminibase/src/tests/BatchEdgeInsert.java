@@ -5,12 +5,17 @@ import edgeheap.Edge;
 import edgeheap.InvalidTupleSizeException;
 import global.EID;
 import global.NID;
+import global.PageId;
+import global.StringView;
 import global.SystemDefs;
 import heap.FieldNumberOutOfBoundException;
 import nodeheap.NScan;
 import nodeheap.Node;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import btree.IntegerKey;
 import btree.StringKey;
@@ -28,6 +33,7 @@ boolean FAIL = false;
     public NID getNode(String nodeLabel) throws InvalidTupleSizeException, IOException, edgeheap.FieldNumberOutOfBoundException, nodeheap.InvalidTupleSizeException, heap.FieldNumberOutOfBoundException{
         NScan nScan = new NScan(SystemDefs.JavabaseDB.nodeHeapfile);
         NID nid = new NID();
+        StringView label = StringView.valueOf(nodeLabel);
         boolean done = true;
         while(done){
             Node n  = nScan.getNext(nid);
@@ -35,7 +41,7 @@ boolean FAIL = false;
                 done = false;
                 break;
             }
-            if(n.getLabel().equals(nodeLabel)){
+            if(n.labelEquals(label)){
                 nScan.closescan();
                 return nid;
             }
@@ -47,6 +53,7 @@ boolean FAIL = false;
     public EID getEdge(String edgeLabel) throws edgeheap.InvalidTupleSizeException, IOException, FieldNumberOutOfBoundException {
         EScan escan = new EScan(SystemDefs.JavabaseDB.edgeHeapfile);
         EID eid = new EID();
+        StringView label = StringView.valueOf(edgeLabel);
         boolean done = true;
         while(done){
             Edge e  = escan.getNext(eid);
@@ -55,7 +62,7 @@ boolean FAIL = false;
                 escan.closescan();
                 break;
             }
-            if(e.getLabel().equals(edgeLabel)){
+            if(e.labelEquals(label)){
                 escan.closescan();
                 return eid;
             }
@@ -92,4 +99,44 @@ boolean FAIL = false;
 
     }
 
+    /**
+     * Bulk load the edges of an edge file, then index them. The node labels
+     * are resolved with one scan of the node file rather than one per edge.
+     */
+    public void doBatchEdgeInsert(List<String> lines) throws Exception {
+        Map<String, NID> nodes = new HashMap<String, NID>();
+        NScan nScan = new NScan(SystemDefs.JavabaseDB.nodeHeapfile);
+        NID nid = new NID();
+        Node n = nScan.getNext(nid);
+        while (n != null) {
+            // the first node with a label is the one getNode finds
+            if (!nodes.containsKey(n.getLabel()))
+                nodes.put(n.getLabel(), new NID(new PageId(nid.pageNo.pid), nid.slotNo));
+            n = nScan.getNext(nid);
+        }
+        nScan.closescan();
+
+        String[][] vals = new String[lines.size()][];
+        Edge[] edges = new Edge[lines.size()];
+        byte[][] recs = new byte[lines.size()][];
+        for (int i = 0; i < edges.length; i++) {
+            vals[i] = lines.get(i).trim().split(" ");
+            edges[i] = new Edge();
+            edges[i].setLabel(vals[i][2]);
+            edges[i].setSource(nodes.get(vals[i][0]));
+            edges[i].setDestination(nodes.get(vals[i][1]));
+            edges[i].setWeight(Integer.parseInt(vals[i][3]));
+            recs[i] = edges[i].getEdgeByteArray();
+        }
+
+        EID[] eids = SystemDefs.JavabaseDB.edgeHeapfile.bulkInsertEdges(recs, SystemDefs.MINIBASE_BULK_FILL_FACTOR);
+
+        for (int i = 0; i < eids.length; i++) {
+            SystemDefs.JavabaseDB.edgeLabelIndexFile.insert(new StringKey(edges[i].getLabel()), eids[i]);
+            SystemDefs.JavabaseDB.edgeWeightIndexFile.insert(new IntegerKey(edges[i].getWeight()), eids[i]);
+            SystemDefs.JavabaseDB.edgeSourceIndexFile.insert(new StringKey(vals[i][0]), eids[i]);
+            SystemDefs.JavabaseDB.edgeDestinationIndexFile.insert(new StringKey(vals[i][1]), eids[i]);
+        }
+    }
+
 }
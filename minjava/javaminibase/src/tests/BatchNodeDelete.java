@@ -50,6 +50,7 @@ public class BatchNodeDelete implements GlobalConst{
     public NID getNode(String nodeLabel) throws InvalidTupleSizeException, IOException, FieldNumberOutOfBoundException, nodeheap.InvalidTupleSizeException, heap.FieldNumberOutOfBoundException{
     	NScan nScan = new NScan(SystemDefs.JavabaseDB.nodeHeapfile);
     	NID nid = new NID();
+    	StringView label = StringView.valueOf(nodeLabel);
         boolean done = true;
         while(done){
             Node n  = nScan.getNext(nid);
@@ -59,7 +60,7 @@ public class BatchNodeDelete implements GlobalConst{
                 break;
             }
             System.out.println(nodeLabel);
-            if(n.getLabel().equals(nodeLabel)){
+            if(n.labelEquals(label)){
             	nScan.closescan();
                 return nid;
             }
@@ -5,6 +5,8 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 import btree.AddFileEntryException;
 import btree.BT;
@@ -117,6 +119,34 @@ public class BatchNodeInsert {
 		}
 	}
 	
+	/**
+	 * Bulk load the nodes of a node file, then index them.
+	 * 
+	 */
+	
+	public void doBatchNodeInsert(List<String> lines, NodeHeapfile nhf, GraphDB db) throws Exception {
+		List<Node> nodes = new ArrayList<Node>(lines.size());
+		byte[][] recs = new byte[lines.size()][];
+		for (String line : lines) {
+			String[] vals = line.trim().split(" ");
+			Descriptor temp_desc = new Descriptor();
+			temp_desc.set(Integer.parseInt(vals[1]),Integer.parseInt(vals[2]),Integer.parseInt(vals[3]),Integer.parseInt(vals[4]),Integer.parseInt(vals[5]));
+			Node node = new Node();
+			node.setLabel(vals[0]);
+			node.setDesc(temp_desc);
+			recs[nodes.size()] = node.getNodeByteArray();
+			nodes.add(node);
+		}
+		
+		NID[] nids = nhf.bulkInsertNodes(recs, SystemDefs.MINIBASE_BULK_FILL_FACTOR);
+		
+		for (int i = 0; i < nids.length; i++) {
+			Node node = nodes.get(i);
+			db.nodeLabelIndexFile.insert(new StringKey(node.getLabel()), nids[i]);
+			db.nodeDescriptorIndexFile.insert(new DescriptorKey(node.getDesc()), nids[i]);
+		}
+	}
+	
 }
 	
 				
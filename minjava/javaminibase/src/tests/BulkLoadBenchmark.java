@@ -0,0 +1,218 @@
+package tests;
+
+import java.util.*;
+import global.*;
+import diskmgr.*;
+import nodeheap.*;
+import edgeheap.*;
+
+/**
+ * This class times loading nodes and edges into heap files one insertion at
+ * a time and with the bulk loader, counting the pages pinned and the data
+ * pages used, and checks that every record reads back from the id the bulk
+ * loader returned for it. It then bulk loads with a fill factor and checks
+ * that the pages are filled no further and that later insertions use the
+ * space left.
+ */
+class BulkLoadDriver extends TestDriver implements GlobalConst {
+
+	private static final int NUM_DB_PAGES = 60000;
+	private static final int NUM_BUFFERS = 1000;
+	private static final int RECORDS = 100000;
+
+	private boolean OK = true;
+	private boolean FAIL = false;
+
+	public BulkLoadDriver() {
+		super("bulkloadbench");
+	}
+
+	private static Set<Integer> pagesOf(NID[] ids) {
+		Set<Integer> pages = new HashSet<Integer>();
+		for (NID id : ids)
+			pages.add(id.pageNo.pid);
+		return pages;
+	}
+
+	private static Set<Integer> pagesOf(EID[] ids) {
+		Set<Integer> pages = new HashSet<Integer>();
+		for (EID id : ids)
+			pages.add(id.pageNo.pid);
+		return pages;
+	}
+
+	private static int mostPerPage(NID[] ids) {
+		Map<Integer, Integer> counts = new HashMap<Integer, Integer>();
+		int most = 0;
+		for (NID id : ids) {
+			Integer n = counts.get(id.pageNo.pid);
+			int count = n == null ? 1 : n.intValue() + 1;
+			counts.put(id.pageNo.pid, count);
+			most = Math.max(most, count);
+		}
+		return most;
+	}
+
+	private void report(String what, long nanos, int pins, int pages) {
+		System.out.print(String.format("  %-22s %9.2f ms, %.3f pins per record, %5d data pages\n", what,
+				nanos / 1e6, (double) pins / RECORDS, pages));
+	}
+
+	protected boolean test1() {
+		System.out.print("\n  Test 1 loads " + RECORDS + " nodes and edges one by one and in bulk\n");
+
+		SystemDefs.MINIBASE_RESTART_FLAG = false;
+		new SystemDefs(dbpath, NUM_DB_PAGES, NUM_BUFFERS, "Clock");
+
+		try {
+			byte[][] nodes = new byte[RECORDS][];
+			byte[][] edges = new byte[RECORDS][];
+			for (int i = 0; i < RECORDS; i++) {
+				nodes[i] = GraphWorkload.node(i).getNodeByteArray();
+				edges[i] = GraphWorkload.edge(i).getTupleByteArray();
+			}
+
+			NodeHeapfile nhf = new NodeHeapfile("singlenodes");
+			NID[] singleNids = new NID[RECORDS];
+			int pins = PCounter.prcounter;
+			long t0 = System.nanoTime();
+			for (int i = 0; i < RECORDS; i++)
+				singleNids[i] = nhf.insertNode(nodes[i]);
+			report("nodes one by one:", System.nanoTime() - t0, PCounter.prcounter - pins,
+					pagesOf(singleNids).size());
+
+			NodeHeapfile bnhf = new NodeHeapfile("bulknodes");
+			pins = PCounter.prcounter;
+			t0 = System.nanoTime();
+			NID[] nids = bnhf.bulkInsertNodes(nodes, 1.0);
+			report("nodes in bulk:", System.nanoTime() - t0, PCounter.prcounter - pins, pagesOf(nids).size());
+
+			EdgeHeapfile ehf = new EdgeHeapfile("singleedges");
+			EID[] singleEids = new EID[RECORDS];
+			pins = PCounter.prcounter;
+			t0 = System.nanoTime();
+			for (int i = 0; i < RECORDS; i++)
+				singleEids[i] = ehf.insertEdge(edges[i]);
+			report("edges one by one:", System.nanoTime() - t0, PCounter.prcounter - pins,
+					pagesOf(singleEids).size());
+
+			EdgeHeapfile behf = new EdgeHeapfile("bulkedges");
+			pins = PCounter.prcounter;
+			t0 = System.nanoTime();
+			EID[] eids = behf.bulkInsertEdges(edges, 1.0);
+			report("edges in bulk:", System.nanoTime() - t0, PCounter.prcounter - pins, pagesOf(eids).size());
+
+			if (bnhf.getNodeCnt() != RECORDS || behf.getEdgeCnt() != RECORDS) {
+				System.err.print("*** Expected " + RECORDS + " nodes and edges, found " + bnhf.getNodeCnt()
+						+ " and " + behf.getEdgeCnt() + "\n");
+				return FAIL;
+			}
+
+			for (int i = 0; i < RECORDS; i++) {
+				if (!Arrays.equals(bnhf.getNode(nids[i]).getNodeByteArray(), nodes[i])) {
+					System.err.print("*** Node " + i + " does not read back from " + nids[i] + "\n");
+					return FAIL;
+				}
+				if (!Arrays.equals(behf.getEdge(eids[i]).getTupleByteArray(), edges[i])) {
+					System.err.print("*** Edge " + i + " does not read back from " + eids[i] + "\n");
+					return FAIL;
+				}
+			}
+
+			if (pagesOf(nids).size() > pagesOf(singleNids).size()
+					|| pagesOf(eids).size() > pagesOf(singleEids).size()) {
+				System.err.print("*** The bulk loader used more data pages\n");
+				return FAIL;
+			}
+		} catch (Exception e) {
+			System.err.print("*** Loading failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		return OK;
+	}
+
+	protected boolean test2() {
+		System.out.print("\n  Test 2 bulk loads nodes with a fill factor of 0.5 and inserts into the space left\n");
+
+		try {
+			int half = RECORDS / 10;
+			byte[][] nodes = new byte[half][];
+			for (int i = 0; i < half; i++)
+				nodes[i] = GraphWorkload.node(i).getNodeByteArray();
+
+			NodeHeapfile full = new NodeHeapfile("fillnodes1");
+			NID[] fullNids = full.bulkInsertNodes(nodes, 1.0);
+			int fullPages = pagesOf(fullNids).size();
+
+			NodeHeapfile nhf = new NodeHeapfile("fillnodes2");
+			NID[] nids = nhf.bulkInsertNodes(nodes, 0.5);
+			Set<Integer> pages = pagesOf(nids);
+			System.out.print("  " + half + " nodes took " + fullPages + " data pages filled up and "
+					+ pages.size() + " half filled\n");
+
+			// A page holds half the nodes of a full page, rounded up.
+			if (2 * mostPerPage(nids) > mostPerPage(fullNids) + 1) {
+				System.err.print("*** The pages were filled past the fill factor\n");
+				return FAIL;
+			}
+
+			int reused = 0;
+			for (int i = 0; i < half; i++)
+				if (pages.contains(nhf.insertNode(GraphWorkload.node(half + i).getNodeByteArray()).pageNo.pid))
+					reused++;
+			System.out.print("  " + reused + " of " + half + " later nodes went to the bulk loaded pages\n");
+
+			// A page takes whole nodes, so it may have room for one fewer.
+			if (reused < half - pages.size() || nhf.getNodeCnt() != 2 * half) {
+				System.err.print("*** The later nodes did not fill the space left\n");
+				return FAIL;
+			}
+		} catch (Exception e) {
+			System.err.print("*** Loading failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		return OK;
+	}
+
+	protected boolean test3() {
+		return true;
+	}
+
+	protected boolean test4() {
+		return true;
+	}
+
+	protected boolean test5() {
+		return true;
+	}
+
+	protected boolean test6() {
+		return true;
+	}
+
+	protected String testName() {
+		return "Bulk load";
+	}
+}
+
+public class BulkLoadBenchmark {
+
+	public static void main(String argv[]) {
+
+		BulkLoadDriver bb = new BulkLoadDriver();
+		boolean dbstatus;
+
+		dbstatus = bb.runTests();
+
+		if (dbstatus != true) {
+			System.err.println("Error encountered during bulk load tests:\n");
+			Runtime.getRuntime().exit(1);
+		}
+
+		Runtime.getRuntime().exit(0);
+	}
+}
@@ -0,0 +1,300 @@
+package tests;
+
+import java.io.*;
+import java.util.*;
+import global.*;
+import heap.*;
+import edgeheap.Edge;
+
+/**
+ * The field codec as it was, on DataInputStream and DataOutputStream, kept
+ * to check that global.Convert writes the same bytes and to time it against.
+ */
+class StreamConvert {
+
+	static int getIntValue(int position, byte[] data) throws IOException {
+		byte tmp[] = new byte[4];
+		System.arraycopy(data, position, tmp, 0, 4);
+		return new DataInputStream(new ByteArrayInputStream(tmp)).readInt();
+	}
+
+	static String getStrValue(int position, byte[] data, int length) throws IOException {
+		byte tmp[] = new byte[length];
+		System.arraycopy(data, position, tmp, 0, length);
+		return new DataInputStream(new ByteArrayInputStream(tmp)).readUTF();
+	}
+
+	static void setIntValue(int value, int position, byte[] data) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new DataOutputStream(out).writeInt(value);
+		System.arraycopy(out.toByteArray(), 0, data, position, 4);
+	}
+
+	static void setStrValue(String value, int position, byte[] data) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		DataOutputStream outstr = new DataOutputStream(out);
+		outstr.writeUTF(value);
+		System.arraycopy(out.toByteArray(), 0, data, position, outstr.size());
+	}
+
+	static void setFloValue(float value, int position, byte[] data) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new DataOutputStream(out).writeFloat(value);
+		System.arraycopy(out.toByteArray(), 0, data, position, 4);
+	}
+
+	static void setShortValue(short value, int position, byte[] data) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new DataOutputStream(out).writeShort(value);
+		System.arraycopy(out.toByteArray(), 0, data, position, 2);
+	}
+}
+
+/**
+ * This class checks that global.Convert reads and writes the bytes the
+ * stream-based codec did, for random integers, floats, shorts and strings
+ * (with NUL, two-byte and three-byte characters), and times the codec and the
+ * Tuple and Edge field accessors built on it, against the stream-based codec
+ * where there is one to compare with. Each timing is the best of several
+ * rounds after a warm-up, so that the JIT has compiled the code.
+ */
+class CodecDriver extends TestDriver implements GlobalConst {
+
+	private static final int VALUES = 10000;
+	private static final int ROUNDS = 7;
+	private static final int REPEAT = 100;
+
+	private boolean OK = true;
+	private boolean FAIL = false;
+
+	/** Keeps the JIT from dropping the timed loops. */
+	private long sink;
+
+	public CodecDriver() {
+		super("codecbench");
+	}
+
+	private static String randomString(Random rnd) {
+		char[] pool = { 'a', 'Z', '7', ' ', '\0', '\u00e9', '\u07ff', '\u0800', '\u4e2d', '\uffff' };
+		int len = rnd.nextInt(20);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < len; i++)
+			sb.append(rnd.nextInt(4) == 0 ? pool[rnd.nextInt(pool.length)] : (char) ('a' + rnd.nextInt(26)));
+		return sb.toString();
+	}
+
+	protected boolean test1() {
+		System.out.print("\n  Test 1 compares the bytes written and read with the stream-based codec\n");
+
+		Random rnd = new Random(3);
+		try {
+			for (int n = 0; n < VALUES; n++) {
+				byte[] a = new byte[80];
+				byte[] b = new byte[80];
+				int iv = rnd.nextInt();
+				float fv = (n % 100 == 0) ? Float.NaN : rnd.nextFloat() * rnd.nextInt();
+				short sv = (short) rnd.nextInt();
+				String str = randomString(rnd);
+
+				Convert.setIntValue(iv, 0, a);
+				StreamConvert.setIntValue(iv, 0, b);
+				Convert.setFloValue(fv, 4, a);
+				StreamConvert.setFloValue(fv, 4, b);
+				Convert.setShortValue(sv, 8, a);
+				StreamConvert.setShortValue(sv, 8, b);
+				Convert.setStrValue(str, 10, a);
+				StreamConvert.setStrValue(str, 10, b);
+
+				if (!Arrays.equals(a, b)) {
+					System.err.print("*** Different bytes for " + iv + ", " + fv + ", " + sv + ", \"" + str + "\"\n");
+					return FAIL;
+				}
+				if (Convert.getIntValue(0, a) != iv || Float.compare(Convert.getFloValue(4, a), fv) != 0
+						|| Convert.getShortValue(8, a) != sv || !Convert.getStrValue(10, a, 70).equals(str)
+						|| !StreamConvert.getStrValue(10, a, 70).equals(str)) {
+					System.err.print("*** Values not read back for " + iv + ", " + fv + ", " + sv + "\n");
+					return FAIL;
+				}
+			}
+
+			byte[] d = new byte[28];
+			Descriptor desc = new Descriptor();
+			desc.set(1, -2, 3, Integer.MAX_VALUE, Integer.MIN_VALUE);
+			Convert.setDescValue(desc, 4, d);
+			RID rid = new RID(new PageId(12345), 67);
+			byte[] r = new byte[8];
+			Convert.setRIDValue(rid, 0, r);
+			if (Convert.getDescValue(4, d).equal(desc) != 1 || !Convert.getRIDValue(0, r).equals(rid)
+					|| StreamConvert.getIntValue(4, r) != 67) {
+				System.err.print("*** Descriptor or RID not read back\n");
+				return FAIL;
+			}
+		} catch (Exception e) {
+			System.err.print("*** Codec failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		System.out.print("  " + VALUES + " sets of values written and read alike\n");
+		return OK;
+	}
+
+	/** One timed case: a round runs op REPEAT times over VALUES items. */
+	private abstract class Case {
+		abstract long op(int i) throws Exception;
+
+		double nanosPerOp() throws Exception {
+			long best = Long.MAX_VALUE;
+			for (int r = 0; r < ROUNDS; r++) {
+				long t0 = System.nanoTime();
+				long s = 0;
+				for (int k = 0; k < REPEAT; k++)
+					for (int i = 0; i < VALUES; i++)
+						s += op(i);
+				best = Math.min(best, System.nanoTime() - t0);
+				sink += s;
+			}
+			return (double) best / (REPEAT * VALUES);
+		}
+	}
+
+	private void report(String what, double nanos, double before) {
+		if (before > 0)
+			System.out.print(String.format("  %-26s %8.1f ns, streams %8.1f ns, %5.1fx\n", what, nanos, before,
+					before / nanos));
+		else
+			System.out.print(String.format("  %-26s %8.1f ns\n", what, nanos));
+	}
+
+	protected boolean test2() {
+		System.out.print("\n  Test 2 times each call, in ns\n");
+
+		try {
+			final byte[] data = new byte[VALUES * 48];
+			final Edge[] edges = new Edge[VALUES];
+			for (int i = 0; i < VALUES; i++) {
+				Convert.setIntValue(i, i * 48, data);
+				Convert.setStrValue("label" + i, i * 48 + 4, data);
+				edges[i] = new Edge();
+				edges[i].setLabel("e" + i);
+				edges[i].setSource(new NID(new PageId(i), i % 50));
+				edges[i].setDestination(new NID(new PageId(i + 1), 0));
+				edges[i].setWeight(i);
+			}
+			final byte[] out = new byte[48];
+
+			report("Convert.getIntValue", new Case() {
+				long op(int i) throws Exception {
+					return Convert.getIntValue(i * 48, data);
+				}
+			}.nanosPerOp(), new Case() {
+				long op(int i) throws Exception {
+					return StreamConvert.getIntValue(i * 48, data);
+				}
+			}.nanosPerOp());
+
+			report("Convert.setIntValue", new Case() {
+				long op(int i) throws Exception {
+					Convert.setIntValue(i, 0, out);
+					return out[3];
+				}
+			}.nanosPerOp(), new Case() {
+				long op(int i) throws Exception {
+					StreamConvert.setIntValue(i, 0, out);
+					return out[3];
+				}
+			}.nanosPerOp());
+
+			report("Convert.getStrValue", new Case() {
+				long op(int i) throws Exception {
+					return Convert.getStrValue(i * 48 + 4, data, 44).length();
+				}
+			}.nanosPerOp(), new Case() {
+				long op(int i) throws Exception {
+					return StreamConvert.getStrValue(i * 48 + 4, data, 44).length();
+				}
+			}.nanosPerOp());
+
+			report("Convert.setStrValue", new Case() {
+				long op(int i) throws Exception {
+					Convert.setStrValue("label", 0, out);
+					return out[2];
+				}
+			}.nanosPerOp(), new Case() {
+				long op(int i) throws Exception {
+					StreamConvert.setStrValue("label", 0, out);
+					return out[2];
+				}
+			}.nanosPerOp());
+
+			report("Tuple.getIntFld", new Case() {
+				long op(int i) throws Exception {
+					return edges[i].getIntFld(6);
+				}
+			}.nanosPerOp(), 0);
+
+			report("Tuple.getStrFld", new Case() {
+				long op(int i) throws Exception {
+					return edges[i].getStrFld(1).length();
+				}
+			}.nanosPerOp(), 0);
+
+			report("Edge.getSource", new Case() {
+				long op(int i) throws Exception {
+					return edges[i].getSource().slotNo;
+				}
+			}.nanosPerOp(), 0);
+
+			report("Edge.getWeight", new Case() {
+				long op(int i) throws Exception {
+					return edges[i].getWeight();
+				}
+			}.nanosPerOp(), 0);
+		} catch (Exception e) {
+			System.err.print("*** Timing failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		System.out.print("  (checksum " + sink + ")\n");
+		return OK;
+	}
+
+	protected boolean test3() {
+		return true;
+	}
+
+	protected boolean test4() {
+		return true;
+	}
+
+	protected boolean test5() {
+		return true;
+	}
+
+	protected boolean test6() {
+		return true;
+	}
+
+	protected String testName() {
+		return "Field codec";
+	}
+}
+
+public class CodecBenchmark {
+
+	public static void main(String argv[]) {
+
+		CodecDriver cb = new CodecDriver();
+		boolean dbstatus;
+
+		dbstatus = cb.runTests();
+
+		if (dbstatus != true) {
+			System.err.println("Error encountered during field codec tests:\n");
+			Runtime.getRuntime().exit(1);
+		}
+
+		Runtime.getRuntime().exit(0);
+	}
+}
@@ -0,0 +1,238 @@
+package tests;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import global.*;
+import diskmgr.*;
+
+/**
+ * This class runs the buffer manager from several threads at once. Threads
+ * pin random pages of a set larger than the pool and check that every pinned
+ * frame holds the page asked for, threads that miss on the same page together
+ * must cause a single read, and after each test the pool must have all of its
+ * frames unpinned again.
+ */
+class ConcurrentBufDriver extends TestDriver implements GlobalConst {
+
+	private static final int NUM_DB_PAGES = 20000;
+	private static final int POOL = 200;
+	private static final int THREADS = 8;
+
+	private boolean OK = true;
+	private boolean FAIL = false;
+
+	public ConcurrentBufDriver() {
+		super("concurrentbuf");
+	}
+
+	/**
+	 * Allocate num pages and write pid + 99999 at the start of each.
+	 *
+	 * @return the first page id
+	 */
+	private PageId fillPages(int num) throws Exception {
+		Page pg = new Page();
+		PageId first = SystemDefs.JavabaseBM.newPage(pg, num);
+		SystemDefs.JavabaseBM.unpinPage(first, false);
+
+		PageId pid = new PageId();
+		for (pid.pid = first.pid; pid.pid < first.pid + num; pid.pid++) {
+			SystemDefs.JavabaseBM.pinPage(pid, pg, true /* emptyPage */);
+			Convert.setIntValue(pid.pid + 99999, 0, pg.getpage());
+			SystemDefs.JavabaseBM.unpinPage(pid, true /* dirty */);
+		}
+		return first;
+	}
+
+	/** Run the task in THREADS threads and return the first failure, or null. */
+	private Throwable runThreads(final Callable<Void> task) throws InterruptedException {
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		List<Future<Void>> results = new ArrayList<Future<Void>>();
+		for (int t = 0; t < THREADS; t++)
+			results.add(pool.submit(task));
+		pool.shutdown();
+
+		Throwable failure = null;
+		for (Future<Void> f : results) {
+			try {
+				f.get();
+			} catch (ExecutionException e) {
+				if (failure == null)
+					failure = e.getCause();
+			}
+		}
+		return failure;
+	}
+
+	protected boolean test1() {
+		System.out.print("\n  Test 1 pins random pages from " + THREADS + " threads in a " + POOL
+				+ "-frame pool\n");
+
+		new SystemDefs(dbpath, NUM_DB_PAGES, POOL, "Clock");
+		final int num = 10 * POOL;
+
+		try {
+			final PageId first = fillPages(num);
+			final int unpinned = SystemDefs.JavabaseBM.getNumUnpinnedBuffers();
+			final AtomicInteger seed = new AtomicInteger(17);
+
+			Throwable failure = runThreads(new Callable<Void>() {
+				public Void call() throws Exception {
+					Random rnd = new Random(seed.getAndIncrement());
+					Page pg = new Page();
+					PageId pid = new PageId();
+					for (int i = 0; i < 50000; i++) {
+						pid.pid = first.pid + rnd.nextInt(num);
+						SystemDefs.JavabaseBM.pinPage(pid, pg, false);
+						int data = Convert.getIntValue(0, pg.getpage());
+
+						// Some pages are rewritten with the same contents, so
+						// dirty frames are written out during eviction.
+						boolean dirty = (i % 7 == 0);
+						if (dirty)
+							Convert.setIntValue(pid.pid + 99999, 0, pg.getpage());
+						SystemDefs.JavabaseBM.unpinPage(pid, dirty);
+
+						if (data != pid.pid + 99999)
+							throw new IllegalStateException("page " + pid.pid + " holds the data of page "
+									+ (data - 99999));
+					}
+					return null;
+				}
+			});
+
+			if (failure != null) {
+				System.err.print("*** A thread failed\n");
+				failure.printStackTrace();
+				return FAIL;
+			}
+
+			if (SystemDefs.JavabaseBM.getNumUnpinnedBuffers() != unpinned) {
+				System.err.print("*** " + (unpinned - SystemDefs.JavabaseBM.getNumUnpinnedBuffers())
+						+ " frames were left pinned\n");
+				return FAIL;
+			}
+
+			// Every page must still hold its own data once written back.
+			SystemDefs.JavabaseBM.flushAllPages();
+			Page pg = new Page();
+			for (int p = first.pid; p < first.pid + num; p++) {
+				SystemDefs.JavabaseDB.read_page(new PageId(p), pg);
+				if (Convert.getIntValue(0, pg.getpage()) != p + 99999) {
+					System.err.print("*** Page " + p + " was written back with the wrong data\n");
+					return FAIL;
+				}
+			}
+		} catch (Exception e) {
+			System.err.print("*** Concurrent pin/unpin failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		System.out.print("  - Every pinned page held its own data and no frame was left pinned\n");
+		return OK;
+	}
+
+	protected boolean test2() {
+		System.out.print("\n  Test 2 lets " + THREADS + " threads miss on the same page together\n");
+
+		new SystemDefs(dbpath, NUM_DB_PAGES, POOL, "Clock");
+
+		try {
+			final PageId first = fillPages(5 * POOL);
+			final int unpinned = SystemDefs.JavabaseBM.getNumUnpinnedBuffers();
+			final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+			final AtomicInteger round = new AtomicInteger();
+
+			for (int r = 0; r < 20; r++) {
+				// Push the target page out of the pool first.
+				final PageId target = new PageId(first.pid + r);
+				Page pg = new Page();
+				PageId pid = new PageId();
+				for (pid.pid = first.pid + POOL; pid.pid < first.pid + 3 * POOL; pid.pid++) {
+					SystemDefs.JavabaseBM.pinPage(pid, pg, false);
+					SystemDefs.JavabaseBM.unpinPage(pid, false);
+				}
+
+				int reads = PCounter.rcounter;
+				Throwable failure = runThreads(new Callable<Void>() {
+					public Void call() throws Exception {
+						Page pg = new Page();
+						barrier.await();
+						SystemDefs.JavabaseBM.pinPage(target, pg, false);
+						int data = Convert.getIntValue(0, pg.getpage());
+						SystemDefs.JavabaseBM.unpinPage(target, false);
+						if (data != target.pid + 99999)
+							throw new IllegalStateException("page " + target.pid + " holds the data of page "
+									+ (data - 99999));
+						return null;
+					}
+				});
+
+				if (failure != null) {
+					System.err.print("*** A thread failed\n");
+					failure.printStackTrace();
+					return FAIL;
+				}
+				if (PCounter.rcounter - reads != 1) {
+					System.err.print("*** Page " + target.pid + " was read " + (PCounter.rcounter - reads)
+							+ " times\n");
+					return FAIL;
+				}
+				round.incrementAndGet();
+			}
+
+			if (SystemDefs.JavabaseBM.getNumUnpinnedBuffers() != unpinned) {
+				System.err.print("*** Frames were left pinned\n");
+				return FAIL;
+			}
+			System.out.print("  - " + round.get() + " rounds, each page was read once\n");
+		} catch (Exception e) {
+			System.err.print("*** Concurrent misses failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		return OK;
+	}
+
+	protected boolean test3() {
+		return true;
+	}
+
+	protected boolean test4() {
+		return true;
+	}
+
+	protected boolean test5() {
+		return true;
+	}
+
+	protected boolean test6() {
+		return true;
+	}
+
+	protected String testName() {
+		return "Concurrent buffer manager";
+	}
+}
+
+public class ConcurrentBufTest {
+
+	public static void main(String argv[]) {
+
+		ConcurrentBufDriver cbt = new ConcurrentBufDriver();
+		boolean dbstatus;
+
+		dbstatus = cbt.runTests();
+
+		if (dbstatus != true) {
+			System.err.println("Error encountered during concurrent buffer manager tests:\n");
+			Runtime.getRuntime().exit(1);
+		}
+
+		Runtime.getRuntime().exit(0);
+	}
+}
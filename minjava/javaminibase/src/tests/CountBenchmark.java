@@ -0,0 +1,208 @@
+package tests;
+
+import java.util.*;
+import global.*;
+import diskmgr.*;
+import nodeheap.*;
+import edgeheap.*;
+
+/**
+ * This class checks the node, edge, label, source and destination counts of
+ * a graph DB against counts taken with scans of the heap files, after
+ * inserts, deletes and updates, after the DB is closed and opened again, and
+ * after it is opened again without being closed. It times the five count
+ * calls and counts the pages they pin.
+ */
+class CountDriver extends TestDriver implements GlobalConst {
+
+	private static final int NUM_DB_PAGES = 60000;
+	private static final int NUM_BUFFERS = 1000;
+	private static final int NODES = 20000;
+	private static final int EDGES = 60000;
+	private static final int LABELS = 5000;
+
+	private boolean OK = true;
+	private boolean FAIL = false;
+
+	public CountDriver() {
+		super("countbench");
+	}
+
+	private static String key(NID nid) {
+		return nid.pageNo.pid + ":" + nid.slotNo;
+	}
+
+	/** The five counts taken with scans of the heap files. */
+	private int[] scanCounts(GraphDB db) throws Exception {
+		Set<String> labels = new HashSet<String>();
+		Set<String> edgeLabels = new HashSet<String>();
+		Set<String> sources = new HashSet<String>();
+		Set<String> destinations = new HashSet<String>();
+		int nodes = 0, edges = 0;
+
+		NScan nscan = db.nodeHeapfile.openScan();
+		NID nid = new NID();
+		for (Node n = nscan.getNext(nid); n != null; n = nscan.getNext(nid)) {
+			labels.add(n.getLabel());
+			nodes++;
+		}
+		nscan.closescan();
+
+		EScan escan = db.edgeHeapfile.openScan();
+		EID eid = new EID();
+		for (Edge e = escan.getNext(eid); e != null; e = escan.getNext(eid)) {
+			edgeLabels.add(e.getLabel());
+			sources.add(key(e.getSource()));
+			destinations.add(key(e.getDestination()));
+			edges++;
+		}
+		escan.closescan();
+
+		return new int[] { nodes, edges, labels.size() + edgeLabels.size(), sources.size(), destinations.size() };
+	}
+
+	/** The five counts of the DB, timed. */
+	private int[] dbCounts(GraphDB db, String when) throws Exception {
+		int pins = PCounter.prcounter;
+		long t0 = System.nanoTime();
+		int[] counts = new int[] { db.getNodeCnt(), db.getEdgeCnt(), db.getLabelCnt(), db.getSourceCnt(),
+				db.getDestinationCnt() };
+		long t = System.nanoTime() - t0;
+		System.out.print(String.format("  %-28s %8.3f ms, %4d pins: %s\n", when, t / 1e6, PCounter.prcounter - pins,
+				Arrays.toString(counts)));
+		return counts;
+	}
+
+	private boolean check(GraphDB db, String when) throws Exception {
+		int[] counts = dbCounts(db, when);
+		int[] expected = scanCounts(db);
+		if (!Arrays.equals(counts, expected)) {
+			System.err.print("*** " + when + ": expected " + Arrays.toString(expected) + "\n");
+			return false;
+		}
+		return true;
+	}
+
+	private void reopen() {
+		SystemDefs.MINIBASE_RESTART_FLAG = true;
+		new SystemDefs(dbpath, 0, NUM_BUFFERS, "Clock");
+		SystemDefs.MINIBASE_RESTART_FLAG = false;
+	}
+
+	protected boolean test1() {
+		System.out.print("\n  Test 1 counts a graph of " + NODES + " nodes and " + EDGES + " edges as it changes\n");
+
+		SystemDefs.MINIBASE_RESTART_FLAG = false;
+		new SystemDefs(dbpath, NUM_DB_PAGES, NUM_BUFFERS, "Clock");
+		GraphDB db = SystemDefs.JavabaseDB;
+		Random rnd = new Random(11);
+
+		try {
+			byte[][] nodes = new byte[NODES][];
+			for (int i = 0; i < NODES; i++) {
+				Node node = new Node();
+				node.setLabel("n" + rnd.nextInt(LABELS));
+				node.setDesc(new Descriptor());
+				nodes[i] = node.getNodeByteArray();
+			}
+			NID[] nids = db.nodeHeapfile.bulkInsertNodes(nodes, 1.0);
+
+			List<EID> eids = new ArrayList<EID>();
+			for (int i = 0; i < EDGES; i++) {
+				Edge edge = new Edge();
+				edge.setSource(nids[rnd.nextInt(NODES / 4)]);
+				edge.setDestination(nids[rnd.nextInt(NODES)]);
+				edge.setLabel("e" + rnd.nextInt(LABELS));
+				edge.setWeight(i);
+				eids.add(db.edgeHeapfile.insertEdge(edge.getEdgeByteArray()));
+			}
+			if (!check(db, "after the inserts"))
+				return FAIL;
+
+			Collections.shuffle(eids, rnd);
+			for (int i = 0; i < EDGES / 3; i++)
+				db.edgeHeapfile.deleteEdge(eids.remove(eids.size() - 1));
+			for (int i = 0; i < NODES / 3; i++)
+				db.nodeHeapfile.deleteNode(nids[i]);
+			for (int i = 0; i < EDGES / 10; i++) {
+				Edge edge = db.edgeHeapfile.getEdge(eids.get(i));
+				edge.setLabel("u" + rnd.nextInt(LABELS));
+				edge.setDestination(nids[NODES - 1]);
+				db.edgeHeapfile.updateEdge(eids.get(i), edge);
+			}
+			if (!check(db, "after deletes and updates"))
+				return FAIL;
+
+			int[] before = dbCounts(db, "before closing");
+			GraphWorkload.closeDB();
+
+			reopen();
+			db = SystemDefs.JavabaseDB;
+			int[] after = dbCounts(db, "after opening again");
+			if (!Arrays.equals(before, after) || !check(db, "checked after opening"))
+				return FAIL;
+
+			// Leave the DB without closing it: the counts on disk are out of
+			// date and are taken again from the records.
+			for (int i = 0; i < 100; i++)
+				db.edgeHeapfile.deleteEdge(eids.remove(eids.size() - 1));
+			before = dbCounts(db, "before leaving the DB open");
+			SystemDefs.JavabaseBM.flushAllPages();
+
+			reopen();
+			db = SystemDefs.JavabaseDB;
+			after = dbCounts(db, "after opening it again");
+			if (!Arrays.equals(before, after) || !check(db, "checked after opening"))
+				return FAIL;
+			GraphWorkload.closeDB();
+		} catch (Exception e) {
+			System.err.print("*** Counting failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		return OK;
+	}
+
+	protected boolean test2() {
+		return true;
+	}
+
+	protected boolean test3() {
+		return true;
+	}
+
+	protected boolean test4() {
+		return true;
+	}
+
+	protected boolean test5() {
+		return true;
+	}
+
+	protected boolean test6() {
+		return true;
+	}
+
+	protected String testName() {
+		return "Graph counts";
+	}
+}
+
+public class CountBenchmark {
+
+	public static void main(String argv[]) {
+
+		CountDriver cb = new CountDriver();
+		boolean dbstatus;
+
+		dbstatus = cb.runTests();
+
+		if (dbstatus != true) {
+			System.err.println("Error encountered during graph count tests:\n");
+			Runtime.getRuntime().exit(1);
+		}
+
+		Runtime.getRuntime().exit(0);
+	}
+}
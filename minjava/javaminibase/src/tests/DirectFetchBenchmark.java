@@ -0,0 +1,146 @@
+package tests;
+
+import java.util.*;
+import global.*;
+import diskmgr.*;
+import nodeheap.*;
+import edgeheap.*;
+
+/**
+ * This class times random getNode and getEdge calls on a node heap file and
+ * an edge heap file as they grow, batch by batch, and counts the pages
+ * pinned per call, which fetching the record straight from the page its id
+ * names keeps the same whatever the size of the file. It also deletes and
+ * updates records by id and checks the files afterwards.
+ */
+class DirectFetchDriver extends TestDriver implements GlobalConst {
+
+	private static final int NUM_DB_PAGES = 60000;
+	private static final int NUM_BUFFERS = 1000;
+	private static final int BATCHES = 5;
+	private static final int BATCH_SIZE = 20000;
+	private static final int LOOKUPS = 20000;
+
+	private boolean OK = true;
+	private boolean FAIL = false;
+
+	public DirectFetchDriver() {
+		super("directfetchbench");
+	}
+
+	protected boolean test1() {
+		System.out.print("\n  Test 1 runs " + LOOKUPS + " random lookups after every batch of " + BATCH_SIZE
+				+ " nodes and edges\n");
+
+		SystemDefs.MINIBASE_RESTART_FLAG = false;
+		new SystemDefs(dbpath, NUM_DB_PAGES, NUM_BUFFERS, "Clock");
+
+		try {
+			NodeHeapfile nhf = new NodeHeapfile("fetchnodes");
+			EdgeHeapfile ehf = new EdgeHeapfile("fetchedges");
+			List<NID> nids = new ArrayList<NID>();
+			List<EID> eids = new ArrayList<EID>();
+			Random rnd = new Random(11);
+
+			for (int b = 0; b < BATCHES; b++) {
+				for (int i = 0; i < BATCH_SIZE; i++) {
+					nids.add(nhf.insertNode(GraphWorkload.node(b * BATCH_SIZE + i).getNodeByteArray()));
+					eids.add(ehf.insertEdge(GraphWorkload.edge(b * BATCH_SIZE + i).getTupleByteArray()));
+				}
+
+				int pins = PCounter.prcounter;
+				long t0 = System.nanoTime();
+				for (int i = 0; i < LOOKUPS; i++) {
+					int k = rnd.nextInt(nids.size());
+					if (!nhf.getNode(nids.get(k)).getLabel().equals("n" + (100000 + k))) {
+						System.err.print("*** getNode returned the wrong node\n");
+						return FAIL;
+					}
+				}
+				long t1 = System.nanoTime();
+				int nodePins = PCounter.prcounter - pins;
+
+				pins = PCounter.prcounter;
+				for (int i = 0; i < LOOKUPS; i++) {
+					int k = rnd.nextInt(eids.size());
+					if (ehf.getEdge(eids.get(k)).getWeight() != k) {
+						System.err.print("*** getEdge returned the wrong edge\n");
+						return FAIL;
+					}
+				}
+				long t2 = System.nanoTime();
+				int edgePins = PCounter.prcounter - pins;
+
+				System.out.print(String.format(
+						"  %6d records: getNode %8.2f ms, %.2f pins each; getEdge %8.2f ms, %.2f pins each\n",
+						nids.size(), (t1 - t0) / 1e6, (double) nodePins / LOOKUPS, (t2 - t1) / 1e6,
+						(double) edgePins / LOOKUPS));
+			}
+
+			// Update and delete by id.
+			for (int k = 0; k < nids.size(); k += 2)
+				nhf.updateNode(nids.get(k), GraphWorkload.node(k + 1));
+			for (int k = 1; k < eids.size(); k += 2)
+				ehf.deleteEdge(eids.get(k));
+
+			for (int k = 0; k < nids.size(); k += 2) {
+				if (!nhf.getNode(nids.get(k)).getLabel().equals("n" + (100000 + k + 1))) {
+					System.err.print("*** An updated node was not updated\n");
+					return FAIL;
+				}
+			}
+			if (ehf.getEdgeCnt() != eids.size() / 2) {
+				System.err.print("*** Expected " + eids.size() / 2 + " edges, found " + ehf.getEdgeCnt() + "\n");
+				return FAIL;
+			}
+		} catch (Exception e) {
+			System.err.print("*** Lookups failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		return OK;
+	}
+
+	protected boolean test2() {
+		return true;
+	}
+
+	protected boolean test3() {
+		return true;
+	}
+
+	protected boolean test4() {
+		return true;
+	}
+
+	protected boolean test5() {
+		return true;
+	}
+
+	protected boolean test6() {
+		return true;
+	}
+
+	protected String testName() {
+		return "Direct fetch";
+	}
+}
+
+public class DirectFetchBenchmark {
+
+	public static void main(String argv[]) {
+
+		DirectFetchDriver db = new DirectFetchDriver();
+		boolean dbstatus;
+
+		dbstatus = db.runTests();
+
+		if (dbstatus != true) {
+			System.err.println("Error encountered during direct fetch tests:\n");
+			Runtime.getRuntime().exit(1);
+		}
+
+		Runtime.getRuntime().exit(0);
+	}
+}
@@ -16,6 +16,7 @@ import btree.KeyClass;
 import btree.KeyDataEntry;
 import btree.LeafData;
 import diskmgr.GraphDB;
+import edgeheap.EColumnScan;
 import edgeheap.EScan;
 import edgeheap.Edge;
 import edgeheap.InvalidTupleSizeException;
@@ -73,7 +74,7 @@ public class EdgeQuery {
             		NID nid2 = new NID();
             		nid2 = e2.getSource();
             		Node node2 = db.nodeHeapfile.getNode(nid2);
-					return node1.getLabel().compareTo(node2.getLabel());
+					return node1.compareLabel(node2);
 				} catch (FieldNumberOutOfBoundException e) {
 					e.printStackTrace();
 				} catch (IOException e) {
@@ -122,7 +123,7 @@ public class EdgeQuery {
             		NID nid2 = new NID();
             		nid2 = e2.getDestination();
             		Node node2 = db.nodeHeapfile.getNode(nid2);
-					return node1.getLabel().compareTo(node2.getLabel());
+					return node1.compareLabel(node2);
 				} catch (FieldNumberOutOfBoundException e) {
 					e.printStackTrace();
 				} catch (IOException e) {
@@ -188,7 +189,7 @@ public class EdgeQuery {
 	        Collections.sort(edgeList, new Comparator<Edge>() {
 	            public int compare(Edge e1,Edge e2) {
 	            	try {
-						return e1.getLabel().compareTo(e2.getLabel());
+						return e1.compareLabel(e2);
 					} catch (FieldNumberOutOfBoundException e) {
 						e.printStackTrace();
 					} catch (IOException e) {
@@ -224,13 +225,14 @@ public class EdgeQuery {
 			scan.DestroyBTreeFileScan();
 		} else {
 			System.out.println("Printing edge data in order of weights using edge and node heap file");
-			EScan eScan = new EScan(db.edgeHeapfile);
+			// Only the weights are read to pick the edges in the range
+			EColumnScan eScan = db.edgeHeapfile.openColumnScan(EColumnScan.WEIGHT);
+			if (low != null && high != null)
+				eScan.setWeightRange(low.getKey(), high.getKey());
 	        EID eid = new EID();
-	        Edge edge = eScan.getNext(eid);
-	        while(edge != null){
+	        while(eScan.getNext(eid)){
 	        	// Collect edge data
-	        	if(low == null && high == null || edge.getWeight() <= high.getKey() && edge.getWeight() >= low.getKey()) edgeList.add(edge);
-	        		edge = eScan.getNext(eid);
+	        	edgeList.add(eScan.getEdge());
 	        }
 	        eScan.closescan();
 	        // Sorting the data by edge weights
@@ -270,7 +272,7 @@ public class EdgeQuery {
         	while(edge2 != null){
 	        	// Check if its duplicate edges using the labels and
         		// if the source node of first edge is same as destination node of second edge
-	        	if ((!edge1.getLabel().equals(edge2.getLabel())) && 
+	        	if ((edge1.compareLabel(edge2) != 0) && 
 	        		(edge1.getSource().equals(edge2.getDestination()))) {
 	        		hash = new HashMap<Edge,Edge>();
 	        		hash.put(edge1, edge2);
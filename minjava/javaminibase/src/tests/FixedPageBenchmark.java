@@ -0,0 +1,330 @@
+package tests;
+
+import java.util.*;
+import global.*;
+import diskmgr.*;
+import nodeheap.*;
+import edgeheap.*;
+
+/**
+ * This class loads the same nodes and edges into a database with slotted
+ * data pages and into one with fixed-width data pages, and reports the
+ * records each page holds, the data pages and the scan and fetch times of
+ * both. It checks that every record reads back from the fixed-width pages as
+ * it was inserted, that the slots of deleted records are taken by later
+ * insertions, and that a file keeps its format across a restart.
+ */
+class FixedPageDriver extends TestDriver implements GlobalConst {
+
+	private static final int NUM_DB_PAGES = 40000;
+	private static final int NUM_BUFFERS = 1000;
+	private static final int RECORDS = 100000;
+	private static final int LABELS = 500;
+	private static final int ROUNDS = 10;
+	private static final int DELETED = 1000;
+
+	private boolean OK = true;
+	private boolean FAIL = false;
+
+	private byte[][] nodes;
+	private byte[][] edges;
+	private NID[] nids;
+	private EID[] eids;
+
+	/** Data pages, scan and fetch times of the slotted database. */
+	private int slottedPages;
+	private double slottedScan, slottedFetch;
+
+	public FixedPageDriver() {
+		super("fixedpagebench");
+	}
+
+	private String fixedPath() {
+		return dbpath + ".fixed";
+	}
+
+	private static Set<Integer> pagesOf(NID[] ids) {
+		Set<Integer> pages = new HashSet<Integer>();
+		for (NID id : ids)
+			pages.add(id.pageNo.pid);
+		return pages;
+	}
+
+	private static Set<Integer> pagesOf(EID[] ids) {
+		Set<Integer> pages = new HashSet<Integer>();
+		for (EID id : ids)
+			pages.add(id.pageNo.pid);
+		return pages;
+	}
+
+	private void makeRecords() throws Exception {
+		Random rnd = new Random(31);
+		nodes = new byte[RECORDS][];
+		for (int i = 0; i < RECORDS; i++) {
+			Node node = new Node();
+			node.setLabel("person_" + (i % LABELS));
+			Descriptor desc = new Descriptor();
+			desc.set(i, i + 1, i + 2, i + 3, i + 4);
+			node.setDesc(desc);
+			nodes[i] = node.getNodeByteArray();
+		}
+
+		// The edges join nodes by their index; the nids are set per database.
+		edges = new byte[RECORDS][];
+		for (int i = 0; i < RECORDS; i++) {
+			Edge edge = new Edge();
+			edge.setLabel("relationship_" + (i % LABELS));
+			edge.setWeight(rnd.nextInt(RECORDS));
+			edges[i] = edge.getEdgeByteArray();
+		}
+	}
+
+	/* Load the records into a new database and return its data pages. */
+	private int load(String path, boolean fixed) throws Exception {
+		SystemDefs.MINIBASE_RESTART_FLAG = false;
+		SystemDefs.MINIBASE_FIXED_PAGES = fixed;
+		new SystemDefs(path, NUM_DB_PAGES, NUM_BUFFERS, "Clock");
+		SystemDefs.MINIBASE_FIXED_PAGES = false;
+		GraphDB db = SystemDefs.JavabaseDB;
+
+		nids = db.nodeHeapfile.bulkInsertNodes(nodes, 1.0);
+		for (int i = 0; i < RECORDS; i++) {
+			Edge edge = new Edge(edges[i], 0);
+			edge.setSource(nids[i]);
+			edge.setDestination(nids[(i * 7) % RECORDS]);
+			edges[i] = edge.getEdgeByteArray();
+		}
+		eids = db.edgeHeapfile.bulkInsertEdges(edges, 1.0);
+
+		int nodePages = pagesOf(nids).size(), edgePages = pagesOf(eids).size();
+		System.out.print(String.format("  nodes: %5.1f per page, %5d data pages\n",
+				(double) RECORDS / nodePages, nodePages));
+		System.out.print(String.format("  edges: %5.1f per page, %5d data pages\n",
+				(double) RECORDS / edgePages, edgePages));
+		return nodePages + edgePages;
+	}
+
+	/* The best time, in ns per record, of a scan of the nodes and edges. */
+	private double scanTime(GraphDB db) throws Exception {
+		long best = Long.MAX_VALUE, sum = 0;
+		for (int r = 0; r < ROUNDS; r++) {
+			long t0 = System.nanoTime();
+			NScan ns = db.nodeHeapfile.openScan();
+			NID nid = new NID();
+			int n = 0;
+			for (Node node = ns.getNext(nid); node != null; node = ns.getNext(nid), n++)
+				sum += node.getDesc().get(0);
+			ns.closescan();
+
+			EScan es = db.edgeHeapfile.openScan();
+			EID eid = new EID();
+			for (Edge edge = es.getNext(eid); edge != null; edge = es.getNext(eid), n++)
+				sum += edge.getWeight();
+			es.closescan();
+			best = Math.min(best, System.nanoTime() - t0);
+
+			if (n != 2 * RECORDS)
+				throw new Exception("scanned " + n + " records");
+		}
+		System.out.print(String.format("  scan:  %8.1f ns (checksum %d)\n", (double) best / (2 * RECORDS), sum));
+		return (double) best / (2 * RECORDS);
+	}
+
+	/* The best time, in ns per record, of fetching every node and edge by id. */
+	private double fetchTime(GraphDB db) throws Exception {
+		long best = Long.MAX_VALUE, sum = 0;
+		for (int r = 0; r < ROUNDS; r++) {
+			long t0 = System.nanoTime();
+			for (int i = 0; i < RECORDS; i++) {
+				sum += db.nodeHeapfile.getNode(nids[i]).getDesc().get(0);
+				sum += db.edgeHeapfile.getEdge(eids[i]).getWeight();
+			}
+			best = Math.min(best, System.nanoTime() - t0);
+		}
+		System.out.print(String.format("  fetch: %8.1f ns (checksum %d)\n", (double) best / (2 * RECORDS), sum));
+		return (double) best / (2 * RECORDS);
+	}
+
+	/* Check that every record reads back as it was inserted. */
+	private boolean readBack(GraphDB db) throws Exception {
+		for (int i = 0; i < RECORDS; i++) {
+			if (nids[i] == null)
+				continue;
+			if (!Arrays.equals(db.nodeHeapfile.getNode(nids[i]).getNodeByteArray(), nodes[i])) {
+				System.err.print("*** Node " + i + " does not read back from " + nids[i] + "\n");
+				return FAIL;
+			}
+			if (!Arrays.equals(db.edgeHeapfile.getEdge(eids[i]).getEdgeByteArray(), edges[i])) {
+				System.err.print("*** Edge " + i + " does not read back from " + eids[i] + "\n");
+				return FAIL;
+			}
+		}
+		return OK;
+	}
+
+	private void reopen(String path) {
+		SystemDefs.MINIBASE_RESTART_FLAG = true;
+		new SystemDefs(path, 0, NUM_BUFFERS, "Clock");
+		SystemDefs.MINIBASE_RESTART_FLAG = false;
+	}
+
+	protected boolean test1() {
+		System.out.print("\n  Test 1 loads " + RECORDS + " nodes and edges onto slotted pages\n");
+
+		try {
+			makeRecords();
+			slottedPages = load(dbpath, false);
+			GraphDB db = SystemDefs.JavabaseDB;
+			if (db.nodeHeapfile.hasFixedPages() || db.edgeHeapfile.hasFixedPages()) {
+				System.err.print("*** The files have fixed-width pages\n");
+				return FAIL;
+			}
+			slottedScan = scanTime(db);
+			slottedFetch = fetchTime(db);
+			GraphWorkload.closeDB();
+		} catch (Exception e) {
+			System.err.print("*** Loading failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+		return OK;
+	}
+
+	protected boolean test2() {
+		System.out.print("\n  Test 2 loads the same nodes and edges onto fixed-width pages\n");
+
+		try {
+			int fixedPages = load(fixedPath(), true);
+			GraphDB db = SystemDefs.JavabaseDB;
+			if (!db.nodeHeapfile.hasFixedPages() || !db.edgeHeapfile.hasFixedPages()) {
+				System.err.print("*** The files do not have fixed-width pages\n");
+				return FAIL;
+			}
+			double scan = scanTime(db);
+			double fetch = fetchTime(db);
+			System.out.print(String.format("  %d data pages against %d, scan %.2fx, fetch %.2fx as fast\n",
+					fixedPages, slottedPages, slottedScan / scan, slottedFetch / fetch));
+
+			if (fixedPages >= slottedPages) {
+				System.err.print("*** The fixed-width pages do not hold more records\n");
+				return FAIL;
+			}
+			if (!readBack(db))
+				return FAIL;
+			if (db.getNodeCnt() != RECORDS || db.getEdgeCnt() != RECORDS || db.getLabelCnt() != 2 * LABELS) {
+				System.err.print("*** The counts are off\n");
+				return FAIL;
+			}
+		} catch (Exception e) {
+			System.err.print("*** Loading failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		System.out.print("  Every record read back as it was inserted\n");
+		return OK;
+	}
+
+	protected boolean test3() {
+		System.out.print("\n  Test 3 deletes " + DELETED + " nodes and inserts as many\n");
+
+		GraphDB db = SystemDefs.JavabaseDB;
+		try {
+			Set<Integer> pages = pagesOf(nids);
+			for (int i = 0; i < DELETED; i++) {
+				int k = i * (RECORDS / DELETED);
+				if (!db.nodeHeapfile.deleteNode(nids[k])) {
+					System.err.print("*** Node " + k + " was not deleted\n");
+					return FAIL;
+				}
+				nids[k] = null;
+			}
+
+			for (int i = 0; i < DELETED; i++) {
+				int k = i * (RECORDS / DELETED);
+				nids[k] = db.nodeHeapfile.insertNode(nodes[k]);
+			}
+
+			// The freed slots, with those left on the last page, take them all.
+			if (!pages.equals(pagesOf(nids))) {
+				System.err.print("*** The nodes went to " + pagesOf(nids).size() + " data pages, not "
+						+ pages.size() + "\n");
+				return FAIL;
+			}
+			if (db.getNodeCnt() != RECORDS || !readBack(db)) {
+				System.err.print("*** The nodes are off after the insertions\n");
+				return FAIL;
+			}
+		} catch (Exception e) {
+			System.err.print("*** Deleting and inserting failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		System.out.print("  The insertions took the freed slots, on no new page\n");
+		return OK;
+	}
+
+	protected boolean test4() {
+		System.out.print("\n  Test 4 checks that the files keep their format after a restart\n");
+
+		try {
+			GraphWorkload.closeDB();
+			reopen(fixedPath());
+			GraphDB db = SystemDefs.JavabaseDB;
+			if (!db.nodeHeapfile.hasFixedPages() || !db.edgeHeapfile.hasFixedPages() || !readBack(db)) {
+				System.err.print("*** The fixed-width pages were not kept\n");
+				return FAIL;
+			}
+			GraphWorkload.closeDB();
+
+			SystemDefs.MINIBASE_FIXED_PAGES = true;
+			reopen(dbpath);
+			SystemDefs.MINIBASE_FIXED_PAGES = false;
+			db = SystemDefs.JavabaseDB;
+			if (db.nodeHeapfile.hasFixedPages() || db.edgeHeapfile.hasFixedPages()) {
+				System.err.print("*** The slotted pages were not kept\n");
+				return FAIL;
+			}
+			GraphWorkload.closeDB();
+			new java.io.File(fixedPath()).delete();
+		} catch (Exception e) {
+			System.err.print("*** Restart failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		System.out.print("  Both databases kept their format\n");
+		return OK;
+	}
+
+	protected boolean test5() {
+		return true;
+	}
+
+	protected boolean test6() {
+		return true;
+	}
+
+	protected String testName() {
+		return "Fixed-width pages";
+	}
+}
+
+public class FixedPageBenchmark {
+
+	public static void main(String argv[]) {
+
+		FixedPageDriver fp = new FixedPageDriver();
+		boolean dbstatus;
+
+		dbstatus = fp.runTests();
+
+		if (dbstatus != true) {
+			System.err.println("Error encountered during fixed-width page tests:\n");
+			Runtime.getRuntime().exit(1);
+		}
+
+		Runtime.getRuntime().exit(0);
+	}
+}
@@ -0,0 +1,170 @@
+package tests;
+
+import java.util.*;
+import global.*;
+import diskmgr.*;
+import nodeheap.*;
+import edgeheap.*;
+
+/**
+ * This class times insertions into a node heap file and an edge heap file as
+ * they grow, batch by batch, and counts the pages pinned per insertion, which
+ * the free space map keeps the same whatever the size of the file. It then
+ * deletes half of the nodes, inserts as many again, and checks that the new
+ * nodes went into the space the deleted ones left and that every node can
+ * still be read.
+ */
+class FreeSpaceDriver extends TestDriver implements GlobalConst {
+
+	private static final int NUM_DB_PAGES = 60000;
+	private static final int NUM_BUFFERS = 1000;
+	private static final int BATCHES = 5;
+	private static final int BATCH_SIZE = 20000;
+
+	private boolean OK = true;
+	private boolean FAIL = false;
+
+	public FreeSpaceDriver() {
+		super("freespacebench");
+	}
+
+	protected boolean test1() {
+		System.out.print("\n  Test 1 inserts " + BATCHES + " batches of " + BATCH_SIZE + " nodes and edges\n");
+
+		SystemDefs.MINIBASE_RESTART_FLAG = false;
+		new SystemDefs(dbpath, NUM_DB_PAGES, NUM_BUFFERS, "Clock");
+
+		try {
+			NodeHeapfile nhf = new NodeHeapfile("fsmnodes");
+			EdgeHeapfile ehf = new EdgeHeapfile("fsmedges");
+
+			for (int b = 0; b < BATCHES; b++) {
+				int pins = PCounter.prcounter;
+				long t0 = System.nanoTime();
+				for (int i = 0; i < BATCH_SIZE; i++)
+					nhf.insertNode(GraphWorkload.node(b * BATCH_SIZE + i).getNodeByteArray());
+				long t1 = System.nanoTime();
+				int nodePins = PCounter.prcounter - pins;
+
+				pins = PCounter.prcounter;
+				for (int i = 0; i < BATCH_SIZE; i++)
+					ehf.insertEdge(GraphWorkload.edge(b * BATCH_SIZE + i).getTupleByteArray());
+				long t2 = System.nanoTime();
+				int edgePins = PCounter.prcounter - pins;
+
+				System.out.print(String.format(
+						"  batch %d: nodes %8.2f ms, %.2f pins each; edges %8.2f ms, %.2f pins each\n", b + 1,
+						(t1 - t0) / 1e6, (double) nodePins / BATCH_SIZE, (t2 - t1) / 1e6,
+						(double) edgePins / BATCH_SIZE));
+			}
+
+			if (nhf.getNodeCnt() != BATCHES * BATCH_SIZE || ehf.getEdgeCnt() != BATCHES * BATCH_SIZE) {
+				System.err.print("*** Expected " + BATCHES * BATCH_SIZE + " nodes and edges, found "
+						+ nhf.getNodeCnt() + " and " + ehf.getEdgeCnt() + "\n");
+				return FAIL;
+			}
+		} catch (Exception e) {
+			System.err.print("*** Insertion failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		return OK;
+	}
+
+	protected boolean test2() {
+		System.out.print("\n  Test 2 deletes half of the nodes and inserts as many again\n");
+
+		try {
+			NodeHeapfile nhf = new NodeHeapfile("fsmnodes2");
+			List<NID> nids = new ArrayList<NID>();
+			Set<Integer> pages = new HashSet<Integer>();
+
+			for (int i = 0; i < BATCH_SIZE; i++) {
+				NID nid = nhf.insertNode(GraphWorkload.node(i).getNodeByteArray());
+				nids.add(nid);
+				pages.add(nid.pageNo.pid);
+			}
+
+			Random rnd = new Random(7);
+			Collections.shuffle(nids, rnd);
+			for (int i = 0; i < BATCH_SIZE / 2; i++) {
+				if (!nhf.deleteNode(nids.remove(nids.size() - 1))) {
+					System.err.print("*** A node to delete was not found\n");
+					return FAIL;
+				}
+			}
+
+			int reused = 0;
+			for (int i = 0; i < BATCH_SIZE / 2; i++) {
+				NID nid = nhf.insertNode(GraphWorkload.node(BATCH_SIZE + i).getNodeByteArray());
+				nids.add(nid);
+				if (pages.contains(nid.pageNo.pid))
+					reused++;
+			}
+
+			System.out.print("  " + reused + " of " + BATCH_SIZE / 2 + " new nodes went to the old data pages\n");
+
+			for (NID nid : nids) {
+				if (nhf.getNode(nid) == null) {
+					System.err.print("*** Node " + nid + " not found\n");
+					return FAIL;
+				}
+			}
+
+			if (nhf.getNodeCnt() != BATCH_SIZE) {
+				System.err.print("*** Expected " + BATCH_SIZE + " nodes, found " + nhf.getNodeCnt() + "\n");
+				return FAIL;
+			}
+
+			if (reused != BATCH_SIZE / 2) {
+				System.err.print("*** The new nodes did not fill the free space\n");
+				return FAIL;
+			}
+		} catch (Exception e) {
+			System.err.print("*** Delete and insert failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		return OK;
+	}
+
+	protected boolean test3() {
+		return true;
+	}
+
+	protected boolean test4() {
+		return true;
+	}
+
+	protected boolean test5() {
+		return true;
+	}
+
+	protected boolean test6() {
+		return true;
+	}
+
+	protected String testName() {
+		return "Free space map";
+	}
+}
+
+public class FreeSpaceBenchmark {
+
+	public static void main(String argv[]) {
+
+		FreeSpaceDriver fb = new FreeSpaceDriver();
+		boolean dbstatus;
+
+		dbstatus = fb.runTests();
+
+		if (dbstatus != true) {
+			System.err.println("Error encountered during free space map tests:\n");
+			Runtime.getRuntime().exit(1);
+		}
+
+		Runtime.getRuntime().exit(0);
+	}
+}
@@ -0,0 +1,97 @@
+package tests;
+
+import java.io.*;
+import java.util.*;
+
+import bufmgr.HashEntryNotFoundException;
+import bufmgr.InvalidFrameNumberException;
+import bufmgr.PageUnpinnedException;
+import bufmgr.ReplacerException;
+import diskmgr.GraphDB;
+import edgeheap.Edge;
+import global.Descriptor;
+import global.NID;
+import global.PageId;
+import global.SystemDefs;
+import heap.FieldNumberOutOfBoundException;
+import heap.InvalidTupleSizeException;
+import heap.InvalidTypeException;
+import nodeheap.Node;
+
+/**
+ * The NodeInsertData and EdgeInsertData graph the benchmark drivers load,
+ * the generated nodes and edges of the drivers that make their own, and the
+ * closing of the database they load it into. The batch files are read from
+ * the directory given by -Ddatadir; the default is the top of the
+ * repository when the drivers are run from the src directory.
+ */
+public class GraphWorkload {
+
+	/** Directory holding NodeInsertData.txt and EdgeInsertData.txt. */
+	public static final String dataDir = System.getProperty("datadir", "../../..");
+
+	/**
+	 * Returns the lines of a batch file that are not blank, trimmed.
+	 *
+	 * @param fname
+	 *            name of the file in dataDir
+	 * @exception IOException
+	 *                if the file cannot be read
+	 */
+	public static List<String> readLines(String fname) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		BufferedReader in = new BufferedReader(new FileReader(new File(dataDir, fname)));
+		try {
+			String line;
+			while ((line = in.readLine()) != null)
+				if (line.trim().length() > 0)
+					lines.add(line.trim());
+		} finally {
+			in.close();
+		}
+		return lines;
+	}
+
+	/**
+	 * Returns the i-th generated node, labelled "n" + (100000 + i), with an
+	 * empty descriptor.
+	 */
+	public static Node node(int i) throws InvalidTypeException, InvalidTupleSizeException, IOException,
+			FieldNumberOutOfBoundException {
+		Node node = new Node();
+		node.setLabel("n" + (100000 + i));
+		node.setDesc(new Descriptor());
+		return node;
+	}
+
+	/**
+	 * Returns the i-th generated edge, from page i to page i + 1, labelled
+	 * "e" + (100000 + i) and weighing i.
+	 */
+	public static Edge edge(int i) throws InvalidTypeException, InvalidTupleSizeException, IOException,
+			FieldNumberOutOfBoundException {
+		Edge edge = new Edge();
+		edge.setSource(new NID(new PageId(i), 0));
+		edge.setDestination(new NID(new PageId(i + 1), 1));
+		edge.setLabel("e" + (100000 + i));
+		edge.setWeight(i);
+		return edge;
+	}
+
+	/**
+	 * Close the index files and the database, as BatchTest does on exit.
+	 * GraphDB.closeDB writes the counts and flushes the buffer pool.
+	 */
+	public static void closeDB() throws PageUnpinnedException, InvalidFrameNumberException,
+			HashEntryNotFoundException, ReplacerException, IOException {
+		GraphDB db = SystemDefs.JavabaseDB;
+		db.nodeDescriptorIndexFile.close();
+		db.nodeLabelIndexFile.close();
+		db.edgeLabelIndexFile.close();
+		db.edgeWeightIndexFile.close();
+		db.edgeSourceIndexFile.close();
+		db.edgeDestinationIndexFile.close();
+
+		db.closeDB();
+	}
+}
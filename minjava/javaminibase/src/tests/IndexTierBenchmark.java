@@ -0,0 +1,210 @@
+package tests;
+
+import java.io.*;
+import java.util.*;
+import global.*;
+import diskmgr.*;
+import btree.*;
+import bufmgr.*;
+import edgeheap.*;
+
+/**
+ * This class runs node and edge label lookups through the B-tree indexes of
+ * the NodeInsertData and EdgeInsertData graph, with a full scan of the edge
+ * heap file after every batch of lookups, in a small buffer pool. It does so
+ * with the index tier off (SystemDefs.MINIBASE_INDEX_TIER_PAGES = 0) and on,
+ * and reports the time, the pages read and the hit rate of the tier.
+ */
+class IndexTierDriver extends TestDriver implements GlobalConst {
+
+	private static final int NUM_DB_PAGES = 60000;
+	private static final int LOAD_BUFFERS = 2000;
+	private static final int NUM_BUFFERS = 100;
+	private static final int EDGE_COPIES = 4;
+	private static final int BATCHES = 20;
+	private static final int PROBES = 50;
+
+	private boolean OK = true;
+	private boolean FAIL = false;
+
+	public IndexTierDriver() {
+		super("indextierbench");
+	}
+
+	/** Load the graph into a new database and close it. */
+	private void load(List<String> nodes, List<String> edges) throws Exception {
+		SystemDefs.MINIBASE_RESTART_FLAG = false;
+		new SystemDefs(dbpath, NUM_DB_PAGES, LOAD_BUFFERS, "Clock");
+
+		BatchNodeInsert bni = new BatchNodeInsert();
+		for (String line : nodes)
+			bni.doSingleBatchNodeInsert(line, SystemDefs.JavabaseDB.nodeHeapfile, SystemDefs.JavabaseDB);
+
+		BatchEdgeInsert bei = new BatchEdgeInsert();
+		for (int c = 0; c < EDGE_COPIES; c++) {
+			for (String line : edges) {
+				String[] v = line.split(" ");
+				bei.doSingleBatchEdgInsert(v[0], v[1], v[2] + "_" + c, v[3]);
+			}
+		}
+
+		GraphWorkload.closeDB();
+	}
+
+	/** Look up the records with the given label through a label index. */
+	private int probe(BTreeFile index, String label, boolean node) throws Exception {
+		GraphDB db = SystemDefs.JavabaseDB;
+		BTFileScan scan = index.new_scan(new StringKey(label), new StringKey(label));
+		int found = 0;
+		KeyDataEntry entry = scan.get_next();
+		while (entry != null) {
+			if (node) {
+				NID nid = new NID();
+				nid.copyRid(((LeafData) entry.data).getData());
+				db.nodeHeapfile.getNode(nid);
+			} else {
+				EID eid = new EID();
+				eid.copyRid(((LeafData) entry.data).getData());
+				db.edgeHeapfile.getEdge(eid);
+			}
+			found++;
+			entry = scan.get_next();
+		}
+		scan.DestroyBTreeFileScan();
+		return found;
+	}
+
+	/**
+	 * Reopen the database, run the lookups and scans and close it again.
+	 *
+	 * @return {nanoseconds, records found, pages read, tier hits, tier
+	 *         misses, tier pages}
+	 */
+	private long[] session(int tierPages, List<String> nodeLabels, List<String> edgeLabels) throws Exception {
+		SystemDefs.MINIBASE_INDEX_TIER_PAGES = tierPages;
+		SystemDefs.MINIBASE_RESTART_FLAG = true;
+		new SystemDefs(dbpath, 0, NUM_BUFFERS, "Clock");
+		SystemDefs.MINIBASE_RESTART_FLAG = false;
+
+		GraphDB db = SystemDefs.JavabaseDB;
+		Random rnd = new Random(23);
+		long found = 0;
+		int reads = PCounter.rcounter;
+		long t0 = System.nanoTime();
+
+		for (int b = 0; b < BATCHES; b++) {
+			for (int i = 0; i < PROBES; i++) {
+				found += probe(db.nodeLabelIndexFile, nodeLabels.get(rnd.nextInt(nodeLabels.size())), true);
+				found += probe(db.edgeLabelIndexFile, edgeLabels.get(rnd.nextInt(edgeLabels.size())), false);
+			}
+
+			EScan es = new EScan(db.edgeHeapfile);
+			while (es.getNext(new EID()) != null)
+				found++;
+			es.closescan();
+		}
+
+		long t = System.nanoTime() - t0;
+		reads = PCounter.rcounter - reads;
+		BufMgr bm = SystemDefs.JavabaseBM;
+		long[] r = { t, found, reads, bm.getIndexTierHits(), bm.getIndexTierMisses(), bm.getIndexTierPages() };
+		GraphWorkload.closeDB();
+		return r;
+	}
+
+	protected boolean test1() {
+		System.out.print("\n  Test 1 runs label lookups and edge scans in a " + NUM_BUFFERS + "-frame pool\n");
+
+		List<String> nodeLabels = new ArrayList<String>();
+		List<String> edgeLabels = new ArrayList<String>();
+		try {
+			List<String> nodes = GraphWorkload.readLines("NodeInsertData.txt");
+			List<String> edges = GraphWorkload.readLines("EdgeInsertData.txt");
+			load(nodes, edges);
+			for (String line : nodes)
+				nodeLabels.add(line.split(" ")[0]);
+			for (String line : edges)
+				for (int c = 0; c < EDGE_COPIES; c++)
+					edgeLabels.add(line.split(" ")[2] + "_" + c);
+		} catch (IOException e) {
+			System.err.print("*** Could not read the workload from " + GraphWorkload.dataDir + " (set -Ddatadir)\n");
+			return FAIL;
+		} catch (Exception e) {
+			System.err.print("*** Could not load the graph\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		int saved = SystemDefs.MINIBASE_INDEX_TIER_PAGES;
+		int[] settings = { 0, saved > 0 ? saved : 64 };
+		long[][] r = new long[2][];
+
+		try {
+			for (int s = 0; s < 2; s++)
+				r[s] = session(settings[s], nodeLabels, edgeLabels);
+		} catch (Exception e) {
+			System.err.print("*** Lookups failed\n");
+			e.printStackTrace();
+			return FAIL;
+		} finally {
+			SystemDefs.MINIBASE_INDEX_TIER_PAGES = saved;
+		}
+
+		for (int s = 0; s < 2; s++) {
+			long kept = r[s][3] + r[s][4];
+			System.out.print(String.format(
+					"  index tier %3d: %8.2f ms, %6d pages read, %d records found, %d tier pages, hit rate %s\n",
+					settings[s], r[s][0] / 1e6, r[s][2], r[s][1], r[s][5],
+					kept == 0 ? "-" : String.format("%.4f", (double) r[s][3] / kept)));
+		}
+
+		if (r[0][1] != r[1][1]) {
+			System.err.print("*** The lookups found different records\n");
+			return FAIL;
+		}
+
+		return OK;
+	}
+
+	protected boolean test2() {
+		return true;
+	}
+
+	protected boolean test3() {
+		return true;
+	}
+
+	protected boolean test4() {
+		return true;
+	}
+
+	protected boolean test5() {
+		return true;
+	}
+
+	protected boolean test6() {
+		return true;
+	}
+
+	protected String testName() {
+		return "Index tier";
+	}
+}
+
+public class IndexTierBenchmark {
+
+	public static void main(String argv[]) {
+
+		IndexTierDriver ib = new IndexTierDriver();
+		boolean dbstatus;
+
+		dbstatus = ib.runTests();
+
+		if (dbstatus != true) {
+			System.err.println("Error encountered during index tier tests:\n");
+			Runtime.getRuntime().exit(1);
+		}
+
+		Runtime.getRuntime().exit(0);
+	}
+}
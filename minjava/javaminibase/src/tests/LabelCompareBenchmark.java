@@ -0,0 +1,354 @@
+package tests;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import global.*;
+import heap.*;
+import btree.*;
+import iterator.*;
+import nodeheap.*;
+
+/**
+ * This class checks that strings compared on their bytes, in byte arrays,
+ * tuples, B-tree pages and sorts, are ordered as String.compareTo orders
+ * them, for random strings with NUL, two-byte and three-byte characters. It
+ * then times the comparisons and label checks against decoding the labels
+ * to Strings, and counts the bytes allocated per call.
+ */
+class LabelCompareDriver extends TestDriver implements GlobalConst {
+
+	private static final int NUM_DB_PAGES = 20000;
+	private static final int NUM_BUFFERS = 1000;
+	private static final int VALUES = 10000;
+	private static final int ROUNDS = 7;
+	private static final int REPEAT = 50;
+
+	private boolean OK = true;
+	private boolean FAIL = false;
+
+	/** Keeps the JIT from dropping the timed loops. */
+	private long sink;
+
+	private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory
+			.getThreadMXBean();
+
+	public LabelCompareDriver() {
+		super("labelcomparebench");
+	}
+
+	private static String randomString(Random rnd, boolean maxChar) {
+		char[] pool = { 'a', 'Z', '7', ' ', '\0', '\u00e9', '\u07ff', '\u0800', '\u4e2d', maxChar ? '\uffff' : 'z' };
+		int len = rnd.nextInt(12);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < len; i++)
+			sb.append(rnd.nextInt(4) == 0 ? pool[rnd.nextInt(pool.length)] : (char) ('a' + rnd.nextInt(4)));
+		return sb.toString();
+	}
+
+	private static Node node(String label) throws Exception {
+		Node node = new Node();
+		node.setLabel(label);
+		node.setDesc(new Descriptor());
+		return node;
+	}
+
+	private static long allocated() {
+		return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	protected boolean test1() {
+		System.out.print("\n  Test 1 compares random strings on their bytes and as Strings\n");
+
+		Random rnd = new Random(5);
+		try {
+			for (int n = 0; n < VALUES; n++) {
+				String s1 = randomString(rnd, true);
+				String s2 = rnd.nextInt(8) == 0 ? s1 : randomString(rnd, true);
+				if (rnd.nextInt(8) == 0)
+					s2 = s1 + s2;
+				Node n1 = node(s1);
+				Node n2 = node(s2);
+				StringView v1 = StringView.valueOf(s1);
+				StringView v2 = n2.getLabelView();
+
+				int expected = Integer.signum(s1.compareTo(s2));
+				if (Integer.signum(n1.compareLabel(n2)) != expected
+						|| Integer.signum(v1.compareTo(v2)) != expected
+						|| Integer.signum(v2.compareTo(s1)) != -expected
+						|| n1.labelEquals(StringView.valueOf(s2)) != s1.equals(s2)
+						|| v1.equals(v2) != s1.equals(s2)
+						|| (s1.equals(s2) && v1.hashCode() != v2.hashCode())
+						|| !v1.getValue().equals(s1)) {
+					System.err.print("*** \"" + s1 + "\" and \"" + s2 + "\" compare wrongly\n");
+					return FAIL;
+				}
+
+				Tuple copy = node("");
+				copy.setStrFld(1, n2, 1);
+				if (!copy.getStrFld(1).equals(s2)) {
+					System.err.print("*** \"" + s2 + "\" not copied\n");
+					return FAIL;
+				}
+			}
+		} catch (Exception e) {
+			System.err.print("*** Comparison failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		System.out.print("  " + VALUES + " pairs ordered and matched as Strings are\n");
+		return OK;
+	}
+
+	protected boolean test2() {
+		System.out.print("\n  Test 2 checks a B-tree of string keys and a sort of node labels\n");
+
+		SystemDefs.MINIBASE_RESTART_FLAG = false;
+		new SystemDefs(dbpath, NUM_DB_PAGES, NUM_BUFFERS, "Clock");
+
+		Random rnd = new Random(7);
+		try {
+			List<String> labels = new ArrayList<String>();
+			BTreeFile btf = new BTreeFile("labelindex", AttrType.attrString, 44, 1);
+			NodeHeapfile nhf = new NodeHeapfile("labelnodes");
+			for (int n = 0; n < VALUES; n++) {
+				// Sort takes a string of the character 0 as less than any
+				// value, so there are no empty labels.
+				String label = "";
+				while (label.length() == 0)
+					label = randomString(rnd, false);
+				labels.add(label);
+				NID nid = nhf.insertNode(node(label).getNodeByteArray());
+				btf.insert(new StringKey(label), nid);
+			}
+			List<String> sorted = new ArrayList<String>(labels);
+			Collections.sort(sorted);
+
+			// A full scan of the index is in String order.
+			List<String> scanned = new ArrayList<String>();
+			BTFileScan scan = btf.new_scan(null, null);
+			for (KeyDataEntry e = scan.get_next(); e != null; e = scan.get_next())
+				scanned.add(e.key.toString());
+			scan.DestroyBTreeFileScan();
+			if (!scanned.equals(sorted)) {
+				System.err.print("*** The index is not in String order\n");
+				return FAIL;
+			}
+
+			// Range scans find what the String order says they should.
+			for (int n = 0; n < 200; n++) {
+				String lo = labels.get(rnd.nextInt(VALUES));
+				String hi = n % 4 == 0 ? lo : labels.get(rnd.nextInt(VALUES));
+				if (lo.compareTo(hi) > 0) {
+					String t = lo;
+					lo = hi;
+					hi = t;
+				}
+				int expected = 0;
+				for (String s : labels)
+					if (s.compareTo(lo) >= 0 && s.compareTo(hi) <= 0)
+						expected++;
+				int found = 0;
+				scan = btf.new_scan(new StringKey(lo), new StringKey(hi));
+				for (KeyDataEntry e = scan.get_next(); e != null; e = scan.get_next())
+					found++;
+				scan.DestroyBTreeFileScan();
+				if (found != expected) {
+					System.err.print("*** [\"" + lo + "\", \"" + hi + "\"] found " + found + " of " + expected + "\n");
+					return FAIL;
+				}
+			}
+			btf.close();
+
+			// A sort of the node heap file by label is in String order.
+			AttrType[] attrType = { new AttrType(AttrType.attrString), new AttrType(AttrType.attrDesc) };
+			short[] attrSize = { 44 };
+			FldSpec[] projlist = { new FldSpec(new RelSpec(RelSpec.outer), 1),
+					new FldSpec(new RelSpec(RelSpec.outer), 2) };
+			NodeScan fscan = new NodeScan("labelnodes", attrType, attrSize, (short) 2, 2, projlist, null);
+			Sort sort = new Sort(attrType, (short) 2, attrSize, fscan, 1, new TupleOrder(TupleOrder.Ascending), 44,
+					12, 3.0, null);
+			List<String> sortedOut = new ArrayList<String>();
+			for (Tuple t = sort.get_next(); t != null; t = sort.get_next())
+				sortedOut.add(t.getStrFld(1));
+			sort.close();
+			if (!sortedOut.equals(sorted)) {
+				System.err.print("*** The sort is not in String order\n");
+				return FAIL;
+			}
+		} catch (Exception e) {
+			System.err.print("*** Index or sort failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		System.out.print("  " + VALUES + " labels indexed, scanned, range scanned and sorted in String order\n");
+		return OK;
+	}
+
+	/** One timed case: a round runs op REPEAT times over VALUES items. */
+	private abstract class Case {
+		abstract long op(int i) throws Exception;
+
+		/** Returns the nanoseconds and the bytes allocated per call. */
+		double[] measure() throws Exception {
+			long best = Long.MAX_VALUE;
+			long bytes = 0;
+			for (int r = 0; r < ROUNDS; r++) {
+				long a0 = allocated();
+				long t0 = System.nanoTime();
+				long s = 0;
+				for (int k = 0; k < REPEAT; k++)
+					for (int i = 0; i < VALUES; i++)
+						s += op(i);
+				best = Math.min(best, System.nanoTime() - t0);
+				bytes = allocated() - a0;
+				sink += s;
+			}
+			return new double[] { (double) best / (REPEAT * VALUES), (double) bytes / (REPEAT * VALUES) };
+		}
+	}
+
+	private void report(String what, double[] bytes, double[] strings) {
+		System.out.print(String.format("  %-24s %7.1f ns %6.1f B, as Strings %7.1f ns %6.1f B, %5.1fx\n", what,
+				bytes[0], bytes[1], strings[0], strings[1], strings[0] / bytes[0]));
+	}
+
+	protected boolean test3() {
+		System.out.print("\n  Test 3 times each comparison, in ns and bytes allocated per call\n");
+
+		Random rnd = new Random(11);
+		try {
+			final Node[] nodes = new Node[VALUES];
+			for (int i = 0; i < VALUES; i++)
+				nodes[i] = node("label" + rnd.nextInt(VALUES));
+			final StringView wanted = StringView.valueOf("label" + rnd.nextInt(VALUES));
+			final String wantedString = wanted.getValue();
+			final AttrType string = new AttrType(AttrType.attrString);
+
+			report("TupleUtils.Compare", new Case() {
+				long op(int i) throws Exception {
+					return TupleUtils.CompareTupleWithTuple(string, nodes[i], 1, nodes[(i + 1) % VALUES], 1, 0,
+							null);
+				}
+			}.measure(), new Case() {
+				long op(int i) throws Exception {
+					return nodes[i].getStrFld(1).compareTo(nodes[(i + 1) % VALUES].getStrFld(1));
+				}
+			}.measure());
+
+			report("Node.compareLabel", new Case() {
+				long op(int i) throws Exception {
+					return nodes[i].compareLabel(nodes[(i + 1) % VALUES]);
+				}
+			}.measure(), new Case() {
+				long op(int i) throws Exception {
+					return nodes[i].getLabel().compareTo(nodes[(i + 1) % VALUES].getLabel());
+				}
+			}.measure());
+
+			report("Node.labelEquals", new Case() {
+				long op(int i) throws Exception {
+					return nodes[i].labelEquals(wanted) ? 1 : 0;
+				}
+			}.measure(), new Case() {
+				long op(int i) throws Exception {
+					return nodes[i].getLabel().equals(wantedString) ? 1 : 0;
+				}
+			}.measure());
+
+			final Tuple to = node("");
+			report("TupleUtils.SetValue", new Case() {
+				long op(int i) throws Exception {
+					TupleUtils.SetValue(to, nodes[i], 1, string);
+					return 1;
+				}
+			}.measure(), new Case() {
+				long op(int i) throws Exception {
+					to.setStrFld(1, nodes[i].getStrFld(1));
+					return 1;
+				}
+			}.measure());
+		} catch (Exception e) {
+			System.err.print("*** Timing failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		System.out.print("  (checksum " + sink + ")\n");
+		return OK;
+	}
+
+	protected boolean test4() {
+		System.out.print("\n  Test 4 times B-tree inserts and exact-match lookups of string keys\n");
+
+		try {
+			BTreeFile btf = new BTreeFile("labeltimes", AttrType.attrString, 44, 1);
+			String[] keys = new String[VALUES];
+			for (int i = 0; i < VALUES; i++)
+				keys[i] = "label" + (i * 7919 % VALUES);
+
+			long t0 = System.nanoTime();
+			for (int i = 0; i < VALUES; i++)
+				btf.insert(new StringKey(keys[i]), new RID(new PageId(i), 0));
+			long insert = System.nanoTime() - t0;
+
+			long best = Long.MAX_VALUE;
+			long bytes = 0;
+			for (int r = 0; r < ROUNDS; r++) {
+				long a0 = allocated();
+				t0 = System.nanoTime();
+				for (int i = 0; i < VALUES; i++) {
+					BTFileScan scan = btf.new_scan(new StringKey(keys[i]), new StringKey(keys[i]));
+					if (scan.get_next() == null) {
+						System.err.print("*** " + keys[i] + " not found\n");
+						return FAIL;
+					}
+					scan.DestroyBTreeFileScan();
+				}
+				best = Math.min(best, System.nanoTime() - t0);
+				bytes = allocated() - a0;
+			}
+			btf.close();
+
+			System.out.print(String.format("  insert %8.2f us per key\n", insert / 1e3 / VALUES));
+			System.out.print(String.format("  lookup %8.2f us per key, %8.1f B allocated\n", best / 1e3 / VALUES,
+					(double) bytes / VALUES));
+		} catch (Exception e) {
+			System.err.print("*** B-tree timing failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+		return OK;
+	}
+
+	protected boolean test5() {
+		return true;
+	}
+
+	protected boolean test6() {
+		return true;
+	}
+
+	protected String testName() {
+		return "Label comparison";
+	}
+}
+
+public class LabelCompareBenchmark {
+
+	public static void main(String argv[]) {
+
+		LabelCompareDriver lc = new LabelCompareDriver();
+		boolean dbstatus;
+
+		dbstatus = lc.runTests();
+
+		if (dbstatus != true) {
+			System.err.println("Error encountered during label comparison tests:\n");
+			Runtime.getRuntime().exit(1);
+		}
+
+		Runtime.getRuntime().exit(0);
+	}
+}
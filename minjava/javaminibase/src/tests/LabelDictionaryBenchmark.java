@@ -0,0 +1,271 @@
+package tests;
+
+import java.util.*;
+import global.*;
+import diskmgr.*;
+import heap.LabelDictionary;
+import nodeheap.*;
+import edgeheap.*;
+
+/**
+ * This class loads a graph whose nodes and edges share a few hundred labels
+ * and reports the bytes each record takes on its data page, with the label
+ * dictionary in place of the label strings, against the bytes of the node or
+ * edge itself, and the data pages and scan times that go with them. It
+ * checks that every record reads back as it was inserted, that the labels
+ * and their ids are kept across a restart, and that labels added after the
+ * restart take the next ids.
+ */
+class LabelDictionaryDriver extends TestDriver implements GlobalConst {
+
+	private static final int NUM_DB_PAGES = 60000;
+	private static final int NUM_BUFFERS = 1000;
+	private static final int RECORDS = 100000;
+	private static final int LABELS = 500;
+	private static final int ROUNDS = 5;
+
+	private boolean OK = true;
+	private boolean FAIL = false;
+
+	private NID[] nids;
+	private EID[] eids;
+	private byte[][] nodes;
+	private byte[][] edges;
+
+	public LabelDictionaryDriver() {
+		super("labeldictbench");
+	}
+
+	private static String nodeLabel(int i) {
+		return "person_" + (i % LABELS);
+	}
+
+	private static String edgeLabel(int i) {
+		return "relationship_" + (i % LABELS);
+	}
+
+	private static Set<Integer> pagesOf(NID[] ids) {
+		Set<Integer> pages = new HashSet<Integer>();
+		for (NID id : ids)
+			pages.add(id.pageNo.pid);
+		return pages;
+	}
+
+	private static Set<Integer> pagesOf(EID[] ids) {
+		Set<Integer> pages = new HashSet<Integer>();
+		for (EID id : ids)
+			pages.add(id.pageNo.pid);
+		return pages;
+	}
+
+	private void reopen() {
+		SystemDefs.MINIBASE_RESTART_FLAG = true;
+		new SystemDefs(dbpath, 0, NUM_BUFFERS, "Clock");
+		SystemDefs.MINIBASE_RESTART_FLAG = false;
+	}
+
+	/* Check that every record reads back as it was inserted. */
+	private boolean readBack(GraphDB db) throws Exception {
+		for (int i = 0; i < RECORDS; i++) {
+			if (!Arrays.equals(db.nodeHeapfile.getNode(nids[i]).getNodeByteArray(), nodes[i])) {
+				System.err.print("*** Node " + i + " does not read back from " + nids[i] + "\n");
+				return FAIL;
+			}
+			if (!Arrays.equals(db.edgeHeapfile.getEdge(eids[i]).getEdgeByteArray(), edges[i])) {
+				System.err.print("*** Edge " + i + " does not read back from " + eids[i] + "\n");
+				return FAIL;
+			}
+		}
+		return OK;
+	}
+
+	protected boolean test1() {
+		System.out.print("\n  Test 1 loads " + RECORDS + " nodes and edges with " + LABELS
+				+ " labels of each\n");
+
+		SystemDefs.MINIBASE_RESTART_FLAG = false;
+		new SystemDefs(dbpath, NUM_DB_PAGES, NUM_BUFFERS, "Clock");
+		GraphDB db = SystemDefs.JavabaseDB;
+		Random rnd = new Random(29);
+
+		try {
+			nodes = new byte[RECORDS][];
+			for (int i = 0; i < RECORDS; i++) {
+				Node node = new Node();
+				node.setLabel(nodeLabel(i));
+				Descriptor desc = new Descriptor();
+				desc.set(i, i + 1, i + 2, i + 3, i + 4);
+				node.setDesc(desc);
+				nodes[i] = node.getNodeByteArray();
+			}
+			nids = db.nodeHeapfile.bulkInsertNodes(nodes, 1.0);
+
+			edges = new byte[RECORDS][];
+			for (int i = 0; i < RECORDS; i++) {
+				Edge edge = new Edge();
+				edge.setSource(nids[rnd.nextInt(RECORDS)]);
+				edge.setDestination(nids[rnd.nextInt(RECORDS)]);
+				edge.setLabel(edgeLabel(i));
+				edge.setWeight(i);
+				edges[i] = edge.getEdgeByteArray();
+			}
+			eids = db.edgeHeapfile.bulkInsertEdges(edges, 1.0);
+
+			System.out.print(String.format("  nodes: %3d bytes stored for a %3d byte node, %5d data pages\n",
+					Node.record_size, Node.max_size, pagesOf(nids).size()));
+			System.out.print(String.format("  edges: %3d bytes stored for a %3d byte edge, %5d data pages\n",
+					Edge.record_size, Edge.max_size, pagesOf(eids).size()));
+			System.out.print("  " + db.labelDictionary.size() + " labels in the dictionary\n");
+
+			if (db.labelDictionary.size() != 2 * LABELS) {
+				System.err.print("*** Expected " + 2 * LABELS + " labels in the dictionary\n");
+				return FAIL;
+			}
+			if (!readBack(db))
+				return FAIL;
+			if (db.getLabelCnt() != 2 * LABELS) {
+				System.err.print("*** Expected " + 2 * LABELS + " distinct labels, counted " + db.getLabelCnt() + "\n");
+				return FAIL;
+			}
+		} catch (Exception e) {
+			System.err.print("*** Loading failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		System.out.print("  Every record read back as it was inserted\n");
+		return OK;
+	}
+
+	protected boolean test2() {
+		System.out.print("\n  Test 2 times scans of the nodes and edges, in ns per record\n");
+
+		GraphDB db = SystemDefs.JavabaseDB;
+		try {
+			long bestNodes = Long.MAX_VALUE, bestEdges = Long.MAX_VALUE;
+			long sum = 0;
+			for (int r = 0; r < ROUNDS; r++) {
+				long t0 = System.nanoTime();
+				NScan ns = db.nodeHeapfile.openScan();
+				NID nid = new NID();
+				int n = 0;
+				for (Node node = ns.getNext(nid); node != null; node = ns.getNext(nid), n++)
+					sum += node.getLabel().length();
+				ns.closescan();
+				bestNodes = Math.min(bestNodes, System.nanoTime() - t0);
+
+				t0 = System.nanoTime();
+				EScan es = db.edgeHeapfile.openScan();
+				EID eid = new EID();
+				int e = 0;
+				for (Edge edge = es.getNext(eid); edge != null; edge = es.getNext(eid), e++)
+					sum += edge.getWeight();
+				es.closescan();
+				bestEdges = Math.min(bestEdges, System.nanoTime() - t0);
+
+				if (n != RECORDS || e != RECORDS) {
+					System.err.print("*** Scanned " + n + " nodes and " + e + " edges\n");
+					return FAIL;
+				}
+			}
+			System.out.print(String.format("  node scan: %8.1f ns\n", (double) bestNodes / RECORDS));
+			System.out.print(String.format("  edge scan: %8.1f ns\n", (double) bestEdges / RECORDS));
+			System.out.print("  (checksum " + sum + ")\n");
+		} catch (Exception e) {
+			System.err.print("*** Scanning failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+		return OK;
+	}
+
+	protected boolean test3() {
+		System.out.print("\n  Test 3 checks the labels and their ids after a restart\n");
+
+		try {
+			LabelDictionary before = SystemDefs.JavabaseDB.labelDictionary;
+			List<String> labels = new ArrayList<String>();
+			for (int id = 0; id < before.size(); id++)
+				labels.add(before.getLabel(id));
+
+			GraphWorkload.closeDB();
+			reopen();
+			GraphDB db = SystemDefs.JavabaseDB;
+			LabelDictionary after = db.labelDictionary;
+
+			if (after.size() != labels.size()) {
+				System.err.print("*** " + after.size() + " labels after the restart, " + labels.size() + " before\n");
+				return FAIL;
+			}
+			for (int id = 0; id < labels.size(); id++) {
+				if (!after.getLabel(id).equals(labels.get(id))
+						|| after.lookup(StringView.valueOf(labels.get(id))) != id) {
+					System.err.print("*** Label " + id + " changed in the restart\n");
+					return FAIL;
+				}
+			}
+			if (!readBack(db))
+				return FAIL;
+
+			// A new label takes the next id, and an update to it is kept.
+			Node node = db.nodeHeapfile.getNode(nids[0]);
+			node.setLabel("a label added after the restart");
+			db.nodeHeapfile.updateNode(nids[0], node);
+			nodes[0] = node.getNodeByteArray();
+			if (after.lookup(StringView.valueOf("a label added after the restart")) != labels.size()) {
+				System.err.print("*** The new label did not take the next id\n");
+				return FAIL;
+			}
+
+			GraphWorkload.closeDB();
+			reopen();
+			db = SystemDefs.JavabaseDB;
+			if (db.labelDictionary.size() != labels.size() + 1 || !readBack(db)) {
+				System.err.print("*** The new label was not kept\n");
+				return FAIL;
+			}
+			GraphWorkload.closeDB();
+		} catch (Exception e) {
+			System.err.print("*** Restart failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		System.out.print("  The labels, their ids and the records were kept\n");
+		return OK;
+	}
+
+	protected boolean test4() {
+		return true;
+	}
+
+	protected boolean test5() {
+		return true;
+	}
+
+	protected boolean test6() {
+		return true;
+	}
+
+	protected String testName() {
+		return "Label dictionary";
+	}
+}
+
+public class LabelDictionaryBenchmark {
+
+	public static void main(String argv[]) {
+
+		LabelDictionaryDriver ld = new LabelDictionaryDriver();
+		boolean dbstatus;
+
+		dbstatus = ld.runTests();
+
+		if (dbstatus != true) {
+			System.err.println("Error encountered during label dictionary tests:\n");
+			Runtime.getRuntime().exit(1);
+		}
+
+		Runtime.getRuntime().exit(0);
+	}
+}
@@ -20,12 +20,13 @@ import global.AttrType;
 import global.Descriptor;
 import global.EID;
 import global.NID;
+import global.StringView;
 import global.SystemDefs;
 import global.TupleOrder;
 import heap.FieldNumberOutOfBoundException;
 import heap.Tuple;
-import iterator.FileScan;
 import iterator.FldSpec;
+import iterator.NodeScan;
 import iterator.RelSpec;
 import iterator.Sort;
 import nodeheap.HFBufMgrException;
@@ -87,7 +88,7 @@ public class NodeQuery {
 			FldSpec[] projlist = new FldSpec[2];
 			projlist[0] = new FldSpec(rel, 1);
 			projlist[1] = new FldSpec(rel, 2);
-			FileScan fscan = new FileScan("nodeheapfile", attrType, attrSize, (short) 2, 2, projlist, null);	        
+			NodeScan fscan = new NodeScan("nodeheapfile", attrType, attrSize, (short) 2, 2, projlist, null);	        
 			Sort sort = new Sort(attrType, (short) 2, attrSize, fscan, 1, new TupleOrder(TupleOrder.Descending), 44, 12, 3.0, null);
 			Tuple t = sort.get_next();
 			while (t != null) {
@@ -252,10 +253,11 @@ public class NodeQuery {
 			System.out.println("Printing node information and assosciated edges for nodes with same label using node heap file");
 			NScan nScan = new NScan(db.nodeHeapfile);
 	        NID nid = new NID();
+	        StringView labelView = StringView.valueOf(label);
 	        Node node = nScan.getNext(nid);
 	        while(node != null){
             	// Collect node data
-	        	if(node.getLabel().equals(label)){
+	        	if(node.labelEquals(labelView)){
 	        		printed = true;
 	        		printNodeAndEdgesContainingNode(node, nid);
 	        	}
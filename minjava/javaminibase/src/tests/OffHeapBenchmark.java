@@ -0,0 +1,249 @@
+package tests;
+
+import java.io.*;
+import java.lang.management.*;
+import java.util.*;
+import global.*;
+import diskmgr.*;
+
+/**
+ * This class compares a large heap buffer pool with a small heap pool backed
+ * by the off-heap victim cache (SystemDefs.MINIBASE_VICTIM_CACHE_PAGES). For
+ * both it times pin/unpin of cached pages and the garbage collections run
+ * while the pool is live, and it checks that pages rewritten with the victim
+ * cache on keep their latest contents.
+ */
+class OffHeapDriver extends TestDriver implements GlobalConst {
+
+	private static final int NUM_DB_PAGES = 60000;
+	private static final int NUM_PAGES = 40000;
+	private static final int SMALL_POOL = 2000;
+	private static final int PINS = 2000000;
+
+	private boolean OK = true;
+	private boolean FAIL = false;
+
+	public OffHeapDriver() {
+		super("offheapbench");
+	}
+
+	/**
+	 * Allocate num pages and write pid + 99999 at the start of each, followed
+	 * by a version number of 0.
+	 *
+	 * @return the first page id
+	 */
+	private PageId fillPages(int num) throws Exception {
+		Page pg = new Page();
+		PageId first = SystemDefs.JavabaseBM.newPage(pg, num);
+		SystemDefs.JavabaseBM.unpinPage(first, false);
+
+		PageId pid = new PageId();
+		for (pid.pid = first.pid; pid.pid < first.pid + num; pid.pid++) {
+			SystemDefs.JavabaseBM.pinPage(pid, pg, true /* emptyPage */);
+			Convert.setIntValue(pid.pid + 99999, 0, pg.getpage());
+			Convert.setIntValue(0, 4, pg.getpage());
+			SystemDefs.JavabaseBM.unpinPage(pid, true /* dirty */);
+		}
+		return first;
+	}
+
+	/**
+	 * Pin and unpin the pages in order, PINS times over, checking their
+	 * contents.
+	 *
+	 * @return nanoseconds per pin/unpin pair, or -1 if a page held the wrong
+	 *         data
+	 */
+	private long pinAll(int[] order) throws Exception {
+		Page pg = new Page();
+		PageId pid = new PageId();
+		long t0 = System.nanoTime();
+		for (int i = 0; i < PINS; i++) {
+			pid.pid = order[i % order.length];
+			SystemDefs.JavabaseBM.pinPage(pid, pg, false);
+			int data = Convert.getIntValue(0, pg.getpage());
+			SystemDefs.JavabaseBM.unpinPage(pid, false);
+			if (data != pid.pid + 99999) {
+				System.err.print("*** Page " + pid.pid + " holds the data of page " + (data - 99999) + "\n");
+				return -1;
+			}
+		}
+		return (System.nanoTime() - t0) / PINS;
+	}
+
+	/** Returns the collection count and time in ms of every collector. */
+	private long[] gcTotals() {
+		long[] totals = new long[2];
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			totals[0] += Math.max(0, gc.getCollectionCount());
+			totals[1] += Math.max(0, gc.getCollectionTime());
+		}
+		return totals;
+	}
+
+	/**
+	 * Load the pages, pin them at random and make garbage while the pool is
+	 * live, and print the latencies and collection times.
+	 */
+	private boolean runWorkload(String label, int bufs, int cache_pages) {
+
+		SystemDefs.MINIBASE_VICTIM_CACHE_PAGES = cache_pages;
+		new SystemDefs(dbpath, NUM_DB_PAGES, bufs, "Clock");
+		SystemDefs.MINIBASE_VICTIM_CACHE_PAGES = 0;
+		System.gc();
+
+		try {
+			PageId first = fillPages(NUM_PAGES);
+			SystemDefs.JavabaseBM.flushAllPages();
+
+			Random rnd = new Random(3);
+			int[] all = new int[1 << 16];
+			for (int i = 0; i < all.length; i++)
+				all[i] = first.pid + rnd.nextInt(NUM_PAGES);
+			int[] hot = new int[1 << 16];
+			for (int i = 0; i < hot.length; i++)
+				hot[i] = first.pid + rnd.nextInt(SMALL_POOL / 2);
+
+			// Warm up, then time hits on a few pages and on all of them.
+			if (pinAll(all) < 0 || pinAll(hot) < 0)
+				return FAIL;
+			int reads = PCounter.rcounter;
+			long hotNs = pinAll(hot);
+			long allNs = pinAll(all);
+			if (hotNs < 0 || allNs < 0)
+				return FAIL;
+			if (PCounter.rcounter != reads) {
+				System.err.print("*** " + (PCounter.rcounter - reads) + " pages were read from disk"
+						+ " although all of them were cached\n");
+				return FAIL;
+			}
+
+			// Garbage made by queries, while the pool stays live.
+			long[] before = gcTotals();
+			List<byte[]> young = new ArrayList<byte[]>();
+			for (int i = 0; i < 200000; i++) {
+				young.add(new byte[2048]);
+				if (young.size() == 2000)
+					young.clear();
+			}
+			long[] after = gcTotals();
+
+			long t0 = System.nanoTime();
+			System.gc();
+			long fullMs = (System.nanoTime() - t0) / 1000000;
+
+			System.out.print(String.format("  %-22s %8d ns %8d ns %6d %8d ms %8d ms\n", label, hotNs, allNs,
+					after[0] - before[0], after[1] - before[1], fullMs));
+		} catch (Exception e) {
+			System.err.print("*** Workload failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		return OK;
+	}
+
+	protected boolean test1() {
+		System.out.print("\n  Test 1 compares a heap pool with a small pool and a victim cache\n");
+		System.out.print("  pool                   hot hit   any page    GCs  GC time  full GC\n");
+
+		if (runWorkload(NUM_PAGES + 100 + " frames", NUM_PAGES + 100, 0) != OK)
+			return FAIL;
+		return runWorkload(SMALL_POOL + " + " + (NUM_PAGES + 100) + " cached", SMALL_POOL, NUM_PAGES + 100);
+	}
+
+	protected boolean test2() {
+		System.out.print("\n  Test 2 rewrites pages through a small pool and a victim cache\n");
+
+		SystemDefs.MINIBASE_VICTIM_CACHE_PAGES = 500;
+		new SystemDefs(dbpath, 4000, 100, "Clock");
+		SystemDefs.MINIBASE_VICTIM_CACHE_PAGES = 0;
+
+		int num = 2000;
+		try {
+			PageId first = fillPages(num);
+			int[] version = new int[num];
+
+			Random rnd = new Random(5);
+			Page pg = new Page();
+			PageId pid = new PageId();
+			for (int i = 0; i < 100000; i++) {
+				int k = rnd.nextInt(num);
+				pid.pid = first.pid + k;
+				SystemDefs.JavabaseBM.pinPage(pid, pg, false);
+				int data = Convert.getIntValue(0, pg.getpage());
+				int v = Convert.getIntValue(4, pg.getpage());
+				if (data != pid.pid + 99999 || v != version[k]) {
+					System.err.print("*** Page " + pid.pid + " has version " + v + " instead of " + version[k]
+							+ "\n");
+					SystemDefs.JavabaseBM.unpinPage(pid, false);
+					return FAIL;
+				}
+
+				boolean dirty = rnd.nextInt(4) == 0;
+				if (dirty)
+					Convert.setIntValue(++version[k], 4, pg.getpage());
+				SystemDefs.JavabaseBM.unpinPage(pid, dirty);
+
+				if (i % 20000 == 0)
+					SystemDefs.JavabaseBM.flushAllPages();
+			}
+
+			// The file must hold the latest version of every page.
+			SystemDefs.JavabaseBM.flushAllPages();
+			for (int k = 0; k < num; k++) {
+				SystemDefs.JavabaseDB.read_page(new PageId(first.pid + k), pg);
+				if (Convert.getIntValue(4, pg.getpage()) != version[k]) {
+					System.err.print("*** Page " + (first.pid + k) + " was written back with an old version\n");
+					return FAIL;
+				}
+			}
+		} catch (Exception e) {
+			System.err.print("*** Rewriting pages failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		System.out.print("  - Every page kept its latest version\n");
+		return OK;
+	}
+
+	protected boolean test3() {
+		return true;
+	}
+
+	protected boolean test4() {
+		return true;
+	}
+
+	protected boolean test5() {
+		return true;
+	}
+
+	protected boolean test6() {
+		return true;
+	}
+
+	protected String testName() {
+		return "Off-heap victim cache";
+	}
+}
+
+public class OffHeapBenchmark {
+
+	public static void main(String argv[]) {
+
+		OffHeapDriver ohb = new OffHeapDriver();
+		boolean dbstatus;
+
+		dbstatus = ohb.runTests();
+
+		if (dbstatus != true) {
+			System.err.println("Error encountered during off-heap victim cache tests:\n");
+			Runtime.getRuntime().exit(1);
+		}
+
+		Runtime.getRuntime().exit(0);
+	}
+}
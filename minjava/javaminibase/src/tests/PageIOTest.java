@@ -0,0 +1,390 @@
+package tests;
+
+import java.io.*;
+import java.util.*;
+import global.*;
+import diskmgr.*;
+
+/**
+ * This class provides the functions to test page I/O in the disk manager:
+ * concurrent single-page reads and writes on each storage backend, vectored
+ * reads and writes of page runs, and loading page runs into the buffer pool.
+ */
+class PageIODriver extends TestDriver implements GlobalConst {
+
+	private static final int NUM_DB_PAGES = 4000;
+
+	/** Pages [STABLE_START, HOT_START) are written once and then only read. */
+	private static final int STABLE_START = 100;
+
+	/** Pages [HOT_START, HOT_END) are rewritten during the whole test. */
+	private static final int HOT_START = 2000;
+	private static final int HOT_END = 3000;
+
+	private static final int NUM_READERS = 6;
+	private static final int NUM_WRITERS = 2;
+	private static final int READS_PER_THREAD = 20000;
+
+	private boolean OK = true;
+	private boolean FAIL = false;
+
+	public PageIODriver() {
+		super("pageiotest");
+	}
+
+	/**
+	 * Fill a page image: the page number at both ends, the version in between.
+	 */
+	private static void fill(byte[] buf, int pid, int version) throws IOException {
+		Convert.setIntValue(pid, 0, buf);
+		for (int pos = 4; pos < MINIBASE_PAGESIZE - 4; pos += 4)
+			Convert.setIntValue(version, pos, buf);
+		Convert.setIntValue(pid, MINIBASE_PAGESIZE - 4, buf);
+	}
+
+	/**
+	 * Runs the readers and writers against a fresh database using the given
+	 * storage backend.
+	 */
+	private boolean runConcurrent(String storage) {
+
+		System.out.print("  - Open a database with the " + storage + " backend\n");
+		SystemDefs.MINIBASE_DB_STORAGE = storage;
+		new SystemDefs(dbpath, NUM_DB_PAGES, NUMBUF, "Clock");
+		final DB db = SystemDefs.JavabaseDB;
+
+		System.out.print("  - Write the initial image of every test page\n");
+		try {
+			Page pg = new Page();
+			for (int pid = STABLE_START; pid < HOT_END; pid++) {
+				fill(pg.getpage(), pid, 0);
+				db.write_page(new PageId(pid), pg);
+			}
+		} catch (Exception e) {
+			System.err.print("*** Could not write the initial pages\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		System.out.print("  - Start " + NUM_READERS + " readers and " + NUM_WRITERS + " writers\n");
+		final List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+		final int[] lastVersion = new int[HOT_END - HOT_START];
+		Thread[] threads = new Thread[NUM_READERS + NUM_WRITERS];
+
+		for (int t = 0; t < NUM_WRITERS; t++) {
+			final int writer = t;
+			threads[t] = new Thread() {
+				public void run() {
+					Page pg = new Page();
+					try {
+						// Each writer owns every NUM_WRITERS-th hot page.
+						for (int version = 1; version <= 20; version++) {
+							for (int pid = HOT_START + writer; pid < HOT_END; pid += NUM_WRITERS) {
+								fill(pg.getpage(), pid, version);
+								db.write_page(new PageId(pid), pg);
+								lastVersion[pid - HOT_START] = version;
+							}
+						}
+					} catch (Exception e) {
+						errors.add("writer " + writer + ": " + e);
+					}
+				}
+			};
+		}
+
+		for (int t = 0; t < NUM_READERS; t++) {
+			final int reader = t;
+			threads[NUM_WRITERS + t] = new Thread() {
+				public void run() {
+					Random random = new Random(reader);
+					Page pg = new Page();
+					PageId pageno = new PageId();
+					try {
+						for (int i = 0; i < READS_PER_THREAD && errors.isEmpty(); i++) {
+							pageno.pid = STABLE_START + random.nextInt(HOT_END - STABLE_START);
+							db.read_page(pageno, pg);
+							byte[] buf = pg.getpage();
+
+							// A page read from the wrong offset shows up here.
+							if (Convert.getIntValue(0, buf) != pageno.pid
+									|| Convert.getIntValue(MINIBASE_PAGESIZE - 4, buf) != pageno.pid)
+								errors.add("reader " + reader + ": page " + pageno.pid + " has the wrong page number");
+
+							// Pages nobody writes must come back unchanged.
+							if (pageno.pid < HOT_START && Convert.getIntValue(4, buf) != 0)
+								errors.add("reader " + reader + ": stable page " + pageno.pid + " changed");
+						}
+					} catch (Exception e) {
+						errors.add("reader " + reader + ": " + e);
+					}
+				}
+			};
+		}
+
+		for (int t = 0; t < threads.length; t++)
+			threads[t].start();
+		try {
+			for (int t = 0; t < threads.length; t++)
+				threads[t].join();
+		} catch (InterruptedException e) {
+			errors.add("interrupted: " + e);
+		}
+
+		if (errors.isEmpty()) {
+			System.out.print("  - Check the final version of every hot page\n");
+			try {
+				Page pg = new Page();
+				for (int pid = HOT_START; pid < HOT_END; pid++) {
+					db.read_page(new PageId(pid), pg);
+					if (Convert.getIntValue(4, pg.getpage()) != lastVersion[pid - HOT_START])
+						errors.add("page " + pid + " lost its last write");
+				}
+			} catch (Exception e) {
+				errors.add("final check: " + e);
+			}
+		}
+
+		try {
+			db.DBDestroy();
+		} catch (IOException e) {
+			System.err.println(" DB already destroyed");
+		}
+
+		for (int i = 0; i < errors.size() && i < 10; i++)
+			System.err.print("*** " + errors.get(i) + "\n");
+
+		return errors.isEmpty() ? OK : FAIL;
+	}
+
+	/**
+	 * Concurrent page reads and writes on the File backend.
+	 *
+	 * @return whether test1 has passed
+	 */
+	protected boolean test1() {
+		System.out.print("\n  Test 1 reads and writes pages from several threads on the File backend:\n");
+		boolean status = runConcurrent("File");
+		if (status == OK)
+			System.out.print("  Test 1 completed successfully.\n");
+		return status;
+	}
+
+	/**
+	 * Concurrent page reads and writes on the Mmap backend.
+	 *
+	 * @return whether test2 has passed
+	 */
+	protected boolean test2() {
+		System.out.print("\n  Test 2 reads and writes pages from several threads on the Mmap backend:\n");
+		boolean status = runConcurrent("Mmap");
+		SystemDefs.MINIBASE_DB_STORAGE = "File";
+		if (status == OK)
+			System.out.print("  Test 2 completed successfully.\n");
+		return status;
+	}
+
+	/**
+	 * Writes page runs with write_pages and reads them back one page at a
+	 * time and with read_pages, on the given storage backend.
+	 */
+	private boolean runVectored(String storage) {
+
+		System.out.print("  - Open a database with the " + storage + " backend\n");
+		SystemDefs.MINIBASE_DB_STORAGE = storage;
+		new SystemDefs(dbpath, NUM_DB_PAGES, NUMBUF, "Clock");
+		DB db = SystemDefs.JavabaseDB;
+		boolean status = OK;
+
+		int runsize = 64;
+		int end = STABLE_START + (HOT_END - STABLE_START) / runsize * runsize;
+		Page[] run = new Page[runsize];
+		for (int i = 0; i < runsize; i++)
+			run[i] = new Page();
+
+		try {
+			System.out.print("  - Write runs of " + runsize + " pages\n");
+			for (int start = STABLE_START; start < end; start += runsize) {
+				for (int i = 0; i < runsize; i++)
+					fill(run[i].getpage(), start + i, 7);
+				db.write_pages(new PageId(start), runsize, run);
+			}
+
+			System.out.print("  - Read every page back on its own\n");
+			Page pg = new Page();
+			for (int pid = STABLE_START; pid < end; pid++) {
+				db.read_page(new PageId(pid), pg);
+				if (Convert.getIntValue(0, pg.getpage()) != pid || Convert.getIntValue(4, pg.getpage()) != 7) {
+					System.err.print("*** page " + pid + " was not written by write_pages\n");
+					status = FAIL;
+					break;
+				}
+			}
+
+			System.out.print("  - Read the runs back with read_pages\n");
+			int reads = PCounter.rcounter;
+			for (int start = STABLE_START + 3; status == OK && start + runsize <= end; start += runsize) {
+				db.read_pages(new PageId(start), runsize, run);
+				for (int i = 0; i < runsize; i++) {
+					if (Convert.getIntValue(MINIBASE_PAGESIZE - 4, run[i].getpage()) != start + i) {
+						System.err.print("*** page " + (start + i) + " was not read by read_pages\n");
+						status = FAIL;
+						break;
+					}
+				}
+			}
+			if (status == OK && (PCounter.rcounter - reads) % runsize != 0) {
+				System.err.print("*** read_pages did not count one read per page\n");
+				status = FAIL;
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			status = FAIL;
+		}
+
+		try {
+			System.out.print("  - A run past the end of the database is rejected\n");
+			db.read_pages(new PageId(NUM_DB_PAGES - 2), 4, run);
+			System.err.print("*** read_pages past the end did not fail\n");
+			status = FAIL;
+		} catch (InvalidPageNumberException e) {
+		} catch (Exception e) {
+			e.printStackTrace();
+			status = FAIL;
+		}
+
+		try {
+			System.out.print("  - An empty run moves nothing\n");
+			int reads = PCounter.rcounter;
+			int writes = PCounter.wcounter;
+			db.write_pages(new PageId(STABLE_START), 0, run);
+			db.read_pages(new PageId(STABLE_START), 0, run);
+			if (PCounter.rcounter != reads || PCounter.wcounter != writes) {
+				System.err.print("*** an empty run was counted\n");
+				status = FAIL;
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			status = FAIL;
+		}
+
+		try {
+			db.DBDestroy();
+		} catch (IOException e) {
+			System.err.println(" DB already destroyed");
+		}
+
+		return status;
+	}
+
+	/**
+	 * Vectored reads and writes of page runs on both backends.
+	 *
+	 * @return whether test3 has passed
+	 */
+	protected boolean test3() {
+		System.out.print("\n  Test 3 reads and writes runs of pages with vectored I/O:\n");
+		boolean status = runVectored("File");
+		if (status == OK)
+			status = runVectored("Mmap");
+		SystemDefs.MINIBASE_DB_STORAGE = "File";
+		if (status == OK)
+			System.out.print("  Test 3 completed successfully.\n");
+		return status;
+	}
+
+	/**
+	 * Loads a run of pages into the buffer pool and checks that pinning them
+	 * afterwards needs no further disk reads.
+	 *
+	 * @return whether test4 has passed
+	 */
+	protected boolean test4() {
+		System.out.print("\n  Test 4 loads a run of pages into the buffer pool:\n");
+		new SystemDefs(dbpath, NUM_DB_PAGES, NUMBUF, "Clock");
+		DB db = SystemDefs.JavabaseDB;
+		boolean status = OK;
+		int runsize = NUMBUF / 2;
+
+		try {
+			Page pg = new Page();
+			for (int pid = STABLE_START; pid < STABLE_START + runsize; pid++) {
+				fill(pg.getpage(), pid, 9);
+				db.write_page(new PageId(pid), pg);
+			}
+
+			// Have one page of the run in the pool already.
+			PageId pageno = new PageId(STABLE_START + 10);
+			SystemDefs.JavabaseBM.pinPage(pageno, pg, false);
+			SystemDefs.JavabaseBM.unpinPage(pageno, false);
+
+			System.out.print("  - Load " + runsize + " pages\n");
+			int unpinned = SystemDefs.JavabaseBM.getNumUnpinnedBuffers();
+			int reads = PCounter.rcounter;
+			SystemDefs.JavabaseBM.loadPages(new PageId(STABLE_START), runsize);
+			if (PCounter.rcounter - reads != runsize - 1) {
+				System.err.print("*** loadPages read " + (PCounter.rcounter - reads) + " pages\n");
+				status = FAIL;
+			}
+
+			System.out.print("  - Pin every loaded page\n");
+			reads = PCounter.rcounter;
+			for (pageno.pid = STABLE_START; status == OK && pageno.pid < STABLE_START + runsize; pageno.pid++) {
+				SystemDefs.JavabaseBM.pinPage(pageno, pg, false);
+				if (Convert.getIntValue(0, pg.getpage()) != pageno.pid || Convert.getIntValue(4, pg.getpage()) != 9) {
+					System.err.print("*** page " + pageno.pid + " has the wrong contents\n");
+					status = FAIL;
+				}
+				SystemDefs.JavabaseBM.unpinPage(pageno, false);
+			}
+			if (status == OK && PCounter.rcounter != reads) {
+				System.err.print("*** pinning loaded pages went to disk\n");
+				status = FAIL;
+			}
+
+			if (SystemDefs.JavabaseBM.getNumUnpinnedBuffers() != unpinned) {
+				System.err.print("*** loadPages left pages pinned\n");
+				status = FAIL;
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			status = FAIL;
+		}
+
+		try {
+			db.DBDestroy();
+		} catch (IOException e) {
+			System.err.println(" DB already destroyed");
+		}
+
+		if (status == OK)
+			System.out.print("  Test 4 completed successfully.\n");
+		return status;
+	}
+
+	/**
+	 * overrides the testName function in TestDriver
+	 *
+	 * @return the name of the test
+	 */
+	protected String testName() {
+		return "Page I/O";
+	}
+}
+
+public class PageIOTest {
+
+	public static void main(String argv[]) {
+
+		PageIODriver piot = new PageIODriver();
+		boolean dbstatus;
+
+		dbstatus = piot.runTests();
+
+		if (dbstatus != true) {
+			System.err.println("Error encountered during page I/O tests:\n");
+			Runtime.getRuntime().exit(1);
+		}
+
+		Runtime.getRuntime().exit(0);
+	}
+}
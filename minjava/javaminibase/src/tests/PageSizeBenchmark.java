@@ -0,0 +1,165 @@
+package tests;
+
+import java.io.*;
+import java.util.*;
+import global.*;
+import diskmgr.*;
+import nodeheap.*;
+import edgeheap.*;
+import btree.*;
+
+/**
+ * This class compares database page sizes on the NodeInsertData and
+ * EdgeInsertData workloads. For every page size it loads the graph, reports
+ * the height of each B-tree index, and after a restart times a scan of the
+ * node and edge heap files and counts the pages read for it.
+ */
+class PageSizeDriver extends TestDriver implements GlobalConst {
+
+	private static final int[] PAGE_SIZES = { 1024, 2048, 4096, 8192, 16384 };
+	private static final int NUM_DB_PAGES = 60000;
+	private static final int NUM_BUFFERS = 2000;
+
+	private boolean OK = true;
+	private boolean FAIL = false;
+
+	public PageSizeDriver() {
+		super("pagesizebench");
+	}
+
+	/** Load the graph into a new database with the given page size. */
+	private void load(int page_size, List<String> nodes, List<String> edges) throws Exception {
+		SystemDefs.MINIBASE_RESTART_FLAG = false;
+		SystemDefs.MINIBASE_DB_PAGESIZE = page_size;
+		new SystemDefs(dbpath, NUM_DB_PAGES, NUM_BUFFERS, "Clock");
+
+		BatchNodeInsert bni = new BatchNodeInsert();
+		for (String line : nodes)
+			bni.doSingleBatchNodeInsert(line, SystemDefs.JavabaseDB.nodeHeapfile, SystemDefs.JavabaseDB);
+
+		BatchEdgeInsert bei = new BatchEdgeInsert();
+		for (String line : edges) {
+			String[] v = line.split(" ");
+			bei.doSingleBatchEdgInsert(v[0], v[1], v[2], v[3]);
+		}
+	}
+
+	protected boolean test1() {
+		System.out.print("\n  Test 1 loads the graph with each page size\n");
+
+		List<String> nodes, edges;
+		try {
+			nodes = GraphWorkload.readLines("NodeInsertData.txt");
+			edges = GraphWorkload.readLines("EdgeInsertData.txt");
+		} catch (IOException e) {
+			System.err.print("*** Could not read the workload from " + GraphWorkload.dataDir + " (set -Ddatadir)\n");
+			return FAIL;
+		}
+
+		System.out.print("  page    load ms   height: nodeLabel edgeLabel edgeWeight edgeSrc edgeDst"
+				+ "   scan ms  pages read   nodes  edges\n");
+
+		int expectNodes = -1, expectEdges = -1;
+		for (int page_size : PAGE_SIZES) {
+			try {
+				long t0 = System.currentTimeMillis();
+				load(page_size, nodes, edges);
+				long loadMs = System.currentTimeMillis() - t0;
+
+				GraphDB db = SystemDefs.JavabaseDB;
+				BTreeFile[] trees = { db.nodeLabelIndexFile, db.edgeLabelIndexFile, db.edgeWeightIndexFile,
+						db.edgeSourceIndexFile, db.edgeDestinationIndexFile };
+				StringBuffer heights = new StringBuffer();
+				for (BTreeFile tree : trees)
+					heights.append(String.format(" %9d", tree.getHeight()));
+
+				// Restart so that the scan starts with an empty buffer pool.
+				GraphWorkload.closeDB();
+				SystemDefs.MINIBASE_RESTART_FLAG = true;
+				new SystemDefs(dbpath, 0, NUM_BUFFERS, "Clock");
+				SystemDefs.MINIBASE_RESTART_FLAG = false;
+				db = SystemDefs.JavabaseDB;
+
+				if (db.db_page_size() != page_size) {
+					System.err.print("*** Reopened DB has page size " + db.db_page_size() + "\n");
+					return FAIL;
+				}
+
+				int reads = PCounter.rcounter;
+				t0 = System.currentTimeMillis();
+				int numNodes = 0, numEdges = 0;
+				NScan ns = new NScan(db.nodeHeapfile);
+				while (ns.getNext(new NID()) != null)
+					numNodes++;
+				ns.closescan();
+				EScan es = new EScan(db.edgeHeapfile);
+				while (es.getNext(new EID()) != null)
+					numEdges++;
+				es.closescan();
+				long scanMs = System.currentTimeMillis() - t0;
+
+				System.out.print(String.format("  %5d %9d  %s %9d %11d %7d %6d\n", page_size, loadMs,
+						heights.toString(), scanMs, PCounter.rcounter - reads, numNodes, numEdges));
+
+				if (expectNodes < 0) {
+					expectNodes = numNodes;
+					expectEdges = numEdges;
+				} else if (numNodes != expectNodes || numEdges != expectEdges) {
+					System.err.print("*** Page size " + page_size + " lost records\n");
+					return FAIL;
+				}
+
+				GraphWorkload.closeDB();
+			} catch (Exception e) {
+				System.err.print("*** Workload failed with page size " + page_size + "\n");
+				e.printStackTrace();
+				return FAIL;
+			}
+		}
+
+		SystemDefs.MINIBASE_DB_PAGESIZE = MINIBASE_PAGESIZE;
+		return OK;
+	}
+
+	protected boolean test2() {
+		return true;
+	}
+
+	protected boolean test3() {
+		return true;
+	}
+
+	protected boolean test4() {
+		return true;
+	}
+
+	protected boolean test5() {
+		return true;
+	}
+
+	protected boolean test6() {
+		return true;
+	}
+
+	protected String testName() {
+		return "Page size";
+	}
+}
+
+public class PageSizeBenchmark {
+
+	public static void main(String argv[]) {
+
+		PageSizeDriver psb = new PageSizeDriver();
+		boolean dbstatus;
+
+		dbstatus = psb.runTests();
+
+		if (dbstatus != true) {
+			System.err.println("Error encountered during page size tests:\n");
+			Runtime.getRuntime().exit(1);
+		}
+
+		Runtime.getRuntime().exit(0);
+	}
+}
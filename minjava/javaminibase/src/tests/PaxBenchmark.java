@@ -0,0 +1,377 @@
+package tests;
+
+import java.util.*;
+import global.*;
+import diskmgr.*;
+import nodeheap.*;
+import edgeheap.*;
+
+/**
+ * This class loads the same edges into a database whose edges are on
+ * fixed-width pages and into one whose edges are on columnar (PAX) pages,
+ * and times a weight range selection and a count of the distinct sources
+ * with whole-edge scans and with column scans on both. It checks that the
+ * column scans return the fields of every edge as it was inserted, that the
+ * weight range selects the edges it should, that updates and deletions are
+ * kept on the columnar pages, and that the file keeps its format across a
+ * restart.
+ */
+class PaxDriver extends TestDriver implements GlobalConst {
+
+	private static final int NUM_DB_PAGES = 40000;
+	private static final int NUM_BUFFERS = 1000;
+	private static final int NODES = 20000;
+	private static final int EDGES = 200000;
+	private static final int LABELS = 500;
+	private static final int ROUNDS = 10;
+
+	/** The weight range selected, a hundredth of the weights. */
+	private static final int LOW = 5000, HIGH = LOW + EDGES / 100 - 1;
+
+	private boolean OK = true;
+	private boolean FAIL = false;
+
+	private byte[][] edges;
+	private EID[] eids;
+
+	/** The times of the fixed-width database: whole scans, then column scans. */
+	private double fixedRange, fixedColumnRange, fixedSources, fixedColumnSources;
+
+	public PaxDriver() {
+		super("paxbench");
+	}
+
+	/* A key for a record id, which has no hashCode of its own. */
+	private static Long key(RID rid) {
+		return ((long) rid.pageNo.pid << 32) | rid.slotNo;
+	}
+
+	private String paxPath() {
+		return dbpath + ".pax";
+	}
+
+	/* Load the nodes and edges into a new database. */
+	private void load(String path, boolean pax) throws Exception {
+		SystemDefs.MINIBASE_RESTART_FLAG = false;
+		SystemDefs.MINIBASE_FIXED_PAGES = true;
+		SystemDefs.MINIBASE_PAX_EDGES = pax;
+		new SystemDefs(path, NUM_DB_PAGES, NUM_BUFFERS, "Clock");
+		SystemDefs.MINIBASE_FIXED_PAGES = false;
+		SystemDefs.MINIBASE_PAX_EDGES = false;
+		GraphDB db = SystemDefs.JavabaseDB;
+
+		byte[][] nodes = new byte[NODES][];
+		for (int i = 0; i < NODES; i++) {
+			Node node = new Node();
+			node.setLabel("person_" + i);
+			node.setDesc(new Descriptor());
+			nodes[i] = node.getNodeByteArray();
+		}
+		NID[] nids = db.nodeHeapfile.bulkInsertNodes(nodes, 1.0);
+
+		// Every weight is taken once, in a shuffled order.
+		Random rnd = new Random(37);
+		int[] weights = new int[EDGES];
+		for (int i = 0; i < EDGES; i++)
+			weights[i] = i;
+		for (int i = EDGES - 1; i > 0; i--) {
+			int k = rnd.nextInt(i + 1);
+			int w = weights[i];
+			weights[i] = weights[k];
+			weights[k] = w;
+		}
+
+		edges = new byte[EDGES][];
+		for (int i = 0; i < EDGES; i++) {
+			Edge edge = new Edge();
+			edge.setLabel("relationship_" + (i % LABELS));
+			edge.setSource(nids[rnd.nextInt(NODES)]);
+			edge.setDestination(nids[rnd.nextInt(NODES)]);
+			edge.setWeight(weights[i]);
+			edges[i] = edge.getEdgeByteArray();
+		}
+		eids = db.edgeHeapfile.bulkInsertEdges(edges, 1.0);
+	}
+
+	/* The edges a scan of the weight range returns, with whole edges. */
+	private int rangeScan(EdgeHeapfile hf) throws Exception {
+		EScan scan = hf.openScan();
+		EID eid = new EID();
+		int n = 0;
+		for (Edge edge = scan.getNext(eid); edge != null; edge = scan.getNext(eid))
+			if (edge.getWeight() >= LOW && edge.getWeight() <= HIGH)
+				n++;
+		scan.closescan();
+		return n;
+	}
+
+	/* The edges a scan of the weight range returns, with a column scan. */
+	private int columnRangeScan(EdgeHeapfile hf) throws Exception {
+		EColumnScan scan = hf.openColumnScan(EColumnScan.WEIGHT);
+		scan.setWeightRange(LOW, HIGH);
+		EID eid = new EID();
+		int n = 0;
+		while (scan.getNext(eid))
+			n++;
+		scan.closescan();
+		return n;
+	}
+
+	/* The distinct sources of the edges, with whole edges. */
+	private int sourceScan(EdgeHeapfile hf) throws Exception {
+		Set<Long> sources = new HashSet<Long>();
+		EScan scan = hf.openScan();
+		EID eid = new EID();
+		for (Edge edge = scan.getNext(eid); edge != null; edge = scan.getNext(eid))
+			sources.add(key(edge.getSource()));
+		scan.closescan();
+		return sources.size();
+	}
+
+	/* The distinct sources of the edges, with a column scan. */
+	private int columnSourceScan(EdgeHeapfile hf) throws Exception {
+		Set<Long> sources = new HashSet<Long>();
+		EColumnScan scan = hf.openColumnScan(EColumnScan.SOURCE);
+		EID eid = new EID();
+		while (scan.getNext(eid))
+			sources.add(key(scan.getSource()));
+		scan.closescan();
+		return sources.size();
+	}
+
+	/* The best time, in ns per edge, of a scan, which returns what it should. */
+	private double time(String what, int scan, int expected) throws Exception {
+		EdgeHeapfile hf = SystemDefs.JavabaseDB.edgeHeapfile;
+		long best = Long.MAX_VALUE;
+		for (int r = 0; r < ROUNDS; r++) {
+			long t0 = System.nanoTime();
+			int n;
+			switch (scan) {
+			case 0:
+				n = rangeScan(hf);
+				break;
+			case 1:
+				n = columnRangeScan(hf);
+				break;
+			case 2:
+				n = sourceScan(hf);
+				break;
+			default:
+				n = columnSourceScan(hf);
+			}
+			best = Math.min(best, System.nanoTime() - t0);
+			if (n != expected)
+				throw new Exception(what + " returned " + n + " edges, not " + expected);
+		}
+		System.out.print(String.format("  %-22s %8.1f ns\n", what + ":", (double) best / EDGES));
+		return (double) best / EDGES;
+	}
+
+	private int distinctSources() throws Exception {
+		Set<Long> sources = new HashSet<Long>();
+		for (byte[] e : edges)
+			sources.add(key(new Edge(e, 0).getSource()));
+		return sources.size();
+	}
+
+	private void reopen(String path) {
+		SystemDefs.MINIBASE_RESTART_FLAG = true;
+		new SystemDefs(path, 0, NUM_BUFFERS, "Clock");
+		SystemDefs.MINIBASE_RESTART_FLAG = false;
+	}
+
+	protected boolean test1() {
+		System.out.print("\n  Test 1 scans " + EDGES + " edges on fixed-width pages, in ns per edge\n");
+
+		try {
+			load(dbpath, false);
+			int sources = distinctSources();
+			fixedRange = time("weight range", 0, HIGH - LOW + 1);
+			fixedColumnRange = time("weight range, columns", 1, HIGH - LOW + 1);
+			fixedSources = time("sources", 2, sources);
+			fixedColumnSources = time("sources, columns", 3, sources);
+			GraphWorkload.closeDB();
+		} catch (Exception e) {
+			System.err.print("*** Scanning failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+		return OK;
+	}
+
+	protected boolean test2() {
+		System.out.print("\n  Test 2 scans the same edges on columnar pages\n");
+
+		try {
+			load(paxPath(), true);
+			if (!SystemDefs.JavabaseDB.edgeHeapfile.hasPaxPages()) {
+				System.err.print("*** The edges are not on columnar pages\n");
+				return FAIL;
+			}
+			int sources = distinctSources();
+			double range = time("weight range", 0, HIGH - LOW + 1);
+			double columnRange = time("weight range, columns", 1, HIGH - LOW + 1);
+			double all = time("sources", 2, sources);
+			double columnSources = time("sources, columns", 3, sources);
+
+			System.out.print(String.format("  weight range: %.2fx as fast as a whole scan of fixed pages, %.2fx of a "
+					+ "column scan\n", fixedRange / columnRange, fixedColumnRange / columnRange));
+			System.out.print(String.format("  sources:      %.2fx as fast as a whole scan of fixed pages, %.2fx of a "
+					+ "column scan\n", fixedSources / columnSources, fixedColumnSources / columnSources));
+			System.out.print(String.format("  whole scans of columnar pages: %.2fx, %.2fx of fixed pages\n",
+					fixedRange / range, fixedSources / all));
+		} catch (Exception e) {
+			System.err.print("*** Scanning failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+		return OK;
+	}
+
+	protected boolean test3() {
+		System.out.print("\n  Test 3 checks the columns of every edge\n");
+
+		GraphDB db = SystemDefs.JavabaseDB;
+		try {
+			Map<Long, Integer> index = new HashMap<Long, Integer>();
+			for (int i = 0; i < EDGES; i++)
+				index.put(key(eids[i]), i);
+
+			EColumnScan scan = db.edgeHeapfile.openColumnScan(
+					EColumnScan.LABEL | EColumnScan.SOURCE | EColumnScan.DESTINATION | EColumnScan.WEIGHT);
+			EID eid = new EID();
+			int n = 0;
+			while (scan.getNext(eid)) {
+				Edge edge = new Edge(edges[index.get(key(eid))], 0);
+				if (!scan.getLabel().equals(edge.getLabel()) || !scan.getSource().equals(edge.getSource())
+						|| !scan.getDestination().equals(edge.getDestination())
+						|| scan.getWeight() != edge.getWeight()
+						|| !Arrays.equals(scan.getEdge().getEdgeByteArray(), edges[index.get(key(eid))])) {
+					System.err.print("*** The columns of " + eid + " are off\n");
+					scan.closescan();
+					return FAIL;
+				}
+				n++;
+			}
+			scan.closescan();
+			if (n != EDGES) {
+				System.err.print("*** The scan returned " + n + " edges\n");
+				return FAIL;
+			}
+			if (db.edgeHeapfile.getSourceCnt() != distinctSources()) {
+				System.err.print("*** The count of sources is off\n");
+				return FAIL;
+			}
+
+			// A column that was not asked for is not returned.
+			scan = db.edgeHeapfile.openColumnScan(EColumnScan.WEIGHT);
+			scan.getNext(eid);
+			try {
+				scan.getLabel();
+				System.err.print("*** The scan returned a column it did not read\n");
+				return FAIL;
+			} catch (heap.FieldNumberOutOfBoundException e) {
+			} finally {
+				scan.closescan();
+			}
+		} catch (Exception e) {
+			System.err.print("*** Checking the columns failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		System.out.print("  The column scan read every edge as it was inserted\n");
+		return OK;
+	}
+
+	protected boolean test4() {
+		System.out.print("\n  Test 4 updates and deletes edges on the columnar pages, and restarts\n");
+
+		try {
+			GraphDB db = SystemDefs.JavabaseDB;
+			for (int i = 0; i < 100; i++) {
+				Edge old = db.edgeHeapfile.getEdge(eids[i]);
+				Edge edge = new Edge();
+				edge.setLabel("updated");
+				edge.setSource(old.getSource());
+				edge.setDestination(old.getDestination());
+				edge.setWeight(-1 - i);
+				db.edgeHeapfile.updateEdge(eids[i], edge);
+				edges[i] = edge.getEdgeByteArray();
+			}
+			for (int i = 100; i < 200; i++)
+				db.edgeHeapfile.deleteEdge(eids[i]);
+
+			GraphWorkload.closeDB();
+			reopen(paxPath());
+			db = SystemDefs.JavabaseDB;
+			if (!db.edgeHeapfile.hasPaxPages()) {
+				System.err.print("*** The columnar pages were not kept\n");
+				return FAIL;
+			}
+
+			EColumnScan scan = db.edgeHeapfile.openColumnScan(EColumnScan.LABEL);
+			scan.setWeightRange(-100, -1);
+			EID eid = new EID();
+			int n = 0;
+			while (scan.getNext(eid)) {
+				if (!scan.getLabel().equals("updated")) {
+					System.err.print("*** The update of " + eid + " was not kept\n");
+					scan.closescan();
+					return FAIL;
+				}
+				n++;
+			}
+			scan.closescan();
+			if (n != 100 || db.getEdgeCnt() != EDGES - 100) {
+				System.err.print("*** " + n + " updated edges and " + db.getEdgeCnt() + " edges\n");
+				return FAIL;
+			}
+			for (int i = 0; i < 100; i++) {
+				if (!Arrays.equals(db.edgeHeapfile.getEdge(eids[i]).getEdgeByteArray(), edges[i])) {
+					System.err.print("*** Edge " + i + " does not read back\n");
+					return FAIL;
+				}
+			}
+			GraphWorkload.closeDB();
+			new java.io.File(paxPath()).delete();
+		} catch (Exception e) {
+			System.err.print("*** Updating failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		System.out.print("  The updates and deletions were kept\n");
+		return OK;
+	}
+
+	protected boolean test5() {
+		return true;
+	}
+
+	protected boolean test6() {
+		return true;
+	}
+
+	protected String testName() {
+		return "Columnar edge pages";
+	}
+}
+
+public class PaxBenchmark {
+
+	public static void main(String argv[]) {
+
+		PaxDriver px = new PaxDriver();
+		boolean dbstatus;
+
+		dbstatus = px.runTests();
+
+		if (dbstatus != true) {
+			System.err.println("Error encountered during columnar page tests:\n");
+			Runtime.getRuntime().exit(1);
+		}
+
+		Runtime.getRuntime().exit(0);
+	}
+}
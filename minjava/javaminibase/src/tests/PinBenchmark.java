@@ -0,0 +1,162 @@
+package tests;
+
+import java.io.*;
+import java.util.*;
+import global.*;
+import diskmgr.*;
+
+/**
+ * This class times pinPage/unpinPage of pages that are already in the
+ * buffer pool, with a pool as large as the one BatchDriver uses, and checks
+ * that the page table keeps finding the right frames while pages are evicted
+ * and read back.
+ */
+class PinDriver extends TestDriver implements GlobalConst {
+
+	private static final int NUM_DB_PAGES = 80000;
+	private static final int BIG_POOL = 30000;
+	private static final int SMALL_POOL = 1000;
+	private static final int PINS = 5000000;
+
+	private boolean OK = true;
+	private boolean FAIL = false;
+
+	public PinDriver() {
+		super("pinbench");
+	}
+
+	/**
+	 * Allocate num pages and write pid + 99999 at the start of each.
+	 *
+	 * @return the first page id
+	 */
+	private PageId fillPages(int num) throws Exception {
+		Page pg = new Page();
+		PageId first = SystemDefs.JavabaseBM.newPage(pg, num);
+		SystemDefs.JavabaseBM.unpinPage(first, false);
+
+		PageId pid = new PageId();
+		for (pid.pid = first.pid; pid.pid < first.pid + num; pid.pid++) {
+			SystemDefs.JavabaseBM.pinPage(pid, pg, true /* emptyPage */);
+			Convert.setIntValue(pid.pid + 99999, 0, pg.getpage());
+			SystemDefs.JavabaseBM.unpinPage(pid, true /* dirty */);
+		}
+		return first;
+	}
+
+	protected boolean test1() {
+		System.out.print("\n  Test 1 times pin/unpin hits in a " + BIG_POOL + "-frame pool\n");
+
+		new SystemDefs(dbpath, NUM_DB_PAGES, BIG_POOL, "Clock");
+		int num = SystemDefs.JavabaseBM.getNumUnpinnedBuffers() - 100;
+
+		try {
+			PageId first = fillPages(num);
+
+			Random rnd = new Random(7);
+			int[] order = new int[1 << 16];
+			for (int i = 0; i < order.length; i++)
+				order[i] = first.pid + rnd.nextInt(num);
+
+			Page pg = new Page();
+			PageId pid = new PageId();
+			int reads = PCounter.rcounter;
+
+			// One warm-up round, then the timed one.
+			long ns = 0;
+			for (int round = 0; round < 2; round++) {
+				long t0 = System.nanoTime();
+				for (int i = 0; i < PINS; i++) {
+					pid.pid = order[i & (order.length - 1)];
+					SystemDefs.JavabaseBM.pinPage(pid, pg, false);
+					SystemDefs.JavabaseBM.unpinPage(pid, false);
+				}
+				ns = System.nanoTime() - t0;
+			}
+
+			if (PCounter.rcounter != reads) {
+				System.err.print("*** Pages were read from disk although all of them were resident\n");
+				return FAIL;
+			}
+			System.out.print("  - " + PINS + " pin/unpin pairs over " + num + " resident pages: "
+					+ (ns / 1000000) + " ms, " + (PINS * 1000L / Math.max(1, ns / 1000000)) + " pairs/s\n");
+		} catch (Exception e) {
+			System.err.print("*** Pin/unpin failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		return OK;
+	}
+
+	protected boolean test2() {
+		System.out.print("\n  Test 2 pins pages at random in a " + SMALL_POOL + "-frame pool\n");
+
+		new SystemDefs(dbpath, NUM_DB_PAGES, SMALL_POOL, "Clock");
+		int num = 5 * SMALL_POOL;
+
+		try {
+			PageId first = fillPages(num);
+
+			Random rnd = new Random(11);
+			Page pg = new Page();
+			PageId pid = new PageId();
+			for (int i = 0; i < 200000; i++) {
+				pid.pid = first.pid + rnd.nextInt(num);
+				SystemDefs.JavabaseBM.pinPage(pid, pg, false);
+				int data = Convert.getIntValue(0, pg.getpage());
+				SystemDefs.JavabaseBM.unpinPage(pid, false);
+
+				if (data != pid.pid + 99999) {
+					System.err.print("*** Page " + pid.pid + " holds the data of page " + (data - 99999) + "\n");
+					return FAIL;
+				}
+			}
+		} catch (Exception e) {
+			System.err.print("*** Pin/unpin failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		System.out.print("  - Every pinned page held its own data\n");
+		return OK;
+	}
+
+	protected boolean test3() {
+		return true;
+	}
+
+	protected boolean test4() {
+		return true;
+	}
+
+	protected boolean test5() {
+		return true;
+	}
+
+	protected boolean test6() {
+		return true;
+	}
+
+	protected String testName() {
+		return "Buffer pin";
+	}
+}
+
+public class PinBenchmark {
+
+	public static void main(String argv[]) {
+
+		PinDriver pb = new PinDriver();
+		boolean dbstatus;
+
+		dbstatus = pb.runTests();
+
+		if (dbstatus != true) {
+			System.err.println("Error encountered during buffer pin tests:\n");
+			Runtime.getRuntime().exit(1);
+		}
+
+		Runtime.getRuntime().exit(0);
+	}
+}
@@ -0,0 +1,183 @@
+package tests;
+
+import java.io.*;
+import java.util.*;
+import global.*;
+import diskmgr.*;
+import nodeheap.*;
+import edgeheap.*;
+
+/**
+ * This class times full scans of the node and edge heap files of the
+ * NodeInsertData and EdgeInsertData graph with read-ahead off
+ * (SystemDefs.MINIBASE_READ_AHEAD = 0) and on. The edges are loaded several
+ * times over so the edge heap file spans many data pages. Every pass reopens
+ * the database, so the scans start with an empty buffer pool, and checks
+ * that the scans return the same number of nodes and edges. Set -Ddropcaches
+ * to a command that empties the OS page cache to time scans from the disk.
+ */
+class ReadAheadDriver extends TestDriver implements GlobalConst {
+
+	private static final int NUM_DB_PAGES = 60000;
+	private static final int LOAD_BUFFERS = 2000;
+	private static final int NUM_BUFFERS = 400;
+	private static final int EDGE_COPIES = 8;
+	private static final int PASSES = 5;
+
+	/**
+	 * Shell command run before every pass to empty the OS page cache, e.g.
+	 * "sync; echo 3 > /proc/sys/vm/drop_caches", or null to keep it.
+	 */
+	private String dropCaches = System.getProperty("dropcaches");
+
+	private boolean OK = true;
+	private boolean FAIL = false;
+
+	public ReadAheadDriver() {
+		super("readaheadbench");
+	}
+
+	/** Load the graph into a new database and close it. */
+	private void load(List<String> nodes, List<String> edges) throws Exception {
+		SystemDefs.MINIBASE_RESTART_FLAG = false;
+		new SystemDefs(dbpath, NUM_DB_PAGES, LOAD_BUFFERS, "Clock");
+
+		BatchNodeInsert bni = new BatchNodeInsert();
+		for (String line : nodes)
+			bni.doSingleBatchNodeInsert(line, SystemDefs.JavabaseDB.nodeHeapfile, SystemDefs.JavabaseDB);
+
+		BatchEdgeInsert bei = new BatchEdgeInsert();
+		for (int c = 0; c < EDGE_COPIES; c++) {
+			for (String line : edges) {
+				String[] v = line.split(" ");
+				bei.doSingleBatchEdgInsert(v[0], v[1], v[2] + "_" + c, v[3]);
+			}
+		}
+
+		GraphWorkload.closeDB();
+	}
+
+	/**
+	 * Reopen the database with an empty pool and scan both heap files.
+	 *
+	 * @return {nanoseconds, nodes, edges, pages read}
+	 */
+	private long[] scan(int readAhead) throws Exception {
+		if (dropCaches != null)
+			Runtime.getRuntime().exec(new String[] { "sh", "-c", dropCaches }).waitFor();
+
+		SystemDefs.MINIBASE_READ_AHEAD = readAhead;
+		SystemDefs.MINIBASE_RESTART_FLAG = true;
+		new SystemDefs(dbpath, 0, NUM_BUFFERS, "Clock");
+		SystemDefs.MINIBASE_RESTART_FLAG = false;
+
+		GraphDB db = SystemDefs.JavabaseDB;
+		long nodes = 0, edges = 0;
+		int reads = PCounter.rcounter;
+		long t0 = System.nanoTime();
+
+		NScan ns = new NScan(db.nodeHeapfile);
+		while (ns.getNext(new NID()) != null)
+			nodes++;
+		ns.closescan();
+
+		EScan es = new EScan(db.edgeHeapfile);
+		while (es.getNext(new EID()) != null)
+			edges++;
+		es.closescan();
+
+		long t = System.nanoTime() - t0;
+		reads = PCounter.rcounter - reads;
+		GraphWorkload.closeDB();
+		return new long[] { t, nodes, edges, reads };
+	}
+
+	protected boolean test1() {
+		System.out.print("\n  Test 1 times full scans from an empty " + NUM_BUFFERS + "-frame pool\n");
+
+		try {
+			load(GraphWorkload.readLines("NodeInsertData.txt"), GraphWorkload.readLines("EdgeInsertData.txt"));
+		} catch (IOException e) {
+			System.err.print("*** Could not read the workload from " + GraphWorkload.dataDir + " (set -Ddatadir)\n");
+			return FAIL;
+		} catch (Exception e) {
+			System.err.print("*** Could not load the graph\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		int saved = SystemDefs.MINIBASE_READ_AHEAD;
+		int[] settings = { 0, saved > 0 ? saved : 8 };
+		long[][] best = new long[2][];
+
+		try {
+			// Alternate the settings so both see the same state of the OS cache.
+			for (int p = 0; p < PASSES; p++) {
+				for (int s = 0; s < 2; s++) {
+					long[] r = scan(settings[s]);
+					if (best[s] == null || r[0] < best[s][0])
+						best[s] = r;
+				}
+			}
+		} catch (Exception e) {
+			System.err.print("*** Scan failed\n");
+			e.printStackTrace();
+			return FAIL;
+		} finally {
+			SystemDefs.MINIBASE_READ_AHEAD = saved;
+		}
+
+		for (int s = 0; s < 2; s++)
+			System.out.print(String.format("  read-ahead %2d: %8.2f ms, %d nodes, %d edges, %d pages read\n",
+					settings[s], best[s][0] / 1e6, best[s][1], best[s][2], best[s][3]));
+
+		if (best[0][1] != best[1][1] || best[0][2] != best[1][2]) {
+			System.err.print("*** The scans returned different records\n");
+			return FAIL;
+		}
+
+		return OK;
+	}
+
+	protected boolean test2() {
+		return true;
+	}
+
+	protected boolean test3() {
+		return true;
+	}
+
+	protected boolean test4() {
+		return true;
+	}
+
+	protected boolean test5() {
+		return true;
+	}
+
+	protected boolean test6() {
+		return true;
+	}
+
+	protected String testName() {
+		return "Read-ahead";
+	}
+}
+
+public class ReadAheadBenchmark {
+
+	public static void main(String argv[]) {
+
+		ReadAheadDriver rb = new ReadAheadDriver();
+		boolean dbstatus;
+
+		dbstatus = rb.runTests();
+
+		if (dbstatus != true) {
+			System.err.println("Error encountered during read-ahead tests:\n");
+			Runtime.getRuntime().exit(1);
+		}
+
+		Runtime.getRuntime().exit(0);
+	}
+}
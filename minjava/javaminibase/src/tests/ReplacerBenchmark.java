@@ -0,0 +1,225 @@
+package tests;
+
+import java.io.*;
+import java.util.*;
+import global.*;
+import diskmgr.*;
+import nodeheap.*;
+import edgeheap.*;
+import btree.*;
+
+/**
+ * This class compares the buffer replacement policies on the NodeInsertData
+ * and EdgeInsertData graph. It loads the graph once, then for every policy
+ * reopens the database with a small buffer pool and replays two workloads:
+ * node label lookups through the B-tree index mixed with full scans of the
+ * edge heap file, and the node and edge queries with their output thrown
+ * away. For each it reports the pins, the pages read and the hit ratio.
+ */
+class ReplacerDriver extends TestDriver implements GlobalConst {
+
+	private static final String[] POLICIES = { "Clock", "LRU", "2Q", "ARC" };
+	private static final int NUM_DB_PAGES = 60000;
+	private static final int LOAD_BUFFERS = 2000;
+	private static final int NUM_BUFFERS = 150;
+	private static final int ROUNDS = 10;
+	private static final int PROBES = 300;
+
+	private boolean OK = true;
+	private boolean FAIL = false;
+
+	public ReplacerDriver() {
+		super("replacerbench");
+	}
+
+	/** Load the graph into a new database and close it. */
+	private void load(List<String> nodes, List<String> edges) throws Exception {
+		SystemDefs.MINIBASE_RESTART_FLAG = false;
+		new SystemDefs(dbpath, NUM_DB_PAGES, LOAD_BUFFERS, "Clock");
+
+		BatchNodeInsert bni = new BatchNodeInsert();
+		for (String line : nodes)
+			bni.doSingleBatchNodeInsert(line, SystemDefs.JavabaseDB.nodeHeapfile, SystemDefs.JavabaseDB);
+
+		BatchEdgeInsert bei = new BatchEdgeInsert();
+		for (String line : edges) {
+			String[] v = line.split(" ");
+			bei.doSingleBatchEdgInsert(v[0], v[1], v[2], v[3]);
+		}
+
+		GraphWorkload.closeDB();
+	}
+
+	/** Reopen the loaded database with the given policy. */
+	private void reopen(String policy) {
+		SystemDefs.MINIBASE_RESTART_FLAG = true;
+		new SystemDefs(dbpath, 0, NUM_BUFFERS, policy);
+		SystemDefs.MINIBASE_RESTART_FLAG = false;
+	}
+
+	/** Pins and page reads since the last call, as {pins, reads}. */
+	private int[] last = new int[2];
+
+	private int[] delta() {
+		int[] d = { PCounter.prcounter - last[0], PCounter.rcounter - last[1] };
+		last[0] = PCounter.prcounter;
+		last[1] = PCounter.rcounter;
+		return d;
+	}
+
+	private String ratio(int[] d) {
+		return String.format("%7d %6d %6.1f%%", d[0], d[1], 100.0 * (d[0] - d[1]) / Math.max(1, d[0]));
+	}
+
+	/** Look up a node by its label through the label index. */
+	private void probe(GraphDB db, String label) throws Exception {
+		BTFileScan scan = db.nodeLabelIndexFile.new_scan(new StringKey(label), new StringKey(label));
+		KeyDataEntry entry = scan.get_next();
+		while (entry != null) {
+			NID nid = new NID();
+			nid.copyRid(((LeafData) entry.data).getData());
+			db.nodeHeapfile.getNode(nid);
+			entry = scan.get_next();
+		}
+		scan.DestroyBTreeFileScan();
+	}
+
+	/**
+	 * Label lookups mixed with edge scans.
+	 *
+	 * @return {pins, reads} of the whole workload and of the lookups alone
+	 */
+	private int[][] probesAndScans(List<String> labels) throws Exception {
+		GraphDB db = SystemDefs.JavabaseDB;
+		Random rnd = new Random(19);
+		int[] all = new int[2], probes = new int[2];
+
+		delta();
+		for (int r = 0; r < ROUNDS; r++) {
+			for (int i = 0; i < PROBES; i++)
+				probe(db, labels.get(rnd.nextInt(labels.size() / 10)));
+			int[] d = delta();
+			probes[0] += d[0];
+			probes[1] += d[1];
+
+			EScan es = new EScan(db.edgeHeapfile);
+			while (es.getNext(new EID()) != null)
+				;
+			es.closescan();
+			int[] s = delta();
+			all[0] += d[0] + s[0];
+			all[1] += d[1] + s[1];
+		}
+		return new int[][] { all, probes };
+	}
+
+	/** The node and edge queries, with their output thrown away. */
+	private int[] queries(List<String> labels) {
+		PrintStream out = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			public void write(int b) {
+			}
+		}));
+
+		delta();
+		try {
+			for (int idx = 0; idx <= 1; idx++) {
+				for (int i = 0; i < 5; i++)
+					new NodeQuery().evaluate(4, idx, new String[] { labels.get(i * 7), "x" });
+				new NodeQuery().evaluate(1, idx, new String[] { "x" });
+				new NodeQuery().evaluate(2, idx, new String[] { "1,2,3,4,5" });
+				for (int q = 0; q <= 6; q++)
+					new EdgeQuery().evaluate(q, idx, new String[] { "20", "30" });
+			}
+		} finally {
+			System.setOut(out);
+		}
+		return delta();
+	}
+
+	protected boolean test1() {
+		System.out.print("\n  Test 1 replays the workloads with each policy in a " + NUM_BUFFERS + "-frame pool\n");
+
+		List<String> labels = new ArrayList<String>();
+		try {
+			List<String> nodes = GraphWorkload.readLines("NodeInsertData.txt");
+			List<String> edges = GraphWorkload.readLines("EdgeInsertData.txt");
+			load(nodes, edges);
+			for (String line : nodes)
+				labels.add(line.split(" ")[0]);
+		} catch (IOException e) {
+			System.err.print("*** Could not read the workload from " + GraphWorkload.dataDir + " (set -Ddatadir)\n");
+			return FAIL;
+		} catch (Exception e) {
+			System.err.print("*** Could not load the graph\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		System.out.print("           lookups + edge scans                     queries\n");
+		System.out.print("  policy      pins  reads    hit  lookup hit      pins  reads    hit\n");
+
+		for (String policy : POLICIES) {
+			try {
+				reopen(policy);
+				int[][] mixed = probesAndScans(labels);
+				GraphWorkload.closeDB();
+
+				reopen(policy);
+				int[] q = queries(labels);
+				GraphWorkload.closeDB();
+
+				System.out.print(String.format("  %-6s %s %10.1f%%   %s\n", policy, ratio(mixed[0]),
+						100.0 * (mixed[1][0] - mixed[1][1]) / Math.max(1, mixed[1][0]), ratio(q)));
+			} catch (Exception e) {
+				System.err.print("*** Workload failed with policy " + policy + "\n");
+				e.printStackTrace();
+				return FAIL;
+			}
+		}
+
+		return OK;
+	}
+
+	protected boolean test2() {
+		return true;
+	}
+
+	protected boolean test3() {
+		return true;
+	}
+
+	protected boolean test4() {
+		return true;
+	}
+
+	protected boolean test5() {
+		return true;
+	}
+
+	protected boolean test6() {
+		return true;
+	}
+
+	protected String testName() {
+		return "Replacement policy";
+	}
+}
+
+public class ReplacerBenchmark {
+
+	public static void main(String argv[]) {
+
+		ReplacerDriver rb = new ReplacerDriver();
+		boolean dbstatus;
+
+		dbstatus = rb.runTests();
+
+		if (dbstatus != true) {
+			System.err.println("Error encountered during replacement policy tests:\n");
+			Runtime.getRuntime().exit(1);
+		}
+
+		Runtime.getRuntime().exit(0);
+	}
+}
@@ -0,0 +1,185 @@
+package tests;
+
+import java.io.*;
+import java.util.*;
+import global.*;
+import diskmgr.*;
+import heap.HyperLogLog;
+import nodeheap.*;
+import edgeheap.*;
+
+/**
+ * This class compares the estimated distinct label, source and destination
+ * counts of a graph DB with the exact ones, on the NodeInsertData and
+ * EdgeInsertData graph, again after the DB is closed and opened, and on a
+ * larger generated graph. It also times the sketch updates against the
+ * insertions they are part of.
+ */
+class SketchDriver extends TestDriver implements GlobalConst {
+
+	private static final int NUM_DB_PAGES = 60000;
+	private static final int NUM_BUFFERS = 1000;
+	private static final int EDGES = 300000;
+
+	/** Largest relative error accepted, about three standard errors. */
+	private static final double MAX_ERROR = 0.05;
+
+	private boolean OK = true;
+	private boolean FAIL = false;
+
+	public SketchDriver() {
+		super("sketchbench");
+	}
+
+	private boolean compare(String what, long exact, long estimate) {
+		double error = exact == 0 ? estimate : Math.abs(estimate - exact) / (double) exact;
+		System.out.print(String.format("  %-14s exact %7d, estimate %7d, error %5.2f%%\n", what, exact, estimate,
+				100 * error));
+		if (error > MAX_ERROR) {
+			System.err.print("*** The estimate of " + what + " is off by more than " + 100 * MAX_ERROR + "%\n");
+			return false;
+		}
+		return true;
+	}
+
+	private boolean compareAll(GraphDB db) throws Exception {
+		boolean ok = compare("labels", db.getLabelCnt(), db.estimateLabelCnt());
+		ok &= compare("sources", db.getSourceCnt(), db.estimateSourceCnt());
+		ok &= compare("destinations", db.getDestinationCnt(), db.estimateDestinationCnt());
+		return ok;
+	}
+
+	protected boolean test1() {
+		System.out.print("\n  Test 1 estimates the distinct counts of the EdgeInsertData graph\n");
+
+		SystemDefs.MINIBASE_RESTART_FLAG = false;
+		new SystemDefs(dbpath, NUM_DB_PAGES, NUM_BUFFERS, "Clock");
+
+		try {
+			List<String> nodes = GraphWorkload.readLines("NodeInsertData.txt");
+			List<String> edges = GraphWorkload.readLines("EdgeInsertData.txt");
+			GraphDB db = SystemDefs.JavabaseDB;
+			new BatchNodeInsert().doBatchNodeInsert(nodes, db.nodeHeapfile, db);
+			new BatchEdgeInsert().doBatchEdgeInsert(edges);
+
+			if (!compareAll(db))
+				return FAIL;
+			long[] before = { db.estimateLabelCnt(), db.estimateSourceCnt(), db.estimateDestinationCnt() };
+			GraphWorkload.closeDB();
+
+			SystemDefs.MINIBASE_RESTART_FLAG = true;
+			new SystemDefs(dbpath, 0, NUM_BUFFERS, "Clock");
+			SystemDefs.MINIBASE_RESTART_FLAG = false;
+			db = SystemDefs.JavabaseDB;
+			long[] after = { db.estimateLabelCnt(), db.estimateSourceCnt(), db.estimateDestinationCnt() };
+			System.out.print("  after opening the DB again: " + Arrays.toString(after) + "\n");
+			if (!Arrays.equals(before, after)) {
+				System.err.print("*** The sketches changed: " + Arrays.toString(before) + "\n");
+				return FAIL;
+			}
+			GraphWorkload.closeDB();
+		} catch (IOException e) {
+			System.err.print("*** Could not read the workload from " + GraphWorkload.dataDir + " (set -Ddatadir)\n");
+			return FAIL;
+		} catch (Exception e) {
+			System.err.print("*** Estimating failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		return OK;
+	}
+
+	protected boolean test2() {
+		System.out.print("\n  Test 2 estimates the distinct counts of " + EDGES + " generated edges\n");
+
+		SystemDefs.MINIBASE_RESTART_FLAG = false;
+		new SystemDefs(dbpath, NUM_DB_PAGES, NUM_BUFFERS, "Clock");
+		Random rnd = new Random(5);
+
+		try {
+			GraphDB db = SystemDefs.JavabaseDB;
+			byte[][] edges = new byte[EDGES][];
+			String[] labels = new String[EDGES];
+			NID[] sources = new NID[EDGES];
+			NID[] destinations = new NID[EDGES];
+			for (int i = 0; i < EDGES; i++) {
+				labels[i] = "e" + rnd.nextInt(EDGES / 3);
+				sources[i] = new NID(new PageId(rnd.nextInt(1000)), rnd.nextInt(50));
+				destinations[i] = new NID(new PageId(rnd.nextInt(5000)), rnd.nextInt(50));
+				Edge edge = new Edge();
+				edge.setLabel(labels[i]);
+				edge.setSource(sources[i]);
+				edge.setDestination(destinations[i]);
+				edge.setWeight(i);
+				edges[i] = edge.getEdgeByteArray();
+			}
+
+			long t0 = System.nanoTime();
+			db.edgeHeapfile.bulkInsertEdges(edges, 1.0);
+			long insert = System.nanoTime() - t0;
+
+			if (!compareAll(db))
+				return FAIL;
+
+			// The sketch updates alone, as the heap file makes them.
+			HyperLogLog labelSketch = new HyperLogLog();
+			HyperLogLog sourceSketch = new HyperLogLog();
+			HyperLogLog destinationSketch = new HyperLogLog();
+			t0 = System.nanoTime();
+			for (int i = 0; i < EDGES; i++) {
+				labelSketch.add(labels[i]);
+				sourceSketch.add(((long) sources[i].pageNo.pid << 32) | sources[i].slotNo);
+				destinationSketch.add(((long) destinations[i].pageNo.pid << 32) | destinations[i].slotNo);
+			}
+			long sketch = System.nanoTime() - t0;
+
+			System.out.print(String.format("  bulk insert %.0f ns per edge, of which sketch updates %.0f ns (%.1f%%)\n",
+					(double) insert / EDGES, (double) sketch / EDGES, 100.0 * sketch / insert));
+		} catch (Exception e) {
+			System.err.print("*** Estimating failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		return OK;
+	}
+
+	protected boolean test3() {
+		return true;
+	}
+
+	protected boolean test4() {
+		return true;
+	}
+
+	protected boolean test5() {
+		return true;
+	}
+
+	protected boolean test6() {
+		return true;
+	}
+
+	protected String testName() {
+		return "Distinct count sketch";
+	}
+}
+
+public class SketchBenchmark {
+
+	public static void main(String argv[]) {
+
+		SketchDriver sb = new SketchDriver();
+		boolean dbstatus;
+
+		dbstatus = sb.runTests();
+
+		if (dbstatus != true) {
+			System.err.println("Error encountered during distinct count sketch tests:\n");
+			Runtime.getRuntime().exit(1);
+		}
+
+		Runtime.getRuntime().exit(0);
+	}
+}
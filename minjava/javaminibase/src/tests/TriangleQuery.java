@@ -5,6 +5,7 @@ import java.io.IOException;
 import diskmgr.PCounter;
 
 import bufmgr.PageNotReadException;
+import edgeheap.EColumnScan;
 import edgeheap.EScan;
 import edgeheap.Edge;
 import edgeheap.EdgeHeapfile;
@@ -94,22 +95,21 @@ public class TriangleQuery {
 	private void filterTupleLabels(EdgeHeapfile hf,  String label, String outheapfile) throws 
 			HFException, HFBufMgrException, HFDiskMgrException, IOException, InvalidTupleSizeException,
 			InvalidSlotNumberException, SpaceNotAvailableException,	FieldNumberOutOfBoundException,
-			edgeheap.InvalidTupleSizeException, InvalidTypeException {
+			edgeheap.InvalidTupleSizeException, edgeheap.InvalidSlotNumberException, InvalidTypeException {
 		System.out.println("Selection on " + hf.get_file_name() + " using label: " + label + " => " + outheapfile);
 		
 		Heapfile outhf = new Heapfile(outheapfile);
-		EScan fscan = new EScan(hf);
+		// Only the labels are read to pick the edges
+		EColumnScan fscan = hf.openColumnScan(EColumnScan.LABEL);
 		EID eid = new EID();
-		Edge edge = fscan.getNext(eid);
-        while(edge != null){
-            Tuple t = new Tuple(edge.getTupleByteArray(), 0, edge.getLength());
-            t = setHdr(t);
-            String tupleLabel = t.getStrFld(1); 
-            if(tupleLabel.equals(label)){
+        while(fscan.getNext(eid)){
+            if(fscan.getLabel().equals(label)){
+                Edge edge = fscan.getEdge();
+                Tuple t = new Tuple(edge.getTupleByteArray(), 0, edge.getLength());
+                t = setHdr(t);
             	//Add tuples to the new heapfile
                 outhf.insertRecord(t.getTupleByteArray());
             }
-            edge = fscan.getNext(eid);
         }
         fscan.closescan();
 	}
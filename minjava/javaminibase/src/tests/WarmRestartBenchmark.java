@@ -0,0 +1,322 @@
+package tests;
+
+import java.io.*;
+import java.util.*;
+import global.*;
+import diskmgr.*;
+import nodeheap.*;
+import btree.*;
+import bufmgr.*;
+
+/**
+ * This class times the first queries after a restart with the warm list off
+ * (SystemDefs.MINIBASE_WARM_RESTART = false) and on. It loads the
+ * NodeInsertData and EdgeInsertData graph, runs a session of node and edge
+ * label lookups through the B-tree indexes and closes the database. Then it
+ * reopens the database again and again, alternating the setting, and times
+ * the same lookups right after each reopen. Set -Ddropcaches to a command
+ * that empties the OS page cache to time restarts from the disk. It then
+ * closes the database the way BatchTest does, flushing the buffer pool
+ * before closeDB flushes it again, and checks that the warm list keeps the
+ * pages written just before the close, and that it drops flushed pages
+ * that are freed.
+ */
+class WarmRestartDriver extends TestDriver implements GlobalConst {
+
+	private static final int NUM_DB_PAGES = 60000;
+	private static final int LOAD_BUFFERS = 2000;
+	private static final int NUM_BUFFERS = 1000;
+	private static final int PROBES = 500;
+	private static final int PASSES = 5;
+	private static final int NEW_NODES = 200;
+
+	/**
+	 * Shell command run before every restart to empty the OS page cache,
+	 * e.g. "sync; echo 3 > /proc/sys/vm/drop_caches", or null to keep it.
+	 */
+	private String dropCaches = System.getProperty("dropcaches");
+
+	private boolean OK = true;
+	private boolean FAIL = false;
+
+	public WarmRestartDriver() {
+		super("warmrestartbench");
+	}
+
+	/** Load the graph into a new database and close it. */
+	private void load(List<String> nodes, List<String> edges) throws Exception {
+		SystemDefs.MINIBASE_RESTART_FLAG = false;
+		new SystemDefs(dbpath, NUM_DB_PAGES, LOAD_BUFFERS, "Clock");
+
+		BatchNodeInsert bni = new BatchNodeInsert();
+		for (String line : nodes)
+			bni.doSingleBatchNodeInsert(line, SystemDefs.JavabaseDB.nodeHeapfile, SystemDefs.JavabaseDB);
+
+		BatchEdgeInsert bei = new BatchEdgeInsert();
+		for (String line : edges) {
+			String[] v = line.split(" ");
+			bei.doSingleBatchEdgInsert(v[0], v[1], v[2], v[3]);
+		}
+
+		GraphWorkload.closeDB();
+	}
+
+	/** Look up the records with the given label through a label index. */
+	private int probe(BTreeFile index, String label, boolean node) throws Exception {
+		GraphDB db = SystemDefs.JavabaseDB;
+		BTFileScan scan = index.new_scan(new StringKey(label), new StringKey(label));
+		int found = 0;
+		KeyDataEntry entry = scan.get_next();
+		while (entry != null) {
+			if (node) {
+				NID nid = new NID();
+				nid.copyRid(((LeafData) entry.data).getData());
+				db.nodeHeapfile.getNode(nid);
+			} else {
+				EID eid = new EID();
+				eid.copyRid(((LeafData) entry.data).getData());
+				db.edgeHeapfile.getEdge(eid);
+			}
+			found++;
+			entry = scan.get_next();
+		}
+		scan.DestroyBTreeFileScan();
+		return found;
+	}
+
+	/**
+	 * Reopen the database, run the lookups and close it again.
+	 *
+	 * @return {nanoseconds, records found}
+	 */
+	private long[] session(boolean warm, List<String> nodeLabels, List<String> edgeLabels) throws Exception {
+		if (dropCaches != null)
+			Runtime.getRuntime().exec(new String[] { "sh", "-c", dropCaches }).waitFor();
+
+		SystemDefs.MINIBASE_WARM_RESTART = warm;
+		SystemDefs.MINIBASE_RESTART_FLAG = true;
+		new SystemDefs(dbpath, 0, NUM_BUFFERS, "Clock");
+		SystemDefs.MINIBASE_RESTART_FLAG = false;
+
+		GraphDB db = SystemDefs.JavabaseDB;
+		Random rnd = new Random(23);
+		long found = 0;
+		long t0 = System.nanoTime();
+
+		for (int i = 0; i < PROBES; i++) {
+			found += probe(db.nodeLabelIndexFile, nodeLabels.get(rnd.nextInt(nodeLabels.size())), true);
+			found += probe(db.edgeLabelIndexFile, edgeLabels.get(rnd.nextInt(edgeLabels.size())), false);
+		}
+
+		long t = System.nanoTime() - t0;
+		GraphWorkload.closeDB();
+		return new long[] { t, found };
+	}
+
+	protected boolean test1() {
+		System.out.print("\n  Test 1 times " + PROBES + " node and edge lookups right after a restart\n");
+
+		List<String> nodeLabels = new ArrayList<String>();
+		List<String> edgeLabels = new ArrayList<String>();
+		try {
+			List<String> nodes = GraphWorkload.readLines("NodeInsertData.txt");
+			List<String> edges = GraphWorkload.readLines("EdgeInsertData.txt");
+			load(nodes, edges);
+			for (String line : nodes)
+				nodeLabels.add(line.split(" ")[0]);
+			for (String line : edges)
+				edgeLabels.add(line.split(" ")[2]);
+		} catch (IOException e) {
+			System.err.print("*** Could not read the workload from " + GraphWorkload.dataDir + " (set -Ddatadir)\n");
+			return FAIL;
+		} catch (Exception e) {
+			System.err.print("*** Could not load the graph\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		boolean saved = SystemDefs.MINIBASE_WARM_RESTART;
+		boolean[] settings = { false, true };
+		long[][] best = new long[2][];
+
+		try {
+			// The first session leaves the warm list for the others.
+			session(true, nodeLabels, edgeLabels);
+
+			for (int p = 0; p < PASSES; p++) {
+				for (int s = 0; s < 2; s++) {
+					long[] r = session(settings[s], nodeLabels, edgeLabels);
+					if (best[s] == null || r[0] < best[s][0])
+						best[s] = r;
+				}
+			}
+		} catch (Exception e) {
+			System.err.print("*** Lookups failed\n");
+			e.printStackTrace();
+			return FAIL;
+		} finally {
+			SystemDefs.MINIBASE_WARM_RESTART = saved;
+		}
+
+		for (int s = 0; s < 2; s++)
+			System.out.print(String.format("  warm list %-5s: %8.2f ms, %d records found\n", settings[s],
+					best[s][0] / 1e6, best[s][1]));
+
+		if (best[0][1] != best[1][1]) {
+			System.err.print("*** The lookups found different records\n");
+			return FAIL;
+		}
+
+		return OK;
+	}
+
+	/** Read the warm list the database left when it was closed. */
+	private Set<Integer> warmList() throws IOException {
+		Set<Integer> pids = new HashSet<Integer>();
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(dbpath + ".warm")));
+		try {
+			int n = in.readInt();
+			for (int i = 0; i < n; i++)
+				pids.add(in.readInt());
+		} finally {
+			in.close();
+		}
+		return pids;
+	}
+
+	protected boolean test2() {
+		System.out.print("\n  Test 2 inserts " + NEW_NODES + " nodes and closes the database as BatchTest does\n");
+
+		boolean saved = SystemDefs.MINIBASE_WARM_RESTART;
+		try {
+			// Reopen without a warm-up reading pages meanwhile; the warm list
+			// is written when the database is closed.
+			SystemDefs.MINIBASE_WARM_RESTART = false;
+			SystemDefs.MINIBASE_RESTART_FLAG = true;
+			new SystemDefs(dbpath, 0, NUM_BUFFERS, "Clock");
+			SystemDefs.MINIBASE_RESTART_FLAG = false;
+			SystemDefs.MINIBASE_WARM_RESTART = true;
+			GraphDB db = SystemDefs.JavabaseDB;
+
+			NID[] nids = new NID[NEW_NODES];
+			for (int i = 0; i < NEW_NODES; i++) {
+				Node node = new Node();
+				node.setLabel("warm_" + i);
+				node.setDesc(new Descriptor());
+				nids[i] = db.nodeHeapfile.insertNode(node.getNodeByteArray());
+			}
+
+			// BatchTest flushes the pool, then closeDB writes the counts and
+			// flushes it again.
+			db.nodeDescriptorIndexFile.close();
+			db.nodeLabelIndexFile.close();
+			db.edgeLabelIndexFile.close();
+			db.edgeWeightIndexFile.close();
+			db.edgeSourceIndexFile.close();
+			db.edgeDestinationIndexFile.close();
+			SystemDefs.JavabaseBM.flushAllPages();
+			db.closeDB();
+
+			// The data pages of the new nodes were written last, by the first
+			// flush, and are not in the pool when closeDB flushes again.
+			Set<Integer> warm = warmList();
+			for (NID nid : nids) {
+				if (!warm.contains(nid.pageNo.pid)) {
+					System.err.print("*** The data page " + nid.pageNo.pid + " of a new node is not in the warm list\n");
+					return FAIL;
+				}
+			}
+
+			// The reopened database has the new nodes.
+			SystemDefs.MINIBASE_RESTART_FLAG = true;
+			new SystemDefs(dbpath, 0, NUM_BUFFERS, "Clock");
+			SystemDefs.MINIBASE_RESTART_FLAG = false;
+			for (int i = 0; i < NEW_NODES; i++) {
+				if (!SystemDefs.JavabaseDB.nodeHeapfile.getNode(nids[i]).getLabel().equals("warm_" + i)) {
+					System.err.print("*** Node " + i + " did not read back after the reopen\n");
+					return FAIL;
+				}
+			}
+			GraphWorkload.closeDB();
+			System.out.print("  The warm list kept the data pages of the new nodes\n");
+		} catch (Exception e) {
+			System.err.print("*** Closing and reopening failed\n");
+			e.printStackTrace();
+			return FAIL;
+		} finally {
+			SystemDefs.MINIBASE_WARM_RESTART = saved;
+		}
+
+		return OK;
+	}
+
+	protected boolean test3() {
+		System.out.print("\n  Test 3 frees the flushed pages of a temporary file\n");
+
+		new SystemDefs(dbpath, 2000, 100, "Clock");
+		BufMgr bm = SystemDefs.JavabaseBM;
+		try {
+			Page pg = new Page();
+			PageId first = bm.newPage(pg, 20);
+			bm.unpinPage(first, true /* dirty */);
+			PageId pid = new PageId();
+			for (pid.pid = first.pid + 1; pid.pid < first.pid + 20; pid.pid++) {
+				bm.pinPage(pid, pg, true /* emptyPage */);
+				bm.unpinPage(pid, true /* dirty */);
+			}
+			bm.flushAllPages();
+
+			for (pid.pid = first.pid; pid.pid < first.pid + 20; pid.pid++)
+				bm.freePage(pid);
+
+			for (int warm : bm.getWarmPages()) {
+				if (warm >= first.pid && warm < first.pid + 20) {
+					System.err.print("*** The freed page " + warm + " is still in the warm list\n");
+					return FAIL;
+				}
+			}
+			GraphWorkload.closeDB();
+		} catch (Exception e) {
+			System.err.print("*** Freeing the pages failed\n");
+			e.printStackTrace();
+			return FAIL;
+		}
+
+		System.out.print("  The warm list lost the freed pages\n");
+		return OK;
+	}
+
+	protected boolean test4() {
+		return true;
+	}
+
+	protected boolean test5() {
+		return true;
+	}
+
+	protected boolean test6() {
+		return true;
+	}
+
+	protected String testName() {
+		return "Warm restart";
+	}
+}
+
+public class WarmRestartBenchmark {
+
+	public static void main(String argv[]) {
+
+		WarmRestartDriver wb = new WarmRestartDriver();
+		boolean dbstatus;
+
+		dbstatus = wb.runTests();
+
+		if (dbstatus != true) {
+			System.err.println("Error encountered during warm restart tests:\n");
+			Runtime.getRuntime().exit(1);
+		}
+
+		Runtime.getRuntime().exit(0);
+	}
+}
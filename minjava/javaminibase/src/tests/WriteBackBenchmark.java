@@ -0,0 +1,228 @@
+package tests;
+
+import java.io.*;
+import java.util.*;
+import global.*;
+import diskmgr.*;
+import nodeheap.*;
+import edgeheap.*;
+
+/**
+ * This class loads the NodeInsertData and EdgeInsertData graph into a small
+ * buffer pool with the background writer off
+ * (SystemDefs.MINIBASE_BG_WRITER_DELAY = 0) and on. For both it times the
+ * load and the closing flush, and counts the pages written. It then
+ * reopens the database and checks that every node and edge made it to disk.
+ * Last it frees pages while the background writer runs, as deleting nodes
+ * and edges does, and checks that no pin is lost and that a flush ends.
+ */
+class WriteBackDriver extends TestDriver implements GlobalConst {
+
+	private static final int NUM_DB_PAGES = 60000;
+	private static final int NUM_BUFFERS = 100;
+	private static final int EDGE_COPIES = 4;
+	private static final int FREES = 20000;
+	private static final int FREE_BATCH = 50;
+
+	private boolean OK = true;
+	private boolean FAIL = false;
+
+	public WriteBackDriver() {
+		super("writebackbench");
+	}
+
+	/**
+	 * Load the graph into a new database and close it.
+	 *
+	 * @return {load ms, flush ms, pages written}
+	 */
+	private double[] load(List<String> nodes, List<String> edges, int delay) throws Exception {
+		SystemDefs.MINIBASE_BG_WRITER_DELAY = delay;
+		SystemDefs.MINIBASE_RESTART_FLAG = false;
+		new SystemDefs(dbpath, NUM_DB_PAGES, NUM_BUFFERS, "Clock");
+		int writes = PCounter.wcounter;
+		long t0 = System.nanoTime();
+
+		BatchNodeInsert bni = new BatchNodeInsert();
+		for (String line : nodes)
+			bni.doSingleBatchNodeInsert(line, SystemDefs.JavabaseDB.nodeHeapfile, SystemDefs.JavabaseDB);
+
+		BatchEdgeInsert bei = new BatchEdgeInsert();
+		for (int c = 0; c < EDGE_COPIES; c++) {
+			for (String line : edges) {
+				String[] v = line.split(" ");
+				bei.doSingleBatchEdgInsert(v[0], v[1], v[2] + "_" + c, v[3]);
+			}
+		}
+
+		// closeDB closes the index files and flushes the pool.
+		long t1 = System.nanoTime();
+		GraphWorkload.closeDB();
+		long t2 = System.nanoTime();
+		writes = PCounter.wcounter - writes;
+
+		return new double[] { (t1 - t0) / 1e6, (t2 - t1) / 1e6, writes };
+	}
+
+	/** Reopen the database and count its nodes and edges. */
+	private long[] count() throws Exception {
+		SystemDefs.MINIBASE_RESTART_FLAG = true;
+		new SystemDefs(dbpath, 0, NUM_BUFFERS, "Clock");
+		SystemDefs.MINIBASE_RESTART_FLAG = false;
+
+		GraphDB db = SystemDefs.JavabaseDB;
+		long nodes = 0, edges = 0;
+
+		NScan ns = new NScan(db.nodeHeapfile);
+		while (ns.getNext(new NID()) != null)
+			nodes++;
+		ns.closescan();
+
+		EScan es = new EScan(db.edgeHeapfile);
+		while (es.getNext(new EID()) != null)
+			edges++;
+		es.closescan();
+
+		GraphWorkload.closeDB();
+		return new long[] { nodes, edges };
+	}
+
+	protected boolean test1() {
+		System.out.print("\n  Test 1 loads the graph into a " + NUM_BUFFERS + "-frame pool\n");
+
+		List<String> nodes, edges;
+		try {
+			nodes = GraphWorkload.readLines("NodeInsertData.txt");
+			edges = GraphWorkload.readLines("EdgeInsertData.txt");
+		} catch (IOException e) {
+			System.err.print("*** Could not read the workload from " + GraphWorkload.dataDir + " (set -Ddatadir)\n");
+			return FAIL;
+		}
+
+		int saved = SystemDefs.MINIBASE_BG_WRITER_DELAY;
+		int[] settings = { 0, saved > 0 ? saved : 200 };
+
+		try {
+			for (int s = 0; s < 2; s++) {
+				double[] r = load(nodes, edges, settings[s]);
+				long[] c = count();
+				System.out.print(String.format(
+						"  background writer %3d ms: load %9.1f ms, flush %7.2f ms, %6d pages written, %d nodes, %d edges\n",
+						settings[s], r[0], r[1], (long) r[2], c[0], c[1]));
+
+				if (c[0] != nodes.size() || c[1] != (long) EDGE_COPIES * edges.size()) {
+					System.err.print("*** Expected " + nodes.size() + " nodes and " + EDGE_COPIES * edges.size()
+							+ " edges\n");
+					return FAIL;
+				}
+			}
+		} catch (Exception e) {
+			System.err.print("*** Load failed\n");
+			e.printStackTrace();
+			return FAIL;
+		} finally {
+			SystemDefs.MINIBASE_BG_WRITER_DELAY = saved;
+		}
+
+		return OK;
+	}
+
+	protected boolean test2() {
+		System.out.print("\n  Test 2 frees " + FREES + " dirty pages while the background writer runs\n");
+
+		int saved = SystemDefs.MINIBASE_BG_WRITER_DELAY;
+		try {
+			SystemDefs.MINIBASE_BG_WRITER_DELAY = 1;
+			SystemDefs.MINIBASE_RESTART_FLAG = false;
+			new SystemDefs(dbpath, NUM_DB_PAGES, NUM_BUFFERS, "Clock");
+			final bufmgr.BufMgr bm = SystemDefs.JavabaseBM;
+			int unpinned = bm.getNumUnpinnedBuffers();
+
+			// The pages are unpinned dirty, which wakes the writer, and freed
+			// while the writer may have their frames pinned.
+			Page page = new Page();
+			PageId[] pids = new PageId[FREE_BATCH];
+			for (int i = 0; i < FREES; i += FREE_BATCH) {
+				for (int k = 0; k < FREE_BATCH; k++) {
+					pids[k] = bm.newPage(page, 1);
+					bm.unpinPage(pids[k], true);
+				}
+				for (int k = 0; k < FREE_BATCH; k++)
+					bm.freePage(pids[k]);
+			}
+
+			// A writer that lost track of its pins would keep the flush waiting.
+			final Exception[] failed = new Exception[1];
+			Thread flush = new Thread(new Runnable() {
+				public void run() {
+					try {
+						bm.flushAllPages();
+					} catch (Exception e) {
+						failed[0] = e;
+					}
+				}
+			});
+			flush.setDaemon(true);
+			flush.start();
+			flush.join(10000);
+			if (flush.isAlive()) {
+				System.err.print("*** The flush did not end\n");
+				return FAIL;
+			}
+			if (failed[0] != null)
+				throw failed[0];
+			if (bm.getNumUnpinnedBuffers() != unpinned) {
+				System.err.print("*** " + (unpinned - bm.getNumUnpinnedBuffers()) + " frames were left pinned\n");
+				return FAIL;
+			}
+			GraphWorkload.closeDB();
+		} catch (Exception e) {
+			System.err.print("*** Freeing pages failed\n");
+			e.printStackTrace();
+			return FAIL;
+		} finally {
+			SystemDefs.MINIBASE_BG_WRITER_DELAY = saved;
+		}
+
+		System.out.print("  No pin was lost and the flush ended\n");
+		return OK;
+	}
+
+	protected boolean test3() {
+		return true;
+	}
+
+	protected boolean test4() {
+		return true;
+	}
+
+	protected boolean test5() {
+		return true;
+	}
+
+	protected boolean test6() {
+		return true;
+	}
+
+	protected String testName() {
+		return "Write-back";
+	}
+}
+
+public class WriteBackBenchmark {
+
+	public static void main(String argv[]) {
+
+		WriteBackDriver wb = new WriteBackDriver();
+		boolean dbstatus;
+
+		dbstatus = wb.runTests();
+
+		if (dbstatus != true) {
+			System.err.println("Error encountered during write-back tests:\n");
+			Runtime.getRuntime().exit(1);
+		}
+
+		Runtime.getRuntime().exit(0);
+	}
+}